@@ -0,0 +1,97 @@
+package com.kira.payment.paymentlinkbe.api.paymentlink;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kira.payment.paymentlinkbe.application.paymentlink.PaymentLinkView;
+import com.kira.payment.paymentlinkbe.domain.fee.FeeBreakdown;
+import com.kira.payment.paymentlinkbe.domain.fx.FxConversion;
+import com.kira.payment.paymentlinkbe.domain.paymentlink.PaymentLinkStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merchant;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The read path of a payment link after the fee engine: entity to
+ * {@link PaymentLinkView}, view to {@link PaymentLinkResponse}, and the response
+ * to JSON with an {@link ObjectMapper} configured like the one Spring MVC uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentLinkResponseBenchmark {
+
+    private PaymentLink paymentLink;
+    private FeeBreakdown feeBreakdown;
+    private PaymentLinkView view;
+    private PaymentLinkResponse response;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+        LocalDateTime now = LocalDateTime.now();
+        paymentLink = PaymentLink.builder()
+                .id(42L)
+                .publicId(UUID.randomUUID().toString())
+                .slug("3kTMd9Qx0bA")
+                .merchant(merchant)
+                .amount(new BigDecimal("1250.40"))
+                .currency("USD")
+                .description("Invoice 2026-0042")
+                .status(PaymentLinkStatus.CREATED)
+                .expiresAt(now.plusDays(7))
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        FxConversion fxConversion = new FxConversion(
+                "USD", "MXN",
+                new BigDecimal("17.204521"), BigDecimal.ZERO,
+                new BigDecimal("17.548611"), new BigDecimal("20929.58"),
+                Instant.now(), "q_benchmark", Instant.now().plusSeconds(300)
+        );
+        feeBreakdown = new FeeBreakdown(
+                new BigDecimal("1250.40"), new BigDecimal("36.56"), new BigDecimal("12.50"),
+                BigDecimal.ZERO, new BigDecimal("49.06"), new BigDecimal("1201.34"),
+                "USD", fxConversion, null
+        );
+        view = PaymentLinkView.from(paymentLink, feeBreakdown, "http://localhost/checkout/3kTMd9Qx0bA", PspCode.STRIPE);
+        response = PaymentLinkResponse.from(view);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public PaymentLinkView viewFrom() {
+        return PaymentLinkView.from(paymentLink, feeBreakdown, "http://localhost/checkout/3kTMd9Qx0bA", PspCode.STRIPE);
+    }
+
+    @Benchmark
+    public PaymentLinkResponse responseFrom() {
+        return PaymentLinkResponse.from(view);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
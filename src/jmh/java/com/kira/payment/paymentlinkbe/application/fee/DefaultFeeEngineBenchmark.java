@@ -0,0 +1,93 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import ch.qos.logback.classic.Logger;
+import com.kira.payment.paymentlinkbe.domain.fee.FeeBreakdown;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.infraestructure.fx.FxQuoteLocks;
+import com.kira.payment.paymentlinkbe.infraestructure.fx.InMemoryFxQuoteLockStore;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfig;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfigRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.IncentiveRuleRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link DefaultFeeEngine#calculateForPaymentLink} as the link views call it: fee
+ * config served from {@link MerchantFeeConfigCache} (the repository is a stub hit
+ * only on the first call), a constant FX quote and no incentives. Logging is set
+ * to WARN, since the FX path logs every breakdown at INFO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultFeeEngineBenchmark {
+
+    private static final Long MERCHANT_ID = 1L;
+    private static final BigDecimal AMOUNT = new BigDecimal("1250.40");
+
+    @Param({"false", "true"})
+    public boolean fx;
+
+    private DefaultFeeEngine feeEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        MerchantFeeConfig config = new MerchantFeeConfig();
+        config.setFixedFee(new BigDecimal("0.30"));
+        config.setPercentageFee(new BigDecimal("0.029"));
+        config.setFxMarkupPct(new BigDecimal("0.01"));
+        MerchantFeeConfigRepository repository = mock(MerchantFeeConfigRepository.class);
+        when(repository.findByMerchantId(MERCHANT_ID)).thenReturn(Optional.of(config));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MerchantFeeConfigCache configCache = new MerchantFeeConfigCache(
+                repository, mock(PaymentRepository.class), meterRegistry, 1_000, 600, 60, 0, 30
+        );
+        BigDecimal rate = new BigDecimal("17.204521");
+        FxQuote quote = new FxQuote("USD", "MXN", rate, BigDecimal.ZERO, rate, Instant.now());
+        FxQuoteLocks quoteLocks = new FxQuoteLocks(
+                new InMemoryFxQuoteLockStore(300, 1_000), meterRegistry, "benchmark-secret", 300
+        );
+        IncentiveIndex incentiveIndex = new IncentiveIndex(mock(IncentiveRuleRepository.class));
+
+        feeEngine = new DefaultFeeEngine(
+                configCache, (base, counter) -> quote, quoteLocks, incentiveIndex, meterRegistry, 16
+        );
+        ReflectionTestUtils.setField(feeEngine, "fxEnabled", fx);
+        ReflectionTestUtils.setField(feeEngine, "payoutCurrency", "MXN");
+        ReflectionTestUtils.setField(feeEngine, "markupPercent", new BigDecimal("0.02"));
+    }
+
+    @Benchmark
+    public FeeBreakdown calculateForPaymentLink() {
+        return feeEngine.calculateForPaymentLink(MERCHANT_ID, null, AMOUNT, "USD");
+    }
+}
@@ -0,0 +1,87 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import com.kira.payment.paymentlinkbe.domain.fee.FeeBreakdown;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.LockedFxQuote;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fee calculation on scaled longs vs {@code BigDecimal}, over a batch of links
+ * the size of a {@code listAll} page. Run with {@code -prof gc} to compare
+ * allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeeArithmeticBenchmark {
+
+    private static final int LINKS = 100;
+
+    @Param({"false", "true"})
+    public boolean fx;
+
+    private MerchantFeeSchedule[] schedules;
+    private BigDecimal[] amounts;
+    private LockedFxQuote quote;
+    private BigDecimal markupPercent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42L);
+        schedules = new MerchantFeeSchedule[LINKS];
+        amounts = new BigDecimal[LINKS];
+        for (int i = 0; i < LINKS; i++) {
+            schedules[i] = new MerchantFeeSchedule(
+                    (long) i,
+                    BigDecimal.valueOf(random.nextLong(0, 500), 2),
+                    BigDecimal.valueOf(random.nextLong(100, 500), 4),
+                    BigDecimal.valueOf(random.nextLong(0, 200), 4),
+                    0L
+            );
+            amounts[i] = BigDecimal.valueOf(random.nextLong(100, 5_000_000), 2);
+        }
+        BigDecimal rate = new BigDecimal("17.204521");
+        quote = fx
+                ? new LockedFxQuote(null, null, new FxQuote("USD", "MXN", rate, BigDecimal.ZERO, rate, Instant.now()))
+                : null;
+        markupPercent = new BigDecimal("0.02");
+    }
+
+    @Benchmark
+    public FeeBreakdown[] fixedPoint() {
+        FeeBreakdown[] result = new FeeBreakdown[LINKS];
+        for (int i = 0; i < LINKS; i++) {
+            result[i] = FeeArithmetic.fixedPoint(schedules[i], amounts[i], "USD", quote, markupPercent, List.of());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public FeeBreakdown[] bigDecimal() {
+        FeeBreakdown[] result = new FeeBreakdown[LINKS];
+        for (int i = 0; i < LINKS; i++) {
+            result[i] = FeeArithmetic.decimal(schedules[i], amounts[i], "USD", quote, markupPercent, List.of());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,60 @@
+package com.kira.payment.paymentlinkbe.domain.fx;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.kira.payment.paymentlinkbe.infraestructure.fx.InMemoryFxRateProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A quote from each mock provider, without any cache in front. Logging is set to
+ * WARN so the console appender does not dominate; {@link RandomFxRateProvider}
+ * logs every quote at INFO, which costs more than the quote itself when enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FxRateProviderBenchmark {
+
+    private RandomFxRateProvider randomProvider;
+    private InMemoryFxRateProvider inMemoryProvider;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        randomProvider = new RandomFxRateProvider(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(randomProvider, "baseRatesConfig", "USD/MXN=17.20,EUR/MXN=18.90");
+        ReflectionTestUtils.setField(randomProvider, "jitterBps", 50);
+        randomProvider.init();
+
+        inMemoryProvider = new InMemoryFxRateProvider(new BigDecimal("0.01"), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public FxQuote randomGetQuote() {
+        return randomProvider.getQuote("USD", "MXN");
+    }
+
+    @Benchmark
+    public FxQuote inMemoryGetQuote() {
+        return inMemoryProvider.getQuote("USD", "COP");
+    }
+}
@@ -0,0 +1,94 @@
+package com.kira.payment.paymentlinkbe.infraestructure.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.CardToken;
+import com.kira.payment.paymentlinkbe.domain.psp.PspChargeRequest;
+import com.kira.payment.paymentlinkbe.domain.psp.PspChargeResult;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.domain.psp.PspTokenizationRequest;
+import com.kira.payment.paymentlinkbe.domain.psp.PspWebhookPublisher;
+import com.kira.payment.paymentlinkbe.infraestructure.psp.simulation.PspSimulation;
+import com.kira.payment.paymentlinkbe.infraestructure.psp.stripe.StripePspClientMock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent tokenize and charge calls on a PSP mock, half the threads each.
+ * Every charge uses a new idempotency key, so all three of the mock's stores
+ * fill up to their size bound and then evict during the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PspClientMockBenchmark {
+
+    private static final PspTokenizationRequest CARD = new PspTokenizationRequest("4242424242424242", 12, 2030, "123");
+    private static final BigDecimal AMOUNT = new BigDecimal("100.00");
+
+    private StripePspClientMock client;
+    private String token;
+
+    @State(Scope.Thread)
+    public static class IdempotencyKeys {
+        private final String prefix = "bench-" + Thread.currentThread().getId() + "-";
+        private long next;
+
+        String next() {
+            return prefix + next++;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        PspMockStores stores = new PspMockStores(new SimpleMeterRegistry(), 100_000, 900, 100_000, 86_400);
+        client = new StripePspClientMock(new NoOpWebhookPublisher(), new PspSimulation("", ""), stores);
+        token = client.tokenizeCard(CARD).token();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public CardToken tokenize() {
+        return client.tokenizeCard(CARD);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public PspChargeResult charge(IdempotencyKeys keys) {
+        return client.charge(new PspChargeRequest(token, AMOUNT, "USD", keys.next()));
+    }
+
+    private static class NoOpWebhookPublisher implements PspWebhookPublisher {
+
+        @Override
+        public void publishChargeSucceeded(PspCode pspCode, String pspChargeId, String paymentLinkId) {
+        }
+
+        @Override
+        public void publishChargeFailed(
+                PspCode pspCode,
+                String pspChargeId,
+                String paymentLinkId,
+                String failureCode,
+                String failureMessage
+        ) {
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.kira.payment.paymentlinkbe.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One buyer going through checkout: create a link, open it, tokenize a card, pay
+ * with an idempotency key and deliver the PSP webhook for the charge. A step that
+ * fails ends the flow, so later steps are only measured on flows that got there.
+ */
+public class CheckoutFlow {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final String VISA_CARD = "4242424242424242";
+    private static final String DECLINE_TOKEN = "sim_stripe_failed";
+    private static final String OUTAGE_TOKEN = "sim_stripe_exception";
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final LoadTestSettings settings;
+
+    public CheckoutFlow(HttpClient httpClient, ObjectMapper objectMapper, String baseUrl, LoadTestSettings settings) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.settings = settings;
+    }
+
+    public void run(LatencyRecorder recorder) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        Map<String, Object> createBody = new LinkedHashMap<>();
+        createBody.put("merchantId", settings.merchantId());
+        createBody.put("amount", BigDecimal.valueOf(random.nextLong(1_000, 50_000), 2));
+        createBody.put("currency", "USD");
+        createBody.put("description", "Load test");
+        JsonNode link = call(recorder, Endpoint.CREATE_LINK, post("/api/payment-links", createBody, null));
+        if (link == null) {
+            return;
+        }
+        String slug = link.path("slug").asText();
+
+        JsonNode checkout = call(recorder, Endpoint.GET_CHECKOUT, get("/api/payment-links/" + slug));
+        if (checkout == null) {
+            return;
+        }
+        JsonNode fxQuoteId = checkout.path("feeBreakdown").path("fxQuoteId");
+
+        Map<String, Object> cardBody = Map.of("cardNumber", VISA_CARD, "expMonth", 12, "expYear", 2030, "cvc", "123");
+        JsonNode token = call(recorder, Endpoint.TOKENIZE, post("/api/checkout/" + slug + "/tokenize", cardBody, null));
+        if (token == null) {
+            return;
+        }
+
+        Map<String, Object> payBody = new LinkedHashMap<>();
+        payBody.put("pspToken", paymentToken(token.path("pspToken").asText(), random.nextDouble()));
+        payBody.put("fxQuoteId", fxQuoteId.isTextual() ? fxQuoteId.asText() : null);
+        JsonNode payment = call(recorder, Endpoint.PAY,
+                post("/api/payment-links/" + slug + "/pay", payBody, UUID.randomUUID().toString()));
+        if (payment == null) {
+            return;
+        }
+
+        Map<String, Object> webhookBody = new LinkedHashMap<>();
+        webhookBody.put("pspCode", payment.path("pspUsed").asText());
+        webhookBody.put("pspChargeId", payment.path("pspReference").asText());
+        webhookBody.put("paymentId", payment.path("paymentId").asText());
+        webhookBody.put("status", "SUCCEEDED");
+        if (call(recorder, Endpoint.WEBHOOK, post("/api/webhooks/psp/charges", webhookBody, null)) == null) {
+            return;
+        }
+        recorder.flowCompleted();
+    }
+
+    private String paymentToken(String token, double draw) {
+        if (draw < settings.declineRate()) {
+            return DECLINE_TOKEN;
+        }
+        if (draw < settings.declineRate() + settings.outageRate()) {
+            return OUTAGE_TOKEN;
+        }
+        return token;
+    }
+
+    /**
+     * @return the response body, an empty node if it has none, or {@code null} if the call failed
+     */
+    private JsonNode call(LatencyRecorder recorder, Endpoint endpoint, HttpRequest request) throws InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, false);
+            return null;
+        }
+        long elapsed = System.nanoTime() - start;
+        boolean success = response.statusCode() / 100 == 2;
+        recorder.record(endpoint, elapsed, success);
+        if (!success) {
+            return null;
+        }
+        try {
+            return response.body().isEmpty()
+                    ? objectMapper.createObjectNode()
+                    : objectMapper.readTree(response.body());
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, Object body, String idempotencyKey) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json");
+        if (idempotencyKey != null) {
+            builder.header("Idempotency-Key", idempotencyKey);
+        }
+        try {
+            return builder.POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body))).build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize request body", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.kira.payment.paymentlinkbe.loadtest;
+
+/**
+ * The steps of one checkout flow, in the order {@link CheckoutFlow} calls them.
+ */
+public enum Endpoint {
+    CREATE_LINK("POST /api/payment-links"),
+    GET_CHECKOUT("GET /api/payment-links/{slug}"),
+    TOKENIZE("POST /api/checkout/{slug}/tokenize"),
+    PAY("POST /api/payment-links/{slug}/pay"),
+    WEBHOOK("POST /api/webhooks/psp/charges");
+
+    private final String route;
+
+    Endpoint(String route) {
+        this.route = route;
+    }
+
+    public String route() {
+        return route;
+    }
+}
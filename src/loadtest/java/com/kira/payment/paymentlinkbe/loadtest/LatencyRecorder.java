@@ -0,0 +1,51 @@
+package com.kira.payment.paymentlinkbe.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies in microseconds and error counts per {@link Endpoint}, shared by all
+ * the workers of one concurrency level.
+ */
+public class LatencyRecorder {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+    private final LongAdder completedFlows = new LongAdder();
+
+    public LatencyRecorder() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            histograms.put(endpoint, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    public void record(Endpoint endpoint, long elapsedNanos, boolean success) {
+        histograms.get(endpoint).recordValue(Math.max(elapsedNanos / 1_000, 1));
+        if (!success) {
+            errors.get(endpoint).increment();
+        }
+    }
+
+    public void flowCompleted() {
+        completedFlows.increment();
+    }
+
+    public Histogram histogram(Endpoint endpoint) {
+        return histograms.get(endpoint);
+    }
+
+    public long errors(Endpoint endpoint) {
+        return errors.get(endpoint).sum();
+    }
+
+    public long completedFlows() {
+        return completedFlows.sum();
+    }
+}
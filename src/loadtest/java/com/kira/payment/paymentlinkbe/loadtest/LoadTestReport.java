@@ -0,0 +1,99 @@
+package com.kira.payment.paymentlinkbe.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Collects the results of each concurrency level and writes them to
+ * {@code <output-dir>/<release>/}: a text report, and the full percentile
+ * distribution of every endpoint as an {@code .hgrm} file that the HdrHistogram
+ * plotter reads. One CSV row per level and endpoint is appended to
+ * {@code <output-dir>/results.csv} so results can be compared across releases.
+ */
+public class LoadTestReport {
+
+    private static final double MICROS_PER_MILLI = 1_000.0;
+    private static final String CSV_HEADER =
+            "release,started_at,concurrency,endpoint,count,errors,requests_per_second,p50_ms,p99_ms,p999_ms,max_ms";
+
+    private final LoadTestSettings settings;
+    private final Instant startedAt = Instant.now();
+    private final List<String> lines = new ArrayList<>();
+    private final List<String> csvRows = new ArrayList<>();
+
+    public LoadTestReport(LoadTestSettings settings) {
+        this.settings = settings;
+        lines.add(String.format(Locale.ROOT,
+                "Release %s, started %s, warmup %ds, duration %ds per level, decline-rate %.2f, outage-rate %.2f",
+                settings.release(), startedAt, settings.warmupSeconds(), settings.durationSeconds(),
+                settings.declineRate(), settings.outageRate()));
+        settings.pspProfiles().forEach((psp, profile) -> lines.add("PSP " + psp + " simulation: " + profile));
+    }
+
+    public void addLevel(int concurrency, LatencyRecorder recorder) {
+        double seconds = settings.durationSeconds();
+        lines.add("");
+        lines.add(String.format(Locale.ROOT, "Concurrency %d: %d completed flows, %.1f flows/s",
+                concurrency, recorder.completedFlows(), recorder.completedFlows() / seconds));
+        lines.add(String.format(Locale.ROOT, "%-36s %9s %8s %9s %9s %9s %9s %9s",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = recorder.histogram(endpoint);
+            long count = histogram.getTotalCount();
+            double p50 = histogram.getValueAtPercentile(50.0) / MICROS_PER_MILLI;
+            double p99 = histogram.getValueAtPercentile(99.0) / MICROS_PER_MILLI;
+            double p999 = histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI;
+            double max = histogram.getMaxValue() / MICROS_PER_MILLI;
+            lines.add(String.format(Locale.ROOT, "%-36s %9d %8d %9.1f %9.2f %9.2f %9.2f %9.2f",
+                    endpoint.route(), count, recorder.errors(endpoint), count / seconds, p50, p99, p999, max));
+            csvRows.add(String.format(Locale.ROOT, "%s,%s,%d,%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f",
+                    settings.release(), startedAt, concurrency, endpoint.name(), count, recorder.errors(endpoint),
+                    count / seconds, p50, p99, p999, max));
+            writeDistribution(concurrency, endpoint, histogram);
+        }
+    }
+
+    public void write(PrintStream out) {
+        lines.forEach(out::println);
+        try {
+            Files.createDirectories(releaseDir());
+            Files.write(releaseDir().resolve("report.txt"), lines, StandardCharsets.UTF_8);
+            Path csv = settings.outputDir().resolve("results.csv");
+            if (Files.notExists(csv)) {
+                Files.writeString(csv, CSV_HEADER + System.lineSeparator(), StandardCharsets.UTF_8);
+            }
+            Files.write(csv, csvRows, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        out.println();
+        out.println("Report written to " + releaseDir().toAbsolutePath());
+    }
+
+    private void writeDistribution(int concurrency, Endpoint endpoint, Histogram histogram) {
+        Path file = releaseDir().resolve("c" + concurrency + "-" + endpoint.name().toLowerCase(Locale.ROOT) + ".hgrm");
+        try {
+            Files.createDirectories(releaseDir());
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+                histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path releaseDir() {
+        return settings.outputDir().resolve(settings.release());
+    }
+}
@@ -0,0 +1,119 @@
+package com.kira.payment.paymentlinkbe.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kira.payment.paymentlinkbe.PaymentLinkBeApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the checkout flow in a closed loop at each configured concurrency level:
+ * every worker starts the next flow as soon as the previous one ends, so the
+ * numbers are service times at that concurrency, not latencies under a fixed
+ * arrival rate.
+ * <p>
+ * Without {@code --base-url} the application is started in this JVM with the
+ * {@code loadtest} profile, against the PostgreSQL from
+ * {@code src/loadtest/docker-compose.yml} and the mock PSPs. {@code --psp-<code>}
+ * options set the mocks' latency and failure profiles before the first level.
+ */
+@Slf4j
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.parse(args);
+        ConfigurableApplicationContext context = null;
+        String baseUrl = settings.baseUrl();
+        if (baseUrl == null) {
+            context = new SpringApplicationBuilder(PaymentLinkBeApplication.class)
+                    .profiles("loadtest")
+                    .properties("server.port=0")
+                    .run();
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            ObjectMapper objectMapper = new ObjectMapper();
+            applyPspProfiles(httpClient, objectMapper, baseUrl, settings);
+            CheckoutFlow flow = new CheckoutFlow(httpClient, objectMapper, baseUrl, settings);
+            LoadTestReport report = new LoadTestReport(settings);
+            for (int concurrency : settings.concurrency()) {
+                log.info("Concurrency {}: warming up for {}s", concurrency, settings.warmupSeconds());
+                runLevel(flow, concurrency, Duration.ofSeconds(settings.warmupSeconds()), new LatencyRecorder());
+                log.info("Concurrency {}: recording for {}s", concurrency, settings.durationSeconds());
+                LatencyRecorder recorder = new LatencyRecorder();
+                runLevel(flow, concurrency, Duration.ofSeconds(settings.durationSeconds()), recorder);
+                report.addLevel(concurrency, recorder);
+            }
+            report.write(System.out);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /** Sets the mock PSPs' simulation profiles through the {@code pspsimulation} actuator endpoint. */
+    private static void applyPspProfiles(
+            HttpClient httpClient,
+            ObjectMapper objectMapper,
+            String baseUrl,
+            LoadTestSettings settings
+    ) throws Exception {
+        for (Map.Entry<String, String> entry : settings.pspProfiles().entrySet()) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/pspsimulation/" + entry.getKey()))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            objectMapper.writeValueAsString(Map.of("profile", entry.getValue()))))
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 != 2) {
+                throw new IllegalStateException("Cannot set the " + entry.getKey() + " simulation profile: "
+                        + response.statusCode() + " " + response.body());
+            }
+            log.info("PSP {} simulation profile: {}", entry.getKey(), response.body());
+        }
+    }
+
+    private static void runLevel(CheckoutFlow flow, int concurrency, Duration duration, LatencyRecorder recorder)
+            throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<?>> running = new ArrayList<>(concurrency);
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                running.add(workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        flow.run(recorder);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : running) {
+                worker.get();
+            }
+        } finally {
+            workers.shutdownNow();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.kira.payment.paymentlinkbe.loadtest;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Settings of a load test run, parsed from {@code --name=value} arguments.
+ *
+ * @param baseUrl        URL of a running instance, or {@code null} to start one in process
+ * @param concurrency    the concurrency levels to measure, each with its own report section
+ * @param warmupSeconds  how long each level runs before recording starts
+ * @param durationSeconds how long each level is recorded
+ * @param merchantId     merchant the links are created for; the demo merchant is routed to STRIPE
+ * @param declineRate    share of payments made with a token the primary PSP declines
+ * @param outageRate     share of payments made with a token the primary PSP throws on
+ * @param pspProfiles    simulation profile per PSP code, applied through the actuator before the run
+ * @param release        label written to the report, normally the project version
+ * @param outputDir      where the report, the CSV and the HdrHistogram files are written
+ */
+public record LoadTestSettings(
+        String baseUrl,
+        List<Integer> concurrency,
+        int warmupSeconds,
+        int durationSeconds,
+        long merchantId,
+        double declineRate,
+        double outageRate,
+        Map<String, String> pspProfiles,
+        String release,
+        Path outputDir
+) {
+
+    public static LoadTestSettings parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        LoadTestSettings settings = new LoadTestSettings(
+                values.get("base-url"),
+                Arrays.stream(values.getOrDefault("concurrency", "1,8,32").split(","))
+                        .map(String::trim)
+                        .map(Integer::parseInt)
+                        .toList(),
+                Integer.parseInt(values.getOrDefault("warmup-seconds", "10")),
+                Integer.parseInt(values.getOrDefault("duration-seconds", "30")),
+                Long.parseLong(values.getOrDefault("merchant-id", "1")),
+                Double.parseDouble(values.getOrDefault("decline-rate", "0")),
+                Double.parseDouble(values.getOrDefault("outage-rate", "0")),
+                pspProfiles(values),
+                values.getOrDefault("release", "dev"),
+                Path.of(values.getOrDefault("output-dir", "target/loadtest"))
+        );
+        if (settings.declineRate() + settings.outageRate() > 1.0) {
+            throw new IllegalArgumentException("decline-rate + outage-rate must not exceed 1");
+        }
+        return settings;
+    }
+
+    /** {@code --psp-stripe=median-latency-ms=120,...} becomes {@code STRIPE -> median-latency-ms=120,...}. */
+    private static Map<String, String> pspProfiles(Map<String, String> values) {
+        Map<String, String> profiles = new TreeMap<>();
+        values.forEach((name, value) -> {
+            if (name.startsWith("psp-")) {
+                profiles.put(name.substring(4).toUpperCase(Locale.ROOT), value);
+            }
+        });
+        return profiles;
+    }
+}
@@ -2,8 +2,11 @@ package com.kira.payment.paymentlinkbe.api.error;
 
 import com.kira.payment.paymentlinkbe.application.paymentlink.PaymentLinkInvalidStateException;
 import com.kira.payment.paymentlinkbe.application.paymentlink.PaymentLinkNotFoundException;
+import com.kira.payment.paymentlinkbe.application.webhook.WebhookIngestionUnavailableException;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuoteExpiredException;
 import com.kira.payment.paymentlinkbe.domain.merchant.MerchantNotFoundException;
 import com.kira.payment.paymentlinkbe.domain.merchant.RecipientNotFoundException;
+import com.kira.payment.paymentlinkbe.domain.psp.PspOutcomeUnknownException;
 import com.kira.payment.paymentlinkbe.domain.psp.PspRoutingException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
@@ -44,6 +47,48 @@ public class ApiExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(body);
     }
 
+    @ExceptionHandler(PspOutcomeUnknownException.class)
+    public ResponseEntity<ApiErrorResponse> handlePspOutcomeUnknown(
+            PspOutcomeUnknownException ex,
+            HttpServletRequest request
+    ) {
+        ApiErrorResponse body = ApiErrorResponse.of(
+                HttpStatus.GATEWAY_TIMEOUT,
+                "PSP_OUTCOME_UNKNOWN",
+                "We could not confirm your payment with the PSP yet. It is being confirmed; please do not pay again.",
+                request.getRequestURI()
+        );
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(body);
+    }
+
+    @ExceptionHandler(WebhookIngestionUnavailableException.class)
+    public ResponseEntity<ApiErrorResponse> handleWebhookIngestionUnavailable(
+            WebhookIngestionUnavailableException ex,
+            HttpServletRequest request
+    ) {
+        ApiErrorResponse body = ApiErrorResponse.of(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                "WEBHOOK_INGESTION_UNAVAILABLE",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
+
+    @ExceptionHandler(FxQuoteExpiredException.class)
+    public ResponseEntity<ApiErrorResponse> handleFxQuoteExpired(
+            FxQuoteExpiredException ex,
+            HttpServletRequest request
+    ) {
+        ApiErrorResponse body = ApiErrorResponse.of(
+                HttpStatus.CONFLICT,
+                "FX_QUOTE_EXPIRED",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiErrorResponse> handleMethodArgumentNotValid(MethodArgumentNotValidException ex) {
         String message = ex.getBindingResult().getFieldErrors().stream()
@@ -1,7 +1,9 @@
 package com.kira.payment.paymentlinkbe.api.paymentlink;
 
 import com.kira.payment.paymentlinkbe.domain.fee.FeeBreakdown;
+import com.kira.payment.paymentlinkbe.domain.fx.FxConversion;
 import java.math.BigDecimal;
+import java.time.Instant;
 
 public record FeeBreakdownResponse(
         BigDecimal baseAmount,
@@ -10,13 +12,19 @@ public record FeeBreakdownResponse(
         BigDecimal incentiveDiscount,
         BigDecimal totalFees,
         BigDecimal finalAmount,
-        String currency
+        String currency,
+        BigDecimal fxRate,
+        BigDecimal payoutAmount,
+        String payoutCurrency,
+        String fxQuoteId,
+        Instant fxQuoteExpiresAt
 ) {
 
     public static FeeBreakdownResponse from(FeeBreakdown fb) {
         if (fb == null) {
             return null;
         }
+        FxConversion fx = fb.fxConversion();
         return new FeeBreakdownResponse(
                 fb.baseAmount(),
                 fb.processingFee(),
@@ -24,7 +32,12 @@ public record FeeBreakdownResponse(
                 fb.incentiveDiscount(),
                 fb.totalFees(),
                 fb.finalAmount(),
-                fb.currency()
+                fb.currency(),
+                fx != null ? fx.appliedRate() : null,
+                fx != null ? fx.payoutAmount() : null,
+                fx != null ? fx.toCurrency() : null,
+                fx != null ? fx.quoteId() : null,
+                fx != null ? fx.quoteExpiresAt() : null
         );
     }
 }
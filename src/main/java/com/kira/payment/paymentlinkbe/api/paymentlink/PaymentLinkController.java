@@ -6,6 +6,7 @@ import com.kira.payment.paymentlinkbe.application.paymentlink.CreatePaymentLinkC
 import com.kira.payment.paymentlinkbe.application.paymentlink.PaymentLinkApplicationService;
 import com.kira.payment.paymentlinkbe.application.paymentlink.PaymentLinkInvalidStateException;
 import com.kira.payment.paymentlinkbe.application.paymentlink.PaymentLinkNotFoundException;
+import com.kira.payment.paymentlinkbe.application.paymentlink.PaymentLinkPage;
 import com.kira.payment.paymentlinkbe.application.paymentlink.PaymentLinkView;
 import com.kira.payment.paymentlinkbe.application.paymentlink.ProcessPaymentCommand;
 import com.kira.payment.paymentlinkbe.application.paymentlink.ProcessPaymentResult;
@@ -17,8 +18,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @Tag(name = "Payment Links", description = "Operations for creating and managing payment links")
 @RestController
 @RequestMapping("/api/payment-links")
@@ -79,19 +78,31 @@ public class PaymentLinkController {
                 new ProcessPaymentCommand(
                         request.pspToken(),
                         request.pspHint(),
-                        idempotencyKey
+                        idempotencyKey,
+                        request.fxQuoteId()
                 )
         );
         return ProcessPaymentResponse.from(result);
     }
 
+    @Operation(
+            summary = "List payment links",
+            description = """
+                    Returns payment links newest first, optionally filtered by merchant.
+                    Pages are keyset-based: pass the returned nextCursor to fetch the next page.
+                    """
+    )
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    public List<PaymentLinkResponse> listByMerchant() {
-        List<PaymentLinkView> views = paymentLinkService.listAll();
-        return views.stream()
-                .map(PaymentLinkResponse::from)
-                .toList();
+    public PaymentLinkPageResponse listByMerchant(
+            @RequestParam(required = false) Long merchantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        PaymentLinkPage page = merchantId != null
+                ? paymentLinkService.listByMerchant(merchantId, cursor, limit)
+                : paymentLinkService.listAll(cursor, limit);
+        return PaymentLinkPageResponse.from(page);
     }
 
     @PutMapping("/{slug}")
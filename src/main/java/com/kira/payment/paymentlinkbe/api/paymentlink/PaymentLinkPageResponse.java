@@ -0,0 +1,20 @@
+package com.kira.payment.paymentlinkbe.api.paymentlink;
+
+import com.kira.payment.paymentlinkbe.application.paymentlink.PaymentLinkPage;
+
+import java.util.List;
+
+public record PaymentLinkPageResponse(
+        List<PaymentLinkResponse> items,
+        String nextCursor
+) {
+
+    public static PaymentLinkPageResponse from(PaymentLinkPage page) {
+        return new PaymentLinkPageResponse(
+                page.items().stream()
+                        .map(PaymentLinkResponse::from)
+                        .toList(),
+                page.nextCursor()
+        );
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.Size;
 
 public record ProcessPaymentRequest(
         @NotBlank String pspToken,
-        @Size(max = 32) String pspHint
+        @Size(max = 32) String pspHint,
+        @Size(max = 128) String fxQuoteId
 ) {
 }
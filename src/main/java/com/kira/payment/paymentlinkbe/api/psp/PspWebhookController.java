@@ -1,10 +1,12 @@
 package com.kira.payment.paymentlinkbe.api.psp;
 
-import com.kira.payment.paymentlinkbe.application.webhook.WebhookApplicationService;
+import com.kira.payment.paymentlinkbe.application.webhook.PspChargeEvent;
+import com.kira.payment.paymentlinkbe.application.webhook.WebhookIngestionService;
 import com.kira.payment.paymentlinkbe.domain.psp.ChargeStatus;
 import com.kira.payment.paymentlinkbe.domain.psp.PspChargeWebhookRequest;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -18,30 +20,27 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class PspWebhookController {
 
-    private final WebhookApplicationService webhookApplicationService;
+    private final WebhookIngestionService webhookIngestionService;
 
     @Operation(
             summary = "Handle PSP charge webhook",
-            description = "Receives charge status callbacks (SUCCEEDED/FAILED) from PSP mocks"
+            description = "Receives charge status callbacks (SUCCEEDED/FAILED) from PSP mocks. "
+                    + "Acknowledged once durably queued; applied to payments asynchronously. "
+                    + "Callbacks without pspCode, pspChargeId or status are rejected with 400 before queueing."
     )
     @PostMapping("/charges")
     public ResponseEntity<Void> handleChargeWebhook(
-            @RequestBody PspChargeWebhookRequest request
+            @Valid @RequestBody PspChargeWebhookRequest request
     ) {
-        if (request.status() == ChargeStatus.SUCCEEDED) {
-            webhookApplicationService.handlePspChargeSucceeded(
-                    request.pspCode(),
-                    request.pspChargeId(),
-                    request.paymentId()
-            );
-        } else if (request.status() == ChargeStatus.FAILED) {
-            webhookApplicationService.handlePspChargeFailed(
+        if (request.status() == ChargeStatus.SUCCEEDED || request.status() == ChargeStatus.FAILED) {
+            webhookIngestionService.submit(PspChargeEvent.received(
                     request.pspCode(),
+                    request.status(),
                     request.pspChargeId(),
                     request.paymentId(),
                     request.failureCode(),
                     request.failureMessage()
-            );
+            ));
         }
         return ResponseEntity.ok().build();
     }
@@ -0,0 +1,43 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import com.kira.payment.paymentlinkbe.domain.payment.DiscountType;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.IncentiveRule;
+
+import java.math.BigDecimal;
+
+/**
+ * An active {@code incentive_rule} as held by {@link IncentiveIndex}. A
+ * {@link DiscountType#PERCENTAGE} value is a fraction of the fees ({@code 1} waives
+ * them), a {@link DiscountType#FIXED} one an amount in the payment currency; either
+ * way the discount never exceeds the fees.
+ *
+ * @param maxTransactions how many payments may get the discount, {@code null} for no limit
+ * @param scaledValue     {@code discountValue} at {@link FixedPointMoney#PERCENT_SCALE},
+ *                        or {@code null} if it has more decimals
+ */
+public record ActiveIncentive(
+        Long ruleId,
+        Long merchantId,
+        Integer maxTransactions,
+        DiscountType discountType,
+        BigDecimal discountValue,
+        Long scaledValue
+) {
+
+    static ActiveIncentive from(IncentiveRule rule) {
+        Long scaledValue;
+        try {
+            scaledValue = FixedPointMoney.toScaled(rule.getDiscountValue(), FixedPointMoney.PERCENT_SCALE);
+        } catch (ArithmeticException e) {
+            scaledValue = null;
+        }
+        return new ActiveIncentive(
+                rule.getId(),
+                rule.getMerchant().getId(),
+                rule.getMaxTransactions(),
+                rule.getDiscountType(),
+                rule.getDiscountValue(),
+                scaledValue
+        );
+    }
+}
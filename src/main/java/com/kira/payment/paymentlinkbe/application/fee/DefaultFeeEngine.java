@@ -2,26 +2,54 @@ package com.kira.payment.paymentlinkbe.application.fee;
 
 import com.kira.payment.paymentlinkbe.domain.fee.FeeBreakdown;
 import com.kira.payment.paymentlinkbe.domain.fee.FeeEngine;
+import com.kira.payment.paymentlinkbe.domain.fee.FeeQuoteRequest;
+import com.kira.payment.paymentlinkbe.domain.fx.FxConversion;
 import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuoteExpiredException;
 import com.kira.payment.paymentlinkbe.domain.fx.FxRateProvider;
-import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfig;
-import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfigRepository;
-import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import com.kira.payment.paymentlinkbe.domain.fx.LockedFxQuote;
+import com.kira.payment.paymentlinkbe.infraestructure.fx.FxQuoteLocks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Every calculation is counted in {@code fee.calculations}; only one in
+ * {@code fee.metrics.latency-sample-rate} is timed in {@code fee.calculation.latency},
+ * since reading the clock would cost a noticeable share of a calculation.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class DefaultFeeEngine implements FeeEngine {
 
-    private final MerchantFeeConfigRepository merchantFeeConfigRepository;
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private enum Operation {
+        LINK, LINKS, CHECKOUT, CHARGE
+    }
+
+    private final MerchantFeeConfigCache merchantFeeConfigCache;
     private final FxRateProvider fxRateProvider;
+    private final FxQuoteLocks fxQuoteLocks;
+    private final IncentiveIndex incentiveIndex;
+    private final int latencySampleRate;
+    private final Map<Operation, Counter> succeeded = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> failed = new EnumMap<>(Operation.class);
+    private final Map<Operation, Timer> latency = new EnumMap<>(Operation.class);
 
     @Value("${fx.enabled:false}")
     private boolean fxEnabled;
@@ -30,7 +58,28 @@ public class DefaultFeeEngine implements FeeEngine {
     @Value("${fx.markup-percent:0.00}")
     private BigDecimal markupPercent;
 
-    @Transactional
+    public DefaultFeeEngine(MerchantFeeConfigCache merchantFeeConfigCache,
+                            FxRateProvider fxRateProvider,
+                            FxQuoteLocks fxQuoteLocks,
+                            IncentiveIndex incentiveIndex,
+                            MeterRegistry meterRegistry,
+                            @Value("${fee.metrics.latency-sample-rate:16}") int latencySampleRate) {
+        this.merchantFeeConfigCache = merchantFeeConfigCache;
+        this.fxRateProvider = fxRateProvider;
+        this.fxQuoteLocks = fxQuoteLocks;
+        this.incentiveIndex = incentiveIndex;
+        this.latencySampleRate = Math.max(latencySampleRate, 1);
+        for (Operation operation : Operation.values()) {
+            String name = operation.name().toLowerCase();
+            succeeded.put(operation, calculations(meterRegistry, name, "success"));
+            failed.put(operation, calculations(meterRegistry, name, "error"));
+            latency.put(operation, Timer.builder("fee.calculation.latency")
+                    .description("Latency of a sample of successful fee calculations")
+                    .tag("operation", name)
+                    .register(meterRegistry));
+        }
+    }
+
     @Override
     public FeeBreakdown calculateForPaymentLink(
             Long merchantId,
@@ -38,63 +87,210 @@ public class DefaultFeeEngine implements FeeEngine {
             BigDecimal amount,
             String currency
     ) {
-        MerchantFeeConfig config = merchantFeeConfigRepository.findByMerchantId(merchantId)
-                .orElseThrow(() -> new IllegalStateException(
-                        "Merchant fee config not found for merchant " + merchantId));
-        BigDecimal baseAmount = amount.setScale(2, RoundingMode.HALF_UP);
+        long start = startSample();
+        boolean ok = false;
+        try {
+            FeeBreakdown breakdown = calculate(merchantId, amount, currency, false, null);
+            ok = true;
+            return breakdown;
+        } finally {
+            record(Operation.LINK, start, ok);
+        }
+    }
 
-        BigDecimal processingFee = calculatePercentageFee(baseAmount, config.getPercentageFee())
-                .add(nullSafe(config.getFixedFee()));
+    /**
+     * Timed once for the whole batch, not per link.
+     */
+    @Override
+    public List<FeeBreakdown> calculateForPaymentLinks(List<FeeQuoteRequest> requests) {
+        long start = startSample();
+        boolean ok = false;
+        try {
+            List<FeeBreakdown> breakdowns = calculateBatch(requests);
+            ok = true;
+            return breakdowns;
+        } finally {
+            record(Operation.LINKS, start, ok);
+        }
+    }
 
-        BigDecimal fxFee = calculatePercentageFee(baseAmount, config.getFxMarkupPct());
+    private List<FeeBreakdown> calculateBatch(List<FeeQuoteRequest> requests) {
+        Set<Long> merchantIds = new HashSet<>();
+        for (FeeQuoteRequest request : requests) {
+            merchantIds.add(request.merchantId());
+        }
+        Map<Long, MerchantFeeSchedule> configs = merchantFeeConfigCache.getAll(merchantIds);
+        Map<String, LockedFxQuote> quotesByCurrency = new HashMap<>();
 
-        BigDecimal incentiveDiscount = BigDecimal.ZERO;
+        List<FeeBreakdown> breakdowns = new ArrayList<>(requests.size());
+        for (FeeQuoteRequest request : requests) {
+            MerchantFeeSchedule config = requireConfig(request.merchantId(), configs.get(request.merchantId()));
+            LockedFxQuote fx = null;
+            if (fxApplies(request.currency())) {
+                fx = quotesByCurrency.computeIfAbsent(request.currency(), currency ->
+                        new LockedFxQuote(null, null, fxRateProvider.getQuote(currency, payoutCurrency)));
+            }
+            breakdowns.add(calculate(
+                    request.merchantId(),
+                    config,
+                    request.amount(),
+                    request.currency(),
+                    fx,
+                    incentiveIndex.available(request.merchantId())
+            ));
+        }
+        return breakdowns;
+    }
 
-        BigDecimal totalFees = processingFee
-                .add(fxFee)
-                .subtract(incentiveDiscount);
-        BigDecimal finalAmount = baseAmount.subtract(totalFees);
-        if (fxEnabled && !currency.equalsIgnoreCase(payoutCurrency)) {
-            FxQuote quote = fxRateProvider.getQuote(currency, payoutCurrency);
+    @Override
+    public FeeBreakdown quoteForCheckout(
+            Long merchantId,
+            Long recipientId,
+            BigDecimal amount,
+            String currency
+    ) {
+        long start = startSample();
+        boolean ok = false;
+        try {
+            FeeBreakdown breakdown = calculate(merchantId, amount, currency, true, null);
+            ok = true;
+            return breakdown;
+        } finally {
+            record(Operation.CHECKOUT, start, ok);
+        }
+    }
 
-            BigDecimal effectiveRate = quote.effectiveRate();
-            BigDecimal rateWithExtraMarkup = effectiveRate
-                    .multiply(BigDecimal.ONE.add(nullSafe(markupPercent)))
-                    .setScale(6, RoundingMode.HALF_UP);
+    /**
+     * Takes a use of the applied incentive; when another payment took the last one
+     * first, the next best incentive is tried.
+     */
+    @Override
+    public FeeBreakdown calculateForCharge(
+            Long merchantId,
+            Long recipientId,
+            BigDecimal amount,
+            String currency,
+            String fxQuoteId
+    ) {
+        long start = startSample();
+        boolean ok = false;
+        try {
+            FeeBreakdown breakdown = calculateCharge(merchantId, amount, currency, fxQuoteId);
+            ok = true;
+            return breakdown;
+        } finally {
+            record(Operation.CHARGE, start, ok);
+        }
+    }
 
-            BigDecimal payoutAmount = finalAmount
-                    .multiply(rateWithExtraMarkup)
-                    .setScale(2, RoundingMode.HALF_UP);
+    private FeeBreakdown calculateCharge(Long merchantId, BigDecimal amount, String currency, String fxQuoteId) {
+        MerchantFeeSchedule config = requireConfig(merchantId, merchantFeeConfigCache.get(merchantId));
+        String lockedQuoteId = fxQuoteId == null || fxQuoteId.isBlank() ? null : fxQuoteId;
+        LockedFxQuote fx = fxApplies(currency) ? obtainQuote(currency, false, lockedQuoteId) : null;
 
+        List<ActiveIncentive> incentives = incentiveIndex.available(merchantId);
+        while (true) {
+            FeeBreakdown breakdown = calculate(merchantId, config, amount, currency, fx, incentives);
+            if (breakdown.incentiveRuleId() == null) {
+                return breakdown;
+            }
+            ActiveIncentive applied = incentives.stream()
+                    .filter(incentive -> incentive.ruleId().equals(breakdown.incentiveRuleId()))
+                    .findFirst()
+                    .orElseThrow();
+            if (incentiveIndex.tryAcquire(applied)) {
+                return breakdown;
+            }
+            incentives = incentives.stream().filter(incentive -> incentive != applied).toList();
+        }
+    }
+
+    private FeeBreakdown calculate(
+            Long merchantId,
+            BigDecimal amount,
+            String currency,
+            boolean lockQuote,
+            String lockedQuoteId
+    ) {
+        MerchantFeeSchedule config = requireConfig(merchantId, merchantFeeConfigCache.get(merchantId));
+        LockedFxQuote fx = fxApplies(currency) ? obtainQuote(currency, lockQuote, lockedQuoteId) : null;
+        return calculate(merchantId, config, amount, currency, fx, incentiveIndex.available(merchantId));
+    }
+
+    /**
+     * Runs the fee arithmetic on scaled longs and only falls back to
+     * {@code BigDecimal} when the inputs do not fit; see {@link FeeArithmetic}.
+     */
+    private FeeBreakdown calculate(
+            Long merchantId,
+            MerchantFeeSchedule config,
+            BigDecimal amount,
+            String currency,
+            LockedFxQuote fx,
+            List<ActiveIncentive> incentives
+    ) {
+        FeeBreakdown breakdown = FeeArithmetic.fixedPoint(config, amount, currency, fx, markupPercent, incentives);
+        if (breakdown == null) {
+            breakdown = FeeArithmetic.decimal(config, amount, currency, fx, markupPercent, incentives);
+        }
+
+        FxConversion fxConversion = breakdown.fxConversion();
+        if (fxConversion != null) {
             log.info(
                     "FX breakdown for merchantId={}: net={} {}, providerRate={} {}, rateWithMarkup={} {}, payout={} {}",
                     merchantId,
-                    finalAmount, currency,
-                    effectiveRate, payoutCurrency,
-                    rateWithExtraMarkup, payoutCurrency,
-                    payoutAmount, payoutCurrency
+                    breakdown.finalAmount(), currency,
+                    fxConversion.providerRate(), payoutCurrency,
+                    fxConversion.appliedRate(), payoutCurrency,
+                    fxConversion.payoutAmount(), payoutCurrency
             );
         }
+        return breakdown;
+    }
+
+    private long startSample() {
+        return ThreadLocalRandom.current().nextInt(latencySampleRate) == 0 ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    private void record(Operation operation, long startNanos, boolean ok) {
+        (ok ? succeeded : failed).get(operation).increment();
+        if (ok && startNanos != NOT_SAMPLED) {
+            latency.get(operation).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
 
-        return new FeeBreakdown(
-                baseAmount,
-                processingFee.setScale(2, RoundingMode.HALF_UP),
-                fxFee.setScale(2, RoundingMode.HALF_UP),
-                incentiveDiscount.setScale(2, RoundingMode.HALF_UP),
-                totalFees.setScale(2, RoundingMode.HALF_UP),
-                finalAmount.setScale(2, RoundingMode.HALF_UP),
-                currency
-        );
+    private static Counter calculations(MeterRegistry meterRegistry, String operation, String outcome) {
+        return Counter.builder("fee.calculations")
+                .description("Fee engine calculations, including the FX quote and incentive lookups")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
-    private BigDecimal calculatePercentageFee(BigDecimal base, BigDecimal pct) {
-        if (pct == null || BigDecimal.ZERO.compareTo(pct) == 0) {
-            return BigDecimal.ZERO;
+    private boolean fxApplies(String currency) {
+        return fxEnabled && !currency.equalsIgnoreCase(payoutCurrency);
+    }
+
+    private static MerchantFeeSchedule requireConfig(Long merchantId, MerchantFeeSchedule config) {
+        if (config == null) {
+            throw new IllegalStateException("Merchant fee config not found for merchant " + merchantId);
         }
-        return base.multiply(pct);
+        return config;
     }
 
-    private BigDecimal nullSafe(BigDecimal value) {
-        return value != null ? value : BigDecimal.ZERO;
+    /**
+     * Reuses the quote locked under {@code lockedQuoteId} when given, otherwise
+     * fetches a fresh one and locks it if asked to.
+     */
+    private LockedFxQuote obtainQuote(String currency, boolean lockQuote, String lockedQuoteId) {
+        if (lockedQuoteId != null) {
+            return fxQuoteLocks.resolve(lockedQuoteId)
+                    .filter(locked -> locked.quote().baseCurrency().equalsIgnoreCase(currency)
+                            && locked.quote().counterCurrency().equalsIgnoreCase(payoutCurrency))
+                    .orElseThrow(() -> new FxQuoteExpiredException(
+                            "FX quote is expired or invalid, reload the checkout to get a new one"));
+        }
+        FxQuote quote = fxRateProvider.getQuote(currency, payoutCurrency);
+        return lockQuote ? fxQuoteLocks.lock(quote) : new LockedFxQuote(null, null, quote);
     }
 }
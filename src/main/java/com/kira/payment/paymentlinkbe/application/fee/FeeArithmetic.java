@@ -0,0 +1,213 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import com.kira.payment.paymentlinkbe.domain.fee.FeeBreakdown;
+import com.kira.payment.paymentlinkbe.domain.fx.FxConversion;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.LockedFxQuote;
+import com.kira.payment.paymentlinkbe.domain.payment.DiscountType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static com.kira.payment.paymentlinkbe.application.fee.FixedPointMoney.MONEY_SCALE;
+import static com.kira.payment.paymentlinkbe.application.fee.FixedPointMoney.PERCENT_SCALE;
+import static com.kira.payment.paymentlinkbe.application.fee.FixedPointMoney.RATE_SCALE;
+import static com.kira.payment.paymentlinkbe.application.fee.FixedPointMoney.rescaleHalfUp;
+import static com.kira.payment.paymentlinkbe.application.fee.FixedPointMoney.toDecimal;
+import static com.kira.payment.paymentlinkbe.application.fee.FixedPointMoney.toScaled;
+import static com.kira.payment.paymentlinkbe.application.fee.FixedPointMoney.upscale;
+
+/**
+ * The fee and FX arithmetic of {@link DefaultFeeEngine}, in two implementations
+ * that give identical results: {@link #fixedPoint} on scaled longs and
+ * {@link #decimal} on {@code BigDecimal}. Fees are summed exactly and each amount
+ * is rounded HALF_UP to cents only at the end; the payout uses the unrounded net.
+ * <p>
+ * Of the given incentives the one with the largest discount applies (the oldest
+ * rule on a tie). Discounts are taken in cents off the processing plus FX fees
+ * rounded to cents, and never exceed them.
+ */
+final class FeeArithmetic {
+
+    /** Scale of a cents amount times a percentage, which keeps fee sums exact. */
+    private static final int FEE_SCALE = MONEY_SCALE + PERCENT_SCALE;
+
+    private FeeArithmetic() {
+    }
+
+    /**
+     * @param fx the quote to convert the net amount with, or {@code null} for no conversion
+     * @return the breakdown, or {@code null} if an input has more decimals than the
+     *         fixed-point scales or an intermediate value overflows a long
+     */
+    static FeeBreakdown fixedPoint(
+            MerchantFeeSchedule schedule,
+            BigDecimal amount,
+            String currency,
+            LockedFxQuote fx,
+            BigDecimal markupPercent,
+            List<ActiveIncentive> incentives
+    ) {
+        ScaledFeeRates rates = schedule.scaledRates();
+        if (rates == null) {
+            return null;
+        }
+        try {
+            long base = amount.setScale(MONEY_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+
+            long processingFee = Math.addExact(
+                    Math.multiplyExact(base, rates.percentageFee()),
+                    upscale(rates.fixedFee(), MONEY_SCALE, FEE_SCALE)
+            );
+            long fxFee = Math.multiplyExact(base, rates.fxMarkupPct());
+
+            long grossFees = rescaleHalfUp(Math.addExact(processingFee, fxFee), FEE_SCALE, MONEY_SCALE);
+            ActiveIncentive applied = null;
+            long discount = 0L;
+            for (ActiveIncentive incentive : incentives) {
+                if (incentive.discountType() == null || incentive.discountValue() == null) {
+                    continue;
+                }
+                if (incentive.scaledValue() == null) {
+                    return null;
+                }
+                long candidate = incentive.discountType() == DiscountType.PERCENTAGE
+                        ? rescaleHalfUp(Math.multiplyExact(grossFees, incentive.scaledValue()), FEE_SCALE, MONEY_SCALE)
+                        : rescaleHalfUp(incentive.scaledValue(), PERCENT_SCALE, MONEY_SCALE);
+                candidate = Math.max(Math.min(candidate, grossFees), 0L);
+                if (candidate > discount) {
+                    discount = candidate;
+                    applied = incentive;
+                }
+            }
+            long incentiveDiscount = upscale(discount, MONEY_SCALE, FEE_SCALE);
+            long totalFees = Math.subtractExact(Math.addExact(processingFee, fxFee), incentiveDiscount);
+            long finalAmount = Math.subtractExact(upscale(base, MONEY_SCALE, FEE_SCALE), totalFees);
+
+            FxConversion fxConversion = null;
+            if (fx != null) {
+                FxQuote quote = fx.quote();
+                long effectiveRate = toScaled(quote.effectiveRate(), RATE_SCALE);
+                long markupFactor = Math.addExact(
+                        FixedPointMoney.powerOfTen(PERCENT_SCALE),
+                        toScaled(markupPercent, PERCENT_SCALE)
+                );
+                long rateWithMarkup = rescaleHalfUp(
+                        Math.multiplyExact(effectiveRate, markupFactor), RATE_SCALE + PERCENT_SCALE, RATE_SCALE);
+                long payoutAmount = rescaleHalfUp(
+                        Math.multiplyExact(finalAmount, rateWithMarkup), FEE_SCALE + RATE_SCALE, MONEY_SCALE);
+                fxConversion = conversion(fx, toDecimal(rateWithMarkup, RATE_SCALE), toDecimal(payoutAmount, MONEY_SCALE));
+            }
+
+            return new FeeBreakdown(
+                    toDecimal(base, MONEY_SCALE),
+                    money(processingFee),
+                    money(fxFee),
+                    money(incentiveDiscount),
+                    money(totalFees),
+                    money(finalAmount),
+                    currency,
+                    fxConversion,
+                    applied != null ? applied.ruleId() : null
+            );
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reference implementation, used when {@link #fixedPoint} cannot represent the inputs.
+     */
+    static FeeBreakdown decimal(
+            MerchantFeeSchedule schedule,
+            BigDecimal amount,
+            String currency,
+            LockedFxQuote fx,
+            BigDecimal markupPercent,
+            List<ActiveIncentive> incentives
+    ) {
+        BigDecimal baseAmount = amount.setScale(2, RoundingMode.HALF_UP);
+
+        BigDecimal processingFee = calculatePercentageFee(baseAmount, schedule.percentageFee())
+                .add(nullSafe(schedule.fixedFee()));
+
+        BigDecimal fxFee = calculatePercentageFee(baseAmount, schedule.fxMarkupPct());
+
+        BigDecimal grossFees = processingFee.add(fxFee).setScale(2, RoundingMode.HALF_UP);
+        ActiveIncentive applied = null;
+        BigDecimal incentiveDiscount = BigDecimal.ZERO;
+        for (ActiveIncentive incentive : incentives) {
+            if (incentive.discountType() == null || incentive.discountValue() == null) {
+                continue;
+            }
+            BigDecimal candidate = incentive.discountType() == DiscountType.PERCENTAGE
+                    ? grossFees.multiply(incentive.discountValue()).setScale(2, RoundingMode.HALF_UP)
+                    : incentive.discountValue().setScale(2, RoundingMode.HALF_UP);
+            candidate = candidate.min(grossFees).max(BigDecimal.ZERO);
+            if (candidate.compareTo(incentiveDiscount) > 0) {
+                incentiveDiscount = candidate;
+                applied = incentive;
+            }
+        }
+
+        BigDecimal totalFees = processingFee
+                .add(fxFee)
+                .subtract(incentiveDiscount);
+        BigDecimal finalAmount = baseAmount.subtract(totalFees);
+        FxConversion fxConversion = null;
+        if (fx != null) {
+            BigDecimal rateWithExtraMarkup = fx.quote().effectiveRate()
+                    .multiply(BigDecimal.ONE.add(nullSafe(markupPercent)))
+                    .setScale(6, RoundingMode.HALF_UP);
+
+            BigDecimal payoutAmount = finalAmount
+                    .multiply(rateWithExtraMarkup)
+                    .setScale(2, RoundingMode.HALF_UP);
+
+            fxConversion = conversion(fx, rateWithExtraMarkup, payoutAmount);
+        }
+
+        return new FeeBreakdown(
+                baseAmount,
+                processingFee.setScale(2, RoundingMode.HALF_UP),
+                fxFee.setScale(2, RoundingMode.HALF_UP),
+                incentiveDiscount.setScale(2, RoundingMode.HALF_UP),
+                totalFees.setScale(2, RoundingMode.HALF_UP),
+                finalAmount.setScale(2, RoundingMode.HALF_UP),
+                currency,
+                fxConversion,
+                applied != null ? applied.ruleId() : null
+        );
+    }
+
+    private static FxConversion conversion(LockedFxQuote fx, BigDecimal appliedRate, BigDecimal payoutAmount) {
+        FxQuote quote = fx.quote();
+        return new FxConversion(
+                quote.baseCurrency(),
+                quote.counterCurrency(),
+                quote.effectiveRate(),
+                quote.jitterApplied(),
+                appliedRate,
+                payoutAmount,
+                quote.quotedAt(),
+                fx.quoteId(),
+                fx.expiresAt()
+        );
+    }
+
+    private static BigDecimal money(long feeScaled) {
+        return toDecimal(rescaleHalfUp(feeScaled, FEE_SCALE, MONEY_SCALE), MONEY_SCALE);
+    }
+
+    private static BigDecimal calculatePercentageFee(BigDecimal base, BigDecimal pct) {
+        if (pct == null || BigDecimal.ZERO.compareTo(pct) == 0) {
+            return BigDecimal.ZERO;
+        }
+        return base.multiply(pct);
+    }
+
+    private static BigDecimal nullSafe(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,70 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import java.math.BigDecimal;
+
+/**
+ * Scaled-long arithmetic for the fee engine. A value {@code v} at scale {@code s}
+ * stands for {@code v / 10^s}; money is held in minor units ({@link #MONEY_SCALE}),
+ * fee percentages at {@link #PERCENT_SCALE} (the scale of the fee config columns)
+ * and FX rates at {@link #RATE_SCALE}. Products are kept at the sum of the scales
+ * so they stay exact, and only {@link #rescaleHalfUp} rounds, with the same
+ * result as {@code BigDecimal.setScale(scale, RoundingMode.HALF_UP)}.
+ * <p>
+ * Every operation throws {@link ArithmeticException} instead of losing precision
+ * or overflowing, so callers can fall back to {@code BigDecimal}.
+ */
+final class FixedPointMoney {
+
+    static final int MONEY_SCALE = 2;
+    static final int PERCENT_SCALE = 4;
+    static final int RATE_SCALE = 6;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L
+    };
+
+    private FixedPointMoney() {
+    }
+
+    /**
+     * @return {@code value} as a long at {@code scale}; {@code null} is zero
+     * @throws ArithmeticException if {@code value} has more decimals than {@code scale}
+     *         or does not fit in a long
+     */
+    static long toScaled(BigDecimal value, int scale) {
+        if (value == null) {
+            return 0L;
+        }
+        return value.movePointRight(scale).longValueExact();
+    }
+
+    static BigDecimal toDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, scale);
+    }
+
+    /**
+     * Reduces {@code value} from {@code fromScale} to {@code toScale}, rounding half
+     * away from zero.
+     */
+    static long rescaleHalfUp(long value, int fromScale, int toScale) {
+        long divisor = powerOfTen(fromScale - toScale);
+        long quotient = value / divisor;
+        long remainder = Math.abs(value % divisor);
+        if (remainder >= divisor - remainder) {
+            quotient += Long.signum(value);
+        }
+        return quotient;
+    }
+
+    /**
+     * Raises {@code value} from {@code fromScale} to {@code toScale}.
+     */
+    static long upscale(long value, int fromScale, int toScale) {
+        return Math.multiplyExact(value, powerOfTen(toScale - fromScale));
+    }
+
+    static long powerOfTen(int exponent) {
+        return POWERS_OF_TEN[exponent];
+    }
+}
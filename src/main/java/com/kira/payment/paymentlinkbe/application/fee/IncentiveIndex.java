@@ -0,0 +1,204 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import com.kira.payment.paymentlinkbe.domain.fee.IncentiveRuleChangedEvent;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.IncentiveRule;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.IncentiveRuleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of active {@code incentive_rule} rows by merchant, so fee
+ * calculation never queries incentives. Like {@code PspRoutingTable}, the table is
+ * reloaded into an immutable snapshot on startup, on rule changes and periodically.
+ * <p>
+ * Uses toward {@code max_transactions} are counted in {@code incentive_rule.used_transactions}.
+ * A payment takes a use with {@link #tryAcquire} when it is reserved: a per-rule
+ * counter on this node filters out rules that look used up, and for capped rules a
+ * conditional update ({@code used < max}) in the reservation transaction makes the
+ * cap hold across nodes. The use is {@link #settle settled} once the PSP answered,
+ * or {@link #cancel cancelled} if the reservation rolled back. Each reload resets
+ * the local counters to the database counts.
+ */
+@Slf4j
+@Component
+public class IncentiveIndex {
+
+    private final IncentiveRuleRepository incentiveRuleRepository;
+    private final Map<Long, RuleCounter> counters = new ConcurrentHashMap<>();
+
+    private volatile Map<Long, List<ActiveIncentive>> byMerchant = Map.of();
+
+    public IncentiveIndex(IncentiveRuleRepository incentiveRuleRepository) {
+        this.incentiveRuleRepository = incentiveRuleRepository;
+    }
+
+    /**
+     * @return the merchant's active incentives that have uses left, oldest rule first
+     */
+    public List<ActiveIncentive> available(Long merchantId) {
+        List<ActiveIncentive> incentives = byMerchant.getOrDefault(merchantId, List.of());
+        if (incentives.isEmpty()) {
+            return incentives;
+        }
+        List<ActiveIncentive> available = new ArrayList<>(incentives.size());
+        for (ActiveIncentive incentive : incentives) {
+            RuleCounter counter = counters.get(incentive.ruleId());
+            if (counter != null && counter.hasCapacity()) {
+                available.add(incentive);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Takes one use of the incentive for a payment about to be charged. Must run in
+     * the reservation transaction: the database claim of a capped rule commits or
+     * rolls back with it.
+     *
+     * @return {@code false} if its {@code max_transactions} are used up
+     */
+    public boolean tryAcquire(ActiveIncentive incentive) {
+        RuleCounter counter = counters.get(incentive.ruleId());
+        if (counter == null || !counter.tryAcquire()) {
+            return false;
+        }
+        if (incentive.maxTransactions() == null) {
+            return true;
+        }
+        int claimed;
+        try {
+            claimed = incentiveRuleRepository.claimUse(incentive.ruleId());
+        } catch (RuntimeException e) {
+            counter.settle(false);
+            throw e;
+        }
+        if (claimed == 0) {
+            counter.exhaust();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Ends a use whose reservation committed: kept if the discount was applied (its
+     * {@code payment_incentive} row is committed), given back otherwise.
+     */
+    public void settle(Long ruleId, boolean applied) {
+        RuleCounter counter = counters.get(ruleId);
+        if (counter != null) {
+            counter.settle(applied);
+        }
+        if (!applied && (counter == null || counter.capped())) {
+            try {
+                incentiveRuleRepository.releaseUse(ruleId);
+            } catch (RuntimeException e) {
+                log.error("Could not give back a use of incentive rule id={}; it stays counted: {}",
+                        ruleId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /** Gives back a use whose reservation rolled back, taking its database claim with it. */
+    public void cancel(Long ruleId) {
+        RuleCounter counter = counters.get(ruleId);
+        if (counter != null) {
+            counter.settle(false);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "${fee.incentives.refresh-interval-ms:30000}",
+            fixedDelayString = "${fee.incentives.refresh-interval-ms:30000}"
+    )
+    public void refresh() {
+        try {
+            Map<Long, List<ActiveIncentive>> rules = new HashMap<>();
+            Map<Long, ActiveIncentive> byId = new HashMap<>();
+            Map<Long, Long> used = new HashMap<>();
+            for (IncentiveRule rule : incentiveRuleRepository.findAllActive()) {
+                ActiveIncentive incentive = ActiveIncentive.from(rule);
+                rules.computeIfAbsent(incentive.merchantId(), id -> new ArrayList<>()).add(incentive);
+                byId.put(incentive.ruleId(), incentive);
+                used.put(incentive.ruleId(), rule.getUsedTransactions() != null ? rule.getUsedTransactions() : 0L);
+            }
+
+            counters.keySet().retainAll(byId.keySet());
+            byId.values().forEach(incentive -> counters
+                    .computeIfAbsent(incentive.ruleId(), id -> new RuleCounter())
+                    .reconcile(used.get(incentive.ruleId()), incentive.maxTransactions()));
+
+            rules.replaceAll((merchantId, incentives) -> List.copyOf(incentives));
+            byMerchant = Map.copyOf(rules);
+            log.info("Loaded {} active incentive rules for {} merchants", byId.size(), rules.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to reload incentive rules, keeping previous index: {}", e.getMessage(), e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRuleChanged(IncentiveRuleChangedEvent event) {
+        log.debug("Incentive rule id={} changed, reloading incentive index", event.ruleId());
+        refresh();
+    }
+
+    /**
+     * {@code used} is the database count at the last reload plus the uses taken on
+     * this node since; {@code inFlight} the uses taken on this node not settled yet.
+     */
+    private static final class RuleCounter {
+
+        private final AtomicLong used = new AtomicLong();
+        private final AtomicLong inFlight = new AtomicLong();
+        private volatile long limit = Long.MAX_VALUE;
+
+        boolean capped() {
+            return limit != Long.MAX_VALUE;
+        }
+
+        boolean hasCapacity() {
+            return used.get() < limit;
+        }
+
+        boolean tryAcquire() {
+            long current;
+            do {
+                current = used.get();
+                if (current >= limit) {
+                    return false;
+                }
+            } while (!used.compareAndSet(current, current + 1));
+            inFlight.incrementAndGet();
+            return true;
+        }
+
+        /** Gives back a use the database refused, and blocks the rule until the next reload. */
+        void exhaust() {
+            inFlight.decrementAndGet();
+            used.accumulateAndGet(limit, Math::max);
+        }
+
+        void settle(boolean applied) {
+            inFlight.decrementAndGet();
+            if (!applied) {
+                used.decrementAndGet();
+            }
+        }
+
+        void reconcile(long claimed, Integer maxTransactions) {
+            limit = maxTransactions != null ? maxTransactions : Long.MAX_VALUE;
+            used.set(claimed);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.kira.payment.paymentlinkbe.domain.fee.MerchantFeeConfigChangedEvent;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfig;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfigRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Merchant fee configurations kept in memory so fee calculation does no DB I/O
+ * for active merchants. Entries are refreshed in the background before they
+ * expire, dropped after a committed config change and prewarmed for the busiest
+ * merchants at startup.
+ * <p>
+ * Every load is stamped with the current generation and an invalidation bumps it,
+ * so an entry read before a change (e.g. by the prewarm query) is discarded
+ * instead of served.
+ */
+@Slf4j
+@Component
+public class MerchantFeeConfigCache {
+
+    static final String CACHE_NAME = "merchant-fee-configs";
+
+    private final MerchantFeeConfigRepository merchantFeeConfigRepository;
+    private final PaymentRepository paymentRepository;
+    private final LoadingCache<Long, MerchantFeeSchedule> schedules;
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Long, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private final int prewarmSize;
+    private final int prewarmLookbackDays;
+
+    public MerchantFeeConfigCache(
+            MerchantFeeConfigRepository merchantFeeConfigRepository,
+            PaymentRepository paymentRepository,
+            MeterRegistry meterRegistry,
+            @Value("${fee.config-cache.max-size:10000}") long maxSize,
+            @Value("${fee.config-cache.ttl-seconds:600}") long ttlSeconds,
+            @Value("${fee.config-cache.refresh-seconds:60}") long refreshSeconds,
+            @Value("${fee.config-cache.prewarm-size:500}") int prewarmSize,
+            @Value("${fee.config-cache.prewarm-lookback-days:30}") int prewarmLookbackDays
+    ) {
+        this.merchantFeeConfigRepository = merchantFeeConfigRepository;
+        this.paymentRepository = paymentRepository;
+        this.prewarmSize = prewarmSize;
+        this.prewarmLookbackDays = prewarmLookbackDays;
+        this.schedules = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .refreshAfterWrite(Duration.ofSeconds(refreshSeconds))
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public MerchantFeeSchedule load(Long merchantId) {
+                        return loadOne(merchantId);
+                    }
+
+                    @Override
+                    public Map<Long, MerchantFeeSchedule> loadAll(Set<? extends Long> merchantIds) {
+                        return loadMany(merchantIds);
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, schedules, CACHE_NAME);
+    }
+
+    /**
+     * @return the merchant's fee schedule, or {@code null} if it has none
+     */
+    public MerchantFeeSchedule get(Long merchantId) {
+        MerchantFeeSchedule schedule = schedules.get(merchantId);
+        if (schedule != null && isStale(schedule)) {
+            schedules.invalidate(merchantId);
+            schedule = schedules.get(merchantId);
+        }
+        return schedule;
+    }
+
+    /**
+     * Bulk {@link #get}: merchants not yet cached are loaded in one query.
+     *
+     * @return the schedules by merchant id; merchants without one are absent
+     */
+    public Map<Long, MerchantFeeSchedule> getAll(Collection<Long> merchantIds) {
+        Map<Long, MerchantFeeSchedule> found = new HashMap<>(schedules.getAll(merchantIds));
+        found.replaceAll((merchantId, schedule) -> isStale(schedule) ? get(merchantId) : schedule);
+        found.values().removeIf(Objects::isNull);
+        return found;
+    }
+
+    public void invalidate(Long merchantId) {
+        invalidatedAt.put(merchantId, generation.incrementAndGet());
+        schedules.invalidate(merchantId);
+        log.debug("Invalidated fee config for merchantId={}", merchantId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConfigChanged(MerchantFeeConfigChangedEvent event) {
+        invalidate(event.merchantId());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        if (prewarmSize <= 0) {
+            return;
+        }
+        try {
+            List<Long> merchantIds = paymentRepository.findMostActiveMerchantIds(
+                    LocalDateTime.now().minusDays(prewarmLookbackDays),
+                    PageRequest.of(0, prewarmSize)
+            );
+            if (merchantIds.isEmpty()) {
+                return;
+            }
+            long version = generation.get();
+            for (MerchantFeeConfig config : merchantFeeConfigRepository.findByMerchantIdIn(merchantIds)) {
+                Long merchantId = config.getMerchant().getId();
+                schedules.put(merchantId, MerchantFeeSchedule.from(merchantId, config, version));
+            }
+            log.info("Prewarmed fee configs for {} merchants", schedules.estimatedSize());
+        } catch (RuntimeException e) {
+            log.warn("Failed to prewarm merchant fee configs: {}", e.getMessage(), e);
+        }
+    }
+
+    long estimatedSize() {
+        return schedules.estimatedSize();
+    }
+
+    private MerchantFeeSchedule loadOne(Long merchantId) {
+        long version = generation.get();
+        return merchantFeeConfigRepository.findByMerchantId(merchantId)
+                .map(config -> MerchantFeeSchedule.from(merchantId, config, version))
+                .orElse(null);
+    }
+
+    private Map<Long, MerchantFeeSchedule> loadMany(Set<? extends Long> merchantIds) {
+        long version = generation.get();
+        Map<Long, MerchantFeeSchedule> loaded = new HashMap<>();
+        for (MerchantFeeConfig config : merchantFeeConfigRepository.findByMerchantIdIn(List.copyOf(merchantIds))) {
+            Long merchantId = config.getMerchant().getId();
+            loaded.put(merchantId, MerchantFeeSchedule.from(merchantId, config, version));
+        }
+        return loaded;
+    }
+
+    private boolean isStale(MerchantFeeSchedule schedule) {
+        return schedule.version() < invalidatedAt.getOrDefault(schedule.merchantId(), 0L);
+    }
+}
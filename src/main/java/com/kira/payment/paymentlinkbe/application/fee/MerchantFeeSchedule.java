@@ -0,0 +1,40 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfig;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable copy of a merchant's fee configuration as held by
+ * {@link MerchantFeeConfigCache}; {@code version} is the cache generation it was
+ * loaded in and {@code scaledRates} the same fees for fixed-point arithmetic
+ * ({@code null} if they do not fit it).
+ */
+public record MerchantFeeSchedule(
+        Long merchantId,
+        BigDecimal fixedFee,
+        BigDecimal percentageFee,
+        BigDecimal fxMarkupPct,
+        long version,
+        ScaledFeeRates scaledRates
+) {
+
+    public MerchantFeeSchedule(Long merchantId,
+                               BigDecimal fixedFee,
+                               BigDecimal percentageFee,
+                               BigDecimal fxMarkupPct,
+                               long version) {
+        this(merchantId, fixedFee, percentageFee, fxMarkupPct, version,
+                ScaledFeeRates.of(fixedFee, percentageFee, fxMarkupPct));
+    }
+
+    static MerchantFeeSchedule from(Long merchantId, MerchantFeeConfig config, long version) {
+        return new MerchantFeeSchedule(
+                merchantId,
+                config.getFixedFee(),
+                config.getPercentageFee(),
+                config.getFxMarkupPct(),
+                version
+        );
+    }
+}
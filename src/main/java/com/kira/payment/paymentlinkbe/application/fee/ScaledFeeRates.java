@@ -0,0 +1,27 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import java.math.BigDecimal;
+
+/**
+ * A fee schedule converted once to {@link FixedPointMoney} scales: the fixed fee
+ * in minor units and both percentages at {@link FixedPointMoney#PERCENT_SCALE}.
+ */
+public record ScaledFeeRates(long fixedFee, long percentageFee, long fxMarkupPct) {
+
+    /**
+     * @return the scaled rates, or {@code null} when a value has more decimals than
+     *         the fixed-point scales hold, in which case fees are computed in
+     *         {@code BigDecimal}
+     */
+    static ScaledFeeRates of(BigDecimal fixedFee, BigDecimal percentageFee, BigDecimal fxMarkupPct) {
+        try {
+            return new ScaledFeeRates(
+                    FixedPointMoney.toScaled(fixedFee, FixedPointMoney.MONEY_SCALE),
+                    FixedPointMoney.toScaled(percentageFee, FixedPointMoney.PERCENT_SCALE),
+                    FixedPointMoney.toScaled(fxMarkupPct, FixedPointMoney.PERCENT_SCALE)
+            );
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+}
@@ -2,59 +2,117 @@ package com.kira.payment.paymentlinkbe.application.paymentlink;
 
 import com.kira.payment.paymentlinkbe.api.payment.UpdatePaymentLinkCommand;
 import com.kira.payment.paymentlinkbe.api.psp.TokenizeCardRequest;
+import com.kira.payment.paymentlinkbe.application.fee.IncentiveIndex;
+import com.kira.payment.paymentlinkbe.application.psp.PaymentReferenceLookup;
 import com.kira.payment.paymentlinkbe.application.psp.PspOrchestratorService;
+import com.kira.payment.paymentlinkbe.application.psp.PspRoutingTable;
 import com.kira.payment.paymentlinkbe.domain.fee.FeeBreakdown;
 import com.kira.payment.paymentlinkbe.domain.fee.FeeEngine;
+import com.kira.payment.paymentlinkbe.domain.fee.FeeQuoteRequest;
+import com.kira.payment.paymentlinkbe.domain.fx.FxConversion;
 import com.kira.payment.paymentlinkbe.domain.merchant.MerchantNotFoundException;
 import com.kira.payment.paymentlinkbe.domain.merchant.RecipientNotFoundException;
 import com.kira.payment.paymentlinkbe.domain.payment.PaymentFeeType;
 import com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus;
 import com.kira.payment.paymentlinkbe.domain.paymentlink.PaymentLinkStatus;
 import com.kira.payment.paymentlinkbe.domain.psp.*;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fx.FxRateSnapshot;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fx.FxRateSnapshotRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fx.FxRateSnapshotWriter;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merchant;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.MerchantRepository;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Recipient;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.RecipientRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.IncentiveRuleRepository;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.Payment;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentFee;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentIncentive;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLink;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLinkRepository;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.psp.Psp;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.psp.PspRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PaymentLinkApplicationService {
 
+    private static final int SLUG_ATTEMPTS = 3;
+    private static final String SLUG_CONSTRAINT = "payment_link_slug_key";
+    private static final List<PaymentStatus> UNSETTLED_STATUSES =
+            List.of(PaymentStatus.PENDING, PaymentStatus.REQUIRES_REVIEW);
+
     private final PaymentLinkRepository paymentLinkRepository;
     private final MerchantRepository merchantRepository;
     private final RecipientRepository recipientRepository;
     private final PaymentRepository paymentRepository;
     private final PspOrchestratorService pspOrchestratorService;
+    private final PspRoutingTable pspRoutingTable;
     private final FeeEngine feeEngine;
     private final PspRepository pspRepository;
     private final Map<String, PspClient> pspClients;
+    private final PaymentLinkViewCache paymentLinkViewCache;
+    private final PaymentReferenceLookup paymentReferenceLookup;
+    private final FxRateSnapshotWriter fxRateSnapshotWriter;
+    private final FxRateSnapshotRepository fxRateSnapshotRepository;
+    private final IncentiveIndex incentiveIndex;
+    private final IncentiveRuleRepository incentiveRuleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SlugGenerator slugGenerator;
+    private final PaymentLinkMetrics metrics;
 
     @Value("${payment-link.public-base-url}")
     private String publicBaseUrl;
-    @Value("${payment-link.default-psp}")
-    private String defaultPspCode;
-
-    @Transactional
+    @Value("${payment-link.list.default-page-size:20}")
+    private int defaultPageSize;
+    @Value("${payment-link.list.max-page-size:100}")
+    private int maxPageSize;
+
+    /**
+     * Slugs from {@link SlugGenerator} do not collide, so the unique index on
+     * {@code slug} is only a safety net: on a violation the link is inserted again
+     * with a new slug, up to {@value #SLUG_ATTEMPTS} times.
+     */
     public PaymentLinkView createPaymentLink(CreatePaymentLinkCommand command) {
+        return metrics.record(PaymentLinkMetrics.Operation.CREATE, () -> insertWithSlugRetry(command));
+    }
+
+    private PaymentLinkView insertWithSlugRetry(CreatePaymentLinkCommand command) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> insertPaymentLink(command));
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= SLUG_ATTEMPTS || !isSlugViolation(e)) {
+                    throw e;
+                }
+                log.warn("Slug collision creating payment link (attempt {}), retrying", attempt);
+            }
+        }
+    }
+
+    private PaymentLinkView insertPaymentLink(CreatePaymentLinkCommand command) {
         LocalDateTime now = LocalDateTime.now();
 
         LocalDateTime expiresAt = command.expiresAt() != null
@@ -76,7 +134,7 @@ public class PaymentLinkApplicationService {
 
         PaymentLink paymentLink = PaymentLink.builder()
                 .publicId(UUID.randomUUID().toString())
-                .slug(generateUniqueSlug())
+                .slug(slugGenerator.next())
                 .merchant(merchant)
                 .recipient(recipient)
                 .amount(command.amount())
@@ -88,7 +146,7 @@ public class PaymentLinkApplicationService {
                 .updatedAt(now)
                 .build();
 
-        PaymentLink saved = paymentLinkRepository.save(paymentLink);
+        PaymentLink saved = paymentLinkRepository.saveAndFlush(paymentLink);
 
         FeeBreakdown feeBreakdown = feeEngine.calculateForPaymentLink(
                 merchant.getId(),
@@ -97,36 +155,39 @@ public class PaymentLinkApplicationService {
                 command.currency()
         );
         String checkoutUrl = buildCheckoutUrl(saved.getSlug());
-        PspCode preferredPsp = resolvePreferredPsp(merchant);
+        PspCode preferredPsp = resolvePreferredPsp(saved);
         return PaymentLinkView.from(saved, feeBreakdown, checkoutUrl, preferredPsp);
     }
 
-    private String generateUniqueSlug() {
-        String candidate;
-        do {
-            candidate = UUID.randomUUID().toString()
-                    .replace("-", "")
-                    .substring(0, 10);
-        } while (paymentLinkRepository.existsBySlug(candidate));
-        return candidate;
+    private static boolean isSlugViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return SLUG_CONSTRAINT.equalsIgnoreCase(violation.getConstraintName());
+            }
+        }
+        return false;
     }
 
     private String buildCheckoutUrl(String slug) {
         return publicBaseUrl + "/" + slug;
     }
 
-    @Transactional(readOnly = true)
     public PaymentLinkView getPaymentLink(String slug) {
+        return metrics.record(PaymentLinkMetrics.Operation.GET,
+                () -> paymentLinkViewCache.get(slug, this::loadPaymentLinkView));
+    }
+
+    private PaymentLinkView loadPaymentLinkView(String slug) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> buildPaymentLinkView(slug));
+    }
+
+    private PaymentLinkView buildPaymentLinkView(String slug) {
         PaymentLink paymentLink = paymentLinkRepository.findBySlug(slug)
                 .orElseThrow(() -> new PaymentLinkNotFoundException(slug));
-        LocalDateTime now = LocalDateTime.now();
-        if (paymentLink.getExpiresAt() != null
-                && paymentLink.getExpiresAt().isBefore(now)
-                && paymentLink.getStatus() != PaymentLinkStatus.EXPIRED) {
-            paymentLink.setStatus(PaymentLinkStatus.EXPIRED);
-        }
 
-        FeeBreakdown feeBreakdown = feeEngine.calculateForPaymentLink(
+        FeeBreakdown feeBreakdown = feeEngine.quoteForCheckout(
                 paymentLink.getMerchant().getId(),
                 paymentLink.getRecipient() != null ? paymentLink.getRecipient().getId() : null,
                 paymentLink.getAmount(),
@@ -135,14 +196,74 @@ public class PaymentLinkApplicationService {
 
         String checkoutUrl = buildCheckoutUrl(paymentLink.getSlug());
 
-        PspCode preferredPsp = resolvePreferredPsp(paymentLink.getMerchant());
+        PspCode preferredPsp = resolvePreferredPsp(paymentLink);
 
         return PaymentLinkView.from(paymentLink, feeBreakdown, checkoutUrl, preferredPsp);
     }
 
-    @Transactional
+    /**
+     * Runs a payment in three phases so no JDBC connection is held while the PSPs
+     * are called: reserve (short transaction that locks the link and records a
+     * PENDING payment), charge (no transaction) and complete (short transaction
+     * that records the PSP outcome). A crash between phases leaves a PENDING
+     * payment without PSP reference, which {@link PendingPaymentRecoveryJob}
+     * reconciles with the PSPs once it is older than the reservation timeout. A
+     * payment that left PENDING meanwhile is not completed.
+     */
     public ProcessPaymentResult processPayment(String slug, ProcessPaymentCommand command) {
-        PaymentLink paymentLink = paymentLinkRepository.findBySlug(slug)
+        return metrics.record(PaymentLinkMetrics.Operation.PAY, () -> pay(slug, command));
+    }
+
+    private ProcessPaymentResult pay(String slug, ProcessPaymentCommand command) {
+        PaymentReservation reservation = transactionTemplate.execute(
+                status -> reservePayment(slug, command)
+        );
+        if (reservation.replayed() != null) {
+            return reservation.replayed();
+        }
+
+        RoutedPspChargeResult routed;
+        try {
+            routed = pspOrchestratorService.processRoutedPayment(
+                    command.pspToken(),
+                    reservation.amount(),
+                    reservation.currency(),
+                    reservation.route(),
+                    paymentReference(reservation.paymentId())
+            );
+        } catch (PspOutcomeUnknownException e) {
+            // the customer may have been charged: keep the payment PENDING (and its link
+            // locked) for PendingPaymentRecoveryJob to reconcile with the PSPs
+            settleIncentive(reservation, false);
+            log.error("Outcome of payment id={} is unknown, leaving it PENDING: {}",
+                    reservation.paymentId(), e.getMessage());
+            throw e;
+        } catch (RuntimeException e) {
+            settleIncentive(reservation, false);
+            transactionTemplate.executeWithoutResult(status -> failPayment(reservation.paymentId()));
+            metrics.recordPayment(null, PaymentStatus.FAILED, reservation.currency());
+            throw e;
+        }
+
+        ProcessPaymentResult result;
+        try {
+            result = transactionTemplate.execute(status -> completePayment(reservation, routed));
+        } catch (RuntimeException e) {
+            settleIncentive(reservation, false);
+            throw e;
+        }
+        settleIncentive(reservation, result.paymentStatus() == PaymentStatus.CAPTURED);
+        metrics.recordPayment(routed.pspCode().name(), result.paymentStatus(), reservation.currency());
+        paymentReferenceLookup.remember(routed.pspCode(), routed.result().pspChargeId(), reservation.paymentId());
+        FxConversion fxConversion = reservation.feeBreakdown().fxConversion();
+        if (result.paymentStatus() == PaymentStatus.CAPTURED && fxConversion != null) {
+            fxRateSnapshotWriter.enqueue(reservation.paymentId(), fxConversion);
+        }
+        return result;
+    }
+
+    private PaymentReservation reservePayment(String slug, ProcessPaymentCommand command) {
+        PaymentLink paymentLink = paymentLinkRepository.findBySlugForUpdate(slug)
                 .orElseThrow(() -> new PaymentLinkNotFoundException(slug));
 
         LocalDateTime now = LocalDateTime.now();
@@ -153,54 +274,159 @@ public class PaymentLinkApplicationService {
             if (existingOpt.isPresent()) {
                 Payment existing = existingOpt.get();
 
-                FeeBreakdown existingFee = feeEngine.calculateForPaymentLink(
-                        existing.getMerchant().getId(),
-                        existing.getRecipient() != null ? existing.getRecipient().getId() : null,
-                        existing.getAmount(),
-                        existing.getCurrency()
-                );
-
                 PspCode usedPspCode = existing.getPsp() != null
                         ? existing.getPsp().getCode()
-                        : resolvePreferredPsp(paymentLink.getMerchant());
+                        : resolvePreferredPsp(paymentLink);
 
-                return ProcessPaymentResult.from(existing, existingFee, usedPspCode.name());
+                return PaymentReservation.replay(
+                        ProcessPaymentResult.from(existing, storedFeeBreakdown(existing), usedPspCode.name())
+                );
             }
         }
 
-        if (paymentLink.getExpiresAt() != null
-                && paymentLink.getExpiresAt().isBefore(now)) {
-            paymentLink.setStatus(PaymentLinkStatus.EXPIRED);
-            paymentLink.setUpdatedAt(now);
-            paymentLinkRepository.save(paymentLink);
-        }
+        requirePayable(paymentLink, now);
 
-        if (paymentLink.getStatus() == PaymentLinkStatus.PAID
-                || paymentLink.getStatus() == PaymentLinkStatus.EXPIRED) {
+        if (paymentRepository.existsByPaymentLinkIdAndStatusIn(paymentLink.getId(), UNSETTLED_STATUSES)) {
             throw new PaymentLinkInvalidStateException(
-                    "Payment link is not payable in status: " + paymentLink.getStatus()
+                    "A payment is already in progress for payment link: " + slug
             );
         }
 
-        FeeBreakdown feeBreakdown = feeEngine.calculateForPaymentLink(
-                paymentLink.getMerchant().getId(),
-                paymentLink.getRecipient() != null ? paymentLink.getRecipient().getId() : null,
+        FeeBreakdown feeBreakdown = calculateChargeFees(paymentLink, command.fxQuoteId());
+
+        Payment payment = Payment.builder()
+                .paymentLink(paymentLink)
+                .merchant(paymentLink.getMerchant())
+                .recipient(paymentLink.getRecipient())
+                .status(PaymentStatus.PENDING)
+                .amount(paymentLink.getAmount())
+                .feeTotal(feeBreakdown.totalFees())
+                .netAmount(feeBreakdown.finalAmount())
+                .currency(paymentLink.getCurrency())
+                .idempotencyKey(command.idempotencyKey())
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+
+        Payment pending = paymentRepository.saveAndFlush(payment);
+
+        return new PaymentReservation(
+                pending.getId(),
                 paymentLink.getAmount(),
-                paymentLink.getCurrency()
+                paymentLink.getCurrency(),
+                feeBreakdown,
+                resolveRoute(paymentLink),
+                null
         );
+    }
 
-        PspCode preferredPsp = resolvePreferredPsp(paymentLink.getMerchant());
-        String pspHint = preferredPsp.name();
+    /**
+     * The fees a payment was charged, read back from what was stored for it rather
+     * than recalculated, so an idempotent replay answers with the original fees,
+     * incentive and FX rate. Fee lines and the FX snapshot only exist once the payment
+     * is captured (the snapshot shortly after); the totals are stored at reservation.
+     */
+    private FeeBreakdown storedFeeBreakdown(Payment payment) {
+        BigDecimal processingFee = BigDecimal.ZERO;
+        BigDecimal fxFee = BigDecimal.ZERO;
+        for (PaymentFee fee : payment.getFees()) {
+            if (fee.getType() == PaymentFeeType.PROCESSING) {
+                processingFee = processingFee.add(fee.getAmount());
+            } else if (fee.getType() == PaymentFeeType.FX) {
+                fxFee = fxFee.add(fee.getAmount());
+            }
+        }
+        BigDecimal incentiveDiscount = BigDecimal.ZERO;
+        Long incentiveRuleId = null;
+        for (PaymentIncentive incentive : payment.getIncentives()) {
+            incentiveDiscount = incentiveDiscount.add(incentive.getDiscountAmount());
+            incentiveRuleId = incentive.getIncentiveRule().getId();
+        }
+        FxConversion fxConversion = fxRateSnapshotRepository.findByPaymentId(payment.getId())
+                .map(snapshot -> storedFxConversion(snapshot, payment.getNetAmount()))
+                .orElse(null);
+        return new FeeBreakdown(
+                payment.getAmount(),
+                processingFee,
+                fxFee,
+                incentiveDiscount,
+                payment.getFeeTotal(),
+                payment.getNetAmount(),
+                payment.getCurrency(),
+                fxConversion,
+                incentiveRuleId
+        );
+    }
 
-        RoutedPspChargeResult routed = pspOrchestratorService.processPayment(
-                command.pspToken(),
+    /** The snapshot keeps the applied rate only; the payout is derived from the stored net amount. */
+    private static FxConversion storedFxConversion(FxRateSnapshot snapshot, BigDecimal netAmount) {
+        BigDecimal payoutAmount = netAmount != null
+                ? netAmount.multiply(snapshot.getRate()).setScale(2, RoundingMode.HALF_UP)
+                : null;
+        return new FxConversion(
+                snapshot.getFromCurrency(),
+                snapshot.getToCurrency(),
+                null,
+                snapshot.getJitterApplied(),
+                snapshot.getRate(),
+                payoutAmount,
+                null
+        );
+    }
+
+    /**
+     * Calculates the fees to charge. The incentive use taken for them is given back
+     * if the reservation rolls back.
+     */
+    private FeeBreakdown calculateChargeFees(PaymentLink paymentLink, String fxQuoteId) {
+        FeeBreakdown feeBreakdown = feeEngine.calculateForCharge(
+                paymentLink.getMerchant().getId(),
+                paymentLink.getRecipient() != null ? paymentLink.getRecipient().getId() : null,
                 paymentLink.getAmount(),
                 paymentLink.getCurrency(),
-                pspHint
+                fxQuoteId
         );
+        Long incentiveRuleId = feeBreakdown.incentiveRuleId();
+        if (incentiveRuleId != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        incentiveIndex.cancel(incentiveRuleId);
+                    }
+                }
+            });
+        }
+        return feeBreakdown;
+    }
+
+    /** Reference the PSP idempotency keys of a payment are derived from. */
+    static String paymentReference(Long paymentId) {
+        return "pl-payment-" + paymentId;
+    }
+
+    private void settleIncentive(PaymentReservation reservation, boolean applied) {
+        Long incentiveRuleId = reservation.feeBreakdown().incentiveRuleId();
+        if (incentiveRuleId != null) {
+            incentiveIndex.settle(incentiveRuleId, applied);
+        }
+    }
+
+    private ProcessPaymentResult completePayment(PaymentReservation reservation, RoutedPspChargeResult routed) {
+        Payment payment = paymentRepository.findByIdForUpdate(reservation.paymentId())
+                .orElseThrow(() -> new IllegalStateException(
+                        "Reserved payment not found: " + reservation.paymentId()));
 
         PspCode usedPspCode = routed.pspCode();
         PspChargeResult pspResult = routed.result();
+        FeeBreakdown feeBreakdown = reservation.feeBreakdown();
+
+        if (payment.getStatus() != PaymentStatus.PENDING) {
+            log.error("Payment id={} left PENDING before the PSP answered (status={}); not recording {} pspRef={} on PSP={}",
+                    payment.getId(), payment.getStatus(), pspResult.status(), pspResult.pspChargeId(), usedPspCode);
+            throw new IllegalStateException(
+                    "Payment %d is no longer PENDING (status=%s)".formatted(payment.getId(), payment.getStatus()));
+        }
 
         Psp pspEntity = pspRepository.findByCode(usedPspCode)
                 .orElse(null);
@@ -209,21 +435,12 @@ public class PaymentLinkApplicationService {
                 ? PaymentStatus.CAPTURED
                 : PaymentStatus.FAILED;
 
-        Payment payment = Payment.builder()
-                .paymentLink(paymentLink)
-                .merchant(paymentLink.getMerchant())
-                .recipient(paymentLink.getRecipient())
-                .psp(pspEntity)
-                .pspReference(pspResult.pspChargeId())
-                .status(paymentStatus)
-                .amount(paymentLink.getAmount())
-                .feeTotal(feeBreakdown.totalFees())
-                .netAmount(feeBreakdown.finalAmount())
-                .currency(paymentLink.getCurrency())
-                .idempotencyKey(command.idempotencyKey())
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
-                .build();
+        LocalDateTime now = LocalDateTime.now();
+        payment.setPsp(pspEntity);
+        payment.setPspCode(usedPspCode);
+        payment.setPspReference(pspResult.pspChargeId());
+        payment.setStatus(paymentStatus);
+        payment.setUpdatedAt(now);
 
         if (paymentStatus == PaymentStatus.CAPTURED) {
             if (feeBreakdown.processingFee().compareTo(BigDecimal.ZERO) > 0) {
@@ -231,7 +448,7 @@ public class PaymentLinkApplicationService {
                         .payment(payment)
                         .type(PaymentFeeType.PROCESSING)
                         .amount(feeBreakdown.processingFee())
-                        .currency(paymentLink.getCurrency())
+                        .currency(reservation.currency())
                         .build());
             }
 
@@ -240,7 +457,7 @@ public class PaymentLinkApplicationService {
                         .payment(payment)
                         .type(PaymentFeeType.FX)
                         .amount(feeBreakdown.fxFee())
-                        .currency(paymentLink.getCurrency())
+                        .currency(reservation.currency())
                         .build());
             }
 
@@ -249,7 +466,17 @@ public class PaymentLinkApplicationService {
                         .payment(payment)
                         .type(PaymentFeeType.INCENTIVE_DISCOUNT)
                         .amount(feeBreakdown.incentiveDiscount().negate())
-                        .currency(paymentLink.getCurrency())
+                        .currency(reservation.currency())
+                        .build());
+            }
+
+            if (feeBreakdown.incentiveRuleId() != null) {
+                payment.getIncentives().add(PaymentIncentive.builder()
+                        .payment(payment)
+                        .incentiveRule(incentiveRuleRepository.getReferenceById(feeBreakdown.incentiveRuleId()))
+                        .discountAmount(feeBreakdown.incentiveDiscount())
+                        .currency(reservation.currency())
+                        .createdAt(now)
                         .build());
             }
         }
@@ -257,32 +484,59 @@ public class PaymentLinkApplicationService {
         Payment savedPayment = paymentRepository.save(payment);
 
         if (paymentStatus == PaymentStatus.CAPTURED) {
+            PaymentLink paymentLink = savedPayment.getPaymentLink();
             paymentLink.setStatus(PaymentLinkStatus.PAID);
             paymentLink.setUpdatedAt(now);
             paymentLinkRepository.save(paymentLink);
+            paymentLinkViewCache.evict(paymentLink.getSlug());
         }
         return ProcessPaymentResult.from(savedPayment, feeBreakdown, usedPspCode.name());
     }
-    private PspCode resolvePreferredPsp(Merchant merchant) {
-        return PspCode.valueOf(defaultPspCode.toUpperCase());
+
+    private void failPayment(Long paymentId) {
+        paymentRepository.findByIdForUpdate(paymentId).ifPresent(payment -> {
+            if (payment.getStatus() != PaymentStatus.PENDING) {
+                log.warn("Not failing payment id={}: it already left PENDING (status={})",
+                        paymentId, payment.getStatus());
+                return;
+            }
+            payment.setStatus(PaymentStatus.FAILED);
+            payment.setUpdatedAt(LocalDateTime.now());
+            paymentRepository.save(payment);
+        });
     }
 
-    @Transactional
+    private record PaymentReservation(
+            Long paymentId,
+            BigDecimal amount,
+            String currency,
+            FeeBreakdown feeBreakdown,
+            PspRoute route,
+            ProcessPaymentResult replayed
+    ) {
+        static PaymentReservation replay(ProcessPaymentResult result) {
+            return new PaymentReservation(null, null, null, null, null, result);
+        }
+    }
+
+    private PspCode resolvePreferredPsp(PaymentLink paymentLink) {
+        return resolveRoute(paymentLink).primary();
+    }
+
+    private PspRoute resolveRoute(PaymentLink paymentLink) {
+        Long merchantId = paymentLink.getMerchant().getId();
+        String country = pspRoutingTable.hasCountryRules(merchantId) && paymentLink.getRecipient() != null
+                ? paymentLink.getRecipient().getCountry()
+                : null;
+        return pspRoutingTable.resolve(merchantId, paymentLink.getCurrency(), country, null);
+    }
+
+    @Transactional(readOnly = true)
     public CardTokenResult tokenizeForCheckout(String slug, TokenizeCardRequest request) {
         PaymentLink paymentLink = paymentLinkRepository.findBySlug(slug)
                 .orElseThrow(() -> new PaymentLinkNotFoundException(slug));
-        LocalDateTime now = LocalDateTime.now();
-        if (paymentLink.getExpiresAt() != null
-                && paymentLink.getExpiresAt().isBefore(now)) {
-            paymentLink.setStatus(PaymentLinkStatus.EXPIRED);
-        }
-        if (paymentLink.getStatus() == PaymentLinkStatus.PAID
-                || paymentLink.getStatus() == PaymentLinkStatus.EXPIRED) {
-            throw new PaymentLinkInvalidStateException(
-                    "Payment link is not payable in status: " + paymentLink.getStatus()
-            );
-        }
-        PspCode preferredPsp = resolvePreferredPsp(paymentLink.getMerchant());
+        requirePayable(paymentLink, LocalDateTime.now());
+        PspCode preferredPsp = resolvePreferredPsp(paymentLink);
         PspClient pspClient = findClientByCode(preferredPsp);
 
         CardToken token = pspClient.tokenizeCard(
@@ -297,6 +551,13 @@ public class PaymentLinkApplicationService {
         return new CardTokenResult(preferredPsp, token);
     }
 
+    private void requirePayable(PaymentLink paymentLink, LocalDateTime now) {
+        PaymentLinkStatus status = paymentLink.statusAt(now);
+        if (status == PaymentLinkStatus.PAID || status == PaymentLinkStatus.EXPIRED) {
+            throw new PaymentLinkInvalidStateException("Payment link is not payable in status: " + status);
+        }
+    }
+
     private PspClient findClientByCode(PspCode code) {
         return pspClients.values().stream()
                 .filter(c -> c.getCode() == code)
@@ -306,71 +567,106 @@ public class PaymentLinkApplicationService {
     }
 
     @Transactional(readOnly = true)
-    public List<PaymentLinkView> listByMerchant(Long merchantId) {
-
-        Merchant merchant = merchantRepository.findById(merchantId)
-                .orElseThrow(() -> new MerchantNotFoundException(merchantId));
-
-        List<PaymentLink> links =
-                paymentLinkRepository.findByMerchantIdOrderByCreatedAtDesc(merchant.getId());
-
-        LocalDateTime now = LocalDateTime.now();
+    public PaymentLinkPage listByMerchant(Long merchantId, String cursor, Integer limit) {
+        return metrics.record(PaymentLinkMetrics.Operation.LIST,
+                () -> findPageByMerchantId(merchantId, cursor, limit));
+    }
 
-        return links.stream()
-                .map(link -> {
-                    if (link.getExpiresAt() != null
-                            && link.getExpiresAt().isBefore(now)
-                            && link.getStatus() != PaymentLinkStatus.EXPIRED) {
-                        link.setStatus(PaymentLinkStatus.EXPIRED);
-                    }
+    private PaymentLinkPage findPageByMerchantId(Long merchantId, String cursor, Integer limit) {
+        if (!merchantRepository.existsById(merchantId)) {
+            throw new MerchantNotFoundException(merchantId);
+        }
 
-                    FeeBreakdown feeBreakdown = feeEngine.calculateForPaymentLink(
-                            link.getMerchant().getId(),
-                            link.getRecipient() != null ? link.getRecipient().getId() : null,
-                            link.getAmount(),
-                            link.getCurrency()
-                    );
+        int pageSize = resolvePageSize(limit);
+        Pageable window = PageRequest.ofSize(pageSize + 1);
 
-                    String checkoutUrl = buildCheckoutUrl(link.getSlug());
-                    PspCode preferredPsp = resolvePreferredPsp(link.getMerchant());
+        List<PaymentLink> links = cursor == null || cursor.isBlank()
+                ? paymentLinkRepository.findFirstPageByMerchantId(merchantId, window)
+                : findPageByMerchantIdBefore(merchantId, PaymentLinkCursor.decode(cursor), window);
 
-                    return PaymentLinkView.from(link, feeBreakdown, checkoutUrl, preferredPsp);
-                })
-                .toList();
+        return toPage(links, pageSize);
     }
 
     @Transactional(readOnly = true)
-    public List<PaymentLinkView> listAll() {
+    public PaymentLinkPage listAll(String cursor, Integer limit) {
+        return metrics.record(PaymentLinkMetrics.Operation.LIST, () -> findPage(cursor, limit));
+    }
 
-        List<PaymentLink> links = paymentLinkRepository.findAllByOrderByCreatedAtDesc();
+    private PaymentLinkPage findPage(String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        Pageable window = PageRequest.ofSize(pageSize + 1);
 
-        LocalDateTime now = LocalDateTime.now();
+        List<PaymentLink> links;
+        if (cursor == null || cursor.isBlank()) {
+            links = paymentLinkRepository.findFirstPage(window);
+        } else {
+            PaymentLinkCursor position = PaymentLinkCursor.decode(cursor);
+            links = paymentLinkRepository.findPageBefore(position.createdAt(), position.id(), window);
+        }
 
-        return links.stream()
-                .map(link -> {
-                    if (link.getExpiresAt() != null
-                            && link.getExpiresAt().isBefore(now)
-                            && link.getStatus() != PaymentLinkStatus.EXPIRED) {
-                        link.setStatus(PaymentLinkStatus.EXPIRED);
-                    }
+        return toPage(links, pageSize);
+    }
 
-                    FeeBreakdown feeBreakdown = feeEngine.calculateForPaymentLink(
-                            link.getMerchant().getId(),
-                            link.getRecipient() != null ? link.getRecipient().getId() : null,
-                            link.getAmount(),
-                            link.getCurrency()
-                    );
+    private List<PaymentLink> findPageByMerchantIdBefore(
+            Long merchantId,
+            PaymentLinkCursor position,
+            Pageable window
+    ) {
+        return paymentLinkRepository.findPageByMerchantIdBefore(
+                merchantId,
+                position.createdAt(),
+                position.id(),
+                window
+        );
+    }
 
-                    String checkoutUrl = buildCheckoutUrl(link.getSlug());
-                    PspCode preferredPsp = resolvePreferredPsp(link.getMerchant());
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be greater than zero");
+        }
+        return Math.min(limit, maxPageSize);
+    }
 
-                    return PaymentLinkView.from(link, feeBreakdown, checkoutUrl, preferredPsp);
-                })
-                .toList();
+    private PaymentLinkPage toPage(List<PaymentLink> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<PaymentLink> links = hasMore ? rows.subList(0, pageSize) : rows;
+
+        List<FeeQuoteRequest> feeRequests = new ArrayList<>(links.size());
+        for (PaymentLink link : links) {
+            feeRequests.add(new FeeQuoteRequest(
+                    link.getMerchant().getId(),
+                    link.getRecipient() != null ? link.getRecipient().getId() : null,
+                    link.getAmount(),
+                    link.getCurrency()
+            ));
+        }
+        List<FeeBreakdown> feeBreakdowns = feeEngine.calculateForPaymentLinks(feeRequests);
+
+        List<PaymentLinkView> views = new ArrayList<>(links.size());
+        for (int i = 0; i < links.size(); i++) {
+            PaymentLink link = links.get(i);
+            String checkoutUrl = buildCheckoutUrl(link.getSlug());
+            PspCode preferredPsp = resolvePreferredPsp(link);
+            views.add(PaymentLinkView.from(link, feeBreakdowns.get(i), checkoutUrl, preferredPsp));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            PaymentLink last = links.get(links.size() - 1);
+            nextCursor = new PaymentLinkCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new PaymentLinkPage(views, nextCursor);
     }
 
     @Transactional
     public PaymentLinkView updatePaymentLink(String slug, UpdatePaymentLinkCommand command) {
+        return metrics.record(PaymentLinkMetrics.Operation.UPDATE, () -> applyUpdate(slug, command));
+    }
+
+    private PaymentLinkView applyUpdate(String slug, UpdatePaymentLinkCommand command) {
         PaymentLink paymentLink = paymentLinkRepository.findBySlug(slug)
                 .orElseThrow(() -> new PaymentLinkNotFoundException(slug));
 
@@ -381,11 +677,9 @@ public class PaymentLinkApplicationService {
             );
         }
 
-        if (paymentLink.getStatus() == PaymentLinkStatus.PAID
-                || paymentLink.getStatus() == PaymentLinkStatus.EXPIRED) {
-            throw new PaymentLinkInvalidStateException(
-                    "Payment link is not editable in status: " + paymentLink.getStatus()
-            );
+        PaymentLinkStatus status = paymentLink.statusAt(LocalDateTime.now());
+        if (status == PaymentLinkStatus.PAID || status == PaymentLinkStatus.EXPIRED) {
+            throw new PaymentLinkInvalidStateException("Payment link is not editable in status: " + status);
         }
 
         if (command.expiresAt() != null) {
@@ -413,6 +707,7 @@ public class PaymentLinkApplicationService {
         paymentLink.setUpdatedAt(LocalDateTime.now());
 
         PaymentLink saved = paymentLinkRepository.save(paymentLink);
+        paymentLinkViewCache.evict(slug);
 
         FeeBreakdown feeBreakdown = feeEngine.calculateForPaymentLink(
                 saved.getMerchant().getId(),
@@ -421,7 +716,7 @@ public class PaymentLinkApplicationService {
                 saved.getCurrency()
         );
         String checkoutUrl = buildCheckoutUrl(saved.getSlug());
-        PspCode preferredPsp = resolvePreferredPsp(saved.getMerchant());
+        PspCode preferredPsp = resolvePreferredPsp(saved);
 
         return PaymentLinkView.from(saved, feeBreakdown, checkoutUrl, preferredPsp);
     }
@@ -435,5 +730,6 @@ public class PaymentLinkApplicationService {
         paymentLink.setStatus(PaymentLinkStatus.EXPIRED);
         paymentLink.setUpdatedAt(LocalDateTime.now());
         paymentLinkRepository.save(paymentLink);
+        paymentLinkViewCache.evict(slug);
     }
 }
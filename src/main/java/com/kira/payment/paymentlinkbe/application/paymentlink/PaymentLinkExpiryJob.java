@@ -0,0 +1,57 @@
+package com.kira.payment.paymentlinkbe.application.paymentlink;
+
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLinkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks unpaid links EXPIRED once {@code expires_at} has passed, so reads never
+ * write. Each batch is one UPDATE in its own transaction; rows locked by another
+ * node are skipped, so every node can run the sweep. Until a link is swept,
+ * {@code PaymentLink#statusAt} already reports it as EXPIRED.
+ */
+@Slf4j
+@Component
+public class PaymentLinkExpiryJob {
+
+    private final PaymentLinkRepository paymentLinkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public PaymentLinkExpiryJob(
+            PaymentLinkRepository paymentLinkRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${payment-link.expiry.batch-size:500}") int batchSize,
+            @Value("${payment-link.expiry.max-batches-per-run:20}") int maxBatchesPerRun
+    ) {
+        this.paymentLinkRepository = paymentLinkRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${payment-link.expiry.interval-ms:60000}")
+    public void expireOverdueLinks() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer updated = transactionTemplate.execute(
+                    status -> paymentLinkRepository.expireOverdue(now, batchSize)
+            );
+            int count = updated != null ? updated : 0;
+            expired += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        if (expired > 0) {
+            log.info("Expired {} payment links past their expiry", expired);
+        }
+    }
+}
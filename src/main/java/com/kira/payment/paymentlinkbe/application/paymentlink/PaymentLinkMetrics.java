@@ -0,0 +1,129 @@
+package com.kira.payment.paymentlinkbe.application.paymentlink;
+
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuoteExpiredException;
+import com.kira.payment.paymentlinkbe.domain.merchant.MerchantNotFoundException;
+import com.kira.payment.paymentlinkbe.domain.merchant.RecipientNotFoundException;
+import com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters of {@link PaymentLinkApplicationService}: a {@code payment.link.operations}
+ * timer per operation and outcome, and a {@code payment.link.payments} counter per
+ * PSP, status and currency. Operation timers are registered up front. At most
+ * {@code max-currencies} distinct currencies are used as tags; payments in any
+ * other currency are counted under {@code OTHER}.
+ */
+@Component
+public class PaymentLinkMetrics {
+
+    public enum Operation {
+        CREATE, GET, PAY, UPDATE, LIST
+    }
+
+    enum Outcome {
+        SUCCESS, REJECTED, ERROR
+    }
+
+    static final String OTHER_CURRENCY = "OTHER";
+    static final String NO_PSP = "NONE";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxCurrencies;
+    private final Map<Operation, Map<Outcome, Timer>> timers = new EnumMap<>(Operation.class);
+    private final Set<String> currencies = ConcurrentHashMap.newKeySet();
+    private final Map<PaymentKey, Counter> payments = new ConcurrentHashMap<>();
+
+    public PaymentLinkMetrics(
+            MeterRegistry meterRegistry,
+            @Value("${payment-link.metrics.max-currencies:20}") int maxCurrencies
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.maxCurrencies = maxCurrencies;
+        for (Operation operation : Operation.values()) {
+            Map<Outcome, Timer> byOutcome = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                byOutcome.put(outcome, Timer.builder("payment.link.operations")
+                        .description("Payment link operations; rejected ones failed on client input or link state")
+                        .tag("operation", operation.name().toLowerCase(Locale.ROOT))
+                        .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+            }
+            timers.put(operation, byOutcome);
+        }
+    }
+
+    public <T> T record(Operation operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            T result = call.get();
+            outcome = Outcome.SUCCESS;
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            timers.get(operation).get(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @param psp the PSP that took the charge, or {@code null} when none did
+     */
+    public void recordPayment(String psp, PaymentStatus status, String currency) {
+        PaymentKey key = new PaymentKey(psp != null ? psp : NO_PSP, status, currencyTag(currency));
+        payments.computeIfAbsent(key, this::paymentCounter).increment();
+    }
+
+    static Outcome outcomeOf(RuntimeException e) {
+        return e instanceof IllegalArgumentException
+                || e instanceof PaymentLinkNotFoundException
+                || e instanceof PaymentLinkInvalidStateException
+                || e instanceof MerchantNotFoundException
+                || e instanceof RecipientNotFoundException
+                || e instanceof FxQuoteExpiredException
+                ? Outcome.REJECTED
+                : Outcome.ERROR;
+    }
+
+    String currencyTag(String currency) {
+        if (currency == null || currency.length() != 3) {
+            return OTHER_CURRENCY;
+        }
+        String code = currency.toUpperCase(Locale.ROOT);
+        if (currencies.contains(code)) {
+            return code;
+        }
+        synchronized (currencies) {
+            if (currencies.contains(code) || currencies.size() < maxCurrencies) {
+                currencies.add(code);
+                return code;
+            }
+        }
+        return OTHER_CURRENCY;
+    }
+
+    private Counter paymentCounter(PaymentKey key) {
+        return Counter.builder("payment.link.payments")
+                .description("Payments completed through payment links, by PSP and final status")
+                .tag("psp", key.psp())
+                .tag("status", key.status().name())
+                .tag("currency", key.currency())
+                .register(meterRegistry);
+    }
+
+    private record PaymentKey(String psp, PaymentStatus status, String currency) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.kira.payment.paymentlinkbe.application.paymentlink;
+
+import java.util.List;
+
+public record PaymentLinkPage(
+        List<PaymentLinkView> items,
+        String nextCursor
+) {
+}
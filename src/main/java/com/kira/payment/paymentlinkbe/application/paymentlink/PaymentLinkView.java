@@ -44,7 +44,7 @@ public record PaymentLinkView(
                 paymentLink.getAmount(),
                 paymentLink.getCurrency(),
                 paymentLink.getDescription(),
-                paymentLink.getStatus(),
+                paymentLink.statusAt(LocalDateTime.now()),
                 paymentLink.getExpiresAt(),
                 paymentLink.getCreatedAt(),
                 checkoutUrl,
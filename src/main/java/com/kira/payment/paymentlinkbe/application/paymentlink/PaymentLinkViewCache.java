@@ -0,0 +1,112 @@
+package com.kira.payment.paymentlinkbe.application.paymentlink;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.kira.payment.paymentlinkbe.domain.fee.FeeBreakdown;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * Slug-keyed cache of checkout views. Entries never outlive the link's own
+ * {@code expiresAt}, so an expired link is always re-read and shown as EXPIRED,
+ * nor the FX quote lock they carry, so a cached view never hands out a dead quote.
+ */
+@Slf4j
+@Component
+public class PaymentLinkViewCache {
+
+    static final String CACHE_NAME = "payment-link-views";
+
+    private final Cache<String, PaymentLinkView> cache;
+
+    public PaymentLinkViewCache(
+            MeterRegistry meterRegistry,
+            @Value("${payment-link.view-cache.max-size:10000}") long maxSize,
+            @Value("${payment-link.view-cache.ttl-seconds:30}") long ttlSeconds
+    ) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ViewExpiry(Duration.ofSeconds(ttlSeconds)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public PaymentLinkView get(String slug, Function<String, PaymentLinkView> loader) {
+        return cache.get(slug, loader);
+    }
+
+    /**
+     * Evicts the view right away and, when called inside a transaction, once more
+     * after it completes so a concurrent read cannot re-cache pre-commit state.
+     */
+    public void evict(String slug) {
+        if (slug == null) {
+            return;
+        }
+        cache.invalidate(slug);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(slug);
+                }
+            });
+        }
+        log.debug("Evicted payment link view for slug={}", slug);
+    }
+
+    long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    private record ViewExpiry(Duration ttl) implements Expiry<String, PaymentLinkView> {
+
+        @Override
+        public long expireAfterCreate(String slug, PaymentLinkView view, long currentTime) {
+            Duration lifetime = ttl;
+            LocalDateTime expiresAt = view.expiresAt();
+            if (expiresAt != null) {
+                lifetime = min(lifetime, Duration.between(LocalDateTime.now(), expiresAt));
+            }
+            Instant quoteExpiresAt = quoteExpiresAt(view);
+            if (quoteExpiresAt != null) {
+                lifetime = min(lifetime, Duration.between(Instant.now(), quoteExpiresAt));
+            }
+            return lifetime.isNegative() ? 0 : lifetime.toNanos();
+        }
+
+        private static Duration min(Duration a, Duration b) {
+            return a.compareTo(b) <= 0 ? a : b;
+        }
+
+        private static Instant quoteExpiresAt(PaymentLinkView view) {
+            FeeBreakdown feeBreakdown = view.feeBreakdown();
+            if (feeBreakdown == null || feeBreakdown.fxConversion() == null) {
+                return null;
+            }
+            return feeBreakdown.fxConversion().quoteExpiresAt();
+        }
+
+        @Override
+        public long expireAfterUpdate(String slug, PaymentLinkView view, long currentTime, long currentDuration) {
+            return expireAfterCreate(slug, view, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String slug, PaymentLinkView view, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
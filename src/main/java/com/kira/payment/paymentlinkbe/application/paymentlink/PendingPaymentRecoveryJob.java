@@ -0,0 +1,125 @@
+package com.kira.payment.paymentlinkbe.application.paymentlink;
+
+import com.kira.payment.paymentlinkbe.application.psp.PspOrchestratorService;
+import com.kira.payment.paymentlinkbe.domain.psp.RoutedPspChargeResult;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Reconciles PENDING payments that never got a PSP reference (the node crashed,
+ * the PSP call timed out or the completion transaction was lost between phases).
+ * Each PSP is asked for the charge made under the payment's idempotency key:
+ * when none holds one the payment is failed, which releases its link for a new
+ * attempt; when one does, the payment is parked as REQUIRES_REVIEW with that
+ * charge and the link stays locked. When a PSP cannot be asked, the payment is
+ * left PENDING for the next run. Every update is conditional on the payment
+ * still being PENDING, so running the job on every node is safe.
+ * <p>
+ * The lookups block on the PSPs, and the job shares the scheduler with the webhook
+ * drain and other short jobs, so a run stops taking new payments after
+ * {@code recovery-max-run-ms}; the rest are picked up by the next run.
+ */
+@Slf4j
+@Component
+public class PendingPaymentRecoveryJob {
+
+    private final PaymentRepository paymentRepository;
+    private final PspOrchestratorService pspOrchestratorService;
+    private final TransactionTemplate transactionTemplate;
+    private final long pendingTimeoutSeconds;
+    private final int batchSize;
+    private final long maxRunNanos;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public PendingPaymentRecoveryJob(
+            PaymentRepository paymentRepository,
+            PspOrchestratorService pspOrchestratorService,
+            TransactionTemplate transactionTemplate,
+            @Value("${payment-link.payment.pending-timeout-seconds:300}") long pendingTimeoutSeconds,
+            @Value("${payment-link.payment.recovery-batch-size:100}") int batchSize,
+            @Value("${payment-link.payment.recovery-max-run-ms:10000}") long maxRunMs
+    ) {
+        this(paymentRepository, pspOrchestratorService, transactionTemplate, pendingTimeoutSeconds, batchSize,
+                maxRunMs, System::nanoTime);
+    }
+
+    PendingPaymentRecoveryJob(PaymentRepository paymentRepository,
+                              PspOrchestratorService pspOrchestratorService,
+                              TransactionTemplate transactionTemplate,
+                              long pendingTimeoutSeconds,
+                              int batchSize,
+                              long maxRunMs,
+                              LongSupplier nanoClock) {
+        this.paymentRepository = paymentRepository;
+        this.pspOrchestratorService = pspOrchestratorService;
+        this.transactionTemplate = transactionTemplate;
+        this.pendingTimeoutSeconds = pendingTimeoutSeconds;
+        this.batchSize = batchSize;
+        this.maxRunNanos = TimeUnit.MILLISECONDS.toNanos(maxRunMs);
+        this.nanoClock = nanoClock;
+    }
+
+    @Scheduled(fixedDelayString = "${payment-link.payment.recovery-interval-ms:60000}")
+    public void reconcileStalePendingPayments() {
+        List<Long> stale = paymentRepository.findStalePendingPaymentIds(
+                LocalDateTime.now().minusSeconds(pendingTimeoutSeconds), PageRequest.of(0, batchSize)
+        );
+        long runDeadline = nanoClock.getAsLong() + maxRunNanos;
+        int failed = 0;
+        int parked = 0;
+        int deferred = 0;
+        for (int i = 0; i < stale.size(); i++) {
+            if (nanoClock.getAsLong() - runDeadline >= 0) {
+                deferred = stale.size() - i;
+                break;
+            }
+            Long paymentId = stale.get(i);
+            Optional<RoutedPspChargeResult> charge;
+            try {
+                charge = pspOrchestratorService.findCharge(PaymentLinkApplicationService.paymentReference(paymentId));
+            } catch (RuntimeException e) {
+                log.warn("Could not reconcile PENDING payment id={} with the PSPs, retrying next run: {}",
+                        paymentId, e.getMessage());
+                continue;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (charge.isEmpty()) {
+                failed += update(() -> paymentRepository.failPendingPayment(paymentId, now));
+            } else {
+                RoutedPspChargeResult found = charge.get();
+                log.error("PENDING payment id={} has a {} charge pspRef={} on PSP={}; parking it for review",
+                        paymentId, found.result().status(), found.result().pspChargeId(), found.pspCode());
+                parked += update(() -> paymentRepository.parkPendingPayment(
+                        paymentId, found.pspCode(), found.result().pspChargeId(), now
+                ));
+            }
+        }
+        if (failed > 0 || parked > 0) {
+            log.warn("Reconciled stale PENDING payments older than {}s: {} failed, {} parked for review",
+                    pendingTimeoutSeconds, failed, parked);
+        }
+        if (deferred > 0) {
+            log.warn("Recovery run hit its {} ms limit, leaving {} stale PENDING payments for the next run",
+                    TimeUnit.NANOSECONDS.toMillis(maxRunNanos), deferred);
+        }
+    }
+
+    private int update(IntSupplier statement) {
+        Integer updated = transactionTemplate.execute(status -> statement.getAsInt());
+        return updated != null ? updated : 0;
+    }
+}
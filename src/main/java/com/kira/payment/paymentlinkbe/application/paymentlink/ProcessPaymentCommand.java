@@ -1,8 +1,17 @@
 package com.kira.payment.paymentlinkbe.application.paymentlink;
 
+/**
+ * @param fxQuoteId quote lock returned with the checkout view; when set the payment
+ *                  is charged at that quote instead of a fresh one
+ */
 public record ProcessPaymentCommand(
         String pspToken,
         String pspHint,
-        String idempotencyKey
+        String idempotencyKey,
+        String fxQuoteId
 ) {
+
+    public ProcessPaymentCommand(String pspToken, String pspHint, String idempotencyKey) {
+        this(pspToken, pspHint, idempotencyKey, null);
+    }
 }
@@ -0,0 +1,100 @@
+package com.kira.payment.paymentlinkbe.application.paymentlink;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates payment link slugs without asking the database whether they exist.
+ * Each slug encodes a 64-bit id made of the milliseconds since 2026-01-01, the
+ * node id and a per-millisecond sequence, so two nodes with different ids never
+ * produce the same slug. The id is scrambled with an invertible mix so
+ * consecutive links do not get consecutive slugs, and then encoded in base62 to
+ * a fixed {@value #SLUG_LENGTH} characters.
+ * <p>
+ * When more than 4096 slugs are needed in one millisecond, or the clock goes
+ * backwards, the generator keeps counting past the clock instead of waiting.
+ * <p>
+ * Without a configured {@code payment-link.slug.node-id} a random one is picked,
+ * which is fine on a single node; with {@code payment-link.slug.require-node-id}
+ * (aws profile) startup fails instead, since two nodes could pick the same id.
+ */
+@Slf4j
+@Component
+public class SlugGenerator {
+
+    static final int SLUG_LENGTH = 11;
+
+    private static final long EPOCH_MILLIS = 1_767_225_600_000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final char[] ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private final long nodeId;
+    private final LongSupplier clock;
+
+    /** Milliseconds since the epoch in the high bits, the sequence in the low {@link #SEQUENCE_BITS}. */
+    private final AtomicLong lastTick = new AtomicLong();
+
+    @Autowired
+    public SlugGenerator(@Value("${payment-link.slug.node-id:-1}") long nodeId,
+                         @Value("${payment-link.slug.require-node-id:false}") boolean requireNodeId) {
+        this(resolveNodeId(nodeId, requireNodeId), System::currentTimeMillis);
+    }
+
+    SlugGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Slug node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    public String next() {
+        long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long tick = lastTick.updateAndGet(last -> Math.max(last + 1, now));
+        long millis = tick >>> SEQUENCE_BITS;
+        long sequence = tick & ((1L << SEQUENCE_BITS) - 1);
+        long id = (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+        return encode(mix(id));
+    }
+
+    /** A bijection on 64 bits (the SplitMix64 finalizer), so distinct ids stay distinct. */
+    static long mix(long id) {
+        long z = id;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    static String encode(long value) {
+        char[] slug = new char[SLUG_LENGTH];
+        long remaining = value;
+        for (int i = SLUG_LENGTH - 1; i >= 0; i--) {
+            slug[i] = ALPHABET[(int) Long.remainderUnsigned(remaining, ALPHABET.length)];
+            remaining = Long.divideUnsigned(remaining, ALPHABET.length);
+        }
+        return new String(slug);
+    }
+
+    static long resolveNodeId(long configured, boolean required) {
+        if (configured >= 0) {
+            return configured;
+        }
+        if (required) {
+            throw new IllegalStateException("payment-link.slug.node-id must be set to a distinct id (0-"
+                    + MAX_NODE_ID + ") per node; set PAYMENT_LINK_SLUG_NODE_ID");
+        }
+        long random = ThreadLocalRandom.current().nextLong(MAX_NODE_ID + 1);
+        log.warn("payment-link.slug.node-id is not set, using random node id {}; "
+                + "set a distinct id per node to rule out slug collisions", random);
+        return random;
+    }
+}
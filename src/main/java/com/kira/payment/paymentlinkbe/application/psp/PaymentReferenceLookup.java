@@ -0,0 +1,114 @@
+package com.kira.payment.paymentlinkbe.application.psp;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.Payment;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves payments from the PSP charge id carried by webhooks. Charges recorded
+ * by this node are remembered for a short window (when their webhooks arrive) and
+ * loaded by primary key; everything else goes through the
+ * {@code (psp_code, psp_reference)} unique index.
+ */
+@Component
+public class PaymentReferenceLookup {
+
+    static final String CACHE_NAME = "payment-psp-references";
+
+    private final PaymentRepository paymentRepository;
+    private final Cache<Key, Long> paymentIds;
+
+    public PaymentReferenceLookup(
+            PaymentRepository paymentRepository,
+            MeterRegistry meterRegistry,
+            @Value("${payment-link.psp-reference-cache.max-size:50000}") long maxSize,
+            @Value("${payment-link.psp-reference-cache.ttl-seconds:600}") long ttlSeconds
+    ) {
+        this.paymentRepository = paymentRepository;
+        this.paymentIds = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, paymentIds, CACHE_NAME);
+    }
+
+    /**
+     * Call once the payment carrying this reference is committed.
+     */
+    public void remember(PspCode pspCode, String pspReference, Long paymentId) {
+        if (pspCode == null || pspReference == null || paymentId == null) {
+            return;
+        }
+        paymentIds.put(new Key(pspCode, pspReference), paymentId);
+    }
+
+    public Optional<Payment> find(PspCode pspCode, String pspReference) {
+        Long cachedId = paymentIds.getIfPresent(new Key(pspCode, pspReference));
+        if (cachedId != null) {
+            Optional<Payment> cached = paymentRepository.findById(cachedId)
+                    .filter(payment -> matches(payment, pspCode, pspReference));
+            if (cached.isPresent()) {
+                return cached;
+            }
+        }
+        return paymentRepository.findByPspCodeAndPspReference(pspCode, pspReference);
+    }
+
+    /**
+     * Batch variant of {@link #find}: at most one primary-key query for the cached
+     * references plus one indexed query for the rest. Unknown references are absent
+     * from the result.
+     */
+    public Map<String, Payment> findAll(PspCode pspCode, Collection<String> pspReferences) {
+        Map<String, Payment> found = new HashMap<>();
+        Map<Long, String> cachedIds = new HashMap<>();
+        for (String pspReference : pspReferences) {
+            Long cachedId = paymentIds.getIfPresent(new Key(pspCode, pspReference));
+            if (cachedId != null) {
+                cachedIds.put(cachedId, pspReference);
+            }
+        }
+        if (!cachedIds.isEmpty()) {
+            for (Payment payment : paymentRepository.findAllById(cachedIds.keySet())) {
+                String pspReference = cachedIds.get(payment.getId());
+                if (matches(payment, pspCode, pspReference)) {
+                    found.put(pspReference, payment);
+                }
+            }
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String pspReference : pspReferences) {
+            if (!found.containsKey(pspReference)) {
+                missing.add(pspReference);
+            }
+        }
+        if (!missing.isEmpty()) {
+            paymentRepository.findByPspCodeAndPspReferenceIn(pspCode, missing)
+                    .forEach(payment -> found.put(payment.getPspReference(), payment));
+        }
+        return found;
+    }
+
+    private static boolean matches(Payment payment, PspCode pspCode, String pspReference) {
+        return payment.getPspCode() == pspCode && pspReference.equals(payment.getPspReference());
+    }
+
+    private record Key(PspCode pspCode, String pspReference) {
+    }
+}
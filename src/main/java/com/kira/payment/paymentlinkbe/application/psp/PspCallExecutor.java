@@ -0,0 +1,206 @@
+package com.kira.payment.paymentlinkbe.application.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.ChargeStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCallTimeoutException;
+import com.kira.payment.paymentlinkbe.domain.psp.PspChargeRequest;
+import com.kira.payment.paymentlinkbe.domain.psp.PspChargeResult;
+import com.kira.payment.paymentlinkbe.domain.psp.PspClient;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs PSP charges on a bounded pool so the caller can stop waiting at a deadline.
+ * On timeout the call is cancelled (the worker is interrupted) and
+ * {@link PspCallTimeoutException} is thrown. When the pool and its queue are full,
+ * the call is rejected right away instead of queueing without limit.
+ */
+@Slf4j
+@Component
+public class PspCallExecutor {
+
+    public enum Outcome {
+        SUCCEEDED, FAILED, ERROR, TIMEOUT, REJECTED
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Duration defaultAttemptTimeout;
+    private final Duration totalBudget;
+    private final Map<PspCode, Map<Outcome, Counter>> outcomes = new EnumMap<>(PspCode.class);
+
+    public PspCallExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${psp.call.pool-size:32}") int poolSize,
+            @Value("${psp.call.queue-capacity:64}") int queueCapacity,
+            @Value("${psp.call.default-timeout-ms:3000}") long defaultTimeoutMs,
+            @Value("${psp.call.total-budget-ms:6000}") long totalBudgetMs
+    ) {
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "psp-call-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+        this.defaultAttemptTimeout = Duration.ofMillis(defaultTimeoutMs);
+        this.totalBudget = Duration.ofMillis(totalBudgetMs);
+
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "psp-calls");
+        for (PspCode code : PspCode.values()) {
+            Map<Outcome, Counter> byOutcome = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                byOutcome.put(outcome, Counter.builder("psp.charge.calls")
+                        .description("PSP charge attempts by outcome; timeouts are counted apart from failures")
+                        .tag("psp", code.name())
+                        .tag("outcome", outcome.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+            outcomes.put(code, byOutcome);
+        }
+    }
+
+    public Duration defaultAttemptTimeout() {
+        return defaultAttemptTimeout;
+    }
+
+    public Duration totalBudget() {
+        return totalBudget;
+    }
+
+    public PspChargeResult charge(PspClient client, PspChargeRequest request, Duration timeout) {
+        PspCode code = client.getCode();
+        Future<PspChargeResult> future;
+        try {
+            future = executor.submit(() -> client.charge(request));
+        } catch (RejectedExecutionException e) {
+            count(code, Outcome.REJECTED);
+            throw new IllegalStateException("PSP call pool saturated, rejecting call to " + code, e);
+        }
+
+        try {
+            PspChargeResult result = future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            count(code, result.status() == ChargeStatus.SUCCEEDED
+                    ? Outcome.SUCCEEDED
+                    : Outcome.FAILED);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            count(code, Outcome.TIMEOUT);
+            throw new PspCallTimeoutException(code, timeout.toMillis());
+        } catch (ExecutionException e) {
+            count(code, Outcome.ERROR);
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("PSP " + code + " call failed", e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            count(code, Outcome.ERROR);
+            throw new IllegalStateException("Interrupted while waiting for PSP " + code, e);
+        }
+    }
+
+    /**
+     * Looks up a charge by idempotency key on the same pool and with the same
+     * timeout handling as {@link #charge}. Lookups are not counted as charge calls.
+     */
+    public Optional<PspChargeResult> findCharge(PspClient client, String idempotencyKey, Duration timeout) {
+        PspCode code = client.getCode();
+        Future<Optional<PspChargeResult>> future;
+        try {
+            future = executor.submit(() -> client.findCharge(idempotencyKey));
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("PSP call pool saturated, rejecting lookup on " + code, e);
+        }
+
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new PspCallTimeoutException(code, timeout.toMillis());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("PSP " + code + " lookup failed", e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for PSP " + code, e);
+        }
+    }
+
+    /**
+     * Starts a charge without waiting. The future completes with the PSP result or
+     * exception and is never cancelled by the caller: hedged attempts must run to an
+     * answer so a losing success can be voided. Like {@link #charge}, an attempt that
+     * has not answered within {@code timeout} completes with
+     * {@link PspCallTimeoutException} and its worker is interrupted, so a hanging PSP
+     * cannot hold a pool thread.
+     */
+    public CompletableFuture<PspChargeResult> chargeAsync(PspClient client, PspChargeRequest request,
+                                                          Duration timeout) {
+        PspCode code = client.getCode();
+        CompletableFuture<PspChargeResult> call = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    call.complete(client.charge(request));
+                } catch (RuntimeException e) {
+                    call.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            count(code, Outcome.REJECTED);
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("PSP call pool saturated, rejecting call to " + code, e));
+        }
+        CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (call.completeExceptionally(new PspCallTimeoutException(code, timeout.toMillis()))) {
+                task.cancel(true);
+            }
+        });
+        return call.whenComplete((result, error) -> count(code, error instanceof PspCallTimeoutException
+                ? Outcome.TIMEOUT
+                : error != null
+                ? Outcome.ERROR
+                : result.status() == ChargeStatus.SUCCEEDED ? Outcome.SUCCEEDED : Outcome.FAILED));
+    }
+
+    private void count(PspCode code, Outcome outcome) {
+        outcomes.get(code).get(outcome).increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,255 @@
+package com.kira.payment.paymentlinkbe.application.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free, count-based circuit breaker for a single PSP.
+ * <p>
+ * The last {@code windowSize} outcomes live in a ring of flags (failed / slow) with
+ * running totals kept by atomic deltas, so recording a call takes a few atomic
+ * operations and no lock. State changes are single CAS transitions, and the thread that wins a
+ * transition is the only one that resets counters and notifies the listener.
+ * <p>
+ * Every call is made under a {@link Permit}. An outcome only counts while the breaker is
+ * still in the state (and the same stretch of it) that granted the permit, so calls started
+ * before a transition are not mistaken for HALF_OPEN probes. A permit whose call never ran
+ * must be {@linkplain #release released} so its probe slot can be reused.
+ */
+public class PspCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public record Settings(
+            int windowSize,
+            int minimumCalls,
+            int failureRateThreshold,
+            int slowCallRateThreshold,
+            Duration slowCallDuration,
+            Duration openDuration,
+            int halfOpenProbes
+    ) {
+        public Settings {
+            if (windowSize < 1 || minimumCalls < 1 || halfOpenProbes < 1) {
+                throw new IllegalArgumentException("Circuit breaker window, minimum calls and probes must be positive");
+            }
+        }
+    }
+
+    public interface TransitionListener {
+        void onTransition(PspCode pspCode, State from, State to);
+    }
+
+    /** Permission for one call, tied to the state that granted it. */
+    public static final class Permit {
+        private final Phase phase;
+
+        private Permit(Phase phase) {
+            this.phase = phase;
+        }
+    }
+
+    /** One stretch of a state, with the probe counters of a HALF_OPEN stretch. */
+    private static final class Phase {
+        final State state;
+        final long openedAtNanos;
+        final Permit permit = new Permit(this);
+        final AtomicInteger probesIssued = new AtomicInteger();
+        final AtomicInteger probesCompleted = new AtomicInteger();
+        final AtomicInteger probesFailed = new AtomicInteger();
+        final AtomicInteger probesSlow = new AtomicInteger();
+
+        Phase(State state, long openedAtNanos) {
+            this.state = state;
+            this.openedAtNanos = openedAtNanos;
+        }
+    }
+
+    private static final int FAILED = 1;
+    private static final int SLOW = 2;
+
+    private final PspCode pspCode;
+    private final Settings settings;
+    private final TransitionListener listener;
+    private final LongSupplier nanoClock;
+    private final long slowCallNanos;
+
+    private final AtomicReference<Phase> phase = new AtomicReference<>(new Phase(State.CLOSED, 0));
+    private final AtomicIntegerArray window;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicInteger failedInWindow = new AtomicInteger();
+    private final AtomicInteger slowInWindow = new AtomicInteger();
+
+    public PspCircuitBreaker(PspCode pspCode, Settings settings, TransitionListener listener) {
+        this(pspCode, settings, listener, System::nanoTime);
+    }
+
+    PspCircuitBreaker(PspCode pspCode, Settings settings, TransitionListener listener, LongSupplier nanoClock) {
+        this.pspCode = pspCode;
+        this.settings = settings;
+        this.listener = listener;
+        this.nanoClock = nanoClock;
+        this.slowCallNanos = settings.slowCallDuration().toNanos();
+        this.window = new AtomicIntegerArray(settings.windowSize());
+    }
+
+    public PspCode pspCode() {
+        return pspCode;
+    }
+
+    public State state() {
+        return phase.get().state;
+    }
+
+    /**
+     * Returns a permit if a call may go to the PSP now, or null. An OPEN breaker turns
+     * HALF_OPEN once the open duration has elapsed and then lets through at most
+     * {@code halfOpenProbes} calls at a time.
+     */
+    public Permit tryAcquirePermission() {
+        Phase current = phase.get();
+        if (current.state == State.OPEN) {
+            if (nanoClock.getAsLong() - current.openedAtNanos < settings.openDuration().toNanos()) {
+                return null;
+            }
+            transition(current, State.HALF_OPEN);
+            current = phase.get();
+        }
+        if (current.state == State.CLOSED) {
+            return current.permit;
+        }
+        if (current.state != State.HALF_OPEN) {
+            return null;
+        }
+        int issued;
+        do {
+            issued = current.probesIssued.get();
+            if (issued >= settings.halfOpenProbes()) {
+                return null;
+            }
+        } while (!current.probesIssued.compareAndSet(issued, issued + 1));
+        return current.permit;
+    }
+
+    /** Gives back a permit whose call was never made. */
+    public void release(Permit permit) {
+        Phase current = phase.get();
+        if (permit != null && permit.phase == current && current.state == State.HALF_OPEN) {
+            current.probesIssued.decrementAndGet();
+        }
+    }
+
+    public void onSuccess(Permit permit, long durationNanos) {
+        record(permit, durationNanos >= slowCallNanos ? SLOW : 0);
+    }
+
+    public void onFailure(Permit permit, long durationNanos) {
+        record(permit, FAILED | (durationNanos >= slowCallNanos ? SLOW : 0));
+    }
+
+    /** Share of failed calls in the current window, 0–100, or -1 below the minimum number of calls. */
+    public float failureRate() {
+        return rate(failedInWindow.get());
+    }
+
+    /** Share of slow calls in the current window, 0–100, or -1 below the minimum number of calls. */
+    public float slowCallRate() {
+        return rate(slowInWindow.get());
+    }
+
+    /**
+     * 0 (unusable) to 1 (healthy): 0 while OPEN, otherwise one minus the worse of the
+     * failure and slow-call rates. Used for dashboards and routing diagnostics.
+     */
+    public double healthScore() {
+        if (state() == State.OPEN) {
+            return 0;
+        }
+        float worst = Math.max(failureRate(), slowCallRate());
+        return worst < 0 ? 1 : 1 - worst / 100.0;
+    }
+
+    public int bufferedCalls() {
+        return (int) Math.min(cursor.get(), settings.windowSize());
+    }
+
+    private void record(Permit permit, int outcome) {
+        Phase current = phase.get();
+        if (permit == null || permit.phase != current) {
+            return;
+        }
+        if (current.state == State.HALF_OPEN) {
+            recordProbe(current, outcome);
+            return;
+        }
+        if (current.state == State.OPEN) {
+            return;
+        }
+
+        int slot = (int) (cursor.getAndIncrement() % settings.windowSize());
+        int previous = window.getAndSet(slot, outcome);
+        failedInWindow.addAndGet(bit(outcome, FAILED) - bit(previous, FAILED));
+        slowInWindow.addAndGet(bit(outcome, SLOW) - bit(previous, SLOW));
+
+        if (bufferedCalls() >= settings.minimumCalls()
+                && (failureRate() >= settings.failureRateThreshold()
+                || slowCallRate() >= settings.slowCallRateThreshold())) {
+            transition(current, State.OPEN);
+        }
+    }
+
+    private void recordProbe(Phase current, int outcome) {
+        current.probesFailed.addAndGet(bit(outcome, FAILED));
+        current.probesSlow.addAndGet(bit(outcome, SLOW));
+        if (current.probesCompleted.incrementAndGet() < settings.halfOpenProbes()) {
+            return;
+        }
+        int probes = settings.halfOpenProbes();
+        if (current.probesFailed.get() * 100 / probes >= settings.failureRateThreshold()
+                || current.probesSlow.get() * 100 / probes >= settings.slowCallRateThreshold()) {
+            transition(current, State.OPEN);
+        } else {
+            transition(current, State.CLOSED);
+        }
+    }
+
+    private void transition(Phase from, State to) {
+        Phase next = new Phase(to, to == State.OPEN ? nanoClock.getAsLong() : 0);
+        if (!phase.compareAndSet(from, next)) {
+            return;
+        }
+        if (to == State.CLOSED) {
+            resetWindow();
+        }
+        listener.onTransition(pspCode, from.state, to);
+    }
+
+    private void resetWindow() {
+        for (int i = 0; i < window.length(); i++) {
+            window.set(i, 0);
+        }
+        cursor.set(0);
+        failedInWindow.set(0);
+        slowInWindow.set(0);
+    }
+
+    private float rate(int count) {
+        int calls = bufferedCalls();
+        if (calls < settings.minimumCalls()) {
+            return -1;
+        }
+        return count * 100.0f / calls;
+    }
+
+    private static int bit(int outcome, int flag) {
+        return (outcome & flag) != 0 ? 1 : 0;
+    }
+}
@@ -0,0 +1,49 @@
+package com.kira.payment.paymentlinkbe.application.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "pspcircuitbreakers")
+@RequiredArgsConstructor
+public class PspCircuitBreakerEndpoint {
+
+    private final PspCircuitBreakerRegistry registry;
+
+    @ReadOperation
+    public Map<PspCode, BreakerStatus> breakers() {
+        Map<PspCode, BreakerStatus> statuses = new EnumMap<>(PspCode.class);
+        registry.all().forEach((code, breaker) -> statuses.put(code, BreakerStatus.of(breaker)));
+        return statuses;
+    }
+
+    @ReadOperation
+    public BreakerStatus breaker(@Selector PspCode psp) {
+        return BreakerStatus.of(registry.get(psp));
+    }
+
+    public record BreakerStatus(
+            PspCircuitBreaker.State state,
+            float failureRate,
+            float slowCallRate,
+            double healthScore,
+            int bufferedCalls
+    ) {
+        static BreakerStatus of(PspCircuitBreaker breaker) {
+            return new BreakerStatus(
+                    breaker.state(),
+                    breaker.failureRate(),
+                    breaker.slowCallRate(),
+                    breaker.healthScore(),
+                    breaker.bufferedCalls()
+            );
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.kira.payment.paymentlinkbe.application.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One {@link PspCircuitBreaker} per {@link PspCode}, with state, rates and health
+ * score published as gauges and every transition counted.
+ */
+@Slf4j
+@Component
+public class PspCircuitBreakerRegistry {
+
+    private final Map<PspCode, PspCircuitBreaker> breakers;
+    private final Map<PspCode, Counter> rejectedCalls;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public PspCircuitBreakerRegistry(
+            MeterRegistry meterRegistry,
+            @Value("${psp.circuit-breaker.window-size:100}") int windowSize,
+            @Value("${psp.circuit-breaker.minimum-calls:20}") int minimumCalls,
+            @Value("${psp.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${psp.circuit-breaker.slow-call-rate-threshold:80}") int slowCallRateThreshold,
+            @Value("${psp.circuit-breaker.slow-call-duration-ms:2000}") long slowCallDurationMs,
+            @Value("${psp.circuit-breaker.open-duration-ms:30000}") long openDurationMs,
+            @Value("${psp.circuit-breaker.half-open-probes:5}") int halfOpenProbes
+    ) {
+        this(meterRegistry, new PspCircuitBreaker.Settings(
+                windowSize,
+                minimumCalls,
+                failureRateThreshold,
+                slowCallRateThreshold,
+                Duration.ofMillis(slowCallDurationMs),
+                Duration.ofMillis(openDurationMs),
+                halfOpenProbes
+        ));
+    }
+
+    public PspCircuitBreakerRegistry(MeterRegistry meterRegistry, PspCircuitBreaker.Settings settings) {
+        this.meterRegistry = meterRegistry;
+        Map<PspCode, PspCircuitBreaker> created = new EnumMap<>(PspCode.class);
+        Map<PspCode, Counter> rejected = new EnumMap<>(PspCode.class);
+        for (PspCode code : PspCode.values()) {
+            PspCircuitBreaker breaker = new PspCircuitBreaker(code, settings, this::onTransition);
+            created.put(code, breaker);
+            registerGauges(breaker);
+            rejected.put(code, Counter.builder("psp.circuit.rejected")
+                    .description("PSP calls skipped because the circuit breaker did not permit them")
+                    .tag("psp", code.name())
+                    .register(meterRegistry));
+        }
+        this.breakers = Collections.unmodifiableMap(created);
+        this.rejectedCalls = Collections.unmodifiableMap(rejected);
+    }
+
+    public PspCircuitBreaker get(PspCode code) {
+        return breakers.get(code);
+    }
+
+    public Map<PspCode, PspCircuitBreaker> all() {
+        return breakers;
+    }
+
+    public void recordRejected(PspCode code) {
+        rejectedCalls.get(code).increment();
+    }
+
+    private void registerGauges(PspCircuitBreaker breaker) {
+        String psp = breaker.pspCode().name();
+        Gauge.builder("psp.circuit.state", breaker, b -> b.state().ordinal())
+                .description("Circuit breaker state: 0=CLOSED, 1=OPEN, 2=HALF_OPEN")
+                .tag("psp", psp)
+                .register(meterRegistry);
+        Gauge.builder("psp.circuit.failure.rate", breaker, PspCircuitBreaker::failureRate)
+                .description("Failed calls in the sliding window, percent (-1 below minimum calls)")
+                .tag("psp", psp)
+                .register(meterRegistry);
+        Gauge.builder("psp.circuit.slow.rate", breaker, PspCircuitBreaker::slowCallRate)
+                .description("Slow calls in the sliding window, percent (-1 below minimum calls)")
+                .tag("psp", psp)
+                .register(meterRegistry);
+        Gauge.builder("psp.health.score", breaker, PspCircuitBreaker::healthScore)
+                .description("PSP health from 0 (unusable) to 1 (healthy)")
+                .tag("psp", psp)
+                .register(meterRegistry);
+    }
+
+    private void onTransition(PspCode code, PspCircuitBreaker.State from, PspCircuitBreaker.State to) {
+        if (to == PspCircuitBreaker.State.OPEN) {
+            log.warn("Circuit breaker for PSP={} moved {} -> {}", code, from, to);
+        } else {
+            log.info("Circuit breaker for PSP={} moved {} -> {}", code, from, to);
+        }
+        Counter.builder("psp.circuit.transitions")
+                .description("Circuit breaker state transitions")
+                .tag("psp", code.name())
+                .tag("from", from.name())
+                .tag("to", to.name())
+                .register(meterRegistry)
+                .increment();
+    }
+}
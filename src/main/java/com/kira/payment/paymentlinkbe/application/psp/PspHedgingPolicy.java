@@ -0,0 +1,69 @@
+package com.kira.payment.paymentlinkbe.application.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Decides whether a charge is hedged and how long to wait on the primary first.
+ * Hedging is off by default and only applies at or above {@code min-amount} (compared
+ * in the link currency). The delay is the primary's observed p95, bounded by
+ * {@code min-delay-ms}; {@code fallback-delay-ms} is used until enough samples exist.
+ */
+@Component
+public class PspHedgingPolicy {
+
+    private final PspLatencyTracker latencyTracker;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final BigDecimal minAmount;
+    private final Duration minDelay;
+    private final Duration fallbackDelay;
+
+    public PspHedgingPolicy(
+            PspLatencyTracker latencyTracker,
+            MeterRegistry meterRegistry,
+            @Value("${psp.hedging.enabled:false}") boolean enabled,
+            @Value("${psp.hedging.min-amount:1000}") BigDecimal minAmount,
+            @Value("${psp.hedging.min-delay-ms:50}") long minDelayMs,
+            @Value("${psp.hedging.fallback-delay-ms:1000}") long fallbackDelayMs
+    ) {
+        this.latencyTracker = latencyTracker;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.minAmount = minAmount;
+        this.minDelay = Duration.ofMillis(minDelayMs);
+        this.fallbackDelay = Duration.ofMillis(fallbackDelayMs);
+    }
+
+    public Optional<Duration> hedgeDelay(PspCode primary, BigDecimal amount) {
+        if (!enabled || amount == null || amount.compareTo(minAmount) < 0) {
+            return Optional.empty();
+        }
+        Duration delay = latencyTracker.p95(primary).orElse(fallbackDelay);
+        return Optional.of(delay.compareTo(minDelay) < 0 ? minDelay : delay);
+    }
+
+    public void recordHedge(PspCode primary) {
+        Counter.builder("psp.hedge.fired")
+                .description("Charges where the secondary PSP was started because the primary was slow")
+                .tag("psp", primary.name())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordVoid(PspCode psp, boolean voided) {
+        Counter.builder("psp.hedge.voids")
+                .description("Losing hedged charges voided (outcome=voided) or left for reconciliation (outcome=failed)")
+                .tag("psp", psp.name())
+                .tag("outcome", voided ? "voided" : "failed")
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,87 @@
+package com.kira.payment.paymentlinkbe.application.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Recent charge latencies per PSP in a fixed ring. The p95 is recomputed every
+ * {@link #RECOMPUTE_EVERY} samples by the recording thread, so readers only do a
+ * volatile read.
+ */
+@Component
+public class PspLatencyTracker {
+
+    static final int RECOMPUTE_EVERY = 32;
+
+    private final int minimumSamples;
+    private final Map<PspCode, Ring> rings = new EnumMap<>(PspCode.class);
+
+    public PspLatencyTracker(
+            @Value("${psp.latency.window-size:512}") int windowSize,
+            @Value("${psp.latency.minimum-samples:50}") int minimumSamples
+    ) {
+        this.minimumSamples = minimumSamples;
+        for (PspCode code : PspCode.values()) {
+            rings.put(code, new Ring(windowSize));
+        }
+    }
+
+    public void record(PspCode code, long durationNanos) {
+        rings.get(code).add(durationNanos);
+    }
+
+    /** Observed p95, empty until the PSP has at least the minimum number of samples. */
+    public Optional<Duration> p95(PspCode code) {
+        Ring ring = rings.get(code);
+        if (ring.size() < minimumSamples) {
+            return Optional.empty();
+        }
+        long p95 = ring.p95Nanos;
+        return p95 > 0 ? Optional.of(Duration.ofNanos(p95)) : Optional.empty();
+    }
+
+    private static final class Ring {
+        private final AtomicLongArray samples;
+        private final AtomicLong count = new AtomicLong();
+        private volatile long p95Nanos;
+
+        Ring(int size) {
+            this.samples = new AtomicLongArray(size);
+        }
+
+        void add(long nanos) {
+            long n = count.getAndIncrement();
+            samples.set((int) (n % samples.length()), nanos);
+            if ((n + 1) % RECOMPUTE_EVERY == 0 || n < RECOMPUTE_EVERY) {
+                p95Nanos = percentile(0.95);
+            }
+        }
+
+        int size() {
+            return (int) Math.min(count.get(), samples.length());
+        }
+
+        private long percentile(double quantile) {
+            int size = size();
+            if (size == 0) {
+                return 0;
+            }
+            long[] copy = new long[size];
+            for (int i = 0; i < size; i++) {
+                copy[i] = samples.get(i);
+            }
+            Arrays.sort(copy);
+            int index = (int) Math.ceil(quantile * size) - 1;
+            return copy[Math.max(0, Math.min(index, size - 1))];
+        }
+    }
+}
@@ -1,95 +1,565 @@
 package com.kira.payment.paymentlinkbe.application.psp;
 
 import com.kira.payment.paymentlinkbe.domain.psp.*;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class PspOrchestratorService {
 
-    private final Map<String, PspClient> pspClients;
+    private final Map<PspCode, PspClient> clientsByCode;
+    private final PspCircuitBreakerRegistry circuitBreakers;
+    private final PspCallExecutor callExecutor;
+    private final PspLatencyTracker latencyTracker;
+    private final PspHedgingPolicy hedgingPolicy;
+    private final Map<PspCode, Map<PspCallExecutor.Outcome, Timer>> attempts = new EnumMap<>(PspCode.class);
+    private final Map<PspCode, Map<PspCode, Counter>> failovers = new EnumMap<>(PspCode.class);
 
-    public RoutedPspChargeResult processPayment(
+    public PspOrchestratorService(Map<String, PspClient> pspClients,
+                                  PspCircuitBreakerRegistry circuitBreakers,
+                                  PspCallExecutor callExecutor,
+                                  PspLatencyTracker latencyTracker,
+                                  PspHedgingPolicy hedgingPolicy,
+                                  MeterRegistry meterRegistry) {
+        this.clientsByCode = new EnumMap<>(PspCode.class);
+        pspClients.values().forEach(client -> clientsByCode.putIfAbsent(client.getCode(), client));
+        this.circuitBreakers = circuitBreakers;
+        this.callExecutor = callExecutor;
+        this.latencyTracker = latencyTracker;
+        this.hedgingPolicy = hedgingPolicy;
+
+        for (PspCode code : PspCode.values()) {
+            Map<PspCallExecutor.Outcome, Timer> byOutcome = new EnumMap<>(PspCallExecutor.Outcome.class);
+            for (PspCallExecutor.Outcome outcome : PspCallExecutor.Outcome.values()) {
+                byOutcome.put(outcome, Timer.builder("psp.charge.attempts")
+                        .description("Latency of each charge attempt on a PSP, as seen by the orchestrator")
+                        .tag("psp", code.name())
+                        .tag("outcome", outcome.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+            attempts.put(code, byOutcome);
+
+            Map<PspCode, Counter> byTarget = new EnumMap<>(PspCode.class);
+            for (PspCode target : PspCode.values()) {
+                if (target != code) {
+                    byTarget.put(target, Counter.builder("psp.failovers")
+                            .description("Charges sent to the secondary PSP after the primary failed or was skipped")
+                            .tag("from", code.name())
+                            .tag("to", target.name())
+                            .register(meterRegistry));
+                }
+            }
+            failovers.put(code, byTarget);
+        }
+    }
+
+    /**
+     * Charges along the route. A PSP whose circuit breaker is open is skipped without
+     * being called, so an unhealthy primary costs nothing before failing over. Each
+     * attempt waits at most the route's {@code timeoutMs} (or the default), capped by
+     * what is left of the overall budget, so a slow primary still leaves time for the
+     * secondary.
+     * <p>
+     * With a {@code paymentReference}, every PSP gets its own idempotency key derived
+     * from it, and the charge may be hedged (see {@link PspHedgingPolicy}): if the
+     * primary has not answered after its p95, the secondary is tried in parallel, the
+     * first success wins and a losing success is voided.
+     * <p>
+     * A PSP is only given up on when it declined or the call never left this node.
+     * After a timeout or error the PSP is first asked for the charge under its
+     * idempotency key (see {@link #resolveUncertainCharge}); when that cannot settle
+     * it, {@link PspOutcomeUnknownException} is thrown instead of charging elsewhere.
+     */
+    public RoutedPspChargeResult processRoutedPayment(
             String pspToken,
             BigDecimal amount,
             String currency,
-            String pspHint
+            PspRoute route,
+            String paymentReference
     ) {
-        PspClient stripe = findClientByCode(PspCode.STRIPE);
-        PspClient adyen  = findClientByCode(PspCode.ADYEN);
+        PspClient primary = findClientByCode(route.primary());
+        PspClient secondary = route.secondary() != null ? findClientByCode(route.secondary()) : null;
 
-        PspClient primary   = stripe;
-        PspClient secondary = adyen;
+        PspChargeRequest primaryRequest = chargeRequest(pspToken, amount, currency, paymentReference, primary);
+        PspChargeRequest secondaryRequest = secondary != null
+                ? chargeRequest(pspToken, amount, currency, paymentReference, secondary)
+                : null;
+        Duration attemptTimeout = route.timeoutMs() != null && route.timeoutMs() > 0
+                ? Duration.ofMillis(route.timeoutMs())
+                : callExecutor.defaultAttemptTimeout();
+        long deadline = System.nanoTime() + callExecutor.totalBudget().toNanos();
 
-        if (pspHint != null && PspCode.ADYEN.name().equalsIgnoreCase(pspHint)) {
-            primary   = adyen;
-            secondary = stripe;
-        }
+        Optional<Duration> hedgeDelay = secondary != null && paymentReference != null
+                ? hedgingPolicy.hedgeDelay(primary.getCode(), amount)
+                : Optional.empty();
 
-        PspChargeRequest request = new PspChargeRequest(
-                pspToken,
-                amount,
-                currency
-        );
-        try {
-            log.info("Trying primary PSP={} for amount={} {}",
-                    primary.getCode(), amount, currency);
+        PspCircuitBreaker.Permit primaryPermit = acquirePermit(primary);
+        if (primaryPermit != null) {
+            if (hedgeDelay.isPresent()) {
+                RoutedPspChargeResult hedged = chargeWithHedge(
+                        primary, primaryPermit, primaryRequest, secondary, secondaryRequest,
+                        hedgeDelay.get(), attemptTimeout, deadline
+                );
+                if (hedged != null) {
+                    return hedged;
+                }
+            } else {
+                try {
+                    log.info("Trying primary PSP={} for amount={} {}",
+                            primary.getCode(), amount, currency);
 
-            PspChargeResult primaryResult = primary.charge(request);
+                    PspChargeResult primaryResult = charge(primary, primaryPermit, primaryRequest,
+                            attemptTimeout, deadline);
 
-            if (primaryResult.status() == ChargeStatus.SUCCEEDED) {
-                return new RoutedPspChargeResult(primary.getCode(), primaryResult);
+                    if (primaryResult.status() == ChargeStatus.SUCCEEDED) {
+                        return new RoutedPspChargeResult(primary.getCode(), primaryResult);
+                    }
+
+                    log.warn(
+                            "Primary PSP={} returned FAILED: failureCode={}, failureMessage={}",
+                            primary.getCode(),
+                            primaryResult.failureCode(),
+                            primaryResult.failureMessage()
+                    );
+                } catch (RuntimeException e) {
+                    log.warn("Primary PSP={} threw exception: {}",
+                            primary.getCode(), e.getMessage(), e);
+                    RoutedPspChargeResult landed = resolveUncertainCharge(primary, primaryRequest, e, deadline);
+                    if (landed != null) {
+                        return landed;
+                    }
+                }
             }
+        }
 
-            log.warn(
-                    "Primary PSP={} returned FAILED: failureCode={}, failureMessage={}",
-                    primary.getCode(),
-                    primaryResult.failureCode(),
-                    primaryResult.failureMessage()
+        if (secondary == null) {
+            throw new PspRoutingException(
+                    "PSP %s failed and route has no secondary".formatted(primary.getCode())
+            );
+        }
+        PspCircuitBreaker.Permit secondaryPermit = acquirePermit(secondary);
+        if (secondaryPermit == null) {
+            throw new PspRoutingException(
+                    "No PSP available: primary=%s, secondary=%s"
+                            .formatted(primary.getCode(), secondary.getCode())
             );
-        } catch (Exception e) {
-            log.warn("Primary PSP={} threw exception: {}",
-                    primary.getCode(), e.getMessage(), e);
         }
 
+        failovers.get(primary.getCode()).get(secondary.getCode()).increment();
+        log.info("Trying secondary PSP={} for amount={} {}",
+                secondary.getCode(), amount, currency);
+
+        PspChargeResult secondaryResult;
         try {
-            log.info("Trying secondary PSP={} for amount={} {}",
-                    secondary.getCode(), amount, currency);
+            secondaryResult = charge(secondary, secondaryPermit, secondaryRequest, attemptTimeout, deadline);
+        } catch (RuntimeException e) {
+            log.error("Secondary PSP={} also threw exception: {}",
+                    secondary.getCode(), e.getMessage(), e);
+            RoutedPspChargeResult landed = resolveUncertainCharge(secondary, secondaryRequest, e, deadline);
+            if (landed != null) {
+                return landed;
+            }
+            throw new PspRoutingException("Both PSPs failed with exception", e);
+        }
+
+        if (secondaryResult.status() == ChargeStatus.SUCCEEDED) {
+            return new RoutedPspChargeResult(secondary.getCode(), secondaryResult);
+        }
+
+        log.error(
+                "Secondary PSP={} also FAILED: failureCode={}, failureMessage={}",
+                secondary.getCode(),
+                secondaryResult.failureCode(),
+                secondaryResult.failureMessage()
+        );
+        throw new PspRoutingException(
+                "Both PSPs returned FAILED: primary=%s, secondary=%s"
+                        .formatted(primary.getCode(), secondary.getCode())
+        );
+    }
 
-            PspChargeResult secondaryResult = secondary.charge(request);
+    /**
+     * Runs the primary and, if it is still pending after {@code hedgeDelay}, races it
+     * against the secondary. Returns null when the primary certainly failed without a
+     * winner, so the caller falls back to sequential failover. A primary that outlives
+     * its attempt timeout while the secondary cannot be raced is checked like a
+     * sequential timeout (see {@link #resolveUncertainCharge}).
+     */
+    private RoutedPspChargeResult chargeWithHedge(PspClient primary, PspCircuitBreaker.Permit primaryPermit,
+                                                  PspChargeRequest primaryRequest,
+                                                  PspClient secondary, PspChargeRequest secondaryRequest,
+                                                  Duration hedgeDelay, Duration attemptTimeout, long deadline) {
+        long now = System.nanoTime();
+        long primaryDeadline = Math.min(deadline, now + attemptTimeout.toNanos());
+        long hedgeAt = Math.min(primaryDeadline, now + hedgeDelay.toNanos());
 
-            if (secondaryResult.status() == ChargeStatus.SUCCEEDED) {
-                return new RoutedPspChargeResult(secondary.getCode(), secondaryResult);
+        ChargeRace race = new ChargeRace();
+        log.info("Trying primary PSP={} for amount={} {} (hedging after {} ms)",
+                primary.getCode(), primaryRequest.amount(), primaryRequest.currency(), hedgeDelay.toMillis());
+        race.start(primary, primaryPermit, primaryRequest, Duration.ofNanos(primaryDeadline - now));
+        try {
+            return settle(race.await(hedgeAt), race, deadline);
+        } catch (TimeoutException e) {
+            // primary slower than its p95: hedge below
+        }
+
+        PspCircuitBreaker.Permit secondaryPermit = acquirePermit(secondary);
+        if (secondaryPermit == null) {
+            try {
+                return settle(race.await(primaryDeadline), race, deadline);
+            } catch (TimeoutException e) {
+                log.warn("Primary PSP={} did not answer in time and secondary is unavailable", primary.getCode());
+                return resolveUncertainCharge(primary, primaryRequest,
+                        new PspCallTimeoutException(primary.getCode(), attemptTimeout.toMillis()), deadline);
             }
+        }
+        Duration secondaryTimeout = Duration.ofNanos(
+                Math.max(0, Math.min(attemptTimeout.toNanos(), deadline - System.nanoTime())));
+        if (!race.start(secondary, secondaryPermit, secondaryRequest, secondaryTimeout)) {
+            return settle(race.finished(), race, deadline);
+        }
+        hedgingPolicy.recordHedge(primary.getCode());
+        log.info("Primary PSP={} slower than {} ms, hedging to secondary PSP={}",
+                primary.getCode(), hedgeDelay.toMillis(), secondary.getCode());
 
-            log.error(
-                    "Secondary PSP={} also FAILED: failureCode={}, failureMessage={}",
-                    secondary.getCode(),
-                    secondaryResult.failureCode(),
-                    secondaryResult.failureMessage()
+        try {
+            RoutedPspChargeResult winner = settle(
+                    race.await(Math.min(deadline, System.nanoTime() + attemptTimeout.toNanos())), race, deadline
             );
+            if (winner == null) {
+                throw new PspRoutingException(
+                        "Both PSPs returned FAILED: primary=%s, secondary=%s"
+                                .formatted(primary.getCode(), secondary.getCode())
+                );
+            }
+            return winner;
+        } catch (TimeoutException e) {
+            race.abandon();
             throw new PspRoutingException(
-                    "Both PSPs returned FAILED: primary=%s, secondary=%s"
+                    "No PSP answered within the time budget: primary=%s, secondary=%s"
                             .formatted(primary.getCode(), secondary.getCode())
             );
-        } catch (Exception e) {
-            log.error("Secondary PSP={} also threw exception: {}",
-                    secondary.getCode(), e.getMessage(), e);
-            throw new PspRoutingException("Both PSPs failed with exception", e);
+        }
+    }
+
+    /**
+     * The race's winner or, when nothing won, a charge that landed despite an attempt
+     * throwing. Null only when every attempt certainly failed.
+     */
+    private RoutedPspChargeResult settle(RoutedPspChargeResult winner, ChargeRace race, long deadlineNanos) {
+        if (winner != null) {
+            return winner;
+        }
+        for (ChargeRace.ErroredAttempt attempt : race.erroredAttempts()) {
+            RoutedPspChargeResult landed = resolveUncertainCharge(
+                    attempt.client(), attempt.request(), attempt.error(), deadlineNanos
+            );
+            if (landed != null) {
+                return landed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Works out whether an attempt that threw charged the customer. Returns the charge
+     * if it landed, and null if it certainly did not: the call never left this node, or
+     * it returned an error and the PSP holds no charge under its idempotency key.
+     * Otherwise throws {@link PspOutcomeUnknownException}: a timed-out call may still
+     * land, and without an idempotency key or a working lookup there is no way to tell.
+     */
+    private RoutedPspChargeResult resolveUncertainCharge(PspClient client, PspChargeRequest request,
+                                                         Throwable error, long deadlineNanos) {
+        PspCode code = client.getCode();
+        PspCallExecutor.Outcome outcome = attemptOutcome(null, error);
+        if (outcome == PspCallExecutor.Outcome.REJECTED || error instanceof PspRoutingException) {
+            return null;
+        }
+        if (request.idempotencyKey() == null) {
+            throw new PspOutcomeUnknownException(
+                    "PSP %s call ended in %s and there is no idempotency key to check it".formatted(code, outcome),
+                    error
+            );
+        }
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            throw new PspOutcomeUnknownException(
+                    "PSP %s call ended in %s and no time is left to check it".formatted(code, outcome), error
+            );
+        }
+        Duration lookupTimeout = Duration.ofNanos(Math.min(remaining, callExecutor.defaultAttemptTimeout().toNanos()));
+
+        Optional<PspChargeResult> found;
+        try {
+            found = callExecutor.findCharge(client, request.idempotencyKey(), lookupTimeout);
+        } catch (RuntimeException lookupError) {
+            lookupError.addSuppressed(error);
+            throw new PspOutcomeUnknownException(
+                    "PSP %s call ended in %s and the charge could not be looked up".formatted(code, outcome),
+                    lookupError
+            );
+        }
+        if (found.isPresent()) {
+            PspChargeResult charge = found.get();
+            switch (charge.status()) {
+                case SUCCEEDED -> {
+                    log.warn("PSP={} charged pspChargeId={} although the call ended in {}",
+                            code, charge.pspChargeId(), outcome);
+                    return new RoutedPspChargeResult(code, charge);
+                }
+                case FAILED, VOIDED -> {
+                    return null;
+                }
+                case PENDING -> throw new PspOutcomeUnknownException(
+                        "PSP %s holds pending charge %s".formatted(code, charge.pspChargeId()), error
+                );
+            }
+        }
+        if (outcome == PspCallExecutor.Outcome.TIMEOUT) {
+            throw new PspOutcomeUnknownException(
+                    "PSP %s timed out and holds no charge yet; it may still land".formatted(code), error
+            );
+        }
+        return null;
+    }
+
+    private void voidLosingCharge(PspClient client, PspChargeResult result) {
+        log.warn("Voiding losing charge pspChargeId={} on PSP={}", result.pspChargeId(), client.getCode());
+        try {
+            PspChargeResult voided = client.voidCharge(result.pspChargeId());
+            boolean ok = voided.status() == ChargeStatus.VOIDED;
+            hedgingPolicy.recordVoid(client.getCode(), ok);
+            if (!ok) {
+                log.error("Could not void losing charge pspChargeId={} on PSP={}: {} {}",
+                        result.pspChargeId(), client.getCode(), voided.failureCode(), voided.failureMessage());
+            }
+        } catch (RuntimeException e) {
+            hedgingPolicy.recordVoid(client.getCode(), false);
+            log.error("Could not void losing charge pspChargeId={} on PSP={}: {}",
+                    result.pspChargeId(), client.getCode(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Asks every PSP for the charge made under {@code paymentReference}. Returns the
+     * first charge that succeeded (or is still pending), or empty when no PSP holds
+     * one. A failed lookup is thrown, since then it is unknown whether the money was
+     * taken.
+     */
+    public Optional<RoutedPspChargeResult> findCharge(String paymentReference) {
+        for (PspClient client : clientsByCode.values()) {
+            Optional<PspChargeResult> charge = callExecutor.findCharge(
+                    client, idempotencyKey(paymentReference, client), callExecutor.defaultAttemptTimeout()
+            );
+            if (charge.isPresent() && (charge.get().status() == ChargeStatus.SUCCEEDED
+                    || charge.get().status() == ChargeStatus.PENDING)) {
+                return Optional.of(new RoutedPspChargeResult(client.getCode(), charge.get()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static PspChargeRequest chargeRequest(String pspToken, BigDecimal amount, String currency,
+                                                  String paymentReference, PspClient client) {
+        String idempotencyKey = paymentReference != null ? idempotencyKey(paymentReference, client) : null;
+        return new PspChargeRequest(pspToken, amount, currency, idempotencyKey);
+    }
+
+    private static String idempotencyKey(String paymentReference, PspClient client) {
+        return paymentReference + "-" + client.getCode().name().toLowerCase();
+    }
+
+    /**
+     * Permit to call the PSP, or null when its breaker skips it. Every path that takes
+     * a permit either records the call's outcome under it or releases it.
+     */
+    private PspCircuitBreaker.Permit acquirePermit(PspClient client) {
+        PspCircuitBreaker.Permit permit = circuitBreakers.get(client.getCode()).tryAcquirePermission();
+        if (permit == null) {
+            circuitBreakers.recordRejected(client.getCode());
+            log.warn("Skipping PSP={}: circuit breaker is {}",
+                    client.getCode(), circuitBreakers.get(client.getCode()).state());
+        }
+        return permit;
+    }
+
+    private PspChargeResult charge(PspClient client, PspCircuitBreaker.Permit permit, PspChargeRequest request,
+                                   Duration attemptTimeout, long deadlineNanos) {
+        long start = System.nanoTime();
+        long remaining = deadlineNanos - start;
+        if (remaining <= 0) {
+            circuitBreakers.get(client.getCode()).release(permit);
+            throw new PspRoutingException("PSP time budget exhausted before calling " + client.getCode());
+        }
+        Duration timeout = attemptTimeout.toNanos() < remaining ? attemptTimeout : Duration.ofNanos(remaining);
+
+        try {
+            PspChargeResult result = callExecutor.charge(client, request, timeout);
+            long elapsed = System.nanoTime() - start;
+            if (result.status() == ChargeStatus.SUCCEEDED) {
+                latencyTracker.record(client.getCode(), elapsed);
+            }
+            recordAttempt(client.getCode(), permit, result, null, elapsed);
+            return result;
+        } catch (PspCallTimeoutException e) {
+            long elapsed = System.nanoTime() - start;
+            latencyTracker.record(client.getCode(), elapsed);
+            recordAttempt(client.getCode(), permit, null, e, elapsed);
+            throw e;
+        } catch (RuntimeException e) {
+            recordAttempt(client.getCode(), permit, null, e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private void recordAttempt(PspCode code, PspCircuitBreaker.Permit permit,
+                               PspChargeResult result, Throwable error, long elapsedNanos) {
+        PspCallExecutor.Outcome outcome = attemptOutcome(result, error);
+        attempts.get(code).get(outcome).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        recordOnBreaker(code, permit, outcome, elapsedNanos);
+    }
+
+    /**
+     * Only timeouts and errors count against a PSP's breaker. A decline is a healthy
+     * answer from the PSP, and a call rejected by the local pool never reached it, so
+     * its permit is given back.
+     */
+    private void recordOnBreaker(PspCode code, PspCircuitBreaker.Permit permit,
+                                 PspCallExecutor.Outcome outcome, long elapsedNanos) {
+        PspCircuitBreaker breaker = circuitBreakers.get(code);
+        switch (outcome) {
+            case SUCCEEDED, FAILED -> breaker.onSuccess(permit, elapsedNanos);
+            case TIMEOUT, ERROR -> breaker.onFailure(permit, elapsedNanos);
+            case REJECTED -> breaker.release(permit);
+        }
+    }
+
+    private static PspCallExecutor.Outcome attemptOutcome(PspChargeResult result, Throwable error) {
+        if (error == null) {
+            return result.status() == ChargeStatus.SUCCEEDED
+                    ? PspCallExecutor.Outcome.SUCCEEDED
+                    : PspCallExecutor.Outcome.FAILED;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+        if (cause instanceof PspCallTimeoutException) {
+            return PspCallExecutor.Outcome.TIMEOUT;
+        }
+        return cause.getCause() instanceof RejectedExecutionException
+                ? PspCallExecutor.Outcome.REJECTED
+                : PspCallExecutor.Outcome.ERROR;
+    }
+
+    /**
+     * Outcome of one or two concurrent attempts. The first success completes it; a
+     * success arriving after that (or after the caller gave up) is voided.
+     */
+    private final class ChargeRace {
+
+        record ErroredAttempt(PspClient client, PspChargeRequest request, Throwable error) {
+        }
+
+        private final CompletableFuture<RoutedPspChargeResult> outcome = new CompletableFuture<>();
+        private final List<ErroredAttempt> erroredAttempts = new ArrayList<>();
+        private int started;
+        private int failed;
+
+        /**
+         * Starts an attempt under {@code permit} that times out after {@code timeout},
+         * or releases the permit when the race is already over.
+         */
+        synchronized boolean start(PspClient client, PspCircuitBreaker.Permit permit, PspChargeRequest request,
+                                   Duration timeout) {
+            if (outcome.isDone()) {
+                circuitBreakers.get(client.getCode()).release(permit);
+                return false;
+            }
+            started++;
+            long startNanos = System.nanoTime();
+            callExecutor.chargeAsync(client, request, timeout)
+                    .whenComplete((result, error) ->
+                            onCompleted(client, permit, request, result, error, System.nanoTime() - startNanos));
+            return true;
+        }
+
+        /** Winner, or null when every started attempt failed. */
+        RoutedPspChargeResult await(long deadlineNanos) throws TimeoutException {
+            try {
+                return outcome.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abandon();
+                throw new PspRoutingException("Interrupted while waiting for PSP", e);
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+
+        /** Attempts that threw so far; whether they charged is unknown. */
+        synchronized List<ErroredAttempt> erroredAttempts() {
+            return List.copyOf(erroredAttempts);
+        }
+
+        RoutedPspChargeResult finished() {
+            return outcome.getNow(null);
+        }
+
+        void abandon() {
+            outcome.cancel(false);
+        }
+
+        private void onCompleted(PspClient client, PspCircuitBreaker.Permit permit, PspChargeRequest request,
+                                 PspChargeResult result, Throwable error, long elapsed) {
+            recordAttempt(client.getCode(), permit, result, error, elapsed);
+            if (error == null && result.status() == ChargeStatus.SUCCEEDED) {
+                latencyTracker.record(client.getCode(), elapsed);
+                if (!outcome.complete(new RoutedPspChargeResult(client.getCode(), result))) {
+                    voidLosingCharge(client, result);
+                }
+                return;
+            }
+            if (error != null) {
+                log.warn("PSP={} threw exception: {}", client.getCode(), error.getMessage());
+            } else {
+                log.warn("PSP={} returned FAILED: failureCode={}, failureMessage={}",
+                        client.getCode(), result.failureCode(), result.failureMessage());
+            }
+            synchronized (this) {
+                if (error != null) {
+                    erroredAttempts.add(new ErroredAttempt(client, request, error));
+                }
+                failed++;
+                if (failed == started) {
+                    outcome.complete(null);
+                }
+            }
         }
     }
 
     private PspClient findClientByCode(PspCode code) {
-        return pspClients.values().stream()
-                .filter(c -> c.getCode() == code)
-                .findFirst()
-                .orElseThrow(() ->
-                        new IllegalStateException("PSP client not found for code: " + code));
+        PspClient client = clientsByCode.get(code);
+        if (client == null) {
+            throw new IllegalStateException("PSP client not found for code: " + code);
+        }
+        return client;
     }
 }
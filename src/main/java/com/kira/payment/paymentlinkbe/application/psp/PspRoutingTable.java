@@ -0,0 +1,147 @@
+package com.kira.payment.paymentlinkbe.application.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.domain.psp.PspRoute;
+import com.kira.payment.paymentlinkbe.domain.psp.PspRoutingRulesChangedEvent;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.psp.PspRoutingRule;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.psp.PspRoutingRuleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of enabled {@code psp_routing_rule} rows. Lookups never touch the
+ * database: the whole table is reloaded into an immutable snapshot on startup, on
+ * rule changes and periodically, and swapped in with a single volatile write.
+ * <p>
+ * A null country or card brand on a rule is a wildcard. Resolution tries the most
+ * specific key first (country + brand, country, brand, merchant + currency only)
+ * and falls back to the configured default PSP with the other PSP as failover.
+ */
+@Slf4j
+@Component
+public class PspRoutingTable {
+
+    private final PspRoutingRuleRepository pspRoutingRuleRepository;
+    private final PspRoute defaultRoute;
+
+    private volatile RoutingSnapshot snapshot = RoutingSnapshot.EMPTY;
+
+    public PspRoutingTable(
+            PspRoutingRuleRepository pspRoutingRuleRepository,
+            @Value("${payment-link.default-psp}") String defaultPspCode
+    ) {
+        this.pspRoutingRuleRepository = pspRoutingRuleRepository;
+        PspCode primary = PspCode.valueOf(defaultPspCode.toUpperCase(Locale.ROOT));
+        PspCode secondary = Arrays.stream(PspCode.values())
+                .filter(code -> code != primary)
+                .findFirst()
+                .orElse(null);
+        this.defaultRoute = new PspRoute(primary, secondary, null);
+    }
+
+    public PspRoute resolve(Long merchantId, String currency, String country, String cardBrand) {
+        Map<RouteKey, PspRoute> routes = snapshot.routes();
+        if (merchantId == null || currency == null || routes.isEmpty()) {
+            return defaultRoute;
+        }
+        String ccy = normalize(currency);
+        String ctry = normalize(country);
+        String brand = normalize(cardBrand);
+
+        PspRoute route = null;
+        if (ctry != null && brand != null) {
+            route = routes.get(new RouteKey(merchantId, ccy, ctry, brand));
+        }
+        if (route == null && ctry != null) {
+            route = routes.get(new RouteKey(merchantId, ccy, ctry, null));
+        }
+        if (route == null && brand != null) {
+            route = routes.get(new RouteKey(merchantId, ccy, null, brand));
+        }
+        if (route == null) {
+            route = routes.get(new RouteKey(merchantId, ccy, null, null));
+        }
+        return route != null ? route : defaultRoute;
+    }
+
+    /**
+     * Whether any rule of the merchant is scoped by country, so callers can skip
+     * loading the recipient when the country cannot change the outcome.
+     */
+    public boolean hasCountryRules(Long merchantId) {
+        return snapshot.countryScopedMerchants().contains(merchantId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "${psp.routing.refresh-interval-ms:60000}",
+            fixedDelayString = "${psp.routing.refresh-interval-ms:60000}"
+    )
+    public void refresh() {
+        try {
+            List<PspRoutingRule> rules = pspRoutingRuleRepository.findAllEnabledWithPsps();
+            snapshot = compile(rules);
+            log.info("Loaded {} PSP routing rules", snapshot.routes().size());
+        } catch (RuntimeException e) {
+            log.error("Failed to reload PSP routing rules, keeping previous table: {}", e.getMessage(), e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRulesChanged(PspRoutingRulesChangedEvent event) {
+        log.debug("PSP routing rule id={} changed, reloading routing table", event.ruleId());
+        refresh();
+    }
+
+    private RoutingSnapshot compile(List<PspRoutingRule> rules) {
+        Map<RouteKey, PspRoute> routes = new HashMap<>();
+        Set<Long> countryScoped = new HashSet<>();
+        for (PspRoutingRule rule : rules) {
+            Long merchantId = rule.getMerchant().getId();
+            RouteKey key = new RouteKey(
+                    merchantId,
+                    normalize(rule.getCurrency()),
+                    normalize(rule.getCountry()),
+                    normalize(rule.getCardBrand())
+            );
+            PspRoute route = new PspRoute(
+                    rule.getPrimaryPsp().getCode(),
+                    rule.getSecondaryPsp() != null ? rule.getSecondaryPsp().getCode() : null,
+                    rule.getTimeoutMs()
+            );
+            PspRoute previous = routes.putIfAbsent(key, route);
+            if (previous != null) {
+                log.warn("Ignoring PSP routing rule id={}: duplicates an older rule for {}", rule.getId(), key);
+                continue;
+            }
+            if (key.country() != null) {
+                countryScoped.add(merchantId);
+            }
+        }
+        return new RoutingSnapshot(Map.copyOf(routes), Set.copyOf(countryScoped));
+    }
+
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private record RouteKey(Long merchantId, String currency, String country, String cardBrand) {
+    }
+
+    private record RoutingSnapshot(Map<RouteKey, PspRoute> routes, Set<Long> countryScopedMerchants) {
+        static final RoutingSnapshot EMPTY = new RoutingSnapshot(Map.of(), Set.of());
+    }
+}
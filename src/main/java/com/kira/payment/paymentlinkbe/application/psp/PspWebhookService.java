@@ -1,7 +1,9 @@
 package com.kira.payment.paymentlinkbe.application.psp;
 
+import com.kira.payment.paymentlinkbe.application.paymentlink.PaymentLinkViewCache;
 import com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus;
 import com.kira.payment.paymentlinkbe.domain.paymentlink.PaymentLinkStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.Payment;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLink;
@@ -19,10 +21,12 @@ import java.time.LocalDateTime;
 public class PspWebhookService {
     private final PaymentRepository paymentRepository;
     private final PaymentLinkRepository paymentLinkRepository;
+    private final PaymentLinkViewCache paymentLinkViewCache;
+    private final PaymentReferenceLookup paymentReferenceLookup;
 
     @Transactional
     public void handleStripeWebhook(String pspReference, String status) {
-        Payment payment = paymentRepository.findByPspReference(pspReference)
+        Payment payment = paymentReferenceLookup.find(PspCode.STRIPE, pspReference)
                 .orElse(null);
 
         if (payment == null) {
@@ -40,6 +44,7 @@ public class PspWebhookService {
             paymentLink.setStatus(PaymentLinkStatus.PAID);
             paymentLink.setUpdatedAt(LocalDateTime.now());
             paymentLinkRepository.save(paymentLink);
+            paymentLinkViewCache.evict(paymentLink.getSlug());
         }
 
         paymentRepository.save(payment);
@@ -47,7 +52,7 @@ public class PspWebhookService {
 
     @Transactional
     public void handleAdyenWebhook(String pspReference, String eventCode, boolean success) {
-        Payment payment = paymentRepository.findByPspReference(pspReference)
+        Payment payment = paymentReferenceLookup.find(PspCode.ADYEN, pspReference)
                 .orElse(null);
 
         if (payment == null) {
@@ -65,6 +70,7 @@ public class PspWebhookService {
             paymentLink.setStatus(PaymentLinkStatus.PAID);
             paymentLink.setUpdatedAt(LocalDateTime.now());
             paymentLinkRepository.save(paymentLink);
+            paymentLinkViewCache.evict(paymentLink.getSlug());
         }
 
         paymentRepository.save(payment);
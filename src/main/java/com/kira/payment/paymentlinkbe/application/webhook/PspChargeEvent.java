@@ -0,0 +1,53 @@
+package com.kira.payment.paymentlinkbe.application.webhook;
+
+import com.kira.payment.paymentlinkbe.domain.psp.ChargeStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A PSP charge callback as accepted by the ingestion pipeline. {@code eventId} is
+ * assigned on receipt and makes re-application after a crash idempotent;
+ * {@code sequence} is the position in the local journal (0 until appended).
+ */
+public record PspChargeEvent(
+        String eventId,
+        long sequence,
+        PspCode pspCode,
+        ChargeStatus status,
+        String pspChargeId,
+        String paymentId,
+        String failureCode,
+        String failureMessage,
+        Instant receivedAt
+) {
+
+    public static PspChargeEvent received(PspCode pspCode,
+                                          ChargeStatus status,
+                                          String pspChargeId,
+                                          String paymentId,
+                                          String failureCode,
+                                          String failureMessage) {
+        return new PspChargeEvent(
+                UUID.randomUUID().toString(),
+                0,
+                pspCode,
+                status,
+                pspChargeId,
+                paymentId,
+                failureCode,
+                failureMessage,
+                Instant.now()
+        );
+    }
+
+    public PspChargeEvent withSequence(long sequence) {
+        return new PspChargeEvent(eventId, sequence, pspCode, status, pspChargeId, paymentId,
+                failureCode, failureMessage, receivedAt);
+    }
+
+    public String eventType() {
+        return status == ChargeStatus.SUCCEEDED ? "CHARGE_SUCCEEDED" : "CHARGE_FAILED";
+    }
+}
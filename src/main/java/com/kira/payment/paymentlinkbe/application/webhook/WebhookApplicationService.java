@@ -1,66 +1,70 @@
 package com.kira.payment.paymentlinkbe.application.webhook;
 
+import com.kira.payment.paymentlinkbe.application.psp.PaymentReferenceLookup;
 import com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.ChargeStatus;
 import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.Payment;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.WebhookEvent;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.WebhookEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class WebhookApplicationService {
+
+    /**
+     * What a charge event did: changed the payment, was already stored, matched no
+     * payment, or found the payment in a status it does not change.
+     */
+    private enum Result {
+        APPLIED, DUPLICATE, UNMATCHED, IGNORED
+    }
+
     private final WebhookEventRepository webhookEventRepository;
     private final PaymentRepository paymentRepository;
+    private final PaymentReferenceLookup paymentReferenceLookup;
+    private final Map<PspCode, Map<Result, Counter>> results = new EnumMap<>(PspCode.class);
+
+    public WebhookApplicationService(WebhookEventRepository webhookEventRepository,
+                                     PaymentRepository paymentRepository,
+                                     PaymentReferenceLookup paymentReferenceLookup,
+                                     MeterRegistry meterRegistry) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.paymentRepository = paymentRepository;
+        this.paymentReferenceLookup = paymentReferenceLookup;
+        for (PspCode code : PspCode.values()) {
+            Map<Result, Counter> byResult = new EnumMap<>(Result.class);
+            for (Result result : Result.values()) {
+                byResult.put(result, Counter.builder("webhook.charge.events")
+                        .description("PSP charge events by what applying them did to the payment")
+                        .tag("psp", code.name())
+                        .tag("result", result.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+            results.put(code, byResult);
+        }
+    }
 
     @Transactional
     public void handlePspChargeSucceeded(PspCode pspCode, String pspChargeId, String paymentId) {
-        log.info(
-                "[Webhook] PSP charge SUCCEEDED: pspCode={}, pspChargeId={}, paymentId={}",
-                pspCode, pspChargeId, paymentId
-        );
-        saveEvent(pspCode, "CHARGE_SUCCEEDED", pspChargeId, paymentId, null, null);
-
-        paymentRepository.findByPspReference(pspChargeId)
-                .ifPresent(payment -> {
-                    PaymentStatus current = payment.getStatus();
-
-                    switch (current) {
-                        case CAPTURED -> {
-                            log.info(
-                                    "[Webhook] Ignoring SUCCEEDED for already CAPTURED payment id={} pspRef={}",
-                                    payment.getId(), pspChargeId
-                            );
-                        }
-                        case FAILED -> {
-                            log.warn(
-                                    "[Webhook] Received SUCCEEDED for FAILED payment id={} pspRef={}. Keeping FAILED.",
-                                    payment.getId(), pspChargeId
-                            );
-                        }
-                        case REFUNDED -> {
-                            log.warn(
-                                    "[Webhook] Received SUCCEEDED for REFUNDED payment id={} pspRef={}. Keeping REFUNDED.",
-                                    payment.getId(), pspChargeId
-                            );
-                        }
-                        case PENDING, AUTHORIZED -> {
-                            log.info(
-                                    "[Webhook] Marking payment id={} as CAPTURED from status={} via SUCCEEDED webhook",
-                                    payment.getId(), current
-                            );
-                            payment.setStatus(PaymentStatus.CAPTURED);
-                            payment.setUpdatedAt(LocalDateTime.now());
-                            paymentRepository.save(payment);
-                        }
-                    }
-                });
+        applyBatch(List.of(PspChargeEvent.received(
+                pspCode, ChargeStatus.SUCCEEDED, pspChargeId, paymentId, null, null
+        )));
     }
 
     @Transactional
@@ -71,57 +75,169 @@ public class WebhookApplicationService {
             String failureCode,
             String failureMessage
     ) {
-        log.info(
-                "[Webhook] PSP charge FAILED: pspCode={}, pspChargeId={}, paymentId={}, failureCode={}, failureMessage={}",
-                pspCode, pspChargeId, paymentId, failureCode, failureMessage
+        applyBatch(List.of(PspChargeEvent.received(
+                pspCode, ChargeStatus.FAILED, pspChargeId, paymentId, failureCode, failureMessage
+        )));
+    }
+
+    /**
+     * Applies a batch of callbacks in one transaction: events already stored (same
+     * {@code eventId}, e.g. replayed after a crash) are skipped, the rest are inserted
+     * together, payments are loaded with one query per PSP and each charge's events are
+     * folded in arrival order before a single save per changed payment.
+     */
+    @Transactional
+    public void applyBatch(List<PspChargeEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Set<String> alreadyStored = webhookEventRepository.findExistingEventIds(
+                events.stream().map(PspChargeEvent::eventId).toList()
         );
+        List<PspChargeEvent> fresh = new ArrayList<>(events.size());
+        for (PspChargeEvent event : events) {
+            if (alreadyStored.contains(event.eventId())) {
+                count(event, Result.DUPLICATE);
+            } else {
+                fresh.add(event);
+            }
+        }
+        if (fresh.size() < events.size()) {
+            log.info("[Webhook] Skipping {} already applied events", events.size() - fresh.size());
+        }
+        webhookEventRepository.saveAll(fresh.stream().map(this::toWebhookEvent).toList());
 
-        saveEvent(pspCode, "CHARGE_FAILED", pspChargeId, paymentId, failureCode, failureMessage);
-
-        paymentRepository.findByPspReference(pspChargeId)
-                .ifPresent(payment -> {
-                    PaymentStatus current = payment.getStatus();
-
-                    switch (current) {
-                        case FAILED -> {
-                            log.info(
-                                    "[Webhook] Ignoring FAILED for already FAILED payment id={} pspRef={}",
-                                    payment.getId(), pspChargeId
-                            );
-                        }
-                        case CAPTURED -> {
-                            log.warn(
-                                    "[Webhook] Received FAILED for CAPTURED payment id={} pspRef={}. Keeping CAPTURED.",
-                                    payment.getId(), pspChargeId
-                            );
-                        }
-                        case REFUNDED -> {
-                            log.warn(
-                                    "[Webhook] Received FAILED for REFUNDED payment id={} pspRef={}. Keeping REFUNDED.",
-                                    payment.getId(), pspChargeId
-                            );
-                        }
-                        case PENDING, AUTHORIZED -> {
-                            log.info(
-                                    "[Webhook] Marking payment id={} as FAILED from status={} via FAILED webhook",
-                                    payment.getId(), current
-                            );
-                            payment.setStatus(PaymentStatus.FAILED);
-                            payment.setUpdatedAt(LocalDateTime.now());
-                            paymentRepository.save(payment);
-                        }
-                    }
-                });
+        Map<PspCode, Map<String, List<PspChargeEvent>>> byPsp = new EnumMap<>(PspCode.class);
+        for (PspChargeEvent event : fresh) {
+            log.info(
+                    "[Webhook] PSP charge {}: pspCode={}, pspChargeId={}, paymentId={}, failureCode={}, failureMessage={}",
+                    event.status(), event.pspCode(), event.pspChargeId(), event.paymentId(),
+                    event.failureCode(), event.failureMessage()
+            );
+            if (event.pspChargeId() != null) {
+                byPsp.computeIfAbsent(event.pspCode(), key -> new LinkedHashMap<>())
+                        .computeIfAbsent(event.pspChargeId(), key -> new ArrayList<>())
+                        .add(event);
+            } else {
+                count(event, Result.UNMATCHED);
+            }
+        }
+        if (byPsp.isEmpty()) {
+            return;
+        }
+
+        List<Payment> changed = new ArrayList<>();
+        byPsp.forEach((pspCode, byCharge) -> {
+            Map<String, Payment> payments = paymentReferenceLookup.findAll(pspCode, byCharge.keySet());
+            byCharge.forEach((pspChargeId, chargeEvents) -> {
+                Payment payment = payments.get(pspChargeId);
+                if (payment == null) {
+                    chargeEvents.forEach(event -> count(event, Result.UNMATCHED));
+                    return;
+                }
+                boolean dirty = false;
+                for (PspChargeEvent event : chargeEvents) {
+                    boolean applied = event.status() == ChargeStatus.SUCCEEDED
+                            ? applySucceeded(payment, pspChargeId)
+                            : applyFailed(payment, pspChargeId);
+                    count(event, applied ? Result.APPLIED : Result.IGNORED);
+                    dirty |= applied;
+                }
+                if (dirty) {
+                    changed.add(payment);
+                }
+            });
+        });
+        paymentRepository.saveAll(changed);
     }
 
-    private void saveEvent(
-            PspCode pspCode,
-            String eventType,
-            String pspChargeId,
-            String paymentId,
-            String failureCode,
-            String failureMessage
-    ) {
+    private void count(PspChargeEvent event, Result result) {
+        results.get(event.pspCode()).get(result).increment();
+    }
+
+    private boolean applySucceeded(Payment payment, String pspChargeId) {
+        PaymentStatus current = payment.getStatus();
+
+        switch (current) {
+            case CAPTURED -> {
+                log.info(
+                        "[Webhook] Ignoring SUCCEEDED for already CAPTURED payment id={} pspRef={}",
+                        payment.getId(), pspChargeId
+                );
+            }
+            case FAILED -> {
+                log.warn(
+                        "[Webhook] Received SUCCEEDED for FAILED payment id={} pspRef={}. Keeping FAILED.",
+                        payment.getId(), pspChargeId
+                );
+            }
+            case REFUNDED -> {
+                log.warn(
+                        "[Webhook] Received SUCCEEDED for REFUNDED payment id={} pspRef={}. Keeping REFUNDED.",
+                        payment.getId(), pspChargeId
+                );
+            }
+            case REQUIRES_REVIEW -> {
+                log.warn(
+                        "[Webhook] Received SUCCEEDED for payment id={} pspRef={} under review. Keeping REQUIRES_REVIEW.",
+                        payment.getId(), pspChargeId
+                );
+            }
+            case PENDING, AUTHORIZED -> {
+                log.info(
+                        "[Webhook] Marking payment id={} as CAPTURED from status={} via SUCCEEDED webhook",
+                        payment.getId(), current
+                );
+                payment.setStatus(PaymentStatus.CAPTURED);
+                payment.setUpdatedAt(LocalDateTime.now());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean applyFailed(Payment payment, String pspChargeId) {
+        PaymentStatus current = payment.getStatus();
+
+        switch (current) {
+            case FAILED -> {
+                log.info(
+                        "[Webhook] Ignoring FAILED for already FAILED payment id={} pspRef={}",
+                        payment.getId(), pspChargeId
+                );
+            }
+            case CAPTURED -> {
+                log.warn(
+                        "[Webhook] Received FAILED for CAPTURED payment id={} pspRef={}. Keeping CAPTURED.",
+                        payment.getId(), pspChargeId
+                );
+            }
+            case REFUNDED -> {
+                log.warn(
+                        "[Webhook] Received FAILED for REFUNDED payment id={} pspRef={}. Keeping REFUNDED.",
+                        payment.getId(), pspChargeId
+                );
+            }
+            case REQUIRES_REVIEW -> {
+                log.warn(
+                        "[Webhook] Received FAILED for payment id={} pspRef={} under review. Keeping REQUIRES_REVIEW.",
+                        payment.getId(), pspChargeId
+                );
+            }
+            case PENDING, AUTHORIZED -> {
+                log.info(
+                        "[Webhook] Marking payment id={} as FAILED from status={} via FAILED webhook",
+                        payment.getId(), current
+                );
+                payment.setStatus(PaymentStatus.FAILED);
+                payment.setUpdatedAt(LocalDateTime.now());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private WebhookEvent toWebhookEvent(PspChargeEvent event) {
         String payloadJson = """
                 {
                   "pspChargeId":"%s",
@@ -130,19 +246,18 @@ public class WebhookApplicationService {
                   "failureMessage":"%s"
                 }
                 """.formatted(
-                pspChargeId,
-                paymentId,
-                failureCode != null ? failureCode : "",
-                failureMessage != null ? failureMessage : ""
+                event.pspChargeId(),
+                event.paymentId(),
+                event.failureCode() != null ? event.failureCode() : "",
+                event.failureMessage() != null ? event.failureMessage() : ""
         );
 
-        WebhookEvent event = WebhookEvent.builder()
-                .pspName(pspCode.name())
-                .eventType(eventType)
+        return WebhookEvent.builder()
+                .eventId(event.eventId())
+                .pspName(event.pspCode().name())
+                .eventType(event.eventType())
                 .payload(payloadJson)
-                .createdAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.ofInstant(event.receivedAt(), ZoneId.systemDefault()))
                 .build();
-
-        webhookEventRepository.save(event);
     }
 }
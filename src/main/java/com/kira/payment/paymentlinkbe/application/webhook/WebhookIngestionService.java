@@ -0,0 +1,290 @@
+package com.kira.payment.paymentlinkbe.application.webhook;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Accepts PSP charge callbacks with a durable local append and applies them to the
+ * database asynchronously in batches.
+ * <p>
+ * A single writer thread group-commits pending appends to the {@link WebhookJournal}
+ * (one fsync per group) and then moves them, in sequence order, to the ready queue.
+ * The scheduled consumer drains the ready queue in batches and applies them through
+ * {@link WebhookApplicationService#applyBatch}. After each batch commits, it
+ * checkpoints the journal. A batch that fails on the database or journal is retried
+ * as-is on the next run, so events are applied in order and at least once. Any other
+ * failure points at a bad event: the batch is then applied one event at a time and
+ * the events that fail on their own are dead-lettered (logged and counted in
+ * {@code webhook.events.dead_lettered}) and checkpointed past, so one bad event
+ * cannot block the queue. Unapplied events are replayed from the journal on startup.
+ */
+@Slf4j
+@Service
+public class WebhookIngestionService {
+
+    private record PendingAppend(PspChargeEvent event, CompletableFuture<Void> durable) {
+    }
+
+    private final WebhookJournal journal;
+    private final WebhookApplicationService webhookApplicationService;
+    private final int capacity;
+    private final int batchSize;
+    private final long compactBytes;
+    private final Duration appendTimeout;
+
+    private final BlockingQueue<PendingAppend> pendingAppends = new LinkedBlockingQueue<>();
+    private final BlockingQueue<PspChargeEvent> ready = new LinkedBlockingQueue<>();
+    private final Counter appliedEvents;
+    private final Counter failedBatches;
+    private final Counter deadLetteredEvents;
+    private final Timer batchTimer;
+
+    private volatile List<PspChargeEvent> retryBatch = List.of();
+    private volatile boolean running;
+    private Thread writer;
+
+    public WebhookIngestionService(
+            WebhookJournal journal,
+            WebhookApplicationService webhookApplicationService,
+            MeterRegistry meterRegistry,
+            @Value("${webhook.ingestion.queue-capacity:100000}") int capacity,
+            @Value("${webhook.ingestion.batch-size:500}") int batchSize,
+            @Value("${webhook.ingestion.compact-bytes:67108864}") long compactBytes,
+            @Value("${webhook.ingestion.append-timeout-ms:2000}") long appendTimeoutMs
+    ) {
+        this.journal = journal;
+        this.webhookApplicationService = webhookApplicationService;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.compactBytes = compactBytes;
+        this.appendTimeout = Duration.ofMillis(appendTimeoutMs);
+
+        Gauge.builder("webhook.queue.depth", this, WebhookIngestionService::depth)
+                .description("Accepted webhook events not yet applied to the database")
+                .register(meterRegistry);
+        Gauge.builder("webhook.queue.lag.seconds", this, WebhookIngestionService::lagSeconds)
+                .description("Age of the oldest accepted webhook event not yet applied")
+                .register(meterRegistry);
+        this.appliedEvents = Counter.builder("webhook.events.applied")
+                .description("Webhook events applied to the database")
+                .register(meterRegistry);
+        this.failedBatches = Counter.builder("webhook.batches.failed")
+                .description("Webhook batches that failed to apply and will be retried")
+                .register(meterRegistry);
+        this.deadLetteredEvents = Counter.builder("webhook.events.dead_lettered")
+                .description("Webhook events dropped because they failed to apply on their own")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("webhook.batch.apply")
+                .description("Time to apply one webhook batch")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        List<PspChargeEvent> unapplied = journal.readAfter(journal.checkpoint());
+        if (!unapplied.isEmpty()) {
+            log.warn("Replaying {} unapplied webhook events from journal (after sequence {})",
+                    unapplied.size(), journal.checkpoint());
+            ready.addAll(unapplied);
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "webhook-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            writer.join(appendTimeout.toMillis());
+        }
+    }
+
+    /**
+     * Returns once the event is durably journaled. Throws
+     * {@link WebhookIngestionUnavailableException} when the backlog is full or the
+     * journal cannot be written, so the PSP retries later.
+     */
+    public void submit(PspChargeEvent event) {
+        if (depth() >= capacity) {
+            throw new WebhookIngestionUnavailableException("Webhook backlog is full (" + capacity + " events)");
+        }
+        PendingAppend pending = new PendingAppend(event, new CompletableFuture<>());
+        pendingAppends.add(pending);
+        try {
+            pending.durable().get(appendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebhookIngestionUnavailableException("Interrupted while journaling webhook", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new WebhookIngestionUnavailableException("Could not journal webhook event", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${webhook.ingestion.poll-interval-ms:200}")
+    public void drain() {
+        while (true) {
+            List<PspChargeEvent> batch = retryBatch;
+            if (batch.isEmpty()) {
+                List<PspChargeEvent> drained = new ArrayList<>(batchSize);
+                ready.drainTo(drained, batchSize);
+                batch = drained;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                apply(batch);
+                retryBatch = List.of();
+            } catch (IOException | RuntimeException e) {
+                failedBatches.increment();
+                if (isTransient(e)) {
+                    retryBatch = batch;
+                    log.error("Failed to apply webhook batch of {} events, will retry: {}",
+                            batch.size(), e.getMessage(), e);
+                    return;
+                }
+                log.error("Failed to apply webhook batch of {} events, applying them one at a time: {}",
+                        batch.size(), e.getMessage(), e);
+                if (!applyOneAtATime(batch)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void apply(List<PspChargeEvent> events) throws IOException {
+        batchTimer.record(() -> webhookApplicationService.applyBatch(events));
+        journal.checkpoint(events.get(events.size() - 1).sequence());
+        appliedEvents.increment(events.size());
+    }
+
+    /**
+     * Applies the events in order, dead-lettering those that fail on their own. Stops
+     * at the first transient failure and leaves the rest for the next run.
+     */
+    private boolean applyOneAtATime(List<PspChargeEvent> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            PspChargeEvent event = batch.get(i);
+            try {
+                apply(List.of(event));
+            } catch (IOException | RuntimeException e) {
+                if (isTransient(e)) {
+                    retryBatch = List.copyOf(batch.subList(i, batch.size()));
+                    log.error("Failed to apply webhook event sequence={}, will retry {} events: {}",
+                            event.sequence(), retryBatch.size(), e.getMessage(), e);
+                    return false;
+                }
+                deadLetter(event, e);
+            }
+        }
+        retryBatch = List.of();
+        return true;
+    }
+
+    private void deadLetter(PspChargeEvent event, Exception cause) {
+        deadLetteredEvents.increment();
+        log.error("Dead-lettering webhook event {} that cannot be applied: {}", event, cause.getMessage(), cause);
+        try {
+            journal.checkpoint(event.sequence());
+        } catch (IOException e) {
+            log.warn("Could not checkpoint past dead-lettered webhook event sequence={}: {}",
+                    event.sequence(), e.getMessage());
+        }
+    }
+
+    /** Database and journal failures that a later run can get past. */
+    private static boolean isTransient(Exception e) {
+        return e instanceof IOException
+                || e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    int depth() {
+        return pendingAppends.size() + ready.size() + retryBatch.size();
+    }
+
+    double lagSeconds() {
+        List<PspChargeEvent> retry = retryBatch;
+        PspChargeEvent oldest = !retry.isEmpty() ? retry.get(0) : ready.peek();
+        if (oldest == null) {
+            return 0;
+        }
+        return Duration.between(oldest.receivedAt(), Instant.now()).toMillis() / 1000.0;
+    }
+
+    private void writeLoop() {
+        long nextSequence = journal.lastSequence() + 1;
+        List<PendingAppend> group = new ArrayList<>();
+        while (running) {
+            try {
+                PendingAppend first = pendingAppends.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    compactIfIdle();
+                    continue;
+                }
+                group.add(first);
+                pendingAppends.drainTo(group, batchSize - 1);
+
+                List<PspChargeEvent> sequenced = new ArrayList<>(group.size());
+                for (PendingAppend pending : group) {
+                    sequenced.add(pending.event().withSequence(nextSequence + sequenced.size()));
+                }
+                try {
+                    journal.append(sequenced);
+                    nextSequence += sequenced.size();
+                    ready.addAll(sequenced);
+                    group.forEach(pending -> pending.durable().complete(null));
+                } catch (IOException e) {
+                    log.error("Failed to append {} webhook events to journal: {}", group.size(), e.getMessage(), e);
+                    group.forEach(pending -> pending.durable().completeExceptionally(e));
+                }
+                group.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void compactIfIdle() {
+        try {
+            if (ready.isEmpty() && retryBatch.isEmpty()
+                    && journal.checkpoint() == journal.lastSequence()
+                    && journal.sizeBytes() > compactBytes) {
+                journal.truncate();
+                log.info("Compacted webhook journal at sequence {}", journal.lastSequence());
+            }
+        } catch (IOException e) {
+            log.warn("Could not compact webhook journal: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.kira.payment.paymentlinkbe.application.webhook;
+
+public class WebhookIngestionUnavailableException extends RuntimeException {
+    public WebhookIngestionUnavailableException(String message) {
+        super(message);
+    }
+
+    public WebhookIngestionUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,29 @@
+package com.kira.payment.paymentlinkbe.application.webhook;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Durable, append-only log of accepted webhook events plus a checkpoint of the
+ * last sequence applied to the database. Not thread-safe: the ingestion service
+ * serializes writes on its writer thread.
+ */
+public interface WebhookJournal {
+
+    /** Appends the events and forces them to disk before returning. */
+    void append(List<PspChargeEvent> events) throws IOException;
+
+    /** Events with a sequence greater than {@code sequence}, in order. */
+    List<PspChargeEvent> readAfter(long sequence) throws IOException;
+
+    long lastSequence();
+
+    long checkpoint();
+
+    void checkpoint(long sequence) throws IOException;
+
+    long sizeBytes() throws IOException;
+
+    /** Drops all entries; only valid when everything up to {@link #lastSequence()} is applied. */
+    void truncate() throws IOException;
+}
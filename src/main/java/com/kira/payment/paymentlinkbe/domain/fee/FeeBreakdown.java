@@ -1,7 +1,13 @@
 package com.kira.payment.paymentlinkbe.domain.fee;
 
+import com.kira.payment.paymentlinkbe.domain.fx.FxConversion;
+
 import java.math.BigDecimal;
 
+/**
+ * @param fxConversion    the FX leg, or {@code null} when no conversion applies
+ * @param incentiveRuleId the incentive rule behind {@code incentiveDiscount}, or {@code null}
+ */
 public record FeeBreakdown(
         BigDecimal baseAmount,
         BigDecimal processingFee,
@@ -9,6 +15,29 @@ public record FeeBreakdown(
         BigDecimal incentiveDiscount,
         BigDecimal totalFees,
         BigDecimal finalAmount,
-        String currency
+        String currency,
+        FxConversion fxConversion,
+        Long incentiveRuleId
 ) {
+
+    public FeeBreakdown(BigDecimal baseAmount,
+                        BigDecimal processingFee,
+                        BigDecimal fxFee,
+                        BigDecimal incentiveDiscount,
+                        BigDecimal totalFees,
+                        BigDecimal finalAmount,
+                        String currency,
+                        FxConversion fxConversion) {
+        this(baseAmount, processingFee, fxFee, incentiveDiscount, totalFees, finalAmount, currency, fxConversion, null);
+    }
+
+    public FeeBreakdown(BigDecimal baseAmount,
+                        BigDecimal processingFee,
+                        BigDecimal fxFee,
+                        BigDecimal incentiveDiscount,
+                        BigDecimal totalFees,
+                        BigDecimal finalAmount,
+                        String currency) {
+        this(baseAmount, processingFee, fxFee, incentiveDiscount, totalFees, finalAmount, currency, null, null);
+    }
 }
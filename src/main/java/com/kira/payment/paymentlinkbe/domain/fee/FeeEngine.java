@@ -1,6 +1,7 @@
 package com.kira.payment.paymentlinkbe.domain.fee;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 public interface FeeEngine {
     FeeBreakdown calculateForPaymentLink(
@@ -9,4 +10,40 @@ public interface FeeEngine {
             BigDecimal amount,
             String currency
     );
+
+    /**
+     * {@link #calculateForPaymentLink} for many links at once: fee configs are
+     * looked up together and each FX pair is quoted once for the whole batch.
+     *
+     * @return one breakdown per request, in request order
+     */
+    List<FeeBreakdown> calculateForPaymentLinks(List<FeeQuoteRequest> requests);
+
+    /**
+     * Like {@link #calculateForPaymentLink}, but locks the FX quote used so the
+     * payment can be charged at the rate shown; see {@link FeeBreakdown#fxConversion()}.
+     */
+    FeeBreakdown quoteForCheckout(
+            Long merchantId,
+            Long recipientId,
+            BigDecimal amount,
+            String currency
+    );
+
+    /**
+     * Calculates the fees of a payment about to be charged: with the quote locked
+     * under {@code fxQuoteId} when given, and taking a use of the applied incentive
+     * ({@link FeeBreakdown#incentiveRuleId()}), which the caller must settle once
+     * the charge is done.
+     *
+     * @throws com.kira.payment.paymentlinkbe.domain.fx.FxQuoteExpiredException if the lock is
+     *         invalid, expired or for another currency pair
+     */
+    FeeBreakdown calculateForCharge(
+            Long merchantId,
+            Long recipientId,
+            BigDecimal amount,
+            String currency,
+            String fxQuoteId
+    );
 }
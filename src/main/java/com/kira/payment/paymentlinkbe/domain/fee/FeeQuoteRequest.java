@@ -0,0 +1,14 @@
+package com.kira.payment.paymentlinkbe.domain.fee;
+
+import java.math.BigDecimal;
+
+/**
+ * One entry of a {@link FeeEngine#calculateForPaymentLinks} batch.
+ */
+public record FeeQuoteRequest(
+        Long merchantId,
+        Long recipientId,
+        BigDecimal amount,
+        String currency
+) {
+}
@@ -0,0 +1,4 @@
+package com.kira.payment.paymentlinkbe.domain.fee;
+
+public record IncentiveRuleChangedEvent(Long ruleId) {
+}
@@ -0,0 +1,32 @@
+package com.kira.payment.paymentlinkbe.domain.fx;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * The FX leg of a fee calculation: the provider quote that was used, the rate
+ * actually applied after markup and the resulting payout. {@code quoteId} and
+ * {@code quoteExpiresAt} are set when the quote is locked for a checkout.
+ */
+public record FxConversion(
+        String fromCurrency,
+        String toCurrency,
+        BigDecimal providerRate,
+        BigDecimal jitterApplied,
+        BigDecimal appliedRate,
+        BigDecimal payoutAmount,
+        Instant quotedAt,
+        String quoteId,
+        Instant quoteExpiresAt
+) {
+
+    public FxConversion(String fromCurrency,
+                        String toCurrency,
+                        BigDecimal providerRate,
+                        BigDecimal jitterApplied,
+                        BigDecimal appliedRate,
+                        BigDecimal payoutAmount,
+                        Instant quotedAt) {
+        this(fromCurrency, toCurrency, providerRate, jitterApplied, appliedRate, payoutAmount, quotedAt, null, null);
+    }
+}
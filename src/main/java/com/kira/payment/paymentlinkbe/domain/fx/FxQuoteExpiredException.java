@@ -0,0 +1,7 @@
+package com.kira.payment.paymentlinkbe.domain.fx;
+
+public class FxQuoteExpiredException extends RuntimeException {
+    public FxQuoteExpiredException(String message) {
+        super(message);
+    }
+}
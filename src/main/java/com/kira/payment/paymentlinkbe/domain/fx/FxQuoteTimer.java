@@ -0,0 +1,33 @@
+package com.kira.payment.paymentlinkbe.domain.fx;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code fx.quotes} timers of one {@link FxRateProvider}, tagged with the
+ * provider name and whether the quote was returned or the call threw.
+ */
+public final class FxQuoteTimer {
+
+    private final Timer succeeded;
+    private final Timer failed;
+
+    public FxQuoteTimer(MeterRegistry meterRegistry, String provider) {
+        this.succeeded = timer(meterRegistry, provider, "success");
+        this.failed = timer(meterRegistry, provider, "error");
+    }
+
+    public void record(long startNanos, boolean success) {
+        (success ? succeeded : failed).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String provider, String outcome) {
+        return Timer.builder("fx.quotes")
+                .description("FX quote lookups per provider")
+                .tag("provider", provider)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
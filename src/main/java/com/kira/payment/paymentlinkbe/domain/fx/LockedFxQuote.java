@@ -0,0 +1,6 @@
+package com.kira.payment.paymentlinkbe.domain.fx;
+
+import java.time.Instant;
+
+public record LockedFxQuote(String quoteId, Instant expiresAt, FxQuote quote) {
+}
@@ -1,9 +1,9 @@
 package com.kira.payment.paymentlinkbe.domain.fx;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -14,8 +14,7 @@ import java.util.Map;
 import java.util.Random;
 
 @Slf4j
-@Service
-@Primary
+@Service("randomFxRateProvider")
 public class RandomFxRateProvider implements FxRateProvider {
 
     @Value("${fx.base-rates}")
@@ -25,8 +24,13 @@ public class RandomFxRateProvider implements FxRateProvider {
     private int jitterBps;
 
     private final Random random = new Random();
+    private final FxQuoteTimer quoteTimer;
     private Map<String, BigDecimal> baseRates;
 
+    public RandomFxRateProvider(MeterRegistry meterRegistry) {
+        this.quoteTimer = new FxQuoteTimer(meterRegistry, "random");
+    }
+
     @PostConstruct
     void init() {
         Map<String, BigDecimal> map = new HashMap<>();
@@ -50,6 +54,18 @@ public class RandomFxRateProvider implements FxRateProvider {
 
     @Override
     public FxQuote getQuote(String baseCurrency, String counterCurrency) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            FxQuote quote = quote(baseCurrency, counterCurrency);
+            ok = true;
+            return quote;
+        } finally {
+            quoteTimer.record(start, ok);
+        }
+    }
+
+    private FxQuote quote(String baseCurrency, String counterCurrency) {
         String pairKey = (baseCurrency + "/" + counterCurrency).toUpperCase();
 
         BigDecimal baseRate = baseRates.get(pairKey);
@@ -5,5 +5,10 @@ public enum PaymentStatus {
     AUTHORIZED,
     FAILED,
     CAPTURED,
-    REFUNDED
+    REFUNDED,
+    /**
+     * Left PENDING past its timeout while a PSP holds a charge for it; kept off the
+     * link's payable path until someone settles it by hand.
+     */
+    REQUIRES_REVIEW
 }
@@ -3,5 +3,6 @@ package com.kira.payment.paymentlinkbe.domain.psp;
 public enum ChargeStatus {
     PENDING,
     SUCCEEDED,
-    FAILED
+    FAILED,
+    VOIDED
 }
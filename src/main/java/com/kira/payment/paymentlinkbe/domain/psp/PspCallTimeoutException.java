@@ -0,0 +1,7 @@
+package com.kira.payment.paymentlinkbe.domain.psp;
+
+public class PspCallTimeoutException extends RuntimeException {
+    public PspCallTimeoutException(PspCode pspCode, long timeoutMs) {
+        super("PSP %s did not answer within %d ms".formatted(pspCode, timeoutMs));
+    }
+}
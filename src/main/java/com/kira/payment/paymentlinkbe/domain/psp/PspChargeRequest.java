@@ -2,7 +2,16 @@ package com.kira.payment.paymentlinkbe.domain.psp;
 
 import java.math.BigDecimal;
 
+/**
+ * @param idempotencyKey key the PSP uses to collapse retries of the same charge into
+ *                       one; null when the caller does not need that guarantee
+ */
 public record PspChargeRequest(String cardToken,
                                BigDecimal amount,
-                               String currency) {
+                               String currency,
+                               String idempotencyKey) {
+
+    public PspChargeRequest(String cardToken, BigDecimal amount, String currency) {
+        this(cardToken, amount, currency, null);
+    }
 }
@@ -18,4 +18,8 @@ public record PspChargeResult(
     public static PspChargeResult failure(String pspChargeId, String failureCode, String failureMessage) {
         return new PspChargeResult(pspChargeId, ChargeStatus.FAILED, null, null, failureCode, failureMessage);
     }
+
+    public static PspChargeResult voided(String pspChargeId) {
+        return new PspChargeResult(pspChargeId, ChargeStatus.VOIDED, null, null, null, null);
+    }
 }
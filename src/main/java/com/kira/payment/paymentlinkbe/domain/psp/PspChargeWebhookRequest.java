@@ -1,9 +1,12 @@
 package com.kira.payment.paymentlinkbe.domain.psp;
 
-public record PspChargeWebhookRequest( PspCode pspCode,
-                                       String pspChargeId,
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+public record PspChargeWebhookRequest( @NotNull PspCode pspCode,
+                                       @NotBlank String pspChargeId,
                                        String paymentId,
-                                       ChargeStatus status,
+                                       @NotNull ChargeStatus status,
                                        String failureCode,
                                        String failureMessage) {
 }
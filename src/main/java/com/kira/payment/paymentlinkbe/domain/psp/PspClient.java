@@ -1,6 +1,6 @@
 package com.kira.payment.paymentlinkbe.domain.psp;
 
-import java.math.BigDecimal;
+import java.util.Optional;
 
 public interface PspClient{
     PspCode getCode();
@@ -8,4 +8,17 @@ public interface PspClient{
     CardToken tokenizeCard(PspTokenizationRequest request);
 
     PspChargeResult charge(PspChargeRequest request);
+
+    /**
+     * Voids (cancels before settlement) a charge this PSP authorized. Returns a
+     * {@link ChargeStatus#VOIDED} result, or a failure when the charge is unknown or
+     * cannot be voided.
+     */
+    PspChargeResult voidCharge(String pspChargeId);
+
+    /**
+     * Looks up the charge made with this idempotency key. Empty when the PSP never
+     * received (or no longer remembers) a charge with that key.
+     */
+    Optional<PspChargeResult> findCharge(String idempotencyKey);
 }
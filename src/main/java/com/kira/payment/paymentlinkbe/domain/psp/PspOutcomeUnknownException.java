@@ -0,0 +1,12 @@
+package com.kira.payment.paymentlinkbe.domain.psp;
+
+/**
+ * A PSP call ended in a timeout or error and it could not be confirmed whether the
+ * customer was charged. The payment must not be tried on another PSP; it stays
+ * pending until it is reconciled.
+ */
+public class PspOutcomeUnknownException extends RuntimeException {
+    public PspOutcomeUnknownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
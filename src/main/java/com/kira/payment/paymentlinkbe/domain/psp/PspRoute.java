@@ -0,0 +1,19 @@
+package com.kira.payment.paymentlinkbe.domain.psp;
+
+/**
+ * Ordered PSP chain for a payment. {@code secondary} is null when the route has no
+ * failover; {@code timeoutMs} is null when the rule does not override the default.
+ */
+public record PspRoute(PspCode primary,
+                       PspCode secondary,
+                       Integer timeoutMs) {
+
+    public PspRoute {
+        if (primary == null) {
+            throw new IllegalArgumentException("Primary PSP is required");
+        }
+        if (primary == secondary) {
+            secondary = null;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.kira.payment.paymentlinkbe.domain.psp;
+
+public record PspRoutingRulesChangedEvent(Long ruleId) {
+}
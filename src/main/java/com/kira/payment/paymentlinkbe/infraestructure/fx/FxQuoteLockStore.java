@@ -0,0 +1,16 @@
+package com.kira.payment.paymentlinkbe.infraestructure.fx;
+
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Holds locked quotes by id until they expire.
+ */
+public interface FxQuoteLockStore {
+
+    void put(String id, FxQuote quote, Duration ttl);
+
+    Optional<FxQuote> get(String id);
+}
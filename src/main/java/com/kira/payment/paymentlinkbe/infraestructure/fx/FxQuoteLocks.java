@@ -0,0 +1,136 @@
+package com.kira.payment.paymentlinkbe.infraestructure.fx;
+
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.LockedFxQuote;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues and checks quote locks. A lock id has the form
+ * {@code <random>.<expiryEpochSeconds>.<signature>}, where the signature is an
+ * HMAC-SHA256 (truncated to 128 bits) of the first two parts. Forged, tampered and
+ * expired ids are rejected without touching the store.
+ */
+@Slf4j
+@Component
+public class FxQuoteLocks {
+
+    private static final String HMAC = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 16;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final FxQuoteLockStore store;
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final Clock clock;
+    private final SecureRandom random = new SecureRandom();
+    private final Counter issued;
+    private final Counter honoured;
+    private final Counter rejected;
+
+    public FxQuoteLocks(
+            FxQuoteLockStore store,
+            MeterRegistry meterRegistry,
+            @Value("${fx.quote-lock.secret:}") String secret,
+            @Value("${fx.quote-lock.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this(store, meterRegistry, secret, Duration.ofSeconds(ttlSeconds), Clock.systemUTC());
+    }
+
+    FxQuoteLocks(FxQuoteLockStore store, MeterRegistry meterRegistry, String secret, Duration ttl, Clock clock) {
+        this.store = store;
+        this.ttl = ttl;
+        this.clock = clock;
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            log.warn("fx.quote-lock.secret is not set; using a random key, so locks are only valid on this node");
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, HMAC);
+        this.issued = locks(meterRegistry, "issued");
+        this.honoured = locks(meterRegistry, "honoured");
+        this.rejected = locks(meterRegistry, "rejected");
+    }
+
+    public LockedFxQuote lock(FxQuote quote) {
+        byte[] nonce = new byte[12];
+        random.nextBytes(nonce);
+        Instant expiresAt = clock.instant().plus(ttl).truncatedTo(ChronoUnit.SECONDS);
+        String payload = ENCODER.encodeToString(nonce) + "." + expiresAt.getEpochSecond();
+        String id = payload + "." + ENCODER.encodeToString(sign(payload));
+        store.put(id, quote, ttl);
+        issued.increment();
+        return new LockedFxQuote(id, expiresAt, quote);
+    }
+
+    /**
+     * @return the locked quote, or empty if the id is malformed, forged, expired or
+     * no longer held
+     */
+    public Optional<LockedFxQuote> resolve(String id) {
+        Optional<LockedFxQuote> locked = verify(id)
+                .flatMap(expiresAt -> store.get(id).map(quote -> new LockedFxQuote(id, expiresAt, quote)));
+        (locked.isPresent() ? honoured : rejected).increment();
+        return locked;
+    }
+
+    private Optional<Instant> verify(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        int signatureStart = id.lastIndexOf('.');
+        int expiryStart = id.lastIndexOf('.', signatureStart - 1);
+        if (expiryStart <= 0) {
+            return Optional.empty();
+        }
+        String payload = id.substring(0, signatureStart);
+        try {
+            byte[] signature = DECODER.decode(id.substring(signatureStart + 1));
+            if (!MessageDigest.isEqual(signature, sign(payload))) {
+                return Optional.empty();
+            }
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(id.substring(expiryStart + 1, signatureStart)));
+            return expiresAt.isAfter(clock.instant()) ? Optional.of(expiresAt) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return Arrays.copyOf(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)), SIGNATURE_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+        }
+    }
+
+    private static Counter locks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("fx.quote.locks")
+                .description("FX quote locks by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,41 @@
+package com.kira.payment.paymentlinkbe.infraestructure.fx;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Node-local lock store. Every entry lives for the lock TTL, so expiry is global.
+ */
+@Component
+@Profile("!aws")
+public class InMemoryFxQuoteLockStore implements FxQuoteLockStore {
+
+    private final Cache<String, FxQuote> quotes;
+
+    public InMemoryFxQuoteLockStore(
+            @Value("${fx.quote-lock.ttl-seconds:300}") long ttlSeconds,
+            @Value("${fx.quote-lock.max-size:100000}") long maxSize
+    ) {
+        this.quotes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    @Override
+    public void put(String id, FxQuote quote, Duration ttl) {
+        quotes.put(id, quote);
+    }
+
+    @Override
+    public Optional<FxQuote> get(String id) {
+        return Optional.ofNullable(quotes.getIfPresent(id));
+    }
+}
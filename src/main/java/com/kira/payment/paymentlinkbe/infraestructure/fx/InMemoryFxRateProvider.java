@@ -1,7 +1,9 @@
 package com.kira.payment.paymentlinkbe.infraestructure.fx;
 
 import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuoteTimer;
 import com.kira.payment.paymentlinkbe.domain.fx.FxRateProvider;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -21,10 +23,13 @@ public class InMemoryFxRateProvider implements FxRateProvider {
     private final Map<String, BigDecimal> baseRates = new ConcurrentHashMap<>();
 
     private final BigDecimal maxJitterPercent;
+    private final FxQuoteTimer quoteTimer;
 
     public InMemoryFxRateProvider(
-            @Value("${fx.mock.max-jitter-percent:0.01}") BigDecimal maxJitterPercent
+            @Value("${fx.mock.max-jitter-percent:0.01}") BigDecimal maxJitterPercent,
+            MeterRegistry meterRegistry
     ) {
+        this.quoteTimer = new FxQuoteTimer(meterRegistry, "in-memory");
         this.maxJitterPercent = maxJitterPercent != null
                 ? maxJitterPercent
                 : new BigDecimal("0.01");
@@ -34,6 +39,18 @@ public class InMemoryFxRateProvider implements FxRateProvider {
 
     @Override
     public FxQuote getQuote(String baseCurrency, String counterCurrency) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            FxQuote quote = quote(baseCurrency, counterCurrency);
+            ok = true;
+            return quote;
+        } finally {
+            quoteTimer.record(start, ok);
+        }
+    }
+
+    private FxQuote quote(String baseCurrency, String counterCurrency) {
         Objects.requireNonNull(baseCurrency, "baseCurrency must not be null");
         Objects.requireNonNull(counterCurrency, "counterCurrency must not be null");
 
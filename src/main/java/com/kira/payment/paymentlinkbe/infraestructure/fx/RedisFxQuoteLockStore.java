@@ -0,0 +1,54 @@
+package com.kira.payment.paymentlinkbe.infraestructure.fx;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Lock store shared by all nodes, so a quote locked when one node rendered the
+ * checkout can be honoured by whichever node takes the payment.
+ */
+@Slf4j
+@Component
+@Profile("aws")
+@RequiredArgsConstructor
+public class RedisFxQuoteLockStore implements FxQuoteLockStore {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void put(String id, FxQuote quote, Duration ttl) {
+        try {
+            redisTemplate.opsForValue().set(key(id), objectMapper.writeValueAsString(quote), ttl);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize FX quote", e);
+        }
+    }
+
+    @Override
+    public Optional<FxQuote> get(String id) {
+        String json = redisTemplate.opsForValue().get(key(id));
+        if (json == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(json, FxQuote.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed locked FX quote {}: {}", id, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static String key(String id) {
+        return "fx:quote-lock:" + id;
+    }
+}
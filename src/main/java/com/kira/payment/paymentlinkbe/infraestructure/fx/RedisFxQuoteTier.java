@@ -0,0 +1,205 @@
+package com.kira.payment.paymentlinkbe.infraestructure.fx;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuoteTimer;
+import com.kira.payment.paymentlinkbe.domain.fx.FxRateProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Redis-backed {@link SharedFxQuoteTier}. A quote missing from Redis is fetched
+ * from the origin by a single node at a time (guarded by a short {@code SET NX}
+ * lock), stored for {@code fx.cache.ttl-seconds} and published on
+ * {@code fx.cache.shared.channel}; other nodes wait for it instead of calling the
+ * origin themselves. If Redis is unavailable the origin is called directly.
+ */
+@Slf4j
+@Component
+@Profile("aws")
+public class RedisFxQuoteTier implements SharedFxQuoteTier {
+
+    private static final RedisScript<Long> RELEASE_LOCK = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class
+    );
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final FxRateProvider origin;
+    private final Duration ttl;
+    private final Duration lockTtl;
+    private final Duration lockWait;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final FxQuoteTimer quoteTimer;
+    private final List<Consumer<FxQuote>> listeners = new CopyOnWriteArrayList<>();
+    private RedisMessageListenerContainer listenerContainer;
+
+    public RedisFxQuoteTier(
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            @Qualifier("randomFxRateProvider") FxRateProvider origin,
+            MeterRegistry meterRegistry,
+            @Value("${fx.cache.ttl-seconds:30}") long ttlSeconds,
+            @Value("${fx.cache.shared.lock-ttl-ms:2000}") long lockTtlMs,
+            @Value("${fx.cache.shared.lock-wait-ms:500}") long lockWaitMs,
+            @Value("${fx.cache.shared.channel:fx:quotes}") String channel
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.origin = origin;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.lockTtl = Duration.ofMillis(lockTtlMs);
+        this.lockWait = Duration.ofMillis(lockWaitMs);
+        this.channel = channel;
+        this.quoteTimer = new FxQuoteTimer(meterRegistry, "redis");
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(redisTemplate.getRequiredConnectionFactory());
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel)
+        );
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @PreDestroy
+    void unsubscribe() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    @Override
+    public void onQuotePublished(Consumer<FxQuote> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public FxQuote getQuote(String baseCurrency, String counterCurrency) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            FxQuote quote = quote(baseCurrency, counterCurrency);
+            ok = true;
+            return quote;
+        } finally {
+            quoteTimer.record(start, ok);
+        }
+    }
+
+    private FxQuote quote(String baseCurrency, String counterCurrency) {
+        String from = baseCurrency.toUpperCase(Locale.ROOT);
+        String to = counterCurrency.toUpperCase(Locale.ROOT);
+        String key = "fx:quote:%s:%s".formatted(from, to);
+        String lockKey = "fx:lock:%s:%s".formatted(from, to);
+        try {
+            FxQuote cached = read(key);
+            if (cached != null) {
+                return cached;
+            }
+            Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey, nodeId, lockTtl);
+            if (Boolean.TRUE.equals(locked)) {
+                try {
+                    return fetchAndPublish(key, from, to);
+                } finally {
+                    redisTemplate.execute(RELEASE_LOCK, List.of(lockKey), nodeId);
+                }
+            }
+            FxQuote loadedElsewhere = awaitQuote(key);
+            if (loadedElsewhere != null) {
+                return loadedElsewhere;
+            }
+            log.warn("Timed out waiting for another node to load FX quote {}, calling origin", key);
+        } catch (DataAccessException e) {
+            log.warn("Shared FX cache unavailable for {}: {}", key, e.getMessage());
+        }
+        return origin.getQuote(from, to);
+    }
+
+    void onMessage(String json) {
+        try {
+            FxQuote quote = objectMapper.readValue(json, FxQuote.class);
+            listeners.forEach(listener -> listener.accept(quote));
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed FX quote message on {}: {}", channel, e.getMessage());
+        }
+    }
+
+    private FxQuote fetchAndPublish(String key, String from, String to) {
+        FxQuote quote = origin.getQuote(from, to);
+        String json = toJson(quote);
+        try {
+            redisTemplate.opsForValue().set(key, json, ttl);
+            redisTemplate.convertAndSend(channel, json);
+            log.debug("Loaded FX quote {} from origin and published it", key);
+        } catch (DataAccessException e) {
+            log.warn("Could not share FX quote {}: {}", key, e.getMessage());
+        }
+        return quote;
+    }
+
+    private FxQuote awaitQuote(String key) {
+        long deadline = System.nanoTime() + lockWait.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(25);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            FxQuote quote = read(key);
+            if (quote != null) {
+                return quote;
+            }
+        }
+        return null;
+    }
+
+    private FxQuote read(String key) {
+        String json = redisTemplate.opsForValue().get(key);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, FxQuote.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed FX quote cached under {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private String toJson(FxQuote quote) {
+        try {
+            return objectMapper.writeValueAsString(quote);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize FX quote", e);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.kira.payment.paymentlinkbe.infraestructure.fx;
+
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuoteTimer;
+import com.kira.payment.paymentlinkbe.domain.fx.FxRateProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches quotes per currency pair in front of the upstream {@link FxRateProvider}.
+ * A background task re-fetches each pair {@code refresh-ahead-seconds} before its
+ * freshness window ends, so readers are served from memory; only the first read
+ * of a pair, or one past {@code max-stale-seconds}, calls upstream inline. While
+ * upstream is failing, the last quote keeps being served until it is too stale.
+ * Pairs nobody asked for within {@code idle-seconds} stop being refreshed.
+ * Quotes are aged from their {@link FxQuote#quotedAt()}, not from when this node
+ * got them, so a quote read from the shared tier late in its life is not served
+ * for a further full TTL.
+ * <p>
+ * When a {@link SharedFxQuoteTier} is available (aws profile) it is used as the
+ * upstream, and quotes other nodes fetch from the origin replace the local copy
+ * as soon as they are published.
+ */
+@Slf4j
+@Primary
+@Component
+public class RefreshAheadFxRateProvider implements FxRateProvider {
+
+    private final FxRateProvider upstream;
+    private final MeterRegistry meterRegistry;
+    private final long ttlNanos;
+    private final long refreshAheadNanos;
+    private final long maxStaleNanos;
+    private final long idleNanos;
+    private final LongSupplier clock;
+    private final Clock wallClock;
+
+    private final Map<Pair, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Pair, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter refreshFailures;
+    private final FxQuoteTimer quoteTimer;
+
+    @Autowired
+    public RefreshAheadFxRateProvider(
+            @Qualifier("randomFxRateProvider") FxRateProvider origin,
+            ObjectProvider<SharedFxQuoteTier> sharedTier,
+            MeterRegistry meterRegistry,
+            @Value("${fx.cache.ttl-seconds:30}") long ttlSeconds,
+            @Value("${fx.cache.refresh-ahead-seconds:10}") long refreshAheadSeconds,
+            @Value("${fx.cache.max-stale-seconds:300}") long maxStaleSeconds,
+            @Value("${fx.cache.idle-seconds:600}") long idleSeconds
+    ) {
+        this(upstreamOf(origin, sharedTier.getIfAvailable()), meterRegistry, Duration.ofSeconds(ttlSeconds),
+                Duration.ofSeconds(refreshAheadSeconds), Duration.ofSeconds(maxStaleSeconds),
+                Duration.ofSeconds(idleSeconds), System::nanoTime, Clock.systemUTC());
+        if (upstream instanceof SharedFxQuoteTier shared) {
+            shared.onQuotePublished(this::acceptPublished);
+        }
+    }
+
+    RefreshAheadFxRateProvider(FxRateProvider upstream,
+                               MeterRegistry meterRegistry,
+                               Duration ttl,
+                               Duration refreshAhead,
+                               Duration maxStale,
+                               Duration idle,
+                               LongSupplier clock,
+                               Clock wallClock) {
+        this.upstream = upstream;
+        this.meterRegistry = meterRegistry;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAheadNanos = Math.min(refreshAhead.toNanos(), ttlNanos);
+        this.maxStaleNanos = Math.max(maxStale.toNanos(), ttlNanos);
+        this.idleNanos = idle.toNanos();
+        this.clock = clock;
+        this.wallClock = wallClock;
+        this.hits = requests("hit");
+        this.staleHits = requests("stale");
+        this.misses = requests("miss");
+        this.refreshFailures = Counter.builder("fx.cache.refresh.failures")
+                .description("Background FX quote refreshes that failed upstream")
+                .register(meterRegistry);
+        this.quoteTimer = new FxQuoteTimer(meterRegistry, "refresh-ahead");
+    }
+
+    /**
+     * Only reads that go upstream are timed in {@code fx.quotes}; cache hits are
+     * just counted in {@code fx.cache.requests}.
+     */
+    @Override
+    public FxQuote getQuote(String baseCurrency, String counterCurrency) {
+        Pair pair = Pair.of(baseCurrency, counterCurrency);
+        long now = clock.getAsLong();
+        Entry entry = entries.get(pair);
+        if (entry != null) {
+            entry.lastAccessNanos = now;
+            long age = now - entry.quotedAtNanos;
+            if (age < ttlNanos) {
+                hits.increment();
+                return entry.quote;
+            }
+            if (age < maxStaleNanos) {
+                staleHits.increment();
+                return entry.quote;
+            }
+        }
+        misses.increment();
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            FxQuote quote = load(pair).quote;
+            ok = true;
+            return quote;
+        } finally {
+            quoteTimer.record(start, ok);
+        }
+    }
+
+    /**
+     * Re-fetches pairs that are within {@code refresh-ahead-seconds} of going stale
+     * (or already are) and drops pairs nobody has read for {@code idle-seconds}.
+     */
+    @Scheduled(fixedDelayString = "${fx.cache.refresh-interval-ms:1000}")
+    public void refreshDue() {
+        long now = clock.getAsLong();
+        entries.forEach((pair, entry) -> {
+            if (now - entry.lastAccessNanos >= idleNanos) {
+                entries.remove(pair, entry);
+                return;
+            }
+            if (now - entry.quotedAtNanos >= ttlNanos - refreshAheadNanos) {
+                try {
+                    load(pair);
+                } catch (RuntimeException e) {
+                    refreshFailures.increment();
+                    log.warn("FX quote refresh failed for {}, serving cached quote from {}: {}",
+                            pair, entry.quote.quotedAt(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces the cached quote of a pair this node serves with one fetched from
+     * the origin elsewhere, so all nodes quote the same rate.
+     */
+    void acceptPublished(FxQuote quote) {
+        Pair pair = Pair.of(quote.baseCurrency(), quote.counterCurrency());
+        entries.computeIfPresent(pair, (key, current) -> current.quote.quotedAt().isAfter(quote.quotedAt())
+                ? current
+                : new Entry(quote, quotedAtNanos(quote, clock.getAsLong()), current.lastAccessNanos));
+    }
+
+    double ageSeconds(Pair pair) {
+        Entry entry = entries.get(pair);
+        if (entry == null) {
+            return Double.NaN;
+        }
+        return (clock.getAsLong() - entry.quotedAtNanos) / 1_000_000_000d;
+    }
+
+    /**
+     * Fetches {@code pair} from upstream, joining a fetch already in flight for it.
+     */
+    private Entry load(Pair pair) {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> inFlight = loading.putIfAbsent(pair, mine);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            FxQuote quote = upstream.getQuote(pair.base(), pair.counter());
+            long now = clock.getAsLong();
+            Entry previous = entries.get(pair);
+            Entry fresh = new Entry(quote, quotedAtNanos(quote, now),
+                    previous != null ? previous.lastAccessNanos : now);
+            if (entries.put(pair, fresh) == null) {
+                Gauge.builder("fx.cache.age.seconds", this, provider -> provider.ageSeconds(pair))
+                        .description("Age of the cached FX quote")
+                        .tag("pair", pair.toString())
+                        .register(meterRegistry);
+            }
+            mine.complete(fresh);
+            return fresh;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(pair, mine);
+        }
+    }
+
+    /**
+     * Maps the quote's wall-clock {@code quotedAt} onto the nano clock, treating
+     * quotes stamped in the future (clock skew between nodes) as brand new.
+     */
+    private long quotedAtNanos(FxQuote quote, long nowNanos) {
+        if (quote.quotedAt() == null) {
+            return nowNanos;
+        }
+        long ageNanos = Duration.between(quote.quotedAt(), wallClock.instant()).toNanos();
+        return nowNanos - Math.max(ageNanos, 0);
+    }
+
+    private static FxRateProvider upstreamOf(FxRateProvider origin, SharedFxQuoteTier sharedTier) {
+        return sharedTier != null ? sharedTier : origin;
+    }
+
+    private Counter requests(String result) {
+        return Counter.builder("fx.cache.requests")
+                .description("FX quote reads by cache result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    record Pair(String base, String counter) {
+
+        static Pair of(String base, String counter) {
+            return new Pair(base.toUpperCase(Locale.ROOT), counter.toUpperCase(Locale.ROOT));
+        }
+
+        @Override
+        public String toString() {
+            return base + "/" + counter;
+        }
+    }
+
+    private static final class Entry {
+
+        private final FxQuote quote;
+        private final long quotedAtNanos;
+        private volatile long lastAccessNanos;
+
+        private Entry(FxQuote quote, long quotedAtNanos, long lastAccessNanos) {
+            this.quote = quote;
+            this.quotedAtNanos = quotedAtNanos;
+            this.lastAccessNanos = lastAccessNanos;
+        }
+    }
+}
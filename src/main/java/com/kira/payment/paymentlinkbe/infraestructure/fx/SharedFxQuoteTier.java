@@ -0,0 +1,16 @@
+package com.kira.payment.paymentlinkbe.infraestructure.fx;
+
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.FxRateProvider;
+
+import java.util.function.Consumer;
+
+/**
+ * Cross-node quote cache sitting between each node's
+ * {@link RefreshAheadFxRateProvider} and the FX origin. Quotes fetched from the
+ * origin by any node are announced to the listeners of every node.
+ */
+public interface SharedFxQuoteTier extends FxRateProvider {
+
+    void onQuotePublished(Consumer<FxQuote> listener);
+}
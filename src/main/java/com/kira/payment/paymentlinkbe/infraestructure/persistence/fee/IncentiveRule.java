@@ -4,6 +4,7 @@ import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merch
 import com.kira.payment.paymentlinkbe.domain.payment.DiscountType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
@@ -30,6 +31,7 @@ import lombok.Setter;
 @EqualsAndHashCode(of = "id")
 @Entity
 @Table(name = "incentive_rule")
+@EntityListeners(IncentiveRuleChangeListener.class)
 public class IncentiveRule {
 
     @Id
@@ -46,6 +48,10 @@ public class IncentiveRule {
     @Column(name = "max_transactions")
     private Integer maxTransactions;
 
+    @Builder.Default
+    @Column(name = "used_transactions", nullable = false)
+    private Integer usedTransactions = 0;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "discount_type", length = 32)
     private DiscountType discountType;
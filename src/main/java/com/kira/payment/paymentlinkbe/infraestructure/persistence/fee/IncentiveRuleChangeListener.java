@@ -0,0 +1,23 @@
+package com.kira.payment.paymentlinkbe.infraestructure.persistence.fee;
+
+import com.kira.payment.paymentlinkbe.domain.fee.IncentiveRuleChangedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class IncentiveRuleChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(IncentiveRule rule) {
+        eventPublisher.publishEvent(new IncentiveRuleChangedEvent(rule.getId()));
+    }
+}
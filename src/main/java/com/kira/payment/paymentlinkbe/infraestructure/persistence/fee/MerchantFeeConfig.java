@@ -3,6 +3,7 @@ package com.kira.payment.paymentlinkbe.infraestructure.persistence.fee;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merchant;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -27,6 +28,7 @@ import lombok.Setter;
 @EqualsAndHashCode(of = "id")
 @Entity
 @Table(name = "merchant_fee_config")
+@EntityListeners(MerchantFeeConfigChangeListener.class)
 public class MerchantFeeConfig {
 
     @Id
@@ -0,0 +1,25 @@
+package com.kira.payment.paymentlinkbe.infraestructure.persistence.fee;
+
+import com.kira.payment.paymentlinkbe.domain.fee.MerchantFeeConfigChangedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class MerchantFeeConfigChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(MerchantFeeConfig config) {
+        if (config.getMerchant() != null) {
+            eventPublisher.publishEvent(new MerchantFeeConfigChangedEvent(config.getMerchant().getId()));
+        }
+    }
+}
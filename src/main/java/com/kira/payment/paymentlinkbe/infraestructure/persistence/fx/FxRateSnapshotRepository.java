@@ -2,5 +2,9 @@ package com.kira.payment.paymentlinkbe.infraestructure.persistence.fx;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Optional;
+
 public interface FxRateSnapshotRepository extends JpaRepository<FxRateSnapshot, Long> {
+
+    Optional<FxRateSnapshot> findByPaymentId(Long paymentId);
 }
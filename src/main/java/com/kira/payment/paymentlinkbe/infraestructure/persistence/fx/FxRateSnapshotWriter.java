@@ -0,0 +1,149 @@
+package com.kira.payment.paymentlinkbe.infraestructure.persistence.fx;
+
+import com.kira.payment.paymentlinkbe.domain.fx.FxConversion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes {@code fx_rate_snapshot} rows off the capture path. Callers only enqueue;
+ * a scheduled flush turns up to {@code fx.snapshot.batch-size} queued snapshots
+ * into one multi-row insert. Rows for payments that already have a snapshot are
+ * skipped, so a retried batch is harmless.
+ */
+@Slf4j
+@Component
+public class FxRateSnapshotWriter {
+
+    private static final String INSERT_PREFIX =
+            "insert into fx_rate_snapshot (payment_id, from_currency, to_currency, rate, jitter_applied, created_at) values ";
+    private static final String INSERT_SUFFIX = " on conflict (payment_id) do nothing";
+    private static final int COLUMNS = 6;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<PendingSnapshot> queue;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Counter written;
+    private final Counter dropped;
+
+    private List<PendingSnapshot> retryBatch = List.of();
+    private int retryAttempts;
+
+    public FxRateSnapshotWriter(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${fx.snapshot.queue-capacity:10000}") int queueCapacity,
+            @Value("${fx.snapshot.batch-size:500}") int batchSize,
+            @Value("${fx.snapshot.max-attempts:3}") int maxAttempts
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.written = Counter.builder("fx.snapshot.written")
+                .description("FX rate snapshots inserted")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("fx.snapshot.dropped")
+                .description("FX rate snapshots discarded because the queue was full or inserts kept failing")
+                .register(meterRegistry);
+        Gauge.builder("fx.snapshot.queue.depth", queue, BlockingQueue::size)
+                .description("FX rate snapshots waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Never blocks: if the queue is full the snapshot is dropped and counted.
+     */
+    public void enqueue(Long paymentId, FxConversion conversion) {
+        PendingSnapshot snapshot = new PendingSnapshot(paymentId, conversion, LocalDateTime.now());
+        if (!queue.offer(snapshot)) {
+            dropped.increment();
+            log.warn("FX snapshot queue full, dropping snapshot for paymentId={}", paymentId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${fx.snapshot.flush-interval-ms:200}")
+    public synchronized void flush() {
+        while (true) {
+            List<PendingSnapshot> batch = nextBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                insert(batch);
+                written.increment(batch.size());
+                retryBatch = List.of();
+                retryAttempts = 0;
+            } catch (RuntimeException e) {
+                if (++retryAttempts >= maxAttempts) {
+                    log.error("Dropping {} FX snapshots after {} failed inserts: {}",
+                            batch.size(), retryAttempts, e.getMessage(), e);
+                    dropped.increment(batch.size());
+                    retryBatch = List.of();
+                    retryAttempts = 0;
+                } else {
+                    log.warn("FX snapshot insert failed (attempt {}), retrying next flush: {}",
+                            retryAttempts, e.getMessage());
+                    retryBatch = batch;
+                }
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    int depth() {
+        return queue.size() + retryBatch.size();
+    }
+
+    private List<PendingSnapshot> nextBatch() {
+        if (!retryBatch.isEmpty()) {
+            return retryBatch;
+        }
+        List<PendingSnapshot> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+        queue.drainTo(batch, batchSize);
+        return batch;
+    }
+
+    private void insert(List<PendingSnapshot> batch) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        Object[] args = new Object[batch.size() * COLUMNS];
+        int i = 0;
+        for (PendingSnapshot snapshot : batch) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append("(?,?,?,?,?,?)");
+            FxConversion conversion = snapshot.conversion();
+            args[i++] = snapshot.paymentId();
+            args[i++] = conversion.fromCurrency();
+            args[i++] = conversion.toCurrency();
+            args[i++] = conversion.appliedRate();
+            args[i++] = conversion.jitterApplied();
+            args[i++] = Timestamp.valueOf(snapshot.createdAt());
+        }
+        sql.append(INSERT_SUFFIX);
+        jdbcTemplate.update(sql.toString(), args);
+    }
+
+    private record PendingSnapshot(Long paymentId, FxConversion conversion, LocalDateTime createdAt) {
+    }
+}
@@ -2,6 +2,42 @@ package com.kira.payment.paymentlinkbe.infraestructure.persistence.payment;
 
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.IncentiveRule;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 public interface IncentiveRuleRepository extends JpaRepository<IncentiveRule, Long> {
+
+    @Query("""
+            select r from IncentiveRule r
+             where r.active = true
+             order by r.id
+            """)
+    List<IncentiveRule> findAllActive();
+
+    /** Takes one use of a capped rule; 0 when its {@code max_transactions} are used up. */
+    @Transactional
+    @Modifying
+    @Query("""
+            update IncentiveRule r
+               set r.usedTransactions = r.usedTransactions + 1
+             where r.id = :id
+               and r.maxTransactions is not null
+               and r.usedTransactions < r.maxTransactions
+            """)
+    int claimUse(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update IncentiveRule r
+               set r.usedTransactions = r.usedTransactions - 1
+             where r.id = :id
+               and r.maxTransactions is not null
+               and r.usedTransactions > 0
+            """)
+    int releaseUse(@Param("id") Long id);
 }
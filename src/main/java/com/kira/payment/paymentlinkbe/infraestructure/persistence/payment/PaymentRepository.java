@@ -1,7 +1,16 @@
 package com.kira.payment.paymentlinkbe.infraestructure.persistence.payment;
 
+import com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -9,5 +18,59 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     Optional<Payment> findByPaymentLinkIdAndIdempotencyKey(Long paymentLinkId, String idempotencyKey);
 
-    Optional<Payment> findByPspReference(String pspReference);
+    Optional<Payment> findByPspCodeAndPspReference(PspCode pspCode, String pspReference);
+
+    List<Payment> findByPspCodeAndPspReferenceIn(PspCode pspCode, Collection<String> pspReferences);
+
+    boolean existsByPaymentLinkIdAndStatusIn(Long paymentLinkId, Collection<PaymentStatus> statuses);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Payment p where p.id = :id")
+    Optional<Payment> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("""
+            select p.merchant.id
+              from Payment p
+             where p.createdAt >= :since
+             group by p.merchant.id
+             order by count(p) desc
+            """)
+    List<Long> findMostActiveMerchantIds(@Param("since") LocalDateTime since, Pageable pageable);
+
+    @Query("""
+            select p.id
+              from Payment p
+             where p.status = com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus.PENDING
+               and p.pspReference is null
+               and p.createdAt < :cutoff
+             order by p.createdAt
+            """)
+    List<Long> findStalePendingPaymentIds(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("""
+            update Payment p
+               set p.status = com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus.FAILED,
+                   p.updatedAt = :now
+             where p.id = :id
+               and p.status = com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus.PENDING
+               and p.pspReference is null
+            """)
+    int failPendingPayment(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+            update Payment p
+               set p.status = com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus.REQUIRES_REVIEW,
+                   p.pspCode = :pspCode,
+                   p.pspReference = :pspReference,
+                   p.updatedAt = :now
+             where p.id = :id
+               and p.status = com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus.PENDING
+               and p.pspReference is null
+            """)
+    int parkPendingPayment(@Param("id") Long id,
+                           @Param("pspCode") PspCode pspCode,
+                           @Param("pspReference") String pspReference,
+                           @Param("now") LocalDateTime now);
 }
@@ -1,6 +1,13 @@
 package com.kira.payment.paymentlinkbe.infraestructure.persistence.payment;
 
+import java.util.Collection;
+import java.util.Set;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+
+    @Query("select e.eventId from WebhookEvent e where e.eventId in :eventIds")
+    Set<String> findExistingEventIds(@Param("eventIds") Collection<String> eventIds);
 }
@@ -13,6 +13,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 import java.math.BigDecimal;
@@ -35,7 +36,8 @@ import lombok.Setter;
 public class PaymentLink {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_link_seq")
+    @SequenceGenerator(name = "payment_link_seq", sequenceName = "payment_link_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "public_id", nullable = false, length = 64)
@@ -73,4 +75,13 @@ public class PaymentLink {
 
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
+
+    /**
+     * The status as of {@code now}: an unpaid link is EXPIRED once {@code expiresAt}
+     * has passed, before the expiry sweep has written it to the row.
+     */
+    public PaymentLinkStatus statusAt(LocalDateTime now) {
+        boolean open = status == PaymentLinkStatus.CREATED || status == PaymentLinkStatus.ACTIVE;
+        return open && expiresAt != null && expiresAt.isBefore(now) ? PaymentLinkStatus.EXPIRED : status;
+    }
 }
@@ -1,18 +1,85 @@
 package com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink;
 
+import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface PaymentLinkRepository extends JpaRepository<PaymentLink, Long> {
 
     Optional<PaymentLink> findBySlug(String slug);
 
-    boolean existsBySlug(String slug);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select pl from PaymentLink pl where pl.slug = :slug")
+    Optional<PaymentLink> findBySlugForUpdate(@Param("slug") String slug);
 
     Optional<PaymentLink> findBySlugAndMerchantId(String slug, Long merchantId);
 
-    List<PaymentLink> findByMerchantIdOrderByCreatedAtDesc(Long merchantId);
+    @Query("""
+            select pl from PaymentLink pl
+            order by pl.createdAt desc, pl.id desc
+            """)
+    List<PaymentLink> findFirstPage(Pageable pageable);
 
-    List<PaymentLink> findAllByOrderByCreatedAtDesc();
+    // The redundant "createdAt <= :createdAt" bound lets the planner start the
+    // (created_at, id) index scan at the cursor instead of filtering from the top.
+    @Query("""
+            select pl from PaymentLink pl
+            where pl.createdAt <= :createdAt
+              and (pl.createdAt < :createdAt or pl.id < :id)
+            order by pl.createdAt desc, pl.id desc
+            """)
+    List<PaymentLink> findPageBefore(
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    @Query("""
+            select pl from PaymentLink pl
+            where pl.merchant.id = :merchantId
+            order by pl.createdAt desc, pl.id desc
+            """)
+    List<PaymentLink> findFirstPageByMerchantId(
+            @Param("merchantId") Long merchantId,
+            Pageable pageable
+    );
+
+    @Query("""
+            select pl from PaymentLink pl
+            where pl.merchant.id = :merchantId
+              and pl.createdAt <= :createdAt
+              and (pl.createdAt < :createdAt or pl.id < :id)
+            order by pl.createdAt desc, pl.id desc
+            """)
+    List<PaymentLink> findPageByMerchantIdBefore(
+            @Param("merchantId") Long merchantId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    // Expires up to :batchSize overdue links, oldest expiry first, along the partial
+    // index ix_payment_link_expires_at_open. SKIP LOCKED passes over rows another
+    // node's sweep or a payment reservation holds, so concurrent sweeps never wait
+    // on or repeat each other's work.
+    @Modifying
+    @Query(value = """
+            update payment_link
+               set status = 'EXPIRED', updated_at = :now
+             where id in (
+                   select id from payment_link
+                    where status in ('CREATED', 'ACTIVE')
+                      and expires_at < :now
+                    order by expires_at
+                    limit :batchSize
+                    for update skip locked)
+            """, nativeQuery = true)
+    int expireOverdue(@Param("now") LocalDateTime now, @Param("batchSize") int batchSize);
 }
@@ -3,6 +3,7 @@ package com.kira.payment.paymentlinkbe.infraestructure.persistence.psp;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merchant;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -25,6 +26,7 @@ import lombok.Setter;
 @AllArgsConstructor
 @EqualsAndHashCode(of = "id")
 @Entity
+@EntityListeners(PspRoutingRuleChangeListener.class)
 @Table(name = "psp_routing_rule")
 public class PspRoutingRule {
 
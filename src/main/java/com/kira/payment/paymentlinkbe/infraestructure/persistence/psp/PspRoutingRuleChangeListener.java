@@ -0,0 +1,23 @@
+package com.kira.payment.paymentlinkbe.infraestructure.persistence.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspRoutingRulesChangedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class PspRoutingRuleChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(PspRoutingRule rule) {
+        eventPublisher.publishEvent(new PspRoutingRulesChangedEvent(rule.getId()));
+    }
+}
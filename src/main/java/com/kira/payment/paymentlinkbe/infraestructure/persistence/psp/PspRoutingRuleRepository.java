@@ -1,6 +1,17 @@
 package com.kira.payment.paymentlinkbe.infraestructure.persistence.psp;
 
+import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface PspRoutingRuleRepository extends JpaRepository<PspRoutingRule, Long> {
+
+    @Query("""
+            select r from PspRoutingRule r
+              join fetch r.primaryPsp
+              left join fetch r.secondaryPsp
+             where r.enabled = true
+             order by r.id
+            """)
+    List<PspRoutingRule> findAllEnabledWithPsps();
 }
@@ -0,0 +1,95 @@
+package com.kira.payment.paymentlinkbe.infraestructure.psp;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.kira.payment.paymentlinkbe.domain.psp.CardToken;
+import com.kira.payment.paymentlinkbe.domain.psp.ChargeStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.PspChargeResult;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Builds the stores the PSP mocks keep their tokens and charges in. Like a real
+ * PSP's, tokens and charges expire, and each store is bounded so a soak test
+ * cannot grow the heap without limit. Size, hits and evictions are exported as
+ * {@code cache.*} metrics tagged with the PSP.
+ */
+@Component
+public class PspMockStores {
+
+    static final String TOKENS_CACHE = "psp-mock-tokens";
+    static final String CHARGES_CACHE = "psp-mock-charges";
+    static final String IDEMPOTENCY_KEYS_CACHE = "psp-mock-idempotency-keys";
+    static final String CHARGE_IDEMPOTENCY_KEYS_CACHE = "psp-mock-charge-idempotency-keys";
+
+    private final MeterRegistry meterRegistry;
+    private final long tokenMaxSize;
+    private final Duration tokenTtl;
+    private final long chargeMaxSize;
+    private final Duration chargeTtl;
+    private final Ticker ticker;
+
+    @Autowired
+    public PspMockStores(
+            MeterRegistry meterRegistry,
+            @Value("${psp.mock.token.max-size:100000}") long tokenMaxSize,
+            @Value("${psp.mock.token.ttl-seconds:900}") long tokenTtlSeconds,
+            @Value("${psp.mock.charge.max-size:100000}") long chargeMaxSize,
+            @Value("${psp.mock.charge.ttl-seconds:86400}") long chargeTtlSeconds
+    ) {
+        this(meterRegistry, tokenMaxSize, tokenTtlSeconds, chargeMaxSize, chargeTtlSeconds, Ticker.systemTicker());
+    }
+
+    PspMockStores(
+            MeterRegistry meterRegistry,
+            long tokenMaxSize,
+            long tokenTtlSeconds,
+            long chargeMaxSize,
+            long chargeTtlSeconds,
+            Ticker ticker
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.tokenMaxSize = tokenMaxSize;
+        this.tokenTtl = Duration.ofSeconds(tokenTtlSeconds);
+        this.chargeMaxSize = chargeMaxSize;
+        this.chargeTtl = Duration.ofSeconds(chargeTtlSeconds);
+        this.ticker = ticker;
+    }
+
+    public Cache<String, CardToken> tokens(PspCode code) {
+        return build(TOKENS_CACHE, code, tokenMaxSize, tokenTtl);
+    }
+
+    /** Charge status by PSP charge id, kept for voids. */
+    public Cache<String, ChargeStatus> charges(PspCode code) {
+        return build(CHARGES_CACHE, code, chargeMaxSize, chargeTtl);
+    }
+
+    /** Charge result by idempotency key, kept as long as the charge itself. */
+    public Cache<String, PspChargeResult> chargesByIdempotencyKey(PspCode code) {
+        return build(IDEMPOTENCY_KEYS_CACHE, code, chargeMaxSize, chargeTtl);
+    }
+
+    /** Idempotency key by PSP charge id, so a void can update the stored result. */
+    public Cache<String, String> idempotencyKeysByCharge(PspCode code) {
+        return build(CHARGE_IDEMPOTENCY_KEYS_CACHE, code, chargeMaxSize, chargeTtl);
+    }
+
+    private <V> Cache<String, V> build(String name, PspCode code, long maxSize, Duration ttl) {
+        Cache<String, V> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .ticker(ticker)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name, "psp", code.name());
+        return cache;
+    }
+}
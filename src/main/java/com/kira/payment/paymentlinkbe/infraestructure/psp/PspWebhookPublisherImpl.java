@@ -1,6 +1,8 @@
 package com.kira.payment.paymentlinkbe.infraestructure.psp;
 
-import com.kira.payment.paymentlinkbe.application.webhook.WebhookApplicationService;
+import com.kira.payment.paymentlinkbe.application.webhook.PspChargeEvent;
+import com.kira.payment.paymentlinkbe.application.webhook.WebhookIngestionService;
+import com.kira.payment.paymentlinkbe.domain.psp.ChargeStatus;
 import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
 import com.kira.payment.paymentlinkbe.domain.psp.PspWebhookPublisher;
 import lombok.RequiredArgsConstructor;
@@ -10,15 +12,19 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class PspWebhookPublisherImpl implements PspWebhookPublisher {
 
-    private final WebhookApplicationService webhookApplicationService;
+    private final WebhookIngestionService webhookIngestionService;
 
     @Override
     public void publishChargeSucceeded(PspCode pspCode, String pspChargeId, String paymentLinkId) {
-        webhookApplicationService.handlePspChargeSucceeded(pspCode, pspChargeId, paymentLinkId);
+        webhookIngestionService.submit(PspChargeEvent.received(
+                pspCode, ChargeStatus.SUCCEEDED, pspChargeId, paymentLinkId, null, null
+        ));
     }
 
     @Override
     public void publishChargeFailed(PspCode pspCode, String pspChargeId, String paymentLinkId, String failureCode, String failureMessage) {
-        webhookApplicationService.handlePspChargeFailed(pspCode, pspChargeId, paymentLinkId, failureCode, failureMessage);
+        webhookIngestionService.submit(PspChargeEvent.received(
+                pspCode, ChargeStatus.FAILED, pspChargeId, paymentLinkId, failureCode, failureMessage
+        ));
     }
 }
@@ -1,24 +1,36 @@
 package com.kira.payment.paymentlinkbe.infraestructure.psp.adyen;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.kira.payment.paymentlinkbe.api.error.CardTokenizationException;
 import com.kira.payment.paymentlinkbe.domain.psp.*;
-import lombok.RequiredArgsConstructor;
+import com.kira.payment.paymentlinkbe.infraestructure.psp.PspMockStores;
+import com.kira.payment.paymentlinkbe.infraestructure.psp.simulation.PspSimulation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
-import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class AdyenPspClientMock implements PspClient {
 
     private final PspWebhookPublisher webhookPublisher;
-    private final Map<String, CardToken> tokens = new ConcurrentHashMap<>();
-    private final Map<String, ChargeStatus> charges = new ConcurrentHashMap<>();
+    private final PspSimulation simulation;
+    private final Cache<String, CardToken> tokens;
+    private final Cache<String, ChargeStatus> charges;
+    private final Cache<String, PspChargeResult> chargesByIdempotencyKey;
+    private final Cache<String, String> idempotencyKeysByCharge;
+
+    public AdyenPspClientMock(PspWebhookPublisher webhookPublisher, PspSimulation simulation, PspMockStores stores) {
+        this.webhookPublisher = webhookPublisher;
+        this.simulation = simulation;
+        this.tokens = stores.tokens(PspCode.ADYEN);
+        this.charges = stores.charges(PspCode.ADYEN);
+        this.chargesByIdempotencyKey = stores.chargesByIdempotencyKey(PspCode.ADYEN);
+        this.idempotencyKeysByCharge = stores.idempotencyKeysByCharge(PspCode.ADYEN);
+    }
 
     @Override
     public PspCode getCode() {
@@ -27,6 +39,7 @@ public class AdyenPspClientMock implements PspClient {
 
     @Override
     public CardToken tokenizeCard(PspTokenizationRequest request) {
+        simulation.beforeCall(PspCode.ADYEN);
         if (request.cardNumber() == null || request.cardNumber().length() < 16) {
             log.error("Card number is empty");
             throw new CardTokenizationException(
@@ -53,18 +66,76 @@ public class AdyenPspClientMock implements PspClient {
 
     @Override
     public PspChargeResult charge(PspChargeRequest request) {
+        if (request.idempotencyKey() == null) {
+            return simulatedCharge(request);
+        }
+        return chargesByIdempotencyKey.get(request.idempotencyKey(), key -> {
+            PspChargeResult result = simulatedCharge(request);
+            idempotencyKeysByCharge.put(result.pspChargeId(), key);
+            return result;
+        });
+    }
+
+    @Override
+    public PspChargeResult voidCharge(String pspChargeId) {
+        simulation.beforeCall(PspCode.ADYEN);
+        if (charges.asMap().replace(pspChargeId, ChargeStatus.SUCCEEDED, ChargeStatus.VOIDED)
+                || charges.getIfPresent(pspChargeId) == ChargeStatus.VOIDED) {
+            log.info("Adyen mock voided charge {}", pspChargeId);
+            markVoided(pspChargeId);
+            return PspChargeResult.voided(pspChargeId);
+        }
+        return PspChargeResult.failure(
+                pspChargeId,
+                "CHARGE_NOT_VOIDABLE",
+                "Charge not found or not in SUCCEEDED status"
+        );
+    }
+
+    @Override
+    public Optional<PspChargeResult> findCharge(String idempotencyKey) {
+        simulation.beforeCall(PspCode.ADYEN);
+        return Optional.ofNullable(chargesByIdempotencyKey.getIfPresent(idempotencyKey));
+    }
+
+    /**
+     * Applies the simulated latency and outcome, then charges. A retry under an
+     * idempotency key that already holds a result replays it without getting here,
+     * so only a first attempt can be declined or fail.
+     */
+    private PspChargeResult simulatedCharge(PspChargeRequest request) {
+        if (simulation.beforeCharge(PspCode.ADYEN)) {
+            return PspChargeResult.failure(
+                    "ch_simulated_adyen_" + UUID.randomUUID(),
+                    "SIM_ADYEN_DECLINED",
+                    "Simulated Adyen decline"
+            );
+        }
+        return doCharge(request);
+    }
+
+    /** Lookups by idempotency key must see the void, not the original success. */
+    private void markVoided(String pspChargeId) {
+        String idempotencyKey = idempotencyKeysByCharge.getIfPresent(pspChargeId);
+        if (idempotencyKey != null) {
+            chargesByIdempotencyKey.asMap().computeIfPresent(idempotencyKey, (key, result) ->
+                    pspChargeId.equals(result.pspChargeId()) ? PspChargeResult.voided(pspChargeId) : result);
+        }
+    }
+
+    private PspChargeResult doCharge(PspChargeRequest request) {
         if ("sim_adyen_exception".equalsIgnoreCase(request.cardToken())) {
             throw new RuntimeException("Simulated Adyen outage");
         }
 
         if ("sim_adyen_failed".equalsIgnoreCase(request.cardToken())) {
             return PspChargeResult.failure(
-                    "ch_simulated_adyen",
+                    "ch_simulated_adyen_" + UUID.randomUUID(),
                     "SIM_ADYEN_FAILED",
                     "Simulated Adyen failure"
             );
         }
-        if (!tokens.containsKey(request.cardToken())) {
+        if (tokens.getIfPresent(request.cardToken()) == null) {
             String pspChargeId = "ady_ch_" + UUID.randomUUID();
             charges.put(pspChargeId, ChargeStatus.FAILED);
 
@@ -0,0 +1,12 @@
+package com.kira.payment.paymentlinkbe.infraestructure.psp.simulation;
+
+/**
+ * Thrown by a mock PSP call that the simulation fails: an error, a timeout or a
+ * rejection over the throughput cap.
+ */
+public class PspSimulatedFailureException extends RuntimeException {
+
+    public PspSimulatedFailureException(String message) {
+        super(message);
+    }
+}
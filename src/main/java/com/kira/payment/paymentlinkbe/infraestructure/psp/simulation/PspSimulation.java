@@ -0,0 +1,110 @@
+package com.kira.payment.paymentlinkbe.infraestructure.psp.simulation;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency and failures for the PSP mocks, one {@link PspSimulationProfile} per PSP
+ * from {@code psp.simulation.<psp>}. Profiles can be replaced at runtime through
+ * {@link PspSimulationEndpoint}.
+ * <p>
+ * Every mock call gets the simulated latency. Only charges can also be declined,
+ * fail, time out or be rejected over the throughput cap.
+ */
+@Slf4j
+@Component
+public class PspSimulation {
+
+    private final Map<PspCode, PspSimulator> simulators = new EnumMap<>(PspCode.class);
+
+    @Autowired
+    public PspSimulation(
+            @Value("${psp.simulation.stripe:}") String stripeProfile,
+            @Value("${psp.simulation.adyen:}") String adyenProfile
+    ) {
+        this(Map.of(
+                PspCode.STRIPE, PspSimulationProfile.parse(stripeProfile),
+                PspCode.ADYEN, PspSimulationProfile.parse(adyenProfile)
+        ), System::currentTimeMillis);
+    }
+
+    PspSimulation(Map<PspCode, PspSimulationProfile> profiles, LongSupplier clock) {
+        for (PspCode code : PspCode.values()) {
+            PspSimulationProfile profile = profiles.getOrDefault(code, PspSimulationProfile.NONE);
+            simulators.put(code, new PspSimulator(profile, clock));
+            if (!profile.equals(PspSimulationProfile.NONE)) {
+                log.warn("PSP simulation active for {}: {}", code, profile);
+            }
+        }
+    }
+
+    /**
+     * Waits for the simulated latency of a tokenization or void.
+     */
+    public void beforeCall(PspCode code) {
+        sleep(code, simulators.get(code).planLatency());
+    }
+
+    /**
+     * Waits for the simulated latency of a charge and applies its simulated outcome.
+     *
+     * @return {@code true} if the charge should be declined
+     * @throws PspSimulatedFailureException if the charge errors, times out or is over the throughput cap
+     */
+    public boolean beforeCharge(PspCode code) {
+        PspSimulator.Plan plan = simulators.get(code).planCharge();
+        sleep(code, plan.delayMs());
+        return switch (plan.outcome()) {
+            case PROCEED -> false;
+            case DECLINE -> true;
+            case ERROR -> throw new PspSimulatedFailureException("Simulated " + code + " error");
+            case TIMEOUT -> throw new PspSimulatedFailureException(
+                    "Simulated " + code + " timeout after " + plan.delayMs() + " ms");
+            case RATE_LIMITED -> throw new PspSimulatedFailureException("Simulated " + code + " throughput cap reached");
+        };
+    }
+
+    public Map<PspCode, PspSimulationProfile> profiles() {
+        Map<PspCode, PspSimulationProfile> profiles = new EnumMap<>(PspCode.class);
+        simulators.forEach((code, simulator) -> profiles.put(code, simulator.profile()));
+        return profiles;
+    }
+
+    public PspSimulationProfile profile(PspCode code) {
+        return simulators.get(code).profile();
+    }
+
+    public PspSimulationProfile update(PspCode code, String spec) {
+        PspSimulationProfile profile = PspSimulationProfile.parse(spec);
+        simulators.get(code).update(profile);
+        log.warn("PSP simulation for {} changed to {}", code, profile);
+        return profile;
+    }
+
+    /** Goes back to the profile from the configuration. */
+    public PspSimulationProfile reset(PspCode code) {
+        PspSimulator simulator = simulators.get(code);
+        simulator.reset();
+        log.warn("PSP simulation for {} reset to {}", code, simulator.profile());
+        return simulator.profile();
+    }
+
+    private static void sleep(PspCode code, long delayMs) {
+        if (delayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PspSimulatedFailureException("Simulated " + code + " call interrupted");
+        }
+    }
+}
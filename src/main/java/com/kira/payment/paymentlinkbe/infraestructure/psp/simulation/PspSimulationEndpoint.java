@@ -0,0 +1,49 @@
+package com.kira.payment.paymentlinkbe.infraestructure.psp.simulation;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code POST /actuator/pspsimulation/{psp}} with {@code {"profile": "median-latency-ms=200,error-rate=0.05"}}
+ * replaces a PSP's simulation profile; {@code DELETE} goes back to the configured one.
+ */
+@Component
+@Endpoint(id = "pspsimulation")
+@RequiredArgsConstructor
+public class PspSimulationEndpoint {
+
+    private final PspSimulation simulation;
+
+    @ReadOperation
+    public Map<PspCode, PspSimulationProfile> profiles() {
+        return simulation.profiles();
+    }
+
+    @ReadOperation
+    public PspSimulationProfile profile(@Selector PspCode psp) {
+        return simulation.profile(psp);
+    }
+
+    @WriteOperation
+    public PspSimulationProfile update(@Selector PspCode psp, String profile) {
+        try {
+            return simulation.update(psp, profile);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), "Invalid PSP simulation profile");
+        }
+    }
+
+    @DeleteOperation
+    public PspSimulationProfile reset(@Selector PspCode psp) {
+        return simulation.reset(psp);
+    }
+}
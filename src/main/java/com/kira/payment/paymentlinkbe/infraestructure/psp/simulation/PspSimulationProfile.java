@@ -0,0 +1,104 @@
+package com.kira.payment.paymentlinkbe.infraestructure.psp.simulation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * How a mock PSP misbehaves, written as comma-separated {@code key=value} pairs,
+ * e.g. {@code "median-latency-ms=120,p99-latency-ms=900,error-rate=0.01"}. Keys
+ * that are left out keep their default, so the empty string simulates nothing.
+ *
+ * @param minLatencyMs          floor of every call's latency
+ * @param medianLatencyMs       median of the log-normal latency distribution, 0 for no latency
+ * @param p99LatencyMs          99th percentile of the distribution; the tail grows with it
+ * @param declineRate           share of charges answered with a FAILED result
+ * @param errorRate             share of charges that throw, like a PSP 5xx
+ * @param timeoutRate           share of charges that hang for {@code timeoutMs} and then throw
+ * @param timeoutMs             how long a timed-out charge hangs
+ * @param errorBurstRate        chance per charge that a burst of consecutive errors starts
+ * @param errorBurstLength      number of charges that fail in a burst
+ * @param brownoutEverySeconds  period of the brownout cycle, 0 for none
+ * @param brownoutForSeconds    how long each brownout lasts, from the start of its period
+ * @param brownoutLatencyFactor latency multiplier during a brownout
+ * @param brownoutErrorRate     error rate during a brownout, when higher than {@code errorRate}
+ * @param maxRequestsPerSecond  charges accepted per second before rejecting them, 0 for no cap
+ */
+public record PspSimulationProfile(
+        long minLatencyMs,
+        long medianLatencyMs,
+        long p99LatencyMs,
+        double declineRate,
+        double errorRate,
+        double timeoutRate,
+        long timeoutMs,
+        double errorBurstRate,
+        int errorBurstLength,
+        long brownoutEverySeconds,
+        long brownoutForSeconds,
+        double brownoutLatencyFactor,
+        double brownoutErrorRate,
+        int maxRequestsPerSecond
+) {
+
+    private static final Set<String> KEYS = Set.of(
+            "min-latency-ms", "median-latency-ms", "p99-latency-ms",
+            "decline-rate", "error-rate", "timeout-rate", "timeout-ms",
+            "error-burst-rate", "error-burst-length",
+            "brownout-every-s", "brownout-for-s", "brownout-latency-factor", "brownout-error-rate",
+            "max-rps"
+    );
+
+    public static final PspSimulationProfile NONE = parse("");
+
+    public PspSimulationProfile {
+        requireRate("decline-rate", declineRate);
+        requireRate("error-rate", errorRate);
+        requireRate("timeout-rate", timeoutRate);
+        requireRate("error-burst-rate", errorBurstRate);
+        requireRate("brownout-error-rate", brownoutErrorRate);
+        if (minLatencyMs < 0 || medianLatencyMs < 0 || p99LatencyMs < 0 || timeoutMs < 0
+                || errorBurstLength < 1 || brownoutEverySeconds < 0 || brownoutForSeconds < 0
+                || brownoutLatencyFactor < 0 || maxRequestsPerSecond < 0) {
+            throw new IllegalArgumentException("PSP simulation values must not be negative (error-burst-length >= 1)");
+        }
+    }
+
+    public static PspSimulationProfile parse(String spec) {
+        Map<String, String> values = new HashMap<>();
+        if (spec != null) {
+            for (String entry : spec.split(",")) {
+                String trimmed = entry.trim();
+                if (trimmed.isEmpty()) continue;
+
+                String[] parts = trimmed.split("=");
+                if (parts.length != 2 || !KEYS.contains(parts[0].trim())) {
+                    throw new IllegalArgumentException("Invalid PSP simulation entry: " + trimmed + ", keys are " + KEYS);
+                }
+                values.put(parts[0].trim(), parts[1].trim());
+            }
+        }
+        return new PspSimulationProfile(
+                Long.parseLong(values.getOrDefault("min-latency-ms", "0")),
+                Long.parseLong(values.getOrDefault("median-latency-ms", "0")),
+                Long.parseLong(values.getOrDefault("p99-latency-ms", "0")),
+                Double.parseDouble(values.getOrDefault("decline-rate", "0")),
+                Double.parseDouble(values.getOrDefault("error-rate", "0")),
+                Double.parseDouble(values.getOrDefault("timeout-rate", "0")),
+                Long.parseLong(values.getOrDefault("timeout-ms", "30000")),
+                Double.parseDouble(values.getOrDefault("error-burst-rate", "0")),
+                Integer.parseInt(values.getOrDefault("error-burst-length", "10")),
+                Long.parseLong(values.getOrDefault("brownout-every-s", "0")),
+                Long.parseLong(values.getOrDefault("brownout-for-s", "0")),
+                Double.parseDouble(values.getOrDefault("brownout-latency-factor", "1")),
+                Double.parseDouble(values.getOrDefault("brownout-error-rate", "0")),
+                Integer.parseInt(values.getOrDefault("max-rps", "0"))
+        );
+    }
+
+    private static void requireRate(String key, double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException(key + " must be between 0 and 1");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.kira.payment.paymentlinkbe.infraestructure.psp.simulation;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides, for one PSP, how long a call takes and how it ends according to the
+ * current {@link PspSimulationProfile}. It does not sleep or throw itself, see
+ * {@link PspSimulation}.
+ */
+class PspSimulator {
+
+    /** The 99th percentile of the standard normal distribution. */
+    private static final double Z_99 = 2.326;
+
+    enum Outcome {
+        PROCEED,
+        DECLINE,
+        ERROR,
+        TIMEOUT,
+        RATE_LIMITED
+    }
+
+    record Plan(long delayMs, Outcome outcome) {
+    }
+
+    private final PspSimulationProfile configured;
+    private final LongSupplier clock;
+    private final DoubleSupplier random;
+    private final long startedAt;
+    private final AtomicInteger burstRemaining = new AtomicInteger();
+
+    private volatile PspSimulationProfile profile;
+
+    /** Guarded by {@code this}. */
+    private long windowSecond = -1;
+    private int windowCount;
+
+    PspSimulator(PspSimulationProfile configured, LongSupplier clock) {
+        this(configured, clock, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    PspSimulator(PspSimulationProfile configured, LongSupplier clock, DoubleSupplier random) {
+        this.configured = configured;
+        this.clock = clock;
+        this.random = random;
+        this.startedAt = clock.getAsLong();
+        this.profile = configured;
+    }
+
+    PspSimulationProfile profile() {
+        return profile;
+    }
+
+    void update(PspSimulationProfile profile) {
+        this.profile = profile;
+        burstRemaining.set(0);
+    }
+
+    void reset() {
+        update(configured);
+    }
+
+    /** Latency only, for tokenization and voids. */
+    long planLatency() {
+        PspSimulationProfile current = profile;
+        if (current.equals(PspSimulationProfile.NONE)) {
+            return 0;
+        }
+        return latency(current, inBrownout(current));
+    }
+
+    Plan planCharge() {
+        PspSimulationProfile current = profile;
+        if (current.equals(PspSimulationProfile.NONE)) {
+            return new Plan(0, Outcome.PROCEED);
+        }
+        if (overThroughputCap(current)) {
+            return new Plan(0, Outcome.RATE_LIMITED);
+        }
+        if (random.getAsDouble() < current.timeoutRate()) {
+            return new Plan(current.timeoutMs(), Outcome.TIMEOUT);
+        }
+        boolean brownout = inBrownout(current);
+        long delay = latency(current, brownout);
+        double errorRate = brownout ? Math.max(current.errorRate(), current.brownoutErrorRate()) : current.errorRate();
+        if (inErrorBurst(current) || random.getAsDouble() < errorRate) {
+            return new Plan(delay, Outcome.ERROR);
+        }
+        if (random.getAsDouble() < current.declineRate()) {
+            return new Plan(delay, Outcome.DECLINE);
+        }
+        return new Plan(delay, Outcome.PROCEED);
+    }
+
+    /** Log-normal with the configured median and 99th percentile, never below the floor. */
+    private static long latency(PspSimulationProfile current, boolean brownout) {
+        double sample = current.medianLatencyMs();
+        if (current.p99LatencyMs() > current.medianLatencyMs() && current.medianLatencyMs() > 0) {
+            double sigma = Math.log((double) current.p99LatencyMs() / current.medianLatencyMs()) / Z_99;
+            sample *= Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+        }
+        if (brownout) {
+            sample *= current.brownoutLatencyFactor();
+        }
+        return Math.max(current.minLatencyMs(), Math.round(sample));
+    }
+
+    private boolean inBrownout(PspSimulationProfile current) {
+        if (current.brownoutEverySeconds() == 0) {
+            return false;
+        }
+        long elapsedSeconds = (clock.getAsLong() - startedAt) / 1_000;
+        return elapsedSeconds % current.brownoutEverySeconds() < current.brownoutForSeconds();
+    }
+
+    private boolean inErrorBurst(PspSimulationProfile current) {
+        if (burstRemaining.getAndUpdate(remaining -> Math.max(remaining - 1, 0)) > 0) {
+            return true;
+        }
+        if (random.getAsDouble() < current.errorBurstRate()) {
+            burstRemaining.set(current.errorBurstLength() - 1);
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized boolean overThroughputCap(PspSimulationProfile current) {
+        if (current.maxRequestsPerSecond() == 0) {
+            return false;
+        }
+        long second = clock.getAsLong() / 1_000;
+        if (second != windowSecond) {
+            windowSecond = second;
+            windowCount = 0;
+        }
+        return ++windowCount > current.maxRequestsPerSecond();
+    }
+}
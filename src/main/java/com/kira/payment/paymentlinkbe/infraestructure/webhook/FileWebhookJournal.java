@@ -0,0 +1,182 @@
+package com.kira.payment.paymentlinkbe.infraestructure.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kira.payment.paymentlinkbe.application.webhook.PspChargeEvent;
+import com.kira.payment.paymentlinkbe.application.webhook.WebhookJournal;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON-lines journal on local disk ({@code events.log}) with the applied sequence in
+ * a separate {@code checkpoint} file replaced atomically. A torn last line from a
+ * crash mid-write is cut off on open, and a failed append is rolled back to where it
+ * started, so the next append always begins on a fresh line.
+ */
+@Slf4j
+@Component
+public class FileWebhookJournal implements WebhookJournal {
+
+    private final ObjectMapper objectMapper;
+    private final Path logFile;
+    private final Path checkpointFile;
+    private final FileChannel channel;
+
+    private volatile long lastSequence;
+    private volatile long checkpoint;
+
+    public FileWebhookJournal(
+            ObjectMapper objectMapper,
+            @Value("${webhook.ingestion.journal-dir:./data/webhook-journal}") Path directory
+    ) {
+        this.objectMapper = objectMapper;
+        this.logFile = directory.resolve("events.log");
+        this.checkpointFile = directory.resolve("checkpoint");
+        try {
+            Files.createDirectories(directory);
+            this.channel = FileChannel.open(logFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.checkpoint = Files.exists(checkpointFile)
+                    ? Long.parseLong(Files.readString(checkpointFile).trim())
+                    : 0;
+            long end = endOfLastLine();
+            if (end < channel.size()) {
+                log.warn("Cutting {} bytes of torn entry off the end of webhook journal {}",
+                        channel.size() - end, logFile);
+                channel.truncate(end);
+                channel.force(true);
+            }
+            List<PspChargeEvent> existing = readAfter(0);
+            this.lastSequence = Math.max(checkpoint,
+                    existing.isEmpty() ? 0 : existing.get(existing.size() - 1).sequence());
+            channel.position(channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open webhook journal in " + directory, e);
+        }
+        log.info("Webhook journal {} opened: lastSequence={}, checkpoint={}", logFile, lastSequence, checkpoint);
+    }
+
+    @Override
+    public void append(List<PspChargeEvent> events) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(events.size() * 256);
+        for (PspChargeEvent event : events) {
+            objectMapper.writeValue(buffer, event);
+            buffer.write('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        long start = channel.position();
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException rollback) {
+                e.addSuppressed(rollback);
+            }
+            throw e;
+        }
+        lastSequence = events.get(events.size() - 1).sequence();
+    }
+
+    @Override
+    public List<PspChargeEvent> readAfter(long sequence) throws IOException {
+        List<PspChargeEvent> events = new ArrayList<>();
+        FileChannel reader = FileChannel.open(logFile, StandardOpenOption.READ);
+        try (BufferedReader lines = new BufferedReader(Channels.newReader(reader, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    PspChargeEvent event = objectMapper.readValue(line, PspChargeEvent.class);
+                    if (event.sequence() > sequence) {
+                        events.add(event);
+                    }
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable webhook journal entry: {}", e.getMessage());
+                }
+            }
+        }
+        return events;
+    }
+
+    @Override
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public long checkpoint() {
+        return checkpoint;
+    }
+
+    @Override
+    public void checkpoint(long sequence) throws IOException {
+        Path tmp = checkpointFile.resolveSibling("checkpoint.tmp");
+        Files.writeString(tmp, Long.toString(sequence), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE,
+                StandardOpenOption.SYNC);
+        Files.move(tmp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        checkpoint = sequence;
+    }
+
+    @Override
+    public long sizeBytes() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    /** Length of the file up to and including its last newline. */
+    private long endOfLastLine() throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(4096);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - chunk.capacity());
+            chunk.clear().limit((int) (end - start));
+            while (chunk.hasRemaining()) {
+                if (channel.read(chunk, start + chunk.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = chunk.position() - 1; i >= 0; i--) {
+                if (chunk.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,164 @@
+package com.kira.payment.paymentlinkbe.api.paymentlink;
+
+import com.kira.payment.paymentlinkbe.application.paymentlink.SlugGenerator;
+import com.kira.payment.paymentlinkbe.domain.paymentlink.PaymentLinkStatus;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfig;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfigRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fx.FxRateSnapshotRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merchant;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.MerchantRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.RecipientRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.*;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLink;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLinkRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.psp.PspRoutingRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Makes the slug generator hand out a slug that is already stored, so the insert
+ * hits the real unique constraint on {@code payment_link.slug} and has to be
+ * retried with the next slug.
+ */
+@SpringBootTest(
+        properties = {
+                "payment-link.public-base-url=http://localhost/checkout",
+                "payment-link.default-psp=STRIPE",
+                "fx.enabled=false"
+        }
+)
+@AutoConfigureMockMvc
+class PaymentLinkSlugCollisionIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MerchantRepository merchantRepository;
+
+    @Autowired
+    private PaymentLinkRepository paymentLinkRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired(required = false)
+    private PaymentFeeRepository paymentFeeRepository;
+
+    @Autowired(required = false)
+    private PaymentIncentiveRepository paymentIncentiveRepository;
+
+    @Autowired(required = false)
+    private FxRateSnapshotRepository fxRateSnapshotRepository;
+
+    @Autowired
+    private RecipientRepository recipientRepository;
+
+    @Autowired
+    private MerchantFeeConfigRepository merchantFeeConfigRepository;
+
+    @Autowired(required = false)
+    private PspRoutingRuleRepository pspRoutingRuleRepository;
+
+    @Autowired(required = false)
+    private IncentiveRuleRepository incentiveRuleRepository;
+
+    @MockitoBean
+    private SlugGenerator slugGenerator;
+
+    private Merchant merchant;
+
+    @BeforeEach
+    void setUp() {
+        if (paymentFeeRepository != null) {
+            paymentFeeRepository.deleteAll();
+        }
+        if (paymentIncentiveRepository != null) {
+            paymentIncentiveRepository.deleteAll();
+        }
+        if (fxRateSnapshotRepository != null) {
+            fxRateSnapshotRepository.deleteAll();
+        }
+        paymentRepository.deleteAll();
+        paymentLinkRepository.deleteAll();
+        if (pspRoutingRuleRepository != null) {
+            pspRoutingRuleRepository.deleteAll();
+        }
+        if (incentiveRuleRepository != null) {
+            incentiveRuleRepository.deleteAll();
+        }
+        recipientRepository.deleteAll();
+        merchantFeeConfigRepository.deleteAll();
+        merchantRepository.deleteAll();
+
+        merchant = new Merchant();
+        merchant.setExternalId("ext-slug-" + UUID.randomUUID());
+        merchant.setName("Slug Merchant");
+        merchant.setEmail("slug-merchant@example.com");
+        merchant.setDefaultCurrency("USD");
+        merchant.setCreatedAt(LocalDateTime.now());
+        merchant = merchantRepository.save(merchant);
+
+        MerchantFeeConfig config = new MerchantFeeConfig();
+        config.setMerchant(merchant);
+        config.setName("Slug config");
+        config.setCurrency("USD");
+        config.setFixedFee(new BigDecimal("1.00"));
+        config.setPercentageFee(new BigDecimal("0.03"));
+        config.setFxMarkupPct(new BigDecimal("0.01"));
+        config.setCreatedAt(LocalDateTime.now());
+        merchantFeeConfigRepository.save(config);
+    }
+
+    @Test
+    void createPaymentLink_shouldRetryWithNewSlug_whenSlugAlreadyStored() throws Exception {
+        // given
+        PaymentLink existing = new PaymentLink();
+        existing.setPublicId(UUID.randomUUID().toString());
+        existing.setSlug("dupSlug0001");
+        existing.setMerchant(merchant);
+        existing.setAmount(new BigDecimal("50.00"));
+        existing.setCurrency("USD");
+        existing.setStatus(PaymentLinkStatus.CREATED);
+        existing.setCreatedAt(LocalDateTime.now());
+        existing.setUpdatedAt(LocalDateTime.now());
+        paymentLinkRepository.save(existing);
+        when(slugGenerator.next()).thenReturn("dupSlug0001", "newSlug0002");
+
+        String body = """
+                {
+                  "merchantId": %d,
+                  "amount": 75.00,
+                  "currency": "USD",
+                  "description": "Slug collision"
+                }
+                """.formatted(merchant.getId());
+
+        // when / then
+        mockMvc.perform(
+                        post("/api/payment-links")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body)
+                )
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.slug").value("newSlug0002"));
+        assertThat(paymentLinkRepository.findBySlug("newSlug0002")).isPresent();
+        assertThat(paymentLinkRepository.count()).isEqualTo(2);
+    }
+}
@@ -1,21 +1,32 @@
 package com.kira.payment.paymentlinkbe.application.fee;
 
 import com.kira.payment.paymentlinkbe.domain.fee.FeeBreakdown;
+import com.kira.payment.paymentlinkbe.domain.fee.FeeQuoteRequest;
 import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuoteExpiredException;
 import com.kira.payment.paymentlinkbe.domain.fx.FxRateProvider;
+import com.kira.payment.paymentlinkbe.domain.fx.LockedFxQuote;
+import com.kira.payment.paymentlinkbe.domain.payment.DiscountType;
+import com.kira.payment.paymentlinkbe.infraestructure.fx.FxQuoteLocks;
+import com.kira.payment.paymentlinkbe.infraestructure.fx.InMemoryFxQuoteLockStore;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfig;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfigRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merchant;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -27,9 +38,32 @@ class DefaultFeeEngineTest {
     @Mock
     private FxRateProvider fxRateProvider;
 
-    @InjectMocks
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private IncentiveIndex incentiveIndex;
+
+    private FxQuoteLocks fxQuoteLocks;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private DefaultFeeEngine feeEngine;
 
+    @BeforeEach
+    void setUp() {
+        MerchantFeeConfigCache merchantFeeConfigCache = new MerchantFeeConfigCache(
+                merchantFeeConfigRepository, paymentRepository, new SimpleMeterRegistry(), 100, 600, 60, 0, 30
+        );
+        fxQuoteLocks = new FxQuoteLocks(
+                new InMemoryFxQuoteLockStore(300, 100), new SimpleMeterRegistry(), "test-secret", 300
+        );
+        meterRegistry = new SimpleMeterRegistry();
+        feeEngine = new DefaultFeeEngine(
+                merchantFeeConfigCache, fxRateProvider, fxQuoteLocks, incentiveIndex, meterRegistry, 1
+        );
+    }
+
     @Test
     void calculateForPaymentLink_shouldUseMerchantFeeConfig_whenFxDisabled() {
         // given
@@ -120,6 +154,9 @@ class DefaultFeeEngineTest {
         assertThat(breakdown.fxFee()).isEqualByComparingTo("1.00");
         assertThat(breakdown.totalFees()).isEqualByComparingTo("5.00");
         assertThat(breakdown.finalAmount()).isEqualByComparingTo("95.00");
+        assertThat(breakdown.fxConversion().providerRate()).isEqualByComparingTo("17.50");
+        assertThat(breakdown.fxConversion().appliedRate()).isEqualByComparingTo("17.850000");
+        assertThat(breakdown.fxConversion().payoutAmount()).isEqualByComparingTo("1695.75");
 
         verify(fxRateProvider).getQuote("USD", "MXN");
     }
@@ -254,4 +291,254 @@ class DefaultFeeEngineTest {
                 .isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("Merchant fee config not found for merchant " + merchantId);
     }
+
+    @Test
+    void quoteForCheckout_shouldLockTheQuoteUsed() {
+        // given
+        givenFxEnabledMerchant(1L);
+        when(fxRateProvider.getQuote("USD", "MXN")).thenReturn(usdMxnQuote("17.50"));
+
+        // when
+        FeeBreakdown breakdown = feeEngine.quoteForCheckout(1L, 10L, new BigDecimal("100.00"), "USD");
+
+        // then
+        String quoteId = breakdown.fxConversion().quoteId();
+        assertThat(quoteId).isNotBlank();
+        assertThat(breakdown.fxConversion().quoteExpiresAt()).isAfter(java.time.Instant.now());
+        assertThat(fxQuoteLocks.resolve(quoteId))
+                .map(LockedFxQuote::quote)
+                .map(FxQuote::effectiveRate)
+                .hasValueSatisfying(rate -> assertThat(rate).isEqualByComparingTo("17.50"));
+    }
+
+    @Test
+    void calculateForCharge_shouldChargeAtLockedRate_whenMarketMoved() {
+        // given
+        givenFxEnabledMerchant(1L);
+        when(fxRateProvider.getQuote("USD", "MXN"))
+                .thenReturn(usdMxnQuote("17.50"))
+                .thenReturn(usdMxnQuote("18.40"));
+        FeeBreakdown shown = feeEngine.quoteForCheckout(1L, 10L, new BigDecimal("100.00"), "USD");
+
+        // when
+        FeeBreakdown charged = feeEngine.calculateForCharge(
+                1L, 10L, new BigDecimal("100.00"), "USD", shown.fxConversion().quoteId()
+        );
+
+        // then
+        assertThat(charged.fxConversion().appliedRate()).isEqualByComparingTo(shown.fxConversion().appliedRate());
+        assertThat(charged.fxConversion().payoutAmount()).isEqualByComparingTo(shown.fxConversion().payoutAmount());
+        assertThat(charged.fxConversion().quoteId()).isEqualTo(shown.fxConversion().quoteId());
+        verify(fxRateProvider, times(1)).getQuote("USD", "MXN");
+    }
+
+    @Test
+    void calculateForCharge_shouldThrow_whenQuoteIdUnknown() {
+        // given
+        givenFxEnabledMerchant(1L);
+
+        // when / then
+        assertThatThrownBy(() -> feeEngine.calculateForCharge(
+                1L, 10L, new BigDecimal("100.00"), "USD", "forged.9999999999.c2lnbmF0dXJl"
+        )).isInstanceOf(FxQuoteExpiredException.class);
+        verify(fxRateProvider, never()).getQuote(anyString(), anyString());
+    }
+
+    @Test
+    void calculateForCharge_shouldThrow_whenQuoteIsForAnotherCurrency() {
+        // given
+        givenFxEnabledMerchant(1L);
+        String eurQuoteId = fxQuoteLocks.lock(new FxQuote(
+                "EUR", "MXN", new BigDecimal("19.00"), BigDecimal.ZERO, new BigDecimal("19.00"), java.time.Instant.now()
+        )).quoteId();
+
+        // when / then
+        assertThatThrownBy(() -> feeEngine.calculateForCharge(
+                1L, 10L, new BigDecimal("100.00"), "USD", eurQuoteId
+        )).isInstanceOf(FxQuoteExpiredException.class);
+    }
+
+    @Test
+    void calculateForPaymentLink_shouldApplyTheLargestAvailableIncentive() {
+        // given
+        givenMerchantConfig(1L);
+        when(incentiveIndex.available(1L)).thenReturn(List.of(
+                incentive(7L, DiscountType.FIXED, "1.00", null),
+                incentive(8L, DiscountType.PERCENTAGE, "0.5", null)
+        ));
+
+        // when
+        FeeBreakdown breakdown = feeEngine.calculateForPaymentLink(1L, null, new BigDecimal("100.00"), "USD");
+
+        // then
+        assertThat(breakdown.incentiveDiscount()).isEqualByComparingTo("2.00");
+        assertThat(breakdown.totalFees()).isEqualByComparingTo("2.00");
+        assertThat(breakdown.finalAmount()).isEqualByComparingTo("98.00");
+        assertThat(breakdown.incentiveRuleId()).isEqualTo(8L);
+        verify(incentiveIndex, never()).tryAcquire(any());
+    }
+
+    @Test
+    void calculateForCharge_shouldTakeAUseOfTheAppliedIncentive() {
+        // given
+        givenMerchantConfig(1L);
+        ActiveIncentive waiver = incentive(7L, DiscountType.PERCENTAGE, "1", 10);
+        when(incentiveIndex.available(1L)).thenReturn(List.of(waiver));
+        when(incentiveIndex.tryAcquire(waiver)).thenReturn(true);
+
+        // when
+        FeeBreakdown breakdown = feeEngine.calculateForCharge(1L, null, new BigDecimal("100.00"), "USD", null);
+
+        // then
+        assertThat(breakdown.totalFees()).isEqualByComparingTo("0.00");
+        assertThat(breakdown.finalAmount()).isEqualByComparingTo("100.00");
+        assertThat(breakdown.incentiveRuleId()).isEqualTo(7L);
+        verify(incentiveIndex).tryAcquire(waiver);
+    }
+
+    @Test
+    void calculateForCharge_shouldFallBackToNextIncentive_whenBestOneIsUsedUp() {
+        // given
+        givenMerchantConfig(1L);
+        ActiveIncentive waiver = incentive(7L, DiscountType.PERCENTAGE, "1", 1);
+        ActiveIncentive dollarOff = incentive(8L, DiscountType.FIXED, "1.00", null);
+        when(incentiveIndex.available(1L)).thenReturn(List.of(waiver, dollarOff));
+        when(incentiveIndex.tryAcquire(waiver)).thenReturn(false);
+        when(incentiveIndex.tryAcquire(dollarOff)).thenReturn(true);
+
+        // when
+        FeeBreakdown breakdown = feeEngine.calculateForCharge(1L, null, new BigDecimal("100.00"), "USD", null);
+
+        // then
+        assertThat(breakdown.incentiveDiscount()).isEqualByComparingTo("1.00");
+        assertThat(breakdown.totalFees()).isEqualByComparingTo("3.00");
+        assertThat(breakdown.incentiveRuleId()).isEqualTo(8L);
+    }
+
+    @Test
+    void calculateForCharge_shouldChargeFullFees_whenNoIncentiveCanBeTaken() {
+        // given
+        givenMerchantConfig(1L);
+        ActiveIncentive waiver = incentive(7L, DiscountType.PERCENTAGE, "1", 1);
+        when(incentiveIndex.available(1L)).thenReturn(List.of(waiver));
+        when(incentiveIndex.tryAcquire(waiver)).thenReturn(false);
+
+        // when
+        FeeBreakdown breakdown = feeEngine.calculateForCharge(1L, null, new BigDecimal("100.00"), "USD", null);
+
+        // then
+        assertThat(breakdown.incentiveDiscount()).isEqualByComparingTo("0.00");
+        assertThat(breakdown.totalFees()).isEqualByComparingTo("4.00");
+        assertThat(breakdown.incentiveRuleId()).isNull();
+    }
+
+    @Test
+    void calculateForPaymentLinks_shouldLoadConfigsTogetherAndQuoteEachPairOnce() {
+        // given
+        givenFxEnabledMerchant(1L);
+        reset(merchantFeeConfigRepository);
+        when(merchantFeeConfigRepository.findByMerchantIdIn(any()))
+                .thenReturn(List.of(merchantConfig(1L, "0.03"), merchantConfig(2L, "0.02")));
+        when(fxRateProvider.getQuote("USD", "MXN")).thenReturn(usdMxnQuote("17.50"));
+
+        List<FeeQuoteRequest> requests = List.of(
+                new FeeQuoteRequest(1L, null, new BigDecimal("100.00"), "USD"),
+                new FeeQuoteRequest(2L, null, new BigDecimal("50.00"), "USD"),
+                new FeeQuoteRequest(1L, null, new BigDecimal("10.00"), "MXN")
+        );
+
+        // when
+        List<FeeBreakdown> breakdowns = feeEngine.calculateForPaymentLinks(requests);
+
+        // then
+        assertThat(breakdowns).extracting(FeeBreakdown::baseAmount)
+                .containsExactly(new BigDecimal("100.00"), new BigDecimal("50.00"), new BigDecimal("10.00"));
+        assertThat(breakdowns.get(0).processingFee()).isEqualByComparingTo("3.00");
+        assertThat(breakdowns.get(1).processingFee()).isEqualByComparingTo("1.00");
+        assertThat(breakdowns.get(2).fxConversion()).isNull();
+        assertThat(breakdowns.get(0)).isEqualTo(feeEngine.calculateForPaymentLink(1L, null, new BigDecimal("100.00"), "USD"));
+        verify(merchantFeeConfigRepository, times(1)).findByMerchantIdIn(any());
+        verify(merchantFeeConfigRepository, never()).findByMerchantId(any());
+        verify(fxRateProvider, times(2)).getQuote("USD", "MXN");
+    }
+
+    @Test
+    void calculateForPaymentLinks_shouldThrowWhenAMerchantHasNoConfig() {
+        // given
+        when(merchantFeeConfigRepository.findByMerchantIdIn(any())).thenReturn(List.of(merchantConfig(1L, "0.03")));
+
+        // when / then
+        assertThatThrownBy(() -> feeEngine.calculateForPaymentLinks(List.of(
+                new FeeQuoteRequest(1L, null, BigDecimal.TEN, "USD"),
+                new FeeQuoteRequest(2L, null, BigDecimal.TEN, "USD")
+        ))).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("merchant 2");
+    }
+
+    @Test
+    void calculations_shouldBeCountedAndTimedPerOperation_andOncePerBatch() {
+        // given
+        givenMerchantConfig(1L);
+        when(merchantFeeConfigRepository.findByMerchantIdIn(any())).thenReturn(List.of(merchantConfig(1L, "0.03")));
+
+        // when
+        feeEngine.calculateForPaymentLink(1L, null, BigDecimal.TEN, "USD");
+        feeEngine.calculateForPaymentLinks(List.of(
+                new FeeQuoteRequest(1L, null, BigDecimal.TEN, "USD"),
+                new FeeQuoteRequest(1L, null, BigDecimal.ONE, "USD")
+        ));
+        assertThatThrownBy(() -> feeEngine.calculateForPaymentLinks(List.of(
+                new FeeQuoteRequest(2L, null, BigDecimal.TEN, "USD")
+        ))).isInstanceOf(IllegalStateException.class);
+
+        // then
+        assertThat(meterRegistry.get("fee.calculations")
+                .tags("operation", "link", "outcome", "success").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("fee.calculations")
+                .tags("operation", "links", "outcome", "success").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("fee.calculations")
+                .tags("operation", "links", "outcome", "error").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("fee.calculation.latency").tag("operation", "link").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("fee.calculation.latency").tag("operation", "links").timer().count())
+                .isEqualTo(1);
+    }
+
+    private static MerchantFeeConfig merchantConfig(Long merchantId, String percentageFee) {
+        Merchant merchant = new Merchant();
+        merchant.setId(merchantId);
+        MerchantFeeConfig config = new MerchantFeeConfig();
+        config.setMerchant(merchant);
+        config.setPercentageFee(new BigDecimal(percentageFee));
+        return config;
+    }
+
+    private void givenMerchantConfig(Long merchantId) {
+        MerchantFeeConfig config = new MerchantFeeConfig();
+        config.setPercentageFee(new BigDecimal("0.03"));
+        config.setFixedFee(new BigDecimal("1.00"));
+        when(merchantFeeConfigRepository.findByMerchantId(merchantId)).thenReturn(Optional.of(config));
+    }
+
+    private static ActiveIncentive incentive(Long ruleId, DiscountType type, String value, Integer maxTransactions) {
+        BigDecimal discountValue = new BigDecimal(value);
+        return new ActiveIncentive(ruleId, 1L, maxTransactions, type, discountValue,
+                FixedPointMoney.toScaled(discountValue, FixedPointMoney.PERCENT_SCALE));
+    }
+
+    private void givenFxEnabledMerchant(Long merchantId) {
+        MerchantFeeConfig config = new MerchantFeeConfig();
+        config.setPercentageFee(new BigDecimal("0.03"));
+        config.setFixedFee(new BigDecimal("1.00"));
+        config.setFxMarkupPct(new BigDecimal("0.01"));
+        when(merchantFeeConfigRepository.findByMerchantId(merchantId)).thenReturn(Optional.of(config));
+
+        org.springframework.test.util.ReflectionTestUtils.setField(feeEngine, "fxEnabled", true);
+        org.springframework.test.util.ReflectionTestUtils.setField(feeEngine, "payoutCurrency", "MXN");
+        org.springframework.test.util.ReflectionTestUtils.setField(feeEngine, "markupPercent", new BigDecimal("0.02"));
+    }
+
+    private static FxQuote usdMxnQuote(String rate) {
+        return new FxQuote("USD", "MXN", new BigDecimal(rate), BigDecimal.ZERO, new BigDecimal(rate), java.time.Instant.now());
+    }
 }
@@ -0,0 +1,164 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import com.kira.payment.paymentlinkbe.domain.fee.FeeBreakdown;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.LockedFxQuote;
+import com.kira.payment.paymentlinkbe.domain.payment.DiscountType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FeeArithmeticTest {
+
+    private static final Instant QUOTED_AT = Instant.parse("2026-10-17T12:00:00Z");
+
+    /** Below this a payout at a rate under 30 cannot overflow the fixed-point product. */
+    private static final BigDecimal FIXED_POINT_PAYOUT_LIMIT = new BigDecimal("250000");
+
+    @Test
+    void fixedPoint_shouldMatchDecimal_forRandomSchedulesAmountsAndRates() {
+        // given
+        SplittableRandom random = new SplittableRandom(20261017L);
+        int declined = 0;
+
+        for (int i = 0; i < 20_000; i++) {
+            MerchantFeeSchedule schedule = new MerchantFeeSchedule(
+                    1L,
+                    random.nextInt(5) == 0 ? null : decimal(random, 0, 1_000, 2),
+                    random.nextInt(5) == 0 ? null : decimal(random, 0, 1_000, 4),
+                    random.nextInt(5) == 0 ? null : decimal(random, 0, 500, 4),
+                    0L
+            );
+            int extraDecimals = random.nextInt(0, 3);
+            long maxAmount = FixedPointMoney.powerOfTen(random.nextInt(1, 9) + extraDecimals);
+            BigDecimal amount = decimal(random, 1, maxAmount, 2 + extraDecimals);
+            LockedFxQuote fx = random.nextBoolean() ? quote(decimal(random, 1, 30_000_000, 6)) : null;
+            BigDecimal markup = decimal(random, 0, 500, 4);
+            List<ActiveIncentive> incentives = randomIncentives(random);
+
+            // when
+            FeeBreakdown fixedPoint = FeeArithmetic.fixedPoint(schedule, amount, "USD", fx, markup, incentives);
+
+            // then
+            FeeBreakdown decimal = FeeArithmetic.decimal(schedule, amount, "USD", fx, markup, incentives);
+            if (fixedPoint == null) {
+                assertThat(decimal.baseAmount()).isGreaterThan(FIXED_POINT_PAYOUT_LIMIT);
+                declined++;
+                continue;
+            }
+            assertThat(fixedPoint)
+                    .as("amount=%s schedule=%s fx=%s markup=%s incentives=%s", amount, schedule, fx, markup, incentives)
+                    .isEqualTo(decimal);
+        }
+        assertThat(declined).isLessThan(2_000);
+    }
+
+    @Test
+    void fixedPoint_shouldRoundHalfUpLikeDecimal_onExactHalves() {
+        // given: 3% of 10.50 = 0.315 and 1% of 10.50 = 0.105
+        MerchantFeeSchedule schedule = new MerchantFeeSchedule(
+                1L, null, new BigDecimal("0.03"), new BigDecimal("0.01"), 0L
+        );
+        BigDecimal amount = new BigDecimal("10.50");
+
+        // when
+        FeeBreakdown fixedPoint = FeeArithmetic.fixedPoint(schedule, amount, "USD", null, BigDecimal.ZERO, List.of());
+
+        // then
+        assertThat(fixedPoint).isEqualTo(FeeArithmetic.decimal(schedule, amount, "USD", null, BigDecimal.ZERO, List.of()));
+        assertThat(fixedPoint.processingFee()).isEqualTo(new BigDecimal("0.32"));
+        assertThat(fixedPoint.fxFee()).isEqualTo(new BigDecimal("0.11"));
+        assertThat(fixedPoint.finalAmount()).isEqualTo(new BigDecimal("10.08"));
+    }
+
+    @Test
+    void fixedPoint_shouldDeclineInputsItCannotRepresentExactly() {
+        // given
+        MerchantFeeSchedule finePercentage = new MerchantFeeSchedule(
+                1L, BigDecimal.ONE, new BigDecimal("0.02505"), null, 0L
+        );
+        MerchantFeeSchedule schedule = new MerchantFeeSchedule(
+                1L, BigDecimal.ONE, new BigDecimal("0.03"), null, 0L
+        );
+
+        // when / then
+        assertThat(finePercentage.scaledRates()).isNull();
+        assertThat(FeeArithmetic.fixedPoint(finePercentage, BigDecimal.TEN, "USD", null, null, List.of())).isNull();
+        assertThat(FeeArithmetic.fixedPoint(schedule, BigDecimal.TEN, "USD", quote(new BigDecimal("17.1234567")), null, List.of()))
+                .isNull();
+        assertThat(FeeArithmetic.fixedPoint(schedule, new BigDecimal("1e17"), "USD", null, null, List.of())).isNull();
+    }
+
+    @Test
+    void incentives_shouldApplyTheLargestDiscountCappedAtTheFees() {
+        // given: fees of 3% + 1.00 on 100.00 = 4.00
+        MerchantFeeSchedule schedule = new MerchantFeeSchedule(
+                1L, BigDecimal.ONE, new BigDecimal("0.03"), null, 0L
+        );
+        List<ActiveIncentive> incentives = List.of(
+                incentive(1L, DiscountType.PERCENTAGE, new BigDecimal("0.25")),
+                incentive(2L, DiscountType.FIXED, new BigDecimal("10.00")),
+                incentive(3L, DiscountType.FIXED, new BigDecimal("2.00"))
+        );
+
+        // when
+        FeeBreakdown fixedPoint = FeeArithmetic.fixedPoint(schedule, new BigDecimal("100.00"), "USD", null, null, incentives);
+
+        // then
+        assertThat(fixedPoint).isEqualTo(
+                FeeArithmetic.decimal(schedule, new BigDecimal("100.00"), "USD", null, null, incentives));
+        assertThat(fixedPoint.incentiveDiscount()).isEqualTo(new BigDecimal("4.00"));
+        assertThat(fixedPoint.totalFees()).isEqualTo(new BigDecimal("0.00"));
+        assertThat(fixedPoint.finalAmount()).isEqualTo(new BigDecimal("100.00"));
+        assertThat(fixedPoint.incentiveRuleId()).isEqualTo(2L);
+    }
+
+    @Test
+    void incentives_shouldBeSkipped_whenTypeOrValueIsMissing() {
+        // given
+        MerchantFeeSchedule schedule = new MerchantFeeSchedule(
+                1L, BigDecimal.ONE, new BigDecimal("0.03"), null, 0L
+        );
+        List<ActiveIncentive> incentives = List.of(
+                new ActiveIncentive(1L, 1L, null, null, BigDecimal.ONE, 10_000L),
+                new ActiveIncentive(2L, 1L, null, DiscountType.FIXED, null, null)
+        );
+
+        // when
+        FeeBreakdown fixedPoint = FeeArithmetic.fixedPoint(schedule, BigDecimal.TEN, "USD", null, null, incentives);
+
+        // then
+        assertThat(fixedPoint.incentiveDiscount()).isEqualTo(new BigDecimal("0.00"));
+        assertThat(fixedPoint.incentiveRuleId()).isNull();
+    }
+
+    private static List<ActiveIncentive> randomIncentives(SplittableRandom random) {
+        List<ActiveIncentive> incentives = new ArrayList<>();
+        for (int i = random.nextInt(0, 3); i > 0; i--) {
+            BigDecimal value = random.nextBoolean()
+                    ? decimal(random, 0, 10_000, 4)
+                    : decimal(random, 0, 100_000, 2);
+            incentives.add(incentive((long) i, random.nextBoolean() ? DiscountType.PERCENTAGE : DiscountType.FIXED, value));
+        }
+        return incentives;
+    }
+
+    private static ActiveIncentive incentive(Long ruleId, DiscountType type, BigDecimal value) {
+        return new ActiveIncentive(ruleId, 1L, null, type, value,
+                FixedPointMoney.toScaled(value, FixedPointMoney.PERCENT_SCALE));
+    }
+
+    private static BigDecimal decimal(SplittableRandom random, long minUnscaled, long maxUnscaled, int scale) {
+        return BigDecimal.valueOf(random.nextLong(minUnscaled, maxUnscaled + 1), scale);
+    }
+
+    private static LockedFxQuote quote(BigDecimal rate) {
+        return new LockedFxQuote(null, null, new FxQuote("USD", "MXN", rate, BigDecimal.ZERO, rate, QUOTED_AT));
+    }
+}
@@ -0,0 +1,59 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FixedPointMoneyTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "1005, 1, 0, 101",
+            "1004, 1, 0, 100",
+            "-1005, 1, 0, -101",
+            "-1004, 1, 0, -100",
+            "125000, 4, 2, 1250",
+            "124950, 4, 2, 1250",
+            "124949, 4, 2, 1249",
+            "-124950, 4, 2, -1250",
+            "0, 6, 2, 0"
+    })
+    void rescaleHalfUp_shouldRoundHalfAwayFromZero(long value, int fromScale, int toScale, long expected) {
+        assertThat(FixedPointMoney.rescaleHalfUp(value, fromScale, toScale)).isEqualTo(expected);
+    }
+
+    @Test
+    void rescaleHalfUp_shouldMatchBigDecimalSetScale() {
+        // given
+        SplittableRandom random = new SplittableRandom(20261017L);
+
+        for (int i = 0; i < 50_000; i++) {
+            long value = random.nextLong(-1_000_000_000_000L, 1_000_000_000_000L);
+            int fromScale = random.nextInt(1, 13);
+            int toScale = random.nextInt(0, fromScale);
+
+            // when
+            long rounded = FixedPointMoney.rescaleHalfUp(value, fromScale, toScale);
+
+            // then
+            BigDecimal expected = BigDecimal.valueOf(value, fromScale).setScale(toScale, RoundingMode.HALF_UP);
+            assertThat(FixedPointMoney.toDecimal(rounded, toScale)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void toScaled_shouldRejectValuesWithMoreDecimalsThanScale() {
+        assertThat(FixedPointMoney.toScaled(new BigDecimal("0.025"), 4)).isEqualTo(250L);
+        assertThat(FixedPointMoney.toScaled(new BigDecimal("17.200000"), 6)).isEqualTo(17_200_000L);
+        assertThat(FixedPointMoney.toScaled(null, 2)).isZero();
+        assertThatThrownBy(() -> FixedPointMoney.toScaled(new BigDecimal("0.02505"), 4))
+                .isInstanceOf(ArithmeticException.class);
+    }
+}
@@ -0,0 +1,198 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import com.kira.payment.paymentlinkbe.domain.payment.DiscountType;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.IncentiveRule;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merchant;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.IncentiveRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IncentiveIndexTest {
+
+    @Mock
+    private IncentiveRuleRepository incentiveRuleRepository;
+
+    private IncentiveIndex incentiveIndex;
+
+    @BeforeEach
+    void setUp() {
+        incentiveIndex = new IncentiveIndex(incentiveRuleRepository);
+    }
+
+    @Test
+    void available_shouldReturnOnlyTheMerchantsRulesWithUsesLeft() {
+        // given
+        when(incentiveRuleRepository.findAllActive()).thenReturn(List.of(
+                rule(1L, 10L, 5, 0), rule(2L, 10L, 3, 3), rule(3L, 20L, null, 0)
+        ));
+
+        // when
+        incentiveIndex.refresh();
+
+        // then
+        assertThat(incentiveIndex.available(10L)).extracting(ActiveIncentive::ruleId).containsExactly(1L);
+        assertThat(incentiveIndex.available(20L)).extracting(ActiveIncentive::ruleId).containsExactly(3L);
+        assertThat(incentiveIndex.available(30L)).isEmpty();
+    }
+
+    @Test
+    void tryAcquire_shouldStopAtMaxTransactions_andSettleShouldGiveBackUnappliedUses() {
+        // given
+        when(incentiveRuleRepository.findAllActive()).thenReturn(List.of(rule(1L, 10L, 2)));
+        when(incentiveRuleRepository.claimUse(1L)).thenReturn(1);
+        incentiveIndex.refresh();
+        ActiveIncentive incentive = incentiveIndex.available(10L).get(0);
+
+        // when
+        boolean first = incentiveIndex.tryAcquire(incentive);
+        boolean second = incentiveIndex.tryAcquire(incentive);
+        boolean third = incentiveIndex.tryAcquire(incentive);
+
+        // then
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+        assertThat(incentiveIndex.available(10L)).isEmpty();
+
+        incentiveIndex.settle(1L, false);
+        verify(incentiveRuleRepository).releaseUse(1L);
+        assertThat(incentiveIndex.available(10L)).hasSize(1);
+        incentiveIndex.settle(1L, true);
+        assertThat(incentiveIndex.tryAcquire(incentive)).isTrue();
+        assertThat(incentiveIndex.tryAcquire(incentive)).isFalse();
+    }
+
+    @Test
+    void tryAcquire_shouldRefuseRuleWhoseLastUseAnotherNodeClaimed() {
+        // given
+        when(incentiveRuleRepository.findAllActive()).thenReturn(List.of(rule(1L, 10L, 5)));
+        incentiveIndex.refresh();
+        ActiveIncentive incentive = incentiveIndex.available(10L).get(0);
+        when(incentiveRuleRepository.claimUse(1L)).thenReturn(0);
+
+        // when
+        boolean acquired = incentiveIndex.tryAcquire(incentive);
+
+        // then
+        assertThat(acquired).isFalse();
+        assertThat(incentiveIndex.available(10L)).isEmpty();
+    }
+
+    @Test
+    void cancel_shouldGiveBackUseLocallyWithoutReleasingItsRolledBackClaim() {
+        // given
+        when(incentiveRuleRepository.findAllActive()).thenReturn(List.of(rule(1L, 10L, 1)));
+        when(incentiveRuleRepository.claimUse(1L)).thenReturn(1);
+        incentiveIndex.refresh();
+        ActiveIncentive incentive = incentiveIndex.available(10L).get(0);
+        assertThat(incentiveIndex.tryAcquire(incentive)).isTrue();
+
+        // when
+        incentiveIndex.cancel(1L);
+
+        // then
+        assertThat(incentiveIndex.available(10L)).hasSize(1);
+        verify(incentiveRuleRepository, never()).releaseUse(any());
+    }
+
+    @Test
+    void tryAcquire_shouldNeverGrantMoreThanMaxTransactions_underContention() throws InterruptedException {
+        // given
+        when(incentiveRuleRepository.findAllActive()).thenReturn(List.of(rule(1L, 10L, 100)));
+        when(incentiveRuleRepository.claimUse(1L)).thenReturn(1);
+        incentiveIndex.refresh();
+        ActiveIncentive incentive = incentiveIndex.available(10L).get(0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+
+        // when
+        for (int i = 0; i < 1_000; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (incentiveIndex.tryAcquire(incentive)) {
+                    granted.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        // then
+        assertThat(granted).hasValue(100);
+    }
+
+    @Test
+    void refresh_shouldReconcileWithDatabaseCounts() {
+        // given
+        when(incentiveRuleRepository.findAllActive()).thenReturn(List.of(rule(1L, 10L, 3)));
+        when(incentiveRuleRepository.claimUse(1L)).thenReturn(1);
+        incentiveIndex.refresh();
+        ActiveIncentive incentive = incentiveIndex.available(10L).get(0);
+        assertThat(incentiveIndex.tryAcquire(incentive)).isTrue();
+
+        // when: the database counts this node's use and one claimed by another node
+        when(incentiveRuleRepository.findAllActive()).thenReturn(List.of(rule(1L, 10L, 3, 2)));
+        incentiveIndex.refresh();
+
+        // then
+        assertThat(incentiveIndex.tryAcquire(incentive)).isTrue();
+        assertThat(incentiveIndex.tryAcquire(incentive)).isFalse();
+    }
+
+    @Test
+    void refresh_shouldDropDeactivatedRules() {
+        // given
+        List<IncentiveRule> active = new ArrayList<>(List.of(rule(1L, 10L, null)));
+        when(incentiveRuleRepository.findAllActive()).thenAnswer(invocation -> List.copyOf(active));
+        incentiveIndex.refresh();
+        ActiveIncentive incentive = incentiveIndex.available(10L).get(0);
+
+        // when
+        active.clear();
+        incentiveIndex.refresh();
+
+        // then
+        assertThat(incentiveIndex.available(10L)).isEmpty();
+        assertThat(incentiveIndex.tryAcquire(incentive)).isFalse();
+    }
+
+    private static IncentiveRule rule(Long id, Long merchantId, Integer maxTransactions) {
+        return rule(id, merchantId, maxTransactions, 0);
+    }
+
+    private static IncentiveRule rule(Long id, Long merchantId, Integer maxTransactions, int usedTransactions) {
+        Merchant merchant = new Merchant();
+        merchant.setId(merchantId);
+        return IncentiveRule.builder()
+                .id(id)
+                .merchant(merchant)
+                .maxTransactions(maxTransactions)
+                .usedTransactions(usedTransactions)
+                .discountType(DiscountType.PERCENTAGE)
+                .discountValue(new BigDecimal("0.5"))
+                .active(true)
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package com.kira.payment.paymentlinkbe.application.fee;
+
+import com.kira.payment.paymentlinkbe.domain.fee.MerchantFeeConfigChangedEvent;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfig;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.MerchantFeeConfigRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merchant;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MerchantFeeConfigCacheTest {
+
+    @Mock
+    private MerchantFeeConfigRepository merchantFeeConfigRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Captor
+    private ArgumentCaptor<Collection<Long>> idsCaptor;
+
+    private MerchantFeeConfigCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new MerchantFeeConfigCache(
+                merchantFeeConfigRepository, paymentRepository, new SimpleMeterRegistry(), 100, 600, 60, 10, 30
+        );
+    }
+
+    @Test
+    void get_shouldLoadOnceAndReloadAfterConfigChange() {
+        // given
+        when(merchantFeeConfigRepository.findByMerchantId(1L))
+                .thenReturn(Optional.of(config(1L, "0.03")))
+                .thenReturn(Optional.of(config(1L, "0.02")));
+
+        // when
+        MerchantFeeSchedule first = cache.get(1L);
+        MerchantFeeSchedule cached = cache.get(1L);
+        cache.onConfigChanged(new MerchantFeeConfigChangedEvent(1L));
+        MerchantFeeSchedule reloaded = cache.get(1L);
+
+        // then
+        assertThat(cached).isSameAs(first);
+        assertThat(first.percentageFee()).isEqualByComparingTo("0.03");
+        assertThat(reloaded.percentageFee()).isEqualByComparingTo("0.02");
+        verify(merchantFeeConfigRepository, times(2)).findByMerchantId(1L);
+    }
+
+    @Test
+    void get_shouldDiscardPrewarmedEntryLoadedBeforeInvalidation() {
+        // given
+        when(paymentRepository.findMostActiveMerchantIds(any(), any())).thenReturn(List.of(1L));
+        when(merchantFeeConfigRepository.findByMerchantIdIn(List.of(1L)))
+                .thenAnswer(invocation -> {
+                    cache.invalidate(1L);
+                    return List.of(config(1L, "0.03"));
+                });
+        when(merchantFeeConfigRepository.findByMerchantId(1L))
+                .thenReturn(Optional.of(config(1L, "0.02")));
+
+        // when
+        cache.prewarm();
+        MerchantFeeSchedule schedule = cache.get(1L);
+
+        // then
+        assertThat(schedule.percentageFee()).isEqualByComparingTo("0.02");
+    }
+
+    @Test
+    void prewarm_shouldLoadMostActiveMerchantsInOneQuery() {
+        // given
+        when(paymentRepository.findMostActiveMerchantIds(any(), any())).thenReturn(List.of(1L, 2L));
+        when(merchantFeeConfigRepository.findByMerchantIdIn(List.of(1L, 2L)))
+                .thenReturn(List.of(config(1L, "0.03"), config(2L, "0.01")));
+
+        // when
+        cache.prewarm();
+        MerchantFeeSchedule schedule = cache.get(2L);
+
+        // then
+        assertThat(cache.estimatedSize()).isEqualTo(2);
+        assertThat(schedule.percentageFee()).isEqualByComparingTo("0.01");
+        verify(merchantFeeConfigRepository, never()).findByMerchantId(any());
+    }
+
+    @Test
+    void get_shouldReturnNullWhenMerchantHasNoConfig() {
+        // given
+        when(merchantFeeConfigRepository.findByMerchantId(9L)).thenReturn(Optional.empty());
+
+        // expect
+        assertThat(cache.get(9L)).isNull();
+    }
+
+    @Test
+    void getAll_shouldLoadMissingMerchantsInOneQuery() {
+        // given
+        when(merchantFeeConfigRepository.findByMerchantId(1L)).thenReturn(Optional.of(config(1L, "0.03")));
+        cache.get(1L);
+        when(merchantFeeConfigRepository.findByMerchantIdIn(any()))
+                .thenReturn(List.of(config(2L, "0.02"), config(3L, "0.01")));
+
+        // when
+        Map<Long, MerchantFeeSchedule> schedules = cache.getAll(List.of(1L, 2L, 3L, 4L));
+
+        // then
+        assertThat(schedules).containsOnlyKeys(1L, 2L, 3L);
+        assertThat(schedules.get(2L).percentageFee()).isEqualByComparingTo("0.02");
+        verify(merchantFeeConfigRepository).findByMerchantIdIn(idsCaptor.capture());
+        assertThat(idsCaptor.getValue()).containsExactlyInAnyOrder(2L, 3L, 4L);
+        verify(merchantFeeConfigRepository, times(1)).findByMerchantId(1L);
+    }
+
+    private static MerchantFeeConfig config(Long merchantId, String percentageFee) {
+        Merchant merchant = new Merchant();
+        merchant.setId(merchantId);
+        MerchantFeeConfig config = new MerchantFeeConfig();
+        config.setMerchant(merchant);
+        config.setPercentageFee(new BigDecimal(percentageFee));
+        config.setFixedFee(BigDecimal.ZERO);
+        return config;
+    }
+}
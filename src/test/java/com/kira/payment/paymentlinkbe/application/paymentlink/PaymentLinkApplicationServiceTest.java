@@ -1,39 +1,70 @@
 package com.kira.payment.paymentlinkbe.application.paymentlink;
 
+import com.kira.payment.paymentlinkbe.application.fee.IncentiveIndex;
+import com.kira.payment.paymentlinkbe.application.psp.PaymentReferenceLookup;
 import com.kira.payment.paymentlinkbe.application.psp.PspOrchestratorService;
+import com.kira.payment.paymentlinkbe.application.psp.PspRoutingTable;
 import com.kira.payment.paymentlinkbe.domain.fee.FeeBreakdown;
 import com.kira.payment.paymentlinkbe.domain.fee.FeeEngine;
+import com.kira.payment.paymentlinkbe.domain.fee.FeeQuoteRequest;
+import com.kira.payment.paymentlinkbe.domain.fx.FxConversion;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuoteExpiredException;
 import com.kira.payment.paymentlinkbe.domain.merchant.MerchantNotFoundException;
+import com.kira.payment.paymentlinkbe.domain.payment.PaymentFeeType;
 import com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus;
 import com.kira.payment.paymentlinkbe.domain.paymentlink.PaymentLinkStatus;
 import com.kira.payment.paymentlinkbe.domain.psp.PspChargeResult;
 import com.kira.payment.paymentlinkbe.domain.psp.PspClient;
 import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.domain.psp.PspOutcomeUnknownException;
+import com.kira.payment.paymentlinkbe.domain.psp.PspRoute;
+import com.kira.payment.paymentlinkbe.domain.psp.PspRoutingException;
 import com.kira.payment.paymentlinkbe.domain.psp.RoutedPspChargeResult;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fee.IncentiveRule;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fx.FxRateSnapshot;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fx.FxRateSnapshotRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.fx.FxRateSnapshotWriter;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merchant;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.MerchantRepository;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Recipient;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.RecipientRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.IncentiveRuleRepository;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.Payment;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentFee;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentIncentive;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLink;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLinkRepository;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.psp.Psp;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.psp.PspRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.psp.PspRoutingRuleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -62,16 +93,52 @@ class PaymentLinkApplicationServiceTest {
     @Mock
     private PspRepository pspRepository;
 
+    @Spy
+    private PspRoutingTable pspRoutingTable =
+            new PspRoutingTable(mock(PspRoutingRuleRepository.class), "STRIPE");
+
     @Mock
     private Map<String, PspClient> pspClients;
 
+    @Spy
+    private PaymentLinkViewCache paymentLinkViewCache =
+            new PaymentLinkViewCache(new SimpleMeterRegistry(), 100, 30);
+
+    @Mock
+    private PaymentReferenceLookup paymentReferenceLookup;
+
+    @Mock
+    private FxRateSnapshotWriter fxRateSnapshotWriter;
+
+    @Mock
+    private FxRateSnapshotRepository fxRateSnapshotRepository;
+
+    @Mock
+    private IncentiveIndex incentiveIndex;
+
+    @Mock
+    private IncentiveRuleRepository incentiveRuleRepository;
+
+    @Spy
+    private TransactionTemplate transactionTemplate =
+            new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    private SlugGenerator slugGenerator = new SlugGenerator(1L, System::currentTimeMillis);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private PaymentLinkMetrics metrics = new PaymentLinkMetrics(meterRegistry, 20);
+
     @InjectMocks
     private PaymentLinkApplicationService service;
 
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(service, "publicBaseUrl", "https://checkout.test");
-        ReflectionTestUtils.setField(service, "defaultPspCode", "STRIPE");
+        ReflectionTestUtils.setField(service, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(service, "maxPageSize", 100);
     }
 
     @Test
@@ -93,9 +160,6 @@ class PaymentLinkApplicationServiceTest {
         when(recipientRepository.findById(recipientId))
                 .thenReturn(Optional.of(recipient));
 
-        when(paymentLinkRepository.existsBySlug(anyString()))
-                .thenReturn(false);
-
         PaymentLink savedLink = new PaymentLink();
         savedLink.setId(123L);
         savedLink.setPublicId(UUID.randomUUID().toString());
@@ -109,7 +173,7 @@ class PaymentLinkApplicationServiceTest {
         savedLink.setCreatedAt(LocalDateTime.now());
         savedLink.setUpdatedAt(savedLink.getCreatedAt());
 
-        when(paymentLinkRepository.save(any(PaymentLink.class)))
+        when(paymentLinkRepository.saveAndFlush(any(PaymentLink.class)))
                 .thenReturn(savedLink);
 
         FeeBreakdown breakdown = new FeeBreakdown(
@@ -144,10 +208,62 @@ class PaymentLinkApplicationServiceTest {
         assertThat(view.slug()).isNotBlank();
         assertThat(view.checkoutUrl()).contains(view.slug());
 
-        verify(paymentLinkRepository).save(any(PaymentLink.class));
+        ArgumentCaptor<PaymentLink> linkCaptor = ArgumentCaptor.forClass(PaymentLink.class);
+        verify(paymentLinkRepository).saveAndFlush(linkCaptor.capture());
+        assertThat(linkCaptor.getValue().getSlug()).hasSize(11);
         verify(feeEngine).calculateForPaymentLink(merchantId, recipientId, amount, currency);
     }
 
+    @Test
+    void createPaymentLink_shouldRetryWithNewSlugOnSlugCollision() {
+        // given
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+        when(merchantRepository.findById(1L)).thenReturn(Optional.of(merchant));
+
+        List<String> slugs = new ArrayList<>();
+        when(paymentLinkRepository.saveAndFlush(any(PaymentLink.class)))
+                .thenAnswer(invocation -> {
+                    PaymentLink link = invocation.getArgument(0);
+                    slugs.add(link.getSlug());
+                    throw new DataIntegrityViolationException("duplicate slug", new ConstraintViolationException(
+                            "duplicate key", new SQLException("duplicate key"), "payment_link_slug_key"));
+                })
+                .thenAnswer(invocation -> {
+                    PaymentLink link = invocation.getArgument(0);
+                    slugs.add(link.getSlug());
+                    return link;
+                });
+        when(feeEngine.calculateForPaymentLink(1L, null, new BigDecimal("10.00"), "USD"))
+                .thenReturn(new FeeBreakdown(new BigDecimal("10.00"), BigDecimal.ZERO, BigDecimal.ZERO,
+                        BigDecimal.ZERO, BigDecimal.ZERO, new BigDecimal("10.00"), "USD"));
+
+        // when
+        PaymentLinkView view = service.createPaymentLink(new CreatePaymentLinkCommand(
+                1L, null, new BigDecimal("10.00"), "USD", null, null));
+
+        // then
+        assertThat(slugs).hasSize(2).doesNotHaveDuplicates();
+        assertThat(view.slug()).isEqualTo(slugs.get(1));
+    }
+
+    @Test
+    void createPaymentLink_shouldNotRetryOtherIntegrityViolations() {
+        // given
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+        when(merchantRepository.findById(1L)).thenReturn(Optional.of(merchant));
+        when(paymentLinkRepository.saveAndFlush(any(PaymentLink.class)))
+                .thenThrow(new DataIntegrityViolationException("fk", new ConstraintViolationException(
+                        "fk", new SQLException("fk"), "fk_payment_link_merchant")));
+
+        // when / then
+        assertThatThrownBy(() -> service.createPaymentLink(new CreatePaymentLinkCommand(
+                1L, null, new BigDecimal("10.00"), "USD", null, null)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        verify(paymentLinkRepository, times(1)).saveAndFlush(any(PaymentLink.class));
+    }
+
     @Test
     void createPaymentLink_shouldThrowWhenMerchantNotFound() {
         // given
@@ -198,7 +314,7 @@ class PaymentLinkApplicationServiceTest {
                 new BigDecimal("96.00"),
                 "USD"
         );
-        when(feeEngine.calculateForPaymentLink(1L, null,
+        when(feeEngine.quoteForCheckout(1L, null,
                 new BigDecimal("100.00"), "USD"))
                 .thenReturn(breakdown);
 
@@ -235,7 +351,7 @@ class PaymentLinkApplicationServiceTest {
         link.setCurrency("USD");
         link.setStatus(PaymentLinkStatus.CREATED);
 
-        when(paymentLinkRepository.findBySlug(slug))
+        when(paymentLinkRepository.findBySlugForUpdate(slug))
                 .thenReturn(Optional.of(link));
 
         FeeBreakdown breakdown = new FeeBreakdown(
@@ -247,8 +363,8 @@ class PaymentLinkApplicationServiceTest {
                 new BigDecimal("96.00"),
                 "USD"
         );
-        when(feeEngine.calculateForPaymentLink(1L, null,
-                new BigDecimal("100.00"), "USD"))
+        when(feeEngine.calculateForCharge(1L, null,
+                new BigDecimal("100.00"), "USD", null))
                 .thenReturn(breakdown);
 
         PspChargeResult pspResult = PspChargeResult.success(
@@ -261,11 +377,12 @@ class PaymentLinkApplicationServiceTest {
                 pspResult
         );
 
-        when(pspOrchestratorService.processPayment(
+        when(pspOrchestratorService.processRoutedPayment(
                 eq("token123"),
                 eq(new BigDecimal("100.00")),
                 eq("USD"),
-                eq("STRIPE")
+                eq(new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null)),
+                startsWith("pl-payment-")
         )).thenReturn(routed);
 
         Psp pspEntity = new Psp();
@@ -273,12 +390,18 @@ class PaymentLinkApplicationServiceTest {
         when(pspRepository.findByCode(PspCode.STRIPE))
                 .thenReturn(Optional.of(pspEntity));
 
-        when(paymentRepository.save(any(Payment.class)))
+        AtomicReference<Payment> reserved = new AtomicReference<>();
+        when(paymentRepository.saveAndFlush(any(Payment.class)))
                 .thenAnswer(invocation -> {
                     Payment p = invocation.getArgument(0);
                     p.setId(999L);
+                    reserved.set(p);
                     return p;
                 });
+        when(paymentRepository.findByIdForUpdate(999L))
+                .thenAnswer(invocation -> Optional.ofNullable(reserved.get()));
+        when(paymentRepository.save(any(Payment.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
 
         ProcessPaymentCommand command = new ProcessPaymentCommand("token123", null, "1");
 
@@ -299,6 +422,254 @@ class PaymentLinkApplicationServiceTest {
         Payment savedPayment = paymentCaptor.getValue();
         assertThat(savedPayment.getStatus()).isEqualTo(PaymentStatus.CAPTURED);
         assertThat(savedPayment.getPspReference()).isEqualTo("psp_ch_123");
+        verify(paymentReferenceLookup).remember(PspCode.STRIPE, "psp_ch_123", 999L);
+        verify(fxRateSnapshotWriter, never()).enqueue(any(), any());
+        assertThat(meterRegistry.get("payment.link.payments")
+                .tags("psp", "STRIPE", "status", "CAPTURED", "currency", "USD").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("payment.link.operations")
+                .tags("operation", "pay", "outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void processPayment_shouldQueueFxSnapshotWhenConvertedPaymentIsCaptured() {
+        // given
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+
+        PaymentLink link = new PaymentLink();
+        link.setId(10L);
+        link.setSlug("fx-slug");
+        link.setMerchant(merchant);
+        link.setAmount(new BigDecimal("100.00"));
+        link.setCurrency("USD");
+        link.setStatus(PaymentLinkStatus.CREATED);
+        when(paymentLinkRepository.findBySlugForUpdate("fx-slug")).thenReturn(Optional.of(link));
+
+        FxConversion conversion = new FxConversion(
+                "USD", "MXN",
+                new BigDecimal("17.20"), BigDecimal.ZERO, new BigDecimal("17.20"),
+                new BigDecimal("1651.20"), Instant.now()
+        );
+        FeeBreakdown breakdown = new FeeBreakdown(
+                new BigDecimal("100.00"), new BigDecimal("3.00"), new BigDecimal("1.00"), BigDecimal.ZERO,
+                new BigDecimal("4.00"), new BigDecimal("96.00"), "USD", conversion
+        );
+        when(feeEngine.calculateForCharge(1L, null, new BigDecimal("100.00"), "USD", null))
+                .thenReturn(breakdown);
+
+        when(pspOrchestratorService.processRoutedPayment(
+                eq("token123"), any(), eq("USD"), any(), startsWith("pl-payment-")
+        )).thenReturn(new RoutedPspChargeResult(
+                PspCode.STRIPE,
+                PspChargeResult.success("psp_ch_fx", new BigDecimal("100.00"), "USD")
+        ));
+
+        AtomicReference<Payment> reserved = new AtomicReference<>();
+        when(paymentRepository.saveAndFlush(any(Payment.class)))
+                .thenAnswer(invocation -> {
+                    Payment p = invocation.getArgument(0);
+                    p.setId(42L);
+                    reserved.set(p);
+                    return p;
+                });
+        when(paymentRepository.findByIdForUpdate(42L))
+                .thenAnswer(invocation -> Optional.ofNullable(reserved.get()));
+        when(paymentRepository.save(any(Payment.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        service.processPayment("fx-slug", new ProcessPaymentCommand("token123", null, null));
+
+        // then
+        verify(fxRateSnapshotWriter).enqueue(42L, conversion);
+    }
+
+    @Test
+    void processPayment_shouldRecordAppliedIncentiveAndKeepItsUseWhenCaptured() {
+        // given
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+
+        PaymentLink link = new PaymentLink();
+        link.setId(10L);
+        link.setSlug("promo-slug");
+        link.setMerchant(merchant);
+        link.setAmount(new BigDecimal("100.00"));
+        link.setCurrency("USD");
+        link.setStatus(PaymentLinkStatus.CREATED);
+        when(paymentLinkRepository.findBySlugForUpdate("promo-slug")).thenReturn(Optional.of(link));
+
+        FeeBreakdown breakdown = new FeeBreakdown(
+                new BigDecimal("100.00"), new BigDecimal("3.00"), new BigDecimal("1.00"), new BigDecimal("4.00"),
+                new BigDecimal("0.00"), new BigDecimal("100.00"), "USD", null, 7L
+        );
+        when(feeEngine.calculateForCharge(1L, null, new BigDecimal("100.00"), "USD", null))
+                .thenReturn(breakdown);
+        IncentiveRule rule = new IncentiveRule();
+        rule.setId(7L);
+        when(incentiveRuleRepository.getReferenceById(7L)).thenReturn(rule);
+
+        when(pspOrchestratorService.processRoutedPayment(
+                eq("token123"), any(), eq("USD"), any(), startsWith("pl-payment-")
+        )).thenReturn(new RoutedPspChargeResult(
+                PspCode.STRIPE,
+                PspChargeResult.success("psp_ch_promo", new BigDecimal("100.00"), "USD")
+        ));
+
+        AtomicReference<Payment> reserved = new AtomicReference<>();
+        when(paymentRepository.saveAndFlush(any(Payment.class)))
+                .thenAnswer(invocation -> {
+                    Payment p = invocation.getArgument(0);
+                    p.setId(43L);
+                    reserved.set(p);
+                    return p;
+                });
+        when(paymentRepository.findByIdForUpdate(43L))
+                .thenAnswer(invocation -> Optional.ofNullable(reserved.get()));
+        when(paymentRepository.save(any(Payment.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        service.processPayment("promo-slug", new ProcessPaymentCommand("token123", null, null));
+
+        // then
+        assertThat(reserved.get().getIncentives()).singleElement().satisfies(applied -> {
+            assertThat(applied.getIncentiveRule()).isSameAs(rule);
+            assertThat(applied.getDiscountAmount()).isEqualByComparingTo("4.00");
+            assertThat(applied.getCurrency()).isEqualTo("USD");
+        });
+        verify(incentiveIndex).settle(7L, true);
+    }
+
+    @Test
+    void processPayment_shouldGiveBackIncentiveUseWhenPspCallThrows() {
+        // given
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+
+        PaymentLink link = new PaymentLink();
+        link.setId(10L);
+        link.setSlug("promo-slug");
+        link.setMerchant(merchant);
+        link.setAmount(new BigDecimal("100.00"));
+        link.setCurrency("USD");
+        link.setStatus(PaymentLinkStatus.CREATED);
+        when(paymentLinkRepository.findBySlugForUpdate("promo-slug")).thenReturn(Optional.of(link));
+
+        when(feeEngine.calculateForCharge(1L, null, new BigDecimal("100.00"), "USD", null))
+                .thenReturn(new FeeBreakdown(
+                        new BigDecimal("100.00"), new BigDecimal("3.00"), new BigDecimal("1.00"),
+                        new BigDecimal("4.00"), new BigDecimal("0.00"), new BigDecimal("100.00"), "USD", null, 7L
+                ));
+        AtomicReference<Payment> reserved = new AtomicReference<>();
+        when(paymentRepository.saveAndFlush(any(Payment.class)))
+                .thenAnswer(invocation -> {
+                    Payment p = invocation.getArgument(0);
+                    p.setId(44L);
+                    reserved.set(p);
+                    return p;
+                });
+        when(paymentRepository.findByIdForUpdate(44L))
+                .thenAnswer(invocation -> Optional.ofNullable(reserved.get()));
+        when(pspOrchestratorService.processRoutedPayment(
+                eq("token123"), any(), eq("USD"), any(), startsWith("pl-payment-")
+        )).thenThrow(new PspRoutingException("Both PSPs failed"));
+
+        // when / then
+        assertThatThrownBy(() -> service.processPayment("promo-slug", new ProcessPaymentCommand("token123", null, null)))
+                .isInstanceOf(PspRoutingException.class);
+        verify(incentiveIndex).settle(7L, false);
+        assertThat(reserved.get().getIncentives()).isEmpty();
+    }
+
+    @Test
+    void processPayment_shouldReplayStoredFeesForRepeatedIdempotencyKey() {
+        // given
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+
+        PaymentLink link = new PaymentLink();
+        link.setId(10L);
+        link.setSlug("replay-slug");
+        link.setMerchant(merchant);
+        link.setAmount(new BigDecimal("100.00"));
+        link.setCurrency("USD");
+        link.setStatus(PaymentLinkStatus.PAID);
+        when(paymentLinkRepository.findBySlugForUpdate("replay-slug")).thenReturn(Optional.of(link));
+
+        Psp stripe = new Psp();
+        stripe.setCode(PspCode.STRIPE);
+        IncentiveRule rule = new IncentiveRule();
+        rule.setId(7L);
+        Payment captured = Payment.builder()
+                .id(55L)
+                .paymentLink(link)
+                .merchant(merchant)
+                .psp(stripe)
+                .pspReference("ch_stripe_55")
+                .status(PaymentStatus.CAPTURED)
+                .amount(new BigDecimal("100.00"))
+                .feeTotal(new BigDecimal("3.00"))
+                .netAmount(new BigDecimal("97.00"))
+                .currency("USD")
+                .idempotencyKey("key-1")
+                .build();
+        captured.getFees().add(PaymentFee.builder()
+                .type(PaymentFeeType.PROCESSING).amount(new BigDecimal("3.00")).currency("USD").build());
+        captured.getFees().add(PaymentFee.builder()
+                .type(PaymentFeeType.FX).amount(new BigDecimal("1.00")).currency("USD").build());
+        captured.getFees().add(PaymentFee.builder()
+                .type(PaymentFeeType.INCENTIVE_DISCOUNT).amount(new BigDecimal("-1.00")).currency("USD").build());
+        captured.getIncentives().add(PaymentIncentive.builder()
+                .incentiveRule(rule).discountAmount(new BigDecimal("1.00")).currency("USD").build());
+        when(paymentRepository.findByPaymentLinkIdAndIdempotencyKey(10L, "key-1")).thenReturn(Optional.of(captured));
+        when(fxRateSnapshotRepository.findByPaymentId(55L)).thenReturn(Optional.of(FxRateSnapshot.builder()
+                .fromCurrency("USD").toCurrency("MXN").rate(new BigDecimal("17.500000")).build()));
+
+        // when
+        ProcessPaymentResult result = service.processPayment("replay-slug", new ProcessPaymentCommand("token123", null, "key-1"));
+
+        // then
+        assertThat(result.paymentId()).isEqualTo(55L);
+        assertThat(result.paymentStatus()).isEqualTo(PaymentStatus.CAPTURED);
+        assertThat(result.pspUsed()).isEqualTo("STRIPE");
+        FeeBreakdown fees = result.feeBreakdown();
+        assertThat(fees.processingFee()).isEqualByComparingTo("3.00");
+        assertThat(fees.fxFee()).isEqualByComparingTo("1.00");
+        assertThat(fees.incentiveDiscount()).isEqualByComparingTo("1.00");
+        assertThat(fees.totalFees()).isEqualByComparingTo("3.00");
+        assertThat(fees.finalAmount()).isEqualByComparingTo("97.00");
+        assertThat(fees.incentiveRuleId()).isEqualTo(7L);
+        assertThat(fees.fxConversion().appliedRate()).isEqualByComparingTo("17.5");
+        assertThat(fees.fxConversion().payoutAmount()).isEqualByComparingTo("1697.50");
+        verifyNoInteractions(feeEngine, pspOrchestratorService, incentiveIndex);
+    }
+
+    @Test
+    void processPayment_shouldRejectExpiredFxQuoteBeforeCallingPsp() {
+        // given
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+
+        PaymentLink link = new PaymentLink();
+        link.setId(10L);
+        link.setSlug("fx-slug");
+        link.setMerchant(merchant);
+        link.setAmount(new BigDecimal("100.00"));
+        link.setCurrency("USD");
+        link.setStatus(PaymentLinkStatus.CREATED);
+        when(paymentLinkRepository.findBySlugForUpdate("fx-slug")).thenReturn(Optional.of(link));
+        when(feeEngine.calculateForCharge(1L, null, new BigDecimal("100.00"), "USD", "stale-quote"))
+                .thenThrow(new FxQuoteExpiredException("FX quote is expired or invalid"));
+
+        ProcessPaymentCommand command = new ProcessPaymentCommand("token123", null, "1", "stale-quote");
+
+        // when / then
+        assertThatThrownBy(() -> service.processPayment("fx-slug", command))
+                .isInstanceOf(FxQuoteExpiredException.class);
+        verify(feeEngine, never()).calculateForPaymentLink(any(), any(), any(), any());
+        verifyNoInteractions(pspOrchestratorService);
+        verify(paymentRepository, never()).saveAndFlush(any(Payment.class));
     }
 
     @Test
@@ -308,7 +679,7 @@ class PaymentLinkApplicationServiceTest {
         link.setSlug(slug);
         link.setStatus(PaymentLinkStatus.PAID);
 
-        when(paymentLinkRepository.findBySlug(slug))
+        when(paymentLinkRepository.findBySlugForUpdate(slug))
                 .thenReturn(Optional.of(link));
 
         ProcessPaymentCommand command = new ProcessPaymentCommand("token", null, "1");
@@ -318,7 +689,7 @@ class PaymentLinkApplicationServiceTest {
     }
 
     @Test
-    void getPaymentLink_shouldExpireLinkWhenExpiredInPast() {
+    void getPaymentLink_shouldReportExpiredWithoutWritingWhenExpiredInPast() {
         // given
         String slug = "expired123";
         Merchant merchant = new Merchant();
@@ -347,7 +718,7 @@ class PaymentLinkApplicationServiceTest {
                 new BigDecimal("96.00"),
                 "USD"
         );
-        when(feeEngine.calculateForPaymentLink(
+        when(feeEngine.quoteForCheckout(
                 1L,
                 null,
                 new BigDecimal("100.00"),
@@ -361,7 +732,9 @@ class PaymentLinkApplicationServiceTest {
         assertThat(view.id()).isEqualTo(123L);
         assertThat(view.slug()).isEqualTo(slug);
         assertThat(view.feeBreakdown()).isEqualTo(breakdown);
-        assertThat(link.getStatus()).isEqualTo(PaymentLinkStatus.EXPIRED);
+        assertThat(view.status()).isEqualTo(PaymentLinkStatus.EXPIRED);
+        assertThat(link.getStatus()).isEqualTo(PaymentLinkStatus.CREATED);
+        verify(paymentLinkRepository, never()).save(any());
     }
 
     @Test
@@ -379,7 +752,7 @@ class PaymentLinkApplicationServiceTest {
         link.setCurrency("USD");
         link.setStatus(PaymentLinkStatus.CREATED);
 
-        when(paymentLinkRepository.findBySlug(slug))
+        when(paymentLinkRepository.findBySlugForUpdate(slug))
                 .thenReturn(Optional.of(link));
 
         FeeBreakdown breakdown = new FeeBreakdown(
@@ -391,11 +764,12 @@ class PaymentLinkApplicationServiceTest {
                 new BigDecimal("96.00"),
                 "USD"
         );
-        when(feeEngine.calculateForPaymentLink(
+        when(feeEngine.calculateForCharge(
                 1L,
                 null,
                 new BigDecimal("100.00"),
-                "USD"
+                "USD",
+                null
         )).thenReturn(breakdown);
 
         PspChargeResult failedResult = PspChargeResult.failure(
@@ -407,11 +781,12 @@ class PaymentLinkApplicationServiceTest {
                 PspCode.STRIPE,
                 failedResult
         );
-        when(pspOrchestratorService.processPayment(
+        when(pspOrchestratorService.processRoutedPayment(
                 eq("token123"),
                 eq(new BigDecimal("100.00")),
                 eq("USD"),
-                eq("STRIPE")
+                eq(new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null)),
+                startsWith("pl-payment-")
         )).thenReturn(routed);
 
         Psp pspEntity = new Psp();
@@ -419,12 +794,18 @@ class PaymentLinkApplicationServiceTest {
         when(pspRepository.findByCode(PspCode.STRIPE))
                 .thenReturn(Optional.of(pspEntity));
 
-        when(paymentRepository.save(any(Payment.class)))
+        AtomicReference<Payment> reserved = new AtomicReference<>();
+        when(paymentRepository.saveAndFlush(any(Payment.class)))
                 .thenAnswer(invocation -> {
                     Payment p = invocation.getArgument(0);
                     p.setId(1000L);
+                    reserved.set(p);
                     return p;
                 });
+        when(paymentRepository.findByIdForUpdate(1000L))
+                .thenAnswer(invocation -> Optional.ofNullable(reserved.get()));
+        when(paymentRepository.save(any(Payment.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
 
         ProcessPaymentCommand command = new ProcessPaymentCommand("token123", null, "1");
 
@@ -446,4 +827,388 @@ class PaymentLinkApplicationServiceTest {
         assertThat(link.getStatus()).isEqualTo(PaymentLinkStatus.CREATED);
     }
 
+    @Test
+    void processPayment_shouldRejectLinkPastExpiryWithoutWritingIt() {
+        // given
+        PaymentLink link = new PaymentLink();
+        link.setId(10L);
+        link.setSlug("late123");
+        link.setStatus(PaymentLinkStatus.CREATED);
+        link.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        when(paymentLinkRepository.findBySlugForUpdate("late123")).thenReturn(Optional.of(link));
+
+        ProcessPaymentCommand command = new ProcessPaymentCommand("token", null, "1");
+
+        // when / then
+        assertThatThrownBy(() -> service.processPayment("late123", command))
+                .isInstanceOf(PaymentLinkInvalidStateException.class)
+                .hasMessageContaining("EXPIRED");
+        assertThat(link.getStatus()).isEqualTo(PaymentLinkStatus.CREATED);
+        verify(paymentLinkRepository, never()).save(any());
+        verifyNoInteractions(pspOrchestratorService);
+    }
+
+    @Test
+    void processPayment_shouldRejectWhenAnotherPaymentIsInProgress() {
+        // given
+        String slug = "busy123";
+        PaymentLink link = new PaymentLink();
+        link.setId(10L);
+        link.setSlug(slug);
+        link.setStatus(PaymentLinkStatus.CREATED);
+
+        when(paymentLinkRepository.findBySlugForUpdate(slug))
+                .thenReturn(Optional.of(link));
+        when(paymentRepository.existsByPaymentLinkIdAndStatusIn(
+                10L, List.of(PaymentStatus.PENDING, PaymentStatus.REQUIRES_REVIEW)
+        )).thenReturn(true);
+
+        ProcessPaymentCommand command = new ProcessPaymentCommand("token", null, "1");
+
+        // when / then
+        assertThatThrownBy(() -> service.processPayment(slug, command))
+                .isInstanceOf(PaymentLinkInvalidStateException.class);
+        verifyNoInteractions(pspOrchestratorService);
+        verify(paymentRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void processPayment_shouldMarkReservedPaymentFailedWhenPspCallThrows() {
+        // given
+        String slug = "payBoom123";
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+
+        PaymentLink link = new PaymentLink();
+        link.setId(10L);
+        link.setSlug(slug);
+        link.setMerchant(merchant);
+        link.setAmount(new BigDecimal("100.00"));
+        link.setCurrency("USD");
+        link.setStatus(PaymentLinkStatus.CREATED);
+
+        when(paymentLinkRepository.findBySlugForUpdate(slug))
+                .thenReturn(Optional.of(link));
+
+        FeeBreakdown breakdown = new FeeBreakdown(
+                new BigDecimal("100.00"),
+                new BigDecimal("3.00"),
+                new BigDecimal("1.00"),
+                BigDecimal.ZERO,
+                new BigDecimal("4.00"),
+                new BigDecimal("96.00"),
+                "USD"
+        );
+        when(feeEngine.calculateForCharge(1L, null,
+                new BigDecimal("100.00"), "USD", null))
+                .thenReturn(breakdown);
+
+        AtomicReference<Payment> reserved = new AtomicReference<>();
+        when(paymentRepository.saveAndFlush(any(Payment.class)))
+                .thenAnswer(invocation -> {
+                    Payment p = invocation.getArgument(0);
+                    p.setId(1001L);
+                    reserved.set(p);
+                    return p;
+                });
+        when(paymentRepository.findByIdForUpdate(1001L))
+                .thenAnswer(invocation -> Optional.ofNullable(reserved.get()));
+
+        when(pspOrchestratorService.processRoutedPayment(
+                eq("token123"),
+                eq(new BigDecimal("100.00")),
+                eq("USD"),
+                eq(new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null)),
+                startsWith("pl-payment-")
+        )).thenThrow(new PspRoutingException("Both PSPs failed"));
+
+        ProcessPaymentCommand command = new ProcessPaymentCommand("token123", null, "1");
+
+        // when / then
+        assertThatThrownBy(() -> service.processPayment(slug, command))
+                .isInstanceOf(PspRoutingException.class);
+
+        assertThat(reserved.get().getStatus()).isEqualTo(PaymentStatus.FAILED);
+        verify(paymentRepository).save(reserved.get());
+        assertThat(link.getStatus()).isEqualTo(PaymentLinkStatus.CREATED);
+        assertThat(meterRegistry.get("payment.link.payments")
+                .tags("psp", "NONE", "status", "FAILED", "currency", "USD").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("payment.link.operations")
+                .tags("operation", "pay", "outcome", "error").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void processPayment_shouldLeavePaymentPendingWhenPspOutcomeIsUnknown() {
+        // given
+        String slug = "payLimbo123";
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+
+        PaymentLink link = new PaymentLink();
+        link.setId(10L);
+        link.setSlug(slug);
+        link.setMerchant(merchant);
+        link.setAmount(new BigDecimal("100.00"));
+        link.setCurrency("USD");
+        link.setStatus(PaymentLinkStatus.CREATED);
+
+        when(paymentLinkRepository.findBySlugForUpdate(slug))
+                .thenReturn(Optional.of(link));
+        when(feeEngine.calculateForCharge(1L, null,
+                new BigDecimal("100.00"), "USD", null))
+                .thenReturn(new FeeBreakdown(
+                        new BigDecimal("100.00"), new BigDecimal("3.00"), new BigDecimal("1.00"),
+                        BigDecimal.ZERO, new BigDecimal("4.00"), new BigDecimal("96.00"), "USD"
+                ));
+
+        AtomicReference<Payment> reserved = new AtomicReference<>();
+        when(paymentRepository.saveAndFlush(any(Payment.class)))
+                .thenAnswer(invocation -> {
+                    Payment p = invocation.getArgument(0);
+                    p.setId(1002L);
+                    reserved.set(p);
+                    return p;
+                });
+        when(pspOrchestratorService.processRoutedPayment(
+                eq("token123"), any(), eq("USD"), any(), eq("pl-payment-1002")
+        )).thenThrow(new PspOutcomeUnknownException("PSP STRIPE timed out", null));
+
+        ProcessPaymentCommand command = new ProcessPaymentCommand("token123", null, "1");
+
+        // when / then
+        assertThatThrownBy(() -> service.processPayment(slug, command))
+                .isInstanceOf(PspOutcomeUnknownException.class);
+
+        assertThat(reserved.get().getStatus()).isEqualTo(PaymentStatus.PENDING);
+        verify(paymentRepository, never()).findByIdForUpdate(anyLong());
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
+
+    @Test
+    void processPayment_shouldNotCompletePaymentThatLeftPendingDuringPspCall() {
+        // given
+        String slug = "payLate123";
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+
+        PaymentLink link = new PaymentLink();
+        link.setId(10L);
+        link.setSlug(slug);
+        link.setMerchant(merchant);
+        link.setAmount(new BigDecimal("100.00"));
+        link.setCurrency("USD");
+        link.setStatus(PaymentLinkStatus.CREATED);
+
+        when(paymentLinkRepository.findBySlugForUpdate(slug))
+                .thenReturn(Optional.of(link));
+
+        FeeBreakdown breakdown = new FeeBreakdown(
+                new BigDecimal("100.00"),
+                new BigDecimal("3.00"),
+                new BigDecimal("1.00"),
+                BigDecimal.ZERO,
+                new BigDecimal("4.00"),
+                new BigDecimal("96.00"),
+                "USD"
+        );
+        when(feeEngine.calculateForCharge(1L, null,
+                new BigDecimal("100.00"), "USD", null))
+                .thenReturn(breakdown);
+
+        AtomicReference<Payment> reserved = new AtomicReference<>();
+        when(paymentRepository.saveAndFlush(any(Payment.class)))
+                .thenAnswer(invocation -> {
+                    Payment p = invocation.getArgument(0);
+                    p.setId(1002L);
+                    reserved.set(p);
+                    return p;
+                });
+        when(paymentRepository.findByIdForUpdate(1002L))
+                .thenAnswer(invocation -> Optional.ofNullable(reserved.get()));
+
+        when(pspOrchestratorService.processRoutedPayment(
+                eq("token123"),
+                eq(new BigDecimal("100.00")),
+                eq("USD"),
+                eq(new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null)),
+                eq("pl-payment-1002")
+        )).thenAnswer(invocation -> {
+            reserved.get().setStatus(PaymentStatus.REQUIRES_REVIEW);
+            return new RoutedPspChargeResult(PspCode.STRIPE,
+                    PspChargeResult.success("ch_late", new BigDecimal("100.00"), "USD"));
+        });
+
+        ProcessPaymentCommand command = new ProcessPaymentCommand("token123", null, "1");
+
+        // when / then
+        assertThatThrownBy(() -> service.processPayment(slug, command))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("no longer PENDING");
+
+        assertThat(reserved.get().getStatus()).isEqualTo(PaymentStatus.REQUIRES_REVIEW);
+        assertThat(reserved.get().getPspReference()).isNull();
+        verify(paymentRepository, never()).save(any(Payment.class));
+        assertThat(link.getStatus()).isEqualTo(PaymentLinkStatus.CREATED);
+    }
+
+    @Test
+    void getPaymentLink_shouldServeRepeatedReadsFromViewCache() {
+        // given
+        String slug = "cached123";
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+
+        PaymentLink link = new PaymentLink();
+        link.setId(123L);
+        link.setSlug(slug);
+        link.setMerchant(merchant);
+        link.setAmount(new BigDecimal("100.00"));
+        link.setCurrency("USD");
+        link.setStatus(PaymentLinkStatus.CREATED);
+        link.setCreatedAt(LocalDateTime.now());
+        link.setExpiresAt(LocalDateTime.now().plusDays(1));
+
+        when(paymentLinkRepository.findBySlug(slug))
+                .thenReturn(Optional.of(link));
+
+        FeeBreakdown breakdown = new FeeBreakdown(
+                new BigDecimal("100.00"),
+                new BigDecimal("3.00"),
+                new BigDecimal("1.00"),
+                BigDecimal.ZERO,
+                new BigDecimal("4.00"),
+                new BigDecimal("96.00"),
+                "USD"
+        );
+        when(feeEngine.quoteForCheckout(1L, null,
+                new BigDecimal("100.00"), "USD"))
+                .thenReturn(breakdown);
+
+        // when
+        PaymentLinkView first = service.getPaymentLink(slug);
+        PaymentLinkView second = service.getPaymentLink(slug);
+
+        // then
+        assertThat(second).isSameAs(first);
+        verify(paymentLinkRepository, times(1)).findBySlug(slug);
+        verify(feeEngine, times(1)).quoteForCheckout(1L, null,
+                new BigDecimal("100.00"), "USD");
+    }
+
+    @Test
+    void deletePaymentLink_shouldEvictCachedView() {
+        // given
+        String slug = "del123";
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+
+        PaymentLink link = new PaymentLink();
+        link.setSlug(slug);
+        link.setMerchant(merchant);
+        link.setStatus(PaymentLinkStatus.CREATED);
+
+        when(paymentLinkRepository.findBySlugAndMerchantId(slug, 1L))
+                .thenReturn(Optional.of(link));
+
+        // when
+        service.deletePaymentLink(slug, 1L);
+
+        // then
+        verify(paymentLinkViewCache).evict(slug);
+        assertThat(link.getStatus()).isEqualTo(PaymentLinkStatus.EXPIRED);
+    }
+
+    @Test
+    void listByMerchant_shouldReturnNextCursorWhenMoreRowsThanLimit() {
+        // given
+        Long merchantId = 1L;
+        Merchant merchant = new Merchant();
+        merchant.setId(merchantId);
+        LocalDateTime createdAt = LocalDateTime.now().minusHours(1);
+
+        PaymentLink newest = pageLink(3L, "s3", merchant, createdAt.plusMinutes(2));
+        PaymentLink middle = pageLink(2L, "s2", merchant, createdAt.plusMinutes(1));
+        PaymentLink oldest = pageLink(1L, "s1", merchant, createdAt);
+
+        when(merchantRepository.existsById(merchantId)).thenReturn(true);
+        when(paymentLinkRepository.findFirstPageByMerchantId(eq(merchantId), any(Pageable.class)))
+                .thenReturn(List.of(newest, middle, oldest));
+        FeeBreakdown breakdown = new FeeBreakdown(
+                new BigDecimal("100.00"),
+                BigDecimal.ZERO,
+                BigDecimal.ZERO,
+                BigDecimal.ZERO,
+                BigDecimal.ZERO,
+                new BigDecimal("100.00"),
+                "USD"
+        );
+        when(feeEngine.calculateForPaymentLinks(anyList()))
+                .thenAnswer(invocation -> Collections.nCopies(
+                        invocation.<List<FeeQuoteRequest>>getArgument(0).size(), breakdown));
+
+        // when
+        PaymentLinkPage page = service.listByMerchant(merchantId, null, 2);
+
+        // then
+        assertThat(page.items()).extracting(PaymentLinkView::slug).containsExactly("s3", "s2");
+        assertThat(page.nextCursor()).isNotNull();
+        PaymentLinkCursor cursor = PaymentLinkCursor.decode(page.nextCursor());
+        assertThat(cursor.id()).isEqualTo(2L);
+        assertThat(cursor.createdAt()).isEqualTo(middle.getCreatedAt());
+
+        ArgumentCaptor<Pageable> windowCaptor = ArgumentCaptor.forClass(Pageable.class);
+        verify(paymentLinkRepository).findFirstPageByMerchantId(eq(merchantId), windowCaptor.capture());
+        assertThat(windowCaptor.getValue().getPageSize()).isEqualTo(3);
+    }
+
+    @Test
+    void listAll_shouldSeekFromCursorAndReturnNoCursorOnLastPage() {
+        // given
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+        LocalDateTime createdAt = LocalDateTime.now().minusDays(1);
+        PaymentLink last = pageLink(1L, "s1", merchant, createdAt);
+        String cursor = new PaymentLinkCursor(createdAt.plusMinutes(1), 2L).encode();
+
+        when(paymentLinkRepository.findPageBefore(
+                eq(createdAt.plusMinutes(1)), eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(last));
+        FeeBreakdown breakdown = new FeeBreakdown(
+                new BigDecimal("100.00"),
+                BigDecimal.ZERO,
+                BigDecimal.ZERO,
+                BigDecimal.ZERO,
+                BigDecimal.ZERO,
+                new BigDecimal("100.00"),
+                "USD"
+        );
+        when(feeEngine.calculateForPaymentLinks(anyList()))
+                .thenAnswer(invocation -> Collections.nCopies(
+                        invocation.<List<FeeQuoteRequest>>getArgument(0).size(), breakdown));
+
+        // when
+        PaymentLinkPage page = service.listAll(cursor, null);
+
+        // then
+        assertThat(page.items()).extracting(PaymentLinkView::slug).containsExactly("s1");
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void listAll_shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> service.listAll("not-a-cursor", null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private PaymentLink pageLink(Long id, String slug, Merchant merchant, LocalDateTime createdAt) {
+        PaymentLink link = new PaymentLink();
+        link.setId(id);
+        link.setSlug(slug);
+        link.setMerchant(merchant);
+        link.setAmount(new BigDecimal("100.00"));
+        link.setCurrency("USD");
+        link.setStatus(PaymentLinkStatus.CREATED);
+        link.setCreatedAt(createdAt);
+        return link;
+    }
 }
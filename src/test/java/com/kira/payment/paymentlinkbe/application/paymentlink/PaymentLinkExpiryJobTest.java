@@ -0,0 +1,57 @@
+package com.kira.payment.paymentlinkbe.application.paymentlink;
+
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLinkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentLinkExpiryJobTest {
+
+    @Mock
+    private PaymentLinkRepository paymentLinkRepository;
+
+    private PaymentLinkExpiryJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new PaymentLinkExpiryJob(
+                paymentLinkRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)), 100, 5
+        );
+    }
+
+    @Test
+    void expireOverdueLinks_shouldStopAfterAPartialBatch() {
+        // given
+        when(paymentLinkRepository.expireOverdue(any(), eq(100))).thenReturn(100, 100, 40);
+
+        // when
+        job.expireOverdueLinks();
+
+        // then
+        verify(paymentLinkRepository, times(3)).expireOverdue(any(), eq(100));
+    }
+
+    @Test
+    void expireOverdueLinks_shouldStopAtMaxBatchesPerRun() {
+        // given
+        when(paymentLinkRepository.expireOverdue(any(), eq(100))).thenReturn(100);
+
+        // when
+        job.expireOverdueLinks();
+
+        // then
+        verify(paymentLinkRepository, times(5)).expireOverdue(any(), eq(100));
+    }
+}
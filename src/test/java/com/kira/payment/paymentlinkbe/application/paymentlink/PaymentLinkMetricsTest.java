@@ -0,0 +1,63 @@
+package com.kira.payment.paymentlinkbe.application.paymentlink;
+
+import com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentLinkMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void record_shouldTimeClientErrorsApartFromOtherFailures() {
+        // given
+        PaymentLinkMetrics metrics = new PaymentLinkMetrics(meterRegistry, 20);
+
+        // when
+        metrics.record(PaymentLinkMetrics.Operation.GET, () -> "view");
+        assertThatThrownBy(() -> metrics.record(PaymentLinkMetrics.Operation.GET, () -> {
+            throw new PaymentLinkNotFoundException("missing");
+        })).isInstanceOf(PaymentLinkNotFoundException.class);
+        assertThatThrownBy(() -> metrics.record(PaymentLinkMetrics.Operation.GET, () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // then
+        assertThat(operations("get", "success")).isEqualTo(1);
+        assertThat(operations("get", "rejected")).isEqualTo(1);
+        assertThat(operations("get", "error")).isEqualTo(1);
+        assertThat(operations("create", "success")).isZero();
+    }
+
+    @Test
+    void recordPayment_shouldTagAtMostMaxCurrencies_andTheRestAsOther() {
+        // given
+        PaymentLinkMetrics metrics = new PaymentLinkMetrics(meterRegistry, 2);
+
+        // when
+        metrics.recordPayment("STRIPE", PaymentStatus.CAPTURED, "usd");
+        metrics.recordPayment("STRIPE", PaymentStatus.CAPTURED, "MXN");
+        metrics.recordPayment("STRIPE", PaymentStatus.CAPTURED, "EUR");
+        metrics.recordPayment("STRIPE", PaymentStatus.CAPTURED, "USD");
+        metrics.recordPayment("STRIPE", PaymentStatus.CAPTURED, "not-a-currency");
+
+        // then
+        assertThat(payments("USD")).isEqualTo(2);
+        assertThat(payments("MXN")).isEqualTo(1);
+        assertThat(payments(PaymentLinkMetrics.OTHER_CURRENCY)).isEqualTo(2);
+        assertThat(meterRegistry.find("payment.link.payments").tag("currency", "EUR").counter()).isNull();
+    }
+
+    private double operations(String operation, String outcome) {
+        return meterRegistry.get("payment.link.operations")
+                .tags("operation", operation, "outcome", outcome).timer().count();
+    }
+
+    private double payments(String currency) {
+        return meterRegistry.get("payment.link.payments")
+                .tags("psp", "STRIPE", "status", "CAPTURED", "currency", currency).counter().count();
+    }
+}
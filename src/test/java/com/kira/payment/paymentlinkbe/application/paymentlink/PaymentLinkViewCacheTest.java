@@ -0,0 +1,95 @@
+package com.kira.payment.paymentlinkbe.application.paymentlink;
+
+import com.kira.payment.paymentlinkbe.domain.paymentlink.PaymentLinkStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentLinkViewCacheTest {
+
+    @Test
+    void get_shouldLoadOnceAndServeFromCache() {
+        // given
+        PaymentLinkViewCache cache = new PaymentLinkViewCache(new SimpleMeterRegistry(), 100, 30);
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        PaymentLinkView first = cache.get("slug1", slug -> {
+            loads.incrementAndGet();
+            return view(slug, LocalDateTime.now().plusDays(1));
+        });
+        PaymentLinkView second = cache.get("slug1", slug -> {
+            loads.incrementAndGet();
+            return view(slug, LocalDateTime.now().plusDays(1));
+        });
+
+        // then
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void get_shouldNotKeepViewsWhoseLinkAlreadyExpired() {
+        // given
+        PaymentLinkViewCache cache = new PaymentLinkViewCache(new SimpleMeterRegistry(), 100, 30);
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        cache.get("expired", slug -> {
+            loads.incrementAndGet();
+            return view(slug, LocalDateTime.now().minusMinutes(1));
+        });
+        cache.get("expired", slug -> {
+            loads.incrementAndGet();
+            return view(slug, LocalDateTime.now().minusMinutes(1));
+        });
+
+        // then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evict_shouldForceReload() {
+        // given
+        PaymentLinkViewCache cache = new PaymentLinkViewCache(new SimpleMeterRegistry(), 100, 30);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("slug2", slug -> {
+            loads.incrementAndGet();
+            return view(slug, null);
+        });
+
+        // when
+        cache.evict("slug2");
+        cache.get("slug2", slug -> {
+            loads.incrementAndGet();
+            return view(slug, null);
+        });
+
+        // then
+        assertThat(loads).hasValue(2);
+    }
+
+    private PaymentLinkView view(String slug, LocalDateTime expiresAt) {
+        return new PaymentLinkView(
+                1L,
+                "public-id",
+                slug,
+                1L,
+                null,
+                new BigDecimal("100.00"),
+                "USD",
+                "Test",
+                PaymentLinkStatus.CREATED,
+                expiresAt,
+                LocalDateTime.now(),
+                "https://checkout.test/" + slug,
+                null,
+                "STRIPE"
+        );
+    }
+}
@@ -0,0 +1,117 @@
+package com.kira.payment.paymentlinkbe.application.paymentlink;
+
+import com.kira.payment.paymentlinkbe.application.psp.PspOrchestratorService;
+import com.kira.payment.paymentlinkbe.domain.psp.PspChargeResult;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.domain.psp.RoutedPspChargeResult;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PendingPaymentRecoveryJobTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PspOrchestratorService pspOrchestratorService;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private PendingPaymentRecoveryJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new PendingPaymentRecoveryJob(
+                paymentRepository, pspOrchestratorService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), 300, 100, 10_000, clock::get
+        );
+    }
+
+    @Test
+    void reconcileStalePendingPayments_shouldFailPaymentsNoPspCharged() {
+        // given
+        when(paymentRepository.findStalePendingPaymentIds(any(), any())).thenReturn(List.of(7L));
+        when(pspOrchestratorService.findCharge("pl-payment-7")).thenReturn(Optional.empty());
+
+        // when
+        job.reconcileStalePendingPayments();
+
+        // then
+        verify(paymentRepository).failPendingPayment(eq(7L), any());
+        verify(paymentRepository, never()).parkPendingPayment(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void reconcileStalePendingPayments_shouldParkPaymentsAPspCharged() {
+        // given
+        when(paymentRepository.findStalePendingPaymentIds(any(), any())).thenReturn(List.of(8L));
+        when(pspOrchestratorService.findCharge("pl-payment-8")).thenReturn(Optional.of(new RoutedPspChargeResult(
+                PspCode.ADYEN, PspChargeResult.success("ch_adyen_8", new BigDecimal("100.00"), "USD")
+        )));
+
+        // when
+        job.reconcileStalePendingPayments();
+
+        // then
+        verify(paymentRepository).parkPendingPayment(eq(8L), eq(PspCode.ADYEN), eq("ch_adyen_8"), any());
+        verify(paymentRepository, never()).failPendingPayment(anyLong(), any());
+    }
+
+    @Test
+    void reconcileStalePendingPayments_shouldLeavePaymentPendingWhenPspCannotBeAsked() {
+        // given
+        when(paymentRepository.findStalePendingPaymentIds(any(), any())).thenReturn(List.of(9L, 10L));
+        when(pspOrchestratorService.findCharge("pl-payment-9")).thenThrow(new IllegalStateException("timeout"));
+        when(pspOrchestratorService.findCharge("pl-payment-10")).thenReturn(Optional.empty());
+
+        // when
+        job.reconcileStalePendingPayments();
+
+        // then
+        verify(paymentRepository, never()).failPendingPayment(eq(9L), any());
+        verify(paymentRepository, never()).parkPendingPayment(eq(9L), any(), any(), any());
+        verify(paymentRepository).failPendingPayment(eq(10L), any());
+    }
+
+    @Test
+    void reconcileStalePendingPayments_shouldLeaveTheRestForNextRunOnceOutOfTime() {
+        // given: every lookup takes 4 s against a 10 s run limit
+        when(paymentRepository.findStalePendingPaymentIds(any(), any())).thenReturn(List.of(11L, 12L, 13L, 14L));
+        when(pspOrchestratorService.findCharge(anyString())).thenAnswer(invocation -> {
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(4));
+            return Optional.empty();
+        });
+
+        // when
+        job.reconcileStalePendingPayments();
+
+        // then
+        verify(paymentRepository).failPendingPayment(eq(11L), any());
+        verify(paymentRepository).failPendingPayment(eq(12L), any());
+        verify(paymentRepository).failPendingPayment(eq(13L), any());
+        verify(pspOrchestratorService, never()).findCharge("pl-payment-14");
+        verify(paymentRepository, never()).failPendingPayment(eq(14L), any());
+    }
+}
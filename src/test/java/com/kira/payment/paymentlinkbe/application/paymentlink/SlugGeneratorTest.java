@@ -0,0 +1,140 @@
+package com.kira.payment.paymentlinkbe.application.paymentlink;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlugGeneratorTest {
+
+    private static final long NOW = 1_792_238_400_000L;
+
+    @Test
+    void next_shouldReturnFixedLengthBase62Slugs() {
+        // given
+        SlugGenerator generator = new SlugGenerator(7L, () -> NOW);
+
+        // when
+        String slug = generator.next();
+
+        // then
+        assertThat(slug).hasSize(SlugGenerator.SLUG_LENGTH).matches("[0-9A-Za-z]+");
+    }
+
+    @Test
+    void next_shouldNotRepeat_whenManySlugsAreNeededInTheSameMillisecond() {
+        // given: a frozen clock makes the sequence run past 4096 into borrowed milliseconds
+        SlugGenerator generator = new SlugGenerator(7L, () -> NOW);
+        Set<String> slugs = new HashSet<>();
+
+        // when
+        for (int i = 0; i < 20_000; i++) {
+            slugs.add(generator.next());
+        }
+
+        // then
+        assertThat(slugs).hasSize(20_000);
+    }
+
+    @Test
+    void next_shouldNotCollideAcrossNodesOrThreads() throws Exception {
+        // given
+        AtomicLong clock = new AtomicLong(NOW);
+        List<SlugGenerator> nodes = List.of(
+                new SlugGenerator(1L, clock::get),
+                new SlugGenerator(2L, clock::get)
+        );
+        Set<String> slugs = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // when
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            SlugGenerator node = nodes.get(t % 2);
+            tasks.add(executor.submit(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    if (i % 1_000 == 0) {
+                        clock.incrementAndGet();
+                    }
+                    slugs.add(node.next());
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+
+        // then
+        assertThat(slugs).hasSize(40_000);
+    }
+
+    @Test
+    void next_shouldKeepCounting_whenClockGoesBackwards() {
+        // given
+        AtomicLong clock = new AtomicLong(NOW);
+        SlugGenerator generator = new SlugGenerator(3L, clock::get);
+        Set<String> slugs = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            slugs.add(generator.next());
+        }
+
+        // when
+        clock.addAndGet(-5_000);
+        for (int i = 0; i < 100; i++) {
+            slugs.add(generator.next());
+        }
+
+        // then
+        assertThat(slugs).hasSize(200);
+    }
+
+    @Test
+    void mix_shouldBeInjective_onRandomIds() {
+        // given
+        SplittableRandom random = new SplittableRandom(20261017L);
+        Set<Long> mixed = new HashSet<>();
+        Set<Long> ids = new HashSet<>();
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            long id = random.nextLong();
+            if (ids.add(id)) {
+                mixed.add(SlugGenerator.mix(id));
+            }
+        }
+
+        // then
+        assertThat(mixed).hasSameSizeAs(ids);
+    }
+
+    @Test
+    void constructor_shouldRejectNodeIdsOutOfRange() {
+        assertThatThrownBy(() -> new SlugGenerator(1024L, () -> NOW))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void resolveNodeId_shouldFail_whenNodeIdIsRequiredButMissing() {
+        assertThatThrownBy(() -> SlugGenerator.resolveNodeId(-1L, true))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("PAYMENT_LINK_SLUG_NODE_ID");
+    }
+
+    @Test
+    void resolveNodeId_shouldPickRandomNodeId_whenNotRequired() {
+        assertThat(SlugGenerator.resolveNodeId(-1L, false)).isBetween(0L, 1023L);
+        assertThat(SlugGenerator.resolveNodeId(5L, true)).isEqualTo(5L);
+    }
+}
@@ -0,0 +1,91 @@
+package com.kira.payment.paymentlinkbe.application.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.Payment;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentReferenceLookupTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    private PaymentReferenceLookup lookup;
+
+    @BeforeEach
+    void setUp() {
+        lookup = new PaymentReferenceLookup(paymentRepository, new SimpleMeterRegistry(), 100, 600);
+    }
+
+    @Test
+    void find_shouldLoadRememberedReferenceByPrimaryKey() {
+        // given
+        Payment payment = payment(7L, PspCode.STRIPE, "ch_1");
+        lookup.remember(PspCode.STRIPE, "ch_1", 7L);
+        when(paymentRepository.findById(7L)).thenReturn(Optional.of(payment));
+
+        // when
+        Optional<Payment> found = lookup.find(PspCode.STRIPE, "ch_1");
+
+        // then
+        assertThat(found).contains(payment);
+        verify(paymentRepository, never()).findByPspCodeAndPspReference(any(), any());
+    }
+
+    @Test
+    void find_shouldFallBackToIndexedQueryWhenCachedPaymentDoesNotMatch() {
+        // given
+        Payment other = payment(7L, PspCode.STRIPE, "ch_other");
+        Payment payment = payment(8L, PspCode.STRIPE, "ch_1");
+        lookup.remember(PspCode.STRIPE, "ch_1", 7L);
+        when(paymentRepository.findById(7L)).thenReturn(Optional.of(other));
+        when(paymentRepository.findByPspCodeAndPspReference(PspCode.STRIPE, "ch_1"))
+                .thenReturn(Optional.of(payment));
+
+        // when
+        Optional<Payment> found = lookup.find(PspCode.STRIPE, "ch_1");
+
+        // then
+        assertThat(found).contains(payment);
+    }
+
+    @Test
+    void findAll_shouldQueryOnlyReferencesMissingFromCache() {
+        // given
+        Payment cached = payment(1L, PspCode.ADYEN, "ady_1");
+        Payment loaded = payment(2L, PspCode.ADYEN, "ady_2");
+        lookup.remember(PspCode.ADYEN, "ady_1", 1L);
+        when(paymentRepository.findAllById(Set.of(1L))).thenReturn(List.of(cached));
+        when(paymentRepository.findByPspCodeAndPspReferenceIn(PspCode.ADYEN, List.of("ady_2", "ady_3")))
+                .thenReturn(List.of(loaded));
+
+        // when
+        Map<String, Payment> found = lookup.findAll(PspCode.ADYEN, List.of("ady_1", "ady_2", "ady_3"));
+
+        // then
+        assertThat(found).containsOnly(Map.entry("ady_1", cached), Map.entry("ady_2", loaded));
+    }
+
+    private static Payment payment(Long id, PspCode pspCode, String pspReference) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setPspCode(pspCode);
+        payment.setPspReference(pspReference);
+        return payment;
+    }
+}
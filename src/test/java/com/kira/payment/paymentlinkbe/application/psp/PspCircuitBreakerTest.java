@@ -0,0 +1,174 @@
+package com.kira.payment.paymentlinkbe.application.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PspCircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> transitions = new ArrayList<>();
+    private PspCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        PspCircuitBreaker.Settings settings = new PspCircuitBreaker.Settings(
+                10, 4, 50, 75, Duration.ofMillis(100), Duration.ofSeconds(30), 2
+        );
+        breaker = new PspCircuitBreaker(
+                PspCode.STRIPE,
+                settings,
+                (code, from, to) -> transitions.add(from + "->" + to),
+                clock::get
+        );
+    }
+
+    @Test
+    void shouldStayClosedBelowMinimumCalls() {
+        // when
+        breaker.onFailure(breaker.tryAcquirePermission(), 0);
+        breaker.onFailure(breaker.tryAcquirePermission(), 0);
+        breaker.onFailure(breaker.tryAcquirePermission(), 0);
+
+        // then
+        assertThat(breaker.state()).isEqualTo(PspCircuitBreaker.State.CLOSED);
+        assertThat(breaker.failureRate()).isEqualTo(-1f);
+        assertThat(breaker.tryAcquirePermission()).isNotNull();
+    }
+
+    @Test
+    void shouldOpenOnFailureRateAndRejectUntilOpenDurationElapses() {
+        // when
+        breaker.onSuccess(breaker.tryAcquirePermission(), 0);
+        breaker.onSuccess(breaker.tryAcquirePermission(), 0);
+        breaker.onFailure(breaker.tryAcquirePermission(), 0);
+        breaker.onFailure(breaker.tryAcquirePermission(), 0);
+
+        // then
+        assertThat(breaker.state()).isEqualTo(PspCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isNull();
+        assertThat(breaker.healthScore()).isZero();
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertThat(breaker.tryAcquirePermission()).isNotNull();
+        assertThat(breaker.tryAcquirePermission()).isNotNull();
+        assertThat(breaker.tryAcquirePermission()).isNull();
+        assertThat(breaker.state()).isEqualTo(PspCircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void shouldOpenOnSlowCallRateEvenWhenCallsSucceed() {
+        // when
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(breaker.tryAcquirePermission(), Duration.ofMillis(250).toNanos());
+        }
+
+        // then
+        assertThat(breaker.state()).isEqualTo(PspCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void shouldCloseAfterHealthyProbesAndReopenAfterFailedProbes() {
+        // given
+        openBreaker();
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        // when - healthy probes
+        PspCircuitBreaker.Permit first = breaker.tryAcquirePermission();
+        PspCircuitBreaker.Permit second = breaker.tryAcquirePermission();
+        breaker.onSuccess(first, 0);
+        breaker.onSuccess(second, 0);
+
+        // then
+        assertThat(breaker.state()).isEqualTo(PspCircuitBreaker.State.CLOSED);
+        assertThat(breaker.bufferedCalls()).isZero();
+
+        // when - reopen and fail the probes
+        openBreaker();
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        first = breaker.tryAcquirePermission();
+        second = breaker.tryAcquirePermission();
+        breaker.onFailure(first, 0);
+        breaker.onSuccess(second, 0);
+
+        // then
+        assertThat(breaker.state()).isEqualTo(PspCircuitBreaker.State.OPEN);
+        assertThat(transitions).containsExactly(
+                "CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED",
+                "CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN"
+        );
+    }
+
+    @Test
+    void shouldSlideWindowSoOldFailuresAgeOut() {
+        // given
+        PspCircuitBreaker tolerant = new PspCircuitBreaker(
+                PspCode.ADYEN,
+                new PspCircuitBreaker.Settings(4, 4, 75, 100, Duration.ofSeconds(1), Duration.ofSeconds(30), 1),
+                (code, from, to) -> { },
+                clock::get
+        );
+        tolerant.onFailure(tolerant.tryAcquirePermission(), 0);
+        tolerant.onFailure(tolerant.tryAcquirePermission(), 0);
+        tolerant.onSuccess(tolerant.tryAcquirePermission(), 0);
+        tolerant.onSuccess(tolerant.tryAcquirePermission(), 0);
+
+        // when
+        tolerant.onSuccess(tolerant.tryAcquirePermission(), 0);
+        tolerant.onSuccess(tolerant.tryAcquirePermission(), 0);
+
+        // then
+        assertThat(tolerant.failureRate()).isZero();
+        assertThat(tolerant.state()).isEqualTo(PspCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldReuseReleasedProbeSlots() {
+        // given
+        openBreaker();
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        PspCircuitBreaker.Permit unused = breaker.tryAcquirePermission();
+        PspCircuitBreaker.Permit probe = breaker.tryAcquirePermission();
+        assertThat(breaker.tryAcquirePermission()).isNull();
+
+        // when
+        breaker.release(unused);
+        PspCircuitBreaker.Permit reissued = breaker.tryAcquirePermission();
+        breaker.onSuccess(probe, 0);
+        breaker.onSuccess(reissued, 0);
+
+        // then
+        assertThat(reissued).isNotNull();
+        assertThat(breaker.state()).isEqualTo(PspCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldIgnoreOutcomesOfCallsPermittedBeforeATransition() {
+        // given
+        PspCircuitBreaker.Permit beforeOpening = breaker.tryAcquirePermission();
+        openBreaker();
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        PspCircuitBreaker.Permit probe = breaker.tryAcquirePermission();
+
+        // when
+        breaker.onSuccess(beforeOpening, 0);
+        breaker.onSuccess(probe, 0);
+
+        // then
+        assertThat(breaker.state()).isEqualTo(PspCircuitBreaker.State.HALF_OPEN);
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(breaker.tryAcquirePermission(), 0);
+        }
+        assertThat(breaker.state()).isEqualTo(PspCircuitBreaker.State.OPEN);
+    }
+}
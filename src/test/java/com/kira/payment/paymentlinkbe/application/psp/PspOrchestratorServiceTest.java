@@ -1,11 +1,19 @@
 package com.kira.payment.paymentlinkbe.application.psp;
 
 import com.kira.payment.paymentlinkbe.domain.psp.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -14,7 +22,7 @@ import static org.mockito.Mockito.*;
 class PspOrchestratorServiceTest {
 
     @Test
-    void processPayment_shouldUsePrimaryPspWhenSuccess() {
+    void processRoutedPayment_shouldUsePrimaryPspWhenSuccess() {
         // given
         PspClient stripe = mock(PspClient.class);
         PspClient adyen  = mock(PspClient.class);
@@ -35,14 +43,15 @@ class PspOrchestratorServiceTest {
         clients.put("stripeClient", stripe);
         clients.put("adyenClient", adyen);
 
-        PspOrchestratorService orchestrator = new PspOrchestratorService(clients);
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), false);
 
         // when
-        RoutedPspChargeResult routed = orchestrator.processPayment(
+        RoutedPspChargeResult routed = orchestrator.processRoutedPayment(
                 "token",
                 new BigDecimal("100.00"),
                 "USD",
-                null // sin hint → STRIPE primario
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null),
+                null
         );
 
         // then
@@ -54,7 +63,7 @@ class PspOrchestratorServiceTest {
     }
 
     @Test
-    void processPayment_shouldFailoverToSecondaryWhenPrimaryThrowsException() {
+    void processRoutedPayment_shouldFailoverToSecondaryWhenPrimaryThrowsWithoutCharging() {
         // given
         PspClient stripe = mock(PspClient.class);
         PspClient adyen  = mock(PspClient.class);
@@ -64,6 +73,7 @@ class PspOrchestratorServiceTest {
 
         when(stripe.charge(any(PspChargeRequest.class)))
                 .thenThrow(new RuntimeException("Stripe down"));
+        when(stripe.findCharge("pl-payment-1-stripe")).thenReturn(Optional.empty());
 
         PspChargeResult adyenResult = PspChargeResult.success(
                 "ch_adyen_123",
@@ -78,14 +88,15 @@ class PspOrchestratorServiceTest {
         clients.put("stripeClient", stripe);
         clients.put("adyenClient", adyen);
 
-        PspOrchestratorService orchestrator = new PspOrchestratorService(clients);
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), false);
 
         // when
-        RoutedPspChargeResult routed = orchestrator.processPayment(
+        RoutedPspChargeResult routed = orchestrator.processRoutedPayment(
                 "token",
                 new BigDecimal("100.00"),
                 "USD",
-                null
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null),
+                "pl-payment-1"
         );
 
         // then
@@ -93,11 +104,76 @@ class PspOrchestratorServiceTest {
         assertThat(routed.result()).isSameAs(adyenResult);
 
         verify(stripe, times(1)).charge(any(PspChargeRequest.class));
+        verify(stripe, times(1)).findCharge("pl-payment-1-stripe");
         verify(adyen, times(1)).charge(any(PspChargeRequest.class));
     }
 
     @Test
-    void processPayment_shouldFailoverToSecondaryWhenPrimaryReturnsFailed() {
+    void processRoutedPayment_shouldReturnPrimaryChargeThatLandedDespiteAnError() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        when(stripe.charge(any(PspChargeRequest.class)))
+                .thenThrow(new RuntimeException("connection reset"));
+        PspChargeResult landed = PspChargeResult.success("ch_stripe_123", new BigDecimal("100.00"), "USD");
+        when(stripe.findCharge("pl-payment-1-stripe")).thenReturn(Optional.of(landed));
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), false);
+
+        // when
+        RoutedPspChargeResult routed = orchestrator.processRoutedPayment(
+                "token",
+                new BigDecimal("100.00"),
+                "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null),
+                "pl-payment-1"
+        );
+
+        // then
+        assertThat(routed.pspCode()).isEqualTo(PspCode.STRIPE);
+        assertThat(routed.result()).isSameAs(landed);
+        verify(adyen, never()).charge(any(PspChargeRequest.class));
+    }
+
+    @Test
+    void processRoutedPayment_shouldNotFailoverWhenPrimaryErrorCannotBeChecked() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        when(stripe.charge(any(PspChargeRequest.class)))
+                .thenThrow(new RuntimeException("connection reset"));
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), false);
+
+        // when / then
+        assertThatThrownBy(() -> orchestrator.processRoutedPayment(
+                "token",
+                new BigDecimal("100.00"),
+                "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null),
+                null
+        )).isInstanceOf(PspOutcomeUnknownException.class);
+        verify(adyen, never()).charge(any(PspChargeRequest.class));
+    }
+
+    @Test
+    void processRoutedPayment_shouldFailoverToSecondaryWhenPrimaryReturnsFailed() {
         // given
         PspClient stripe = mock(PspClient.class);
         PspClient adyen  = mock(PspClient.class);
@@ -127,13 +203,14 @@ class PspOrchestratorServiceTest {
         clients.put("stripeClient", stripe);
         clients.put("adyenClient", adyen);
 
-        PspOrchestratorService orchestrator = new PspOrchestratorService(clients);
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), false);
 
         // when
-        RoutedPspChargeResult routed = orchestrator.processPayment(
+        RoutedPspChargeResult routed = orchestrator.processRoutedPayment(
                 "token",
                 new BigDecimal("100.00"),
                 "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null),
                 null
         );
 
@@ -146,7 +223,7 @@ class PspOrchestratorServiceTest {
     }
 
     @Test
-    void processPayment_shouldThrowWhenBothPspsReturnFailed() {
+    void processRoutedPayment_shouldThrowWhenBothPspsReturnFailed() {
         // given
         PspClient stripe = mock(PspClient.class);
         PspClient adyen  = mock(PspClient.class);
@@ -174,13 +251,14 @@ class PspOrchestratorServiceTest {
         clients.put("stripeClient", stripe);
         clients.put("adyenClient", adyen);
 
-        PspOrchestratorService orchestrator = new PspOrchestratorService(clients);
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), false);
 
         // expect
-        assertThatThrownBy(() -> orchestrator.processPayment(
+        assertThatThrownBy(() -> orchestrator.processRoutedPayment(
                 "token",
                 new BigDecimal("100.00"),
                 "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null),
                 null
         )).isInstanceOf(PspRoutingException.class);
 
@@ -189,7 +267,7 @@ class PspOrchestratorServiceTest {
     }
 
     @Test
-    void processPayment_shouldRespectPspHintAndUseAdyenAsPrimary() {
+    void processRoutedPayment_shouldChargeTheRoutePrimaryFirst() {
         // given
         PspClient stripe = mock(PspClient.class);
         PspClient adyen  = mock(PspClient.class);
@@ -209,14 +287,15 @@ class PspOrchestratorServiceTest {
         clients.put("stripeClient", stripe);
         clients.put("adyenClient", adyen);
 
-        PspOrchestratorService orchestrator = new PspOrchestratorService(clients);
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), false);
 
-        // when - hint ADYEN → primario ADYEN
-        RoutedPspChargeResult routed = orchestrator.processPayment(
+        // when - ruta con ADYEN como primario
+        RoutedPspChargeResult routed = orchestrator.processRoutedPayment(
                 "token",
                 new BigDecimal("100.00"),
                 "USD",
-                "ADYEN"
+                new PspRoute(PspCode.ADYEN, PspCode.STRIPE, null),
+                null
         );
 
         // then
@@ -227,4 +306,594 @@ class PspOrchestratorServiceTest {
         verify(adyen, times(1)).charge(any(PspChargeRequest.class));
         verify(stripe, never()).charge(any(PspChargeRequest.class));
     }
+
+    @Test
+    void processRoutedPayment_shouldNotFailoverWhenRouteHasNoSecondary() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        when(adyen.charge(any(PspChargeRequest.class)))
+                .thenReturn(PspChargeResult.failure("ch_adyen_failed", "ERR_ADYEN", "Adyen failure"));
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), false);
+
+        // expect
+        assertThatThrownBy(() -> orchestrator.processRoutedPayment(
+                "token",
+                new BigDecimal("100.00"),
+                "USD",
+                new PspRoute(PspCode.ADYEN, null, null),
+                null
+        )).isInstanceOf(PspRoutingException.class);
+
+        verify(adyen, times(1)).charge(any(PspChargeRequest.class));
+        verify(stripe, never()).charge(any(PspChargeRequest.class));
+    }
+
+    @Test
+    void processRoutedPayment_shouldSkipPrimaryWhenCircuitBreakerIsOpen() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        PspChargeResult adyenResult = PspChargeResult.success(
+                "ch_adyen_123",
+                new BigDecimal("100.00"),
+                "USD"
+        );
+        when(adyen.charge(any(PspChargeRequest.class)))
+                .thenReturn(adyenResult);
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        PspCircuitBreakerRegistry breakers = circuitBreakers();
+        for (int i = 0; i < 4; i++) {
+            PspCircuitBreaker stripeBreaker = breakers.get(PspCode.STRIPE);
+            stripeBreaker.onFailure(stripeBreaker.tryAcquirePermission(), 0);
+        }
+        PspOrchestratorService orchestrator = orchestrator(clients, breakers, false);
+
+        // when
+        RoutedPspChargeResult routed = orchestrator.processRoutedPayment(
+                "token",
+                new BigDecimal("100.00"),
+                "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null),
+                null
+        );
+
+        // then
+        assertThat(breakers.get(PspCode.STRIPE).state()).isEqualTo(PspCircuitBreaker.State.OPEN);
+        assertThat(routed.pspCode()).isEqualTo(PspCode.ADYEN);
+        verify(stripe, never()).charge(any(PspChargeRequest.class));
+    }
+
+    @Test
+    void processRoutedPayment_shouldCountDeclinesAsHealthyAnswersAndErrorsAsFailures() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        when(stripe.charge(any(PspChargeRequest.class)))
+                .thenReturn(PspChargeResult.failure("ch_stripe_declined", "card_declined", "Card declined"));
+        when(adyen.charge(any(PspChargeRequest.class)))
+                .thenThrow(new RuntimeException("Adyen 503"));
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        PspCircuitBreakerRegistry breakers = circuitBreakers();
+        PspOrchestratorService orchestrator = orchestrator(clients, breakers, false);
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            String paymentReference = "pl-payment-" + i;
+            assertThatThrownBy(() -> orchestrator.processRoutedPayment(
+                    "token",
+                    new BigDecimal("100.00"),
+                    "USD",
+                    new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null),
+                    paymentReference
+            )).isInstanceOf(PspRoutingException.class);
+        }
+
+        // then
+        assertThat(breakers.get(PspCode.STRIPE).state()).isEqualTo(PspCircuitBreaker.State.CLOSED);
+        assertThat(breakers.get(PspCode.STRIPE).failureRate()).isZero();
+        assertThat(breakers.get(PspCode.ADYEN).state()).isEqualTo(PspCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void processRoutedPayment_shouldNotRecordCallsRejectedByTheLocalPool() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+
+        PspCallExecutor callExecutor = mock(PspCallExecutor.class);
+        when(callExecutor.defaultAttemptTimeout()).thenReturn(Duration.ofSeconds(1));
+        when(callExecutor.totalBudget()).thenReturn(Duration.ofSeconds(2));
+        when(callExecutor.charge(eq(stripe), any(PspChargeRequest.class), any(Duration.class)))
+                .thenThrow(new IllegalStateException("PSP call pool saturated",
+                        new RejectedExecutionException("full")));
+
+        PspCircuitBreakerRegistry breakers = circuitBreakers();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PspLatencyTracker latencyTracker = new PspLatencyTracker(64, 10);
+        PspOrchestratorService orchestrator = new PspOrchestratorService(
+                Map.of("stripeClient", stripe),
+                breakers,
+                callExecutor,
+                latencyTracker,
+                new PspHedgingPolicy(latencyTracker, meterRegistry, false, new BigDecimal("1000"), 50, 100),
+                meterRegistry
+        );
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> orchestrator.processRoutedPayment(
+                    "token",
+                    new BigDecimal("100.00"),
+                    "USD",
+                    new PspRoute(PspCode.STRIPE, null, null),
+                    null
+            )).isInstanceOf(PspRoutingException.class);
+        }
+
+        // then
+        assertThat(breakers.get(PspCode.STRIPE).bufferedCalls()).isZero();
+        assertThat(breakers.get(PspCode.STRIPE).state()).isEqualTo(PspCircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.get("psp.charge.attempts")
+                .tags("psp", "STRIPE", "outcome", "rejected").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    void processRoutedPayment_shouldGiveBackHalfOpenProbeSlotsOfCallsThatNeverRan() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+
+        PspCallExecutor callExecutor = mock(PspCallExecutor.class);
+        when(callExecutor.defaultAttemptTimeout()).thenReturn(Duration.ofSeconds(1));
+        when(callExecutor.totalBudget()).thenReturn(Duration.ofSeconds(2));
+        when(callExecutor.charge(eq(stripe), any(PspChargeRequest.class), any(Duration.class)))
+                .thenThrow(new IllegalStateException("PSP call pool saturated",
+                        new RejectedExecutionException("full")));
+
+        PspCircuitBreakerRegistry breakers = new PspCircuitBreakerRegistry(new SimpleMeterRegistry(),
+                new PspCircuitBreaker.Settings(10, 4, 50, 100, Duration.ofSeconds(5), Duration.ZERO, 2));
+        PspCircuitBreaker stripeBreaker = breakers.get(PspCode.STRIPE);
+        for (int i = 0; i < 4; i++) {
+            stripeBreaker.onFailure(stripeBreaker.tryAcquirePermission(), 0);
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PspLatencyTracker latencyTracker = new PspLatencyTracker(64, 10);
+        PspOrchestratorService orchestrator = new PspOrchestratorService(
+                Map.of("stripeClient", stripe),
+                breakers,
+                callExecutor,
+                latencyTracker,
+                new PspHedgingPolicy(latencyTracker, meterRegistry, false, new BigDecimal("1000"), 50, 100),
+                meterRegistry
+        );
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> orchestrator.processRoutedPayment(
+                    "token",
+                    new BigDecimal("100.00"),
+                    "USD",
+                    new PspRoute(PspCode.STRIPE, null, null),
+                    null
+            )).isInstanceOf(PspRoutingException.class);
+        }
+
+        // then
+        verify(callExecutor, times(3)).charge(eq(stripe), any(PspChargeRequest.class), any(Duration.class));
+        assertThat(stripeBreaker.state()).isEqualTo(PspCircuitBreaker.State.HALF_OPEN);
+        assertThat(stripeBreaker.tryAcquirePermission()).isNotNull();
+        assertThat(stripeBreaker.tryAcquirePermission()).isNotNull();
+    }
+
+    @Test
+    void processRoutedPayment_shouldFailoverWhenPrimaryExceedsRouteTimeout() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        when(stripe.charge(any(PspChargeRequest.class)))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(5_000);
+                    return PspChargeResult.success("ch_stripe_late", new BigDecimal("100.00"), "USD");
+                });
+        when(stripe.findCharge("pl-payment-1-stripe")).thenReturn(Optional.of(
+                PspChargeResult.failure("ch_stripe_declined", "card_declined", "Declined")
+        ));
+        PspChargeResult adyenResult = PspChargeResult.success(
+                "ch_adyen_123",
+                new BigDecimal("100.00"),
+                "USD"
+        );
+        when(adyen.charge(any(PspChargeRequest.class)))
+                .thenReturn(adyenResult);
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), false);
+
+        // when
+        long start = System.nanoTime();
+        RoutedPspChargeResult routed = orchestrator.processRoutedPayment(
+                "token",
+                new BigDecimal("100.00"),
+                "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, 100),
+                "pl-payment-1"
+        );
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        // then
+        assertThat(routed.pspCode()).isEqualTo(PspCode.ADYEN);
+        assertThat(routed.result()).isSameAs(adyenResult);
+        assertThat(elapsedMs).isLessThan(2_000);
+    }
+
+    @Test
+    void processRoutedPayment_shouldNotFailoverWhenTimedOutPrimaryMayStillCharge() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        when(stripe.charge(any(PspChargeRequest.class)))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(5_000);
+                    return PspChargeResult.success("ch_stripe_late", new BigDecimal("100.00"), "USD");
+                });
+        when(stripe.findCharge("pl-payment-1-stripe")).thenReturn(Optional.empty());
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), false);
+
+        // when / then
+        assertThatThrownBy(() -> orchestrator.processRoutedPayment(
+                "token",
+                new BigDecimal("100.00"),
+                "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, 100),
+                "pl-payment-1"
+        )).isInstanceOf(PspOutcomeUnknownException.class);
+        verify(adyen, never()).charge(any(PspChargeRequest.class));
+    }
+
+    @Test
+    void processRoutedPayment_shouldHedgeToSecondaryAndVoidLosingPrimaryCharge() throws Exception {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        CountDownLatch stripeReleased = new CountDownLatch(1);
+        when(stripe.charge(any(PspChargeRequest.class)))
+                .thenAnswer(invocation -> {
+                    stripeReleased.await(2, TimeUnit.SECONDS);
+                    return PspChargeResult.success("ch_stripe_slow", new BigDecimal("5000.00"), "USD");
+                });
+        when(stripe.voidCharge("ch_stripe_slow"))
+                .thenReturn(PspChargeResult.voided("ch_stripe_slow"));
+        PspChargeResult adyenResult = PspChargeResult.success(
+                "ch_adyen_fast",
+                new BigDecimal("5000.00"),
+                "USD"
+        );
+        when(adyen.charge(any(PspChargeRequest.class)))
+                .thenReturn(adyenResult);
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), true);
+
+        // when
+        RoutedPspChargeResult routed = orchestrator.processRoutedPayment(
+                "token",
+                new BigDecimal("5000.00"),
+                "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null),
+                "pl-payment-42"
+        );
+        stripeReleased.countDown();
+
+        // then
+        assertThat(routed.pspCode()).isEqualTo(PspCode.ADYEN);
+        assertThat(routed.result()).isSameAs(adyenResult);
+        verify(stripe, timeout(2_000)).voidCharge("ch_stripe_slow");
+
+        ArgumentCaptor<PspChargeRequest> stripeRequest = ArgumentCaptor.forClass(PspChargeRequest.class);
+        ArgumentCaptor<PspChargeRequest> adyenRequest = ArgumentCaptor.forClass(PspChargeRequest.class);
+        verify(stripe).charge(stripeRequest.capture());
+        verify(adyen).charge(adyenRequest.capture());
+        assertThat(stripeRequest.getValue().idempotencyKey()).isEqualTo("pl-payment-42-stripe");
+        assertThat(adyenRequest.getValue().idempotencyKey()).isEqualTo("pl-payment-42-adyen");
+    }
+
+    @Test
+    void processRoutedPayment_shouldCheckPrimaryThatFailedJustAsTheHedgeFired() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        CountDownLatch hedgeFired = new CountDownLatch(1);
+        when(stripe.charge(any(PspChargeRequest.class)))
+                .thenAnswer(invocation -> {
+                    hedgeFired.await(2, TimeUnit.SECONDS);
+                    throw new RuntimeException("connection reset");
+                });
+        PspChargeResult landed = PspChargeResult.success("ch_stripe_landed", new BigDecimal("5000.00"), "USD");
+        when(stripe.findCharge("pl-payment-43-stripe")).thenReturn(Optional.of(landed));
+
+        // the primary fails after the hedge timer fired but before the secondary is started
+        PspCircuitBreakerRegistry breakers = spy(circuitBreakers());
+        AtomicBoolean first = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            if (first.getAndSet(false)) {
+                hedgeFired.countDown();
+                Thread.sleep(300);
+            }
+            return invocation.callRealMethod();
+        }).when(breakers).get(PspCode.ADYEN);
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        PspOrchestratorService orchestrator = orchestrator(clients, breakers, true);
+
+        // when
+        RoutedPspChargeResult routed = orchestrator.processRoutedPayment(
+                "token",
+                new BigDecimal("5000.00"),
+                "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null),
+                "pl-payment-43"
+        );
+
+        // then
+        assertThat(routed.pspCode()).isEqualTo(PspCode.STRIPE);
+        assertThat(routed.result()).isSameAs(landed);
+        verify(adyen, never()).charge(any(PspChargeRequest.class));
+    }
+
+    @Test
+    void processRoutedPayment_shouldKeepOutcomeUnknownWhenHedgedPrimaryTimesOutWithoutSecondary() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        CountDownLatch stripeReleased = new CountDownLatch(1);
+        when(stripe.charge(any(PspChargeRequest.class)))
+                .thenAnswer(invocation -> {
+                    stripeReleased.await(2, TimeUnit.SECONDS);
+                    return PspChargeResult.success("ch_stripe_late", new BigDecimal("5000.00"), "USD");
+                });
+        when(stripe.findCharge("pl-payment-44-stripe")).thenReturn(Optional.empty());
+
+        PspCircuitBreakerRegistry breakers = circuitBreakers();
+        PspCircuitBreaker adyenBreaker = breakers.get(PspCode.ADYEN);
+        for (int i = 0; i < 4; i++) {
+            adyenBreaker.onFailure(adyenBreaker.tryAcquirePermission(), 0);
+        }
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        PspOrchestratorService orchestrator = orchestrator(clients, breakers, true);
+
+        // when / then
+        assertThatThrownBy(() -> orchestrator.processRoutedPayment(
+                "token",
+                new BigDecimal("5000.00"),
+                "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, 200),
+                "pl-payment-44"
+        )).isInstanceOf(PspOutcomeUnknownException.class);
+        stripeReleased.countDown();
+        verify(stripe).findCharge("pl-payment-44-stripe");
+        verify(adyen, never()).charge(any(PspChargeRequest.class));
+    }
+
+    @Test
+    void processRoutedPayment_shouldTimeOutAndInterruptAHangingHedgedAttempt() throws Exception {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        CountDownLatch stripeInterrupted = new CountDownLatch(1);
+        when(stripe.charge(any(PspChargeRequest.class)))
+                .thenAnswer(invocation -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        stripeInterrupted.countDown();
+                        throw e;
+                    }
+                    return PspChargeResult.success("ch_stripe_hung", new BigDecimal("5000.00"), "USD");
+                });
+        PspChargeResult adyenResult = PspChargeResult.success("ch_adyen_fast", new BigDecimal("5000.00"), "USD");
+        when(adyen.charge(any(PspChargeRequest.class))).thenReturn(adyenResult);
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PspCircuitBreakerRegistry breakers = circuitBreakers();
+        PspOrchestratorService orchestrator = orchestrator(clients, breakers, true, meterRegistry);
+
+        // when
+        RoutedPspChargeResult routed = orchestrator.processRoutedPayment(
+                "token",
+                new BigDecimal("5000.00"),
+                "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, 300),
+                "pl-payment-45"
+        );
+
+        // then
+        assertThat(routed.result()).isSameAs(adyenResult);
+        assertThat(stripeInterrupted.await(2, TimeUnit.SECONDS)).isTrue();
+        verify(stripe, never()).voidCharge(anyString());
+        assertThat(meterRegistry.get("psp.charge.calls")
+                .tags("psp", "STRIPE", "outcome", "timeout").counter().count()).isEqualTo(1);
+        assertThat(breakers.get(PspCode.STRIPE).bufferedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void processRoutedPayment_shouldTimeEachAttemptAndCountTheFailover() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen  = mock(PspClient.class);
+
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+        when(stripe.charge(any(PspChargeRequest.class)))
+                .thenReturn(PspChargeResult.failure("ch_stripe_1", "card_declined", "Card declined"));
+        when(adyen.charge(any(PspChargeRequest.class)))
+                .thenReturn(PspChargeResult.success("ch_adyen_123", new BigDecimal("100.00"), "USD"));
+
+        Map<String, PspClient> clients = new HashMap<>();
+        clients.put("stripeClient", stripe);
+        clients.put("adyenClient", adyen);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PspOrchestratorService orchestrator = orchestrator(clients, circuitBreakers(), false, meterRegistry);
+
+        // when
+        orchestrator.processRoutedPayment(
+                "token",
+                new BigDecimal("100.00"),
+                "USD",
+                new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null),
+                null
+        );
+
+        // then
+        assertThat(meterRegistry.get("psp.charge.attempts")
+                .tags("psp", "STRIPE", "outcome", "failed").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("psp.charge.attempts")
+                .tags("psp", "ADYEN", "outcome", "succeeded").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("psp.failovers")
+                .tags("from", "STRIPE", "to", "ADYEN").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("psp.failovers")
+                .tags("from", "ADYEN", "to", "STRIPE").counter().count()).isZero();
+    }
+
+    @Test
+    void findCharge_shouldAskEveryPspWithItsIdempotencyKey() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen = mock(PspClient.class);
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+
+        PspChargeResult adyenCharge = PspChargeResult.success("ch_adyen_9", new BigDecimal("100.00"), "USD");
+        when(stripe.findCharge("pl-payment-9-stripe"))
+                .thenReturn(Optional.of(PspChargeResult.failure("ch_stripe_9", "DECLINED", "Declined")));
+        when(adyen.findCharge("pl-payment-9-adyen")).thenReturn(Optional.of(adyenCharge));
+
+        PspOrchestratorService orchestrator = orchestrator(
+                Map.of("stripeClient", stripe, "adyenClient", adyen), circuitBreakers(), false
+        );
+
+        // when
+        Optional<RoutedPspChargeResult> found = orchestrator.findCharge("pl-payment-9");
+
+        // then
+        assertThat(found).contains(new RoutedPspChargeResult(PspCode.ADYEN, adyenCharge));
+        verify(stripe).findCharge("pl-payment-9-stripe");
+    }
+
+    @Test
+    void findCharge_shouldBeEmptyWhenNoPspHoldsACharge() {
+        // given
+        PspClient stripe = mock(PspClient.class);
+        PspClient adyen = mock(PspClient.class);
+        when(stripe.getCode()).thenReturn(PspCode.STRIPE);
+        when(adyen.getCode()).thenReturn(PspCode.ADYEN);
+        when(stripe.findCharge(anyString())).thenReturn(Optional.empty());
+        when(adyen.findCharge(anyString())).thenReturn(Optional.empty());
+
+        PspOrchestratorService orchestrator = orchestrator(
+                Map.of("stripeClient", stripe, "adyenClient", adyen), circuitBreakers(), false
+        );
+
+        // when / then
+        assertThat(orchestrator.findCharge("pl-payment-10")).isEmpty();
+    }
+
+    private static PspOrchestratorService orchestrator(Map<String, PspClient> clients,
+                                                       PspCircuitBreakerRegistry breakers,
+                                                       boolean hedging) {
+        return orchestrator(clients, breakers, hedging, new SimpleMeterRegistry());
+    }
+
+    private static PspOrchestratorService orchestrator(Map<String, PspClient> clients,
+                                                       PspCircuitBreakerRegistry breakers,
+                                                       boolean hedging,
+                                                       SimpleMeterRegistry meterRegistry) {
+        PspLatencyTracker latencyTracker = new PspLatencyTracker(64, 10);
+        return new PspOrchestratorService(
+                clients,
+                breakers,
+                new PspCallExecutor(meterRegistry, 4, 8, 1_000, 2_000),
+                latencyTracker,
+                new PspHedgingPolicy(latencyTracker, meterRegistry, hedging, new BigDecimal("1000"), 50, 100),
+                meterRegistry
+        );
+    }
+
+    private static PspCircuitBreakerRegistry circuitBreakers() {
+        return new PspCircuitBreakerRegistry(new SimpleMeterRegistry(), new PspCircuitBreaker.Settings(
+                10, 4, 50, 100, Duration.ofSeconds(5), Duration.ofSeconds(30), 2
+        ));
+    }
 }
@@ -0,0 +1,99 @@
+package com.kira.payment.paymentlinkbe.application.psp;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.domain.psp.PspRoute;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merchant;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.psp.Psp;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.psp.PspRoutingRule;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.psp.PspRoutingRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class PspRoutingTableTest {
+
+    private PspRoutingRuleRepository repository;
+    private PspRoutingTable routingTable;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(PspRoutingRuleRepository.class);
+        routingTable = new PspRoutingTable(repository, "STRIPE");
+    }
+
+    @Test
+    void resolve_shouldFallBackToDefaultRouteWhenNoRuleMatches() {
+        // when
+        PspRoute route = routingTable.resolve(1L, "USD", "CO", "VISA");
+
+        // then
+        assertThat(route).isEqualTo(new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void resolve_shouldPreferMostSpecificRuleAndTreatNullsAsWildcards() {
+        // given
+        when(repository.findAllEnabledWithPsps()).thenReturn(List.of(
+                rule(1L, 1L, "USD", null, null, PspCode.STRIPE, PspCode.ADYEN, null),
+                rule(2L, 1L, "USD", "MX", null, PspCode.ADYEN, PspCode.STRIPE, 1500),
+                rule(3L, 1L, "USD", "MX", "AMEX", PspCode.ADYEN, null, 800)
+        ));
+
+        // when
+        routingTable.refresh();
+
+        // then
+        assertThat(routingTable.resolve(1L, "usd", "mx", "amex"))
+                .isEqualTo(new PspRoute(PspCode.ADYEN, null, 800));
+        assertThat(routingTable.resolve(1L, "USD", "MX", "VISA"))
+                .isEqualTo(new PspRoute(PspCode.ADYEN, PspCode.STRIPE, 1500));
+        assertThat(routingTable.resolve(1L, "USD", "CO", null))
+                .isEqualTo(new PspRoute(PspCode.STRIPE, PspCode.ADYEN, null));
+        assertThat(routingTable.hasCountryRules(1L)).isTrue();
+        assertThat(routingTable.hasCountryRules(2L)).isFalse();
+    }
+
+    @Test
+    void refresh_shouldKeepPreviousTableWhenReloadFails() {
+        // given
+        when(repository.findAllEnabledWithPsps())
+                .thenReturn(List.of(rule(1L, 7L, "EUR", null, null, PspCode.ADYEN, null, null)))
+                .thenThrow(new IllegalStateException("db down"));
+        routingTable.refresh();
+
+        // when
+        routingTable.refresh();
+
+        // then
+        assertThat(routingTable.resolve(7L, "EUR", null, null))
+                .isEqualTo(new PspRoute(PspCode.ADYEN, null, null));
+    }
+
+    private static PspRoutingRule rule(Long id, Long merchantId, String currency, String country, String brand,
+                                       PspCode primary, PspCode secondary, Integer timeoutMs) {
+        Merchant merchant = new Merchant();
+        merchant.setId(merchantId);
+        return PspRoutingRule.builder()
+                .id(id)
+                .merchant(merchant)
+                .currency(currency)
+                .country(country)
+                .cardBrand(brand)
+                .primaryPsp(psp(primary))
+                .secondaryPsp(secondary != null ? psp(secondary) : null)
+                .enabled(true)
+                .timeoutMs(timeoutMs)
+                .build();
+    }
+
+    private static Psp psp(PspCode code) {
+        Psp psp = new Psp();
+        psp.setCode(code);
+        return psp;
+    }
+}
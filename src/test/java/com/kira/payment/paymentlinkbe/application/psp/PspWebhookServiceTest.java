@@ -1,7 +1,9 @@
 package com.kira.payment.paymentlinkbe.application.psp;
 
+import com.kira.payment.paymentlinkbe.application.paymentlink.PaymentLinkViewCache;
 import com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus;
 import com.kira.payment.paymentlinkbe.domain.paymentlink.PaymentLinkStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.Payment;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
 import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLink;
@@ -28,6 +30,12 @@ class PspWebhookServiceTest {
     @Mock
     private PaymentLinkRepository paymentLinkRepository;
 
+    @Mock
+    private PaymentLinkViewCache paymentLinkViewCache;
+
+    @Mock
+    private PaymentReferenceLookup paymentReferenceLookup;
+
     @InjectMocks
     private PspWebhookService pspWebhookService;
 
@@ -38,6 +46,7 @@ class PspWebhookServiceTest {
         String status = "CAPTURED";
 
         PaymentLink paymentLink = new PaymentLink();
+        paymentLink.setSlug("paid-slug");
         paymentLink.setStatus(PaymentLinkStatus.CREATED);
 
         Payment payment = new Payment();
@@ -46,7 +55,7 @@ class PspWebhookServiceTest {
         payment.setPaymentLink(paymentLink);
         payment.setUpdatedAt(LocalDateTime.now().minusMinutes(5));
 
-        when(paymentRepository.findByPspReference(pspReference))
+        when(paymentReferenceLookup.find(PspCode.STRIPE, pspReference))
                 .thenReturn(Optional.of(payment));
 
         // when
@@ -65,12 +74,13 @@ class PspWebhookServiceTest {
         PaymentLink savedLink = linkCaptor.getValue();
 
         assertThat(savedLink.getStatus()).isEqualTo(PaymentLinkStatus.PAID);
+        verify(paymentLinkViewCache).evict("paid-slug");
     }
 
     @Test
     void handleStripeWebhook_shouldDoNothingWhenPaymentNotFound() {
         // given
-        when(paymentRepository.findByPspReference("UNKNOWN"))
+        when(paymentReferenceLookup.find(PspCode.STRIPE, "UNKNOWN"))
                 .thenReturn(Optional.empty());
 
         // when
@@ -94,7 +104,7 @@ class PspWebhookServiceTest {
         payment.setStatus(PaymentStatus.PENDING);
         payment.setPaymentLink(paymentLink);
 
-        when(paymentRepository.findByPspReference(pspReference))
+        when(paymentReferenceLookup.find(PspCode.ADYEN, pspReference))
                 .thenReturn(Optional.of(payment));
 
         // when
@@ -0,0 +1,98 @@
+package com.kira.payment.paymentlinkbe.application.webhook;
+
+import com.kira.payment.paymentlinkbe.application.psp.PaymentReferenceLookup;
+import com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.ChargeStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.Payment;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.PaymentRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.WebhookEvent;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.payment.WebhookEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookApplicationServiceTest {
+
+    @Mock
+    private WebhookEventRepository webhookEventRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentReferenceLookup paymentReferenceLookup;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private WebhookApplicationService service;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void applyBatch_shouldLoadPaymentsOncePerPspAndFoldEventsPerCharge() {
+        // given
+        Payment pending = payment(1L, "ch_1", PaymentStatus.PENDING);
+        Payment captured = payment(2L, "ch_2", PaymentStatus.CAPTURED);
+
+        PspChargeEvent succeeded = PspChargeEvent.received(PspCode.STRIPE, ChargeStatus.SUCCEEDED, "ch_1", "p1", null, null);
+        PspChargeEvent lateFailure = PspChargeEvent.received(PspCode.STRIPE, ChargeStatus.FAILED, "ch_1", "p1", "ERR", "late");
+        PspChargeEvent duplicate = PspChargeEvent.received(PspCode.ADYEN, ChargeStatus.SUCCEEDED, "ch_2", "p2", null, null);
+        PspChargeEvent alreadyStored = PspChargeEvent.received(PspCode.ADYEN, ChargeStatus.FAILED, "ch_2", "p2", "ERR", "x");
+
+        when(webhookEventRepository.findExistingEventIds(anyCollection()))
+                .thenReturn(Set.of(alreadyStored.eventId()));
+        when(paymentReferenceLookup.findAll(PspCode.STRIPE, Set.of("ch_1")))
+                .thenReturn(Map.of("ch_1", pending));
+        when(paymentReferenceLookup.findAll(PspCode.ADYEN, Set.of("ch_2")))
+                .thenReturn(Map.of("ch_2", captured));
+
+        // when
+        service.applyBatch(List.of(succeeded, duplicate, lateFailure, alreadyStored));
+
+        // then
+        ArgumentCaptor<List<WebhookEvent>> stored = ArgumentCaptor.forClass(List.class);
+        verify(webhookEventRepository).saveAll(stored.capture());
+        assertThat(stored.getValue()).extracting(WebhookEvent::getEventId)
+                .containsExactly(succeeded.eventId(), duplicate.eventId(), lateFailure.eventId());
+
+        verify(paymentReferenceLookup, times(2)).findAll(any(), anyCollection());
+        ArgumentCaptor<List<Payment>> saved = ArgumentCaptor.forClass(List.class);
+        verify(paymentRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).containsExactly(pending);
+        assertThat(pending.getStatus()).isEqualTo(PaymentStatus.CAPTURED);
+        assertThat(captured.getStatus()).isEqualTo(PaymentStatus.CAPTURED);
+        assertThat(chargeEvents("STRIPE", "applied")).isEqualTo(1);
+        assertThat(chargeEvents("STRIPE", "ignored")).isEqualTo(1);
+        assertThat(chargeEvents("ADYEN", "ignored")).isEqualTo(1);
+        assertThat(chargeEvents("ADYEN", "duplicate")).isEqualTo(1);
+    }
+
+    private double chargeEvents(String psp, String result) {
+        return meterRegistry.get("webhook.charge.events").tags("psp", psp, "result", result).counter().count();
+    }
+
+    private static Payment payment(Long id, String pspReference, PaymentStatus status) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setPspReference(pspReference);
+        payment.setStatus(status);
+        return payment;
+    }
+}
@@ -0,0 +1,132 @@
+package com.kira.payment.paymentlinkbe.application.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kira.payment.paymentlinkbe.domain.psp.ChargeStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.infraestructure.webhook.FileWebhookJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class WebhookIngestionServiceTest {
+
+    @TempDir
+    Path journalDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final WebhookApplicationService applicationService = mock(WebhookApplicationService.class);
+    private final List<WebhookIngestionService> started = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (WebhookIngestionService service : started) {
+            service.stop();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submit_shouldJournalAndDrainInSequencedBatches() throws Exception {
+        // given
+        WebhookIngestionService service = start(new FileWebhookJournal(objectMapper, journalDir), 10);
+
+        // when
+        service.submit(event("ch_1", ChargeStatus.SUCCEEDED));
+        service.submit(event("ch_2", ChargeStatus.FAILED));
+        assertThat(service.depth()).isEqualTo(2);
+        service.drain();
+
+        // then
+        ArgumentCaptor<List<PspChargeEvent>> batch = ArgumentCaptor.forClass(List.class);
+        verify(applicationService).applyBatch(batch.capture());
+        assertThat(batch.getValue()).extracting(PspChargeEvent::sequence).containsExactly(1L, 2L);
+        assertThat(service.depth()).isZero();
+        assertThat(new FileWebhookJournal(objectMapper, journalDir).checkpoint()).isEqualTo(2);
+    }
+
+    @Test
+    void drain_shouldRetryFailedBatchAndReplayUnappliedEventsAfterRestart() throws Exception {
+        // given
+        WebhookIngestionService first = start(new FileWebhookJournal(objectMapper, journalDir), 10);
+        first.submit(event("ch_1", ChargeStatus.SUCCEEDED));
+        doThrow(new DataAccessResourceFailureException("db down")).when(applicationService).applyBatch(anyList());
+
+        // when
+        first.drain();
+        first.stop();
+
+        // then - not checkpointed, so a new instance replays it
+        reset(applicationService);
+        WebhookIngestionService second = start(new FileWebhookJournal(objectMapper, journalDir), 10);
+        assertThat(second.depth()).isEqualTo(1);
+        second.drain();
+        verify(applicationService).applyBatch(argThat(events ->
+                events.size() == 1 && events.get(0).pspChargeId().equals("ch_1")));
+
+        second.submit(event("ch_2", ChargeStatus.SUCCEEDED));
+        assertThat(second.depth()).isEqualTo(1);
+    }
+
+    @Test
+    void drain_shouldDeadLetterEventThatCannotBeAppliedAndApplyTheRest() throws Exception {
+        // given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WebhookIngestionService service = start(new FileWebhookJournal(objectMapper, journalDir), 10, meterRegistry);
+        service.submit(event("ch_bad", ChargeStatus.SUCCEEDED));
+        service.submit(event("ch_2", ChargeStatus.SUCCEEDED));
+        doThrow(new NullPointerException("pspCode"))
+                .when(applicationService).applyBatch(argThat(events ->
+                        events.stream().anyMatch(event -> event.pspChargeId().equals("ch_bad"))));
+
+        // when
+        service.drain();
+
+        // then
+        verify(applicationService).applyBatch(argThat(events ->
+                events.size() == 1 && events.get(0).pspChargeId().equals("ch_2")));
+        assertThat(service.depth()).isZero();
+        assertThat(meterRegistry.get("webhook.events.dead_lettered").counter().count()).isEqualTo(1);
+        assertThat(new FileWebhookJournal(objectMapper, journalDir).checkpoint()).isEqualTo(2);
+    }
+
+    @Test
+    void submit_shouldRejectWhenBacklogIsFull() throws Exception {
+        // given
+        WebhookIngestionService service = start(new FileWebhookJournal(objectMapper, journalDir), 1);
+        service.submit(event("ch_1", ChargeStatus.SUCCEEDED));
+
+        // expect
+        assertThatThrownBy(() -> service.submit(event("ch_2", ChargeStatus.SUCCEEDED)))
+                .isInstanceOf(WebhookIngestionUnavailableException.class);
+    }
+
+    private WebhookIngestionService start(WebhookJournal journal, int capacity) throws Exception {
+        return start(journal, capacity, new SimpleMeterRegistry());
+    }
+
+    private WebhookIngestionService start(WebhookJournal journal, int capacity,
+                                          SimpleMeterRegistry meterRegistry) throws Exception {
+        WebhookIngestionService service = new WebhookIngestionService(
+                journal, applicationService, meterRegistry, capacity, 100, 1024 * 1024, 2_000
+        );
+        service.start();
+        started.add(service);
+        return service;
+    }
+
+    private static PspChargeEvent event(String pspChargeId, ChargeStatus status) {
+        return PspChargeEvent.received(PspCode.STRIPE, status, pspChargeId, "pay_" + pspChargeId, null, null);
+    }
+}
@@ -0,0 +1,103 @@
+package com.kira.payment.paymentlinkbe.infraestructure.fx;
+
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.LockedFxQuote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FxQuoteLocksTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private InMemoryFxQuoteLockStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryFxQuoteLockStore(300, 100);
+    }
+
+    @Test
+    void resolve_shouldReturnLockedQuote_whenIdIsValid() {
+        // given
+        FxQuoteLocks locks = locksAt(NOW);
+        LockedFxQuote locked = locks.lock(quote());
+
+        // when
+        Optional<LockedFxQuote> resolved = locks.resolve(locked.quoteId());
+
+        // then
+        assertThat(resolved).contains(locked);
+        assertThat(locked.expiresAt()).isEqualTo(NOW.plusSeconds(300));
+        assertThat(counter("honoured")).isEqualTo(1.0);
+    }
+
+    @Test
+    void resolve_shouldReject_whenIdIsTampered() {
+        // given
+        FxQuoteLocks locks = locksAt(NOW);
+        String id = locks.lock(quote()).quoteId();
+        String[] parts = id.split("\\.");
+        String extended = parts[0] + "." + (Long.parseLong(parts[1]) + 3600) + "." + parts[2];
+
+        // when / then
+        assertThat(locks.resolve(extended)).isEmpty();
+        assertThat(locks.resolve("not-a-lock")).isEmpty();
+        assertThat(locks.resolve(null)).isEmpty();
+        assertThat(counter("rejected")).isEqualTo(3.0);
+    }
+
+    @Test
+    void resolve_shouldReject_whenIdSignedWithAnotherSecret() {
+        // given
+        FxQuoteLocks other = new FxQuoteLocks(store, meterRegistry, "other-secret", Duration.ofMinutes(5),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+        String id = other.lock(quote()).quoteId();
+
+        // when / then
+        assertThat(locksAt(NOW).resolve(id)).isEmpty();
+    }
+
+    @Test
+    void resolve_shouldReject_whenLockExpired() {
+        // given
+        String id = locksAt(NOW).lock(quote()).quoteId();
+
+        // when / then
+        assertThat(locksAt(NOW.plusSeconds(301)).resolve(id)).isEmpty();
+    }
+
+    @Test
+    void resolve_shouldReject_whenStoreNoLongerHoldsQuote() {
+        // given
+        FxQuoteLocks locks = locksAt(NOW);
+        String id = locks.lock(quote()).quoteId();
+        store = new InMemoryFxQuoteLockStore(300, 100);
+
+        // when / then
+        assertThat(locksAt(NOW).resolve(id)).isEmpty();
+    }
+
+    private FxQuoteLocks locksAt(Instant now) {
+        return new FxQuoteLocks(store, meterRegistry, "test-secret", Duration.ofMinutes(5),
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("fx.quote.locks").tag("result", result).counter().count();
+    }
+
+    private static FxQuote quote() {
+        return new FxQuote("USD", "MXN", new BigDecimal("17.20"), BigDecimal.ZERO, new BigDecimal("17.20"), NOW);
+    }
+}
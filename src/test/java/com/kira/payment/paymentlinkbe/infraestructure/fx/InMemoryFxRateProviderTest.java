@@ -1,6 +1,7 @@
 package com.kira.payment.paymentlinkbe.infraestructure.fx;
 
 import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
@@ -14,7 +15,7 @@ class InMemoryFxRateProviderTest {
     void getQuote_shouldReturnBaseRateWithoutJitter_whenMaxJitterIsZero() {
         // given
         InMemoryFxRateProvider provider =
-                new InMemoryFxRateProvider(BigDecimal.ZERO); // sin jitter
+                new InMemoryFxRateProvider(BigDecimal.ZERO, new SimpleMeterRegistry()); // sin jitter
         provider.setBaseRate("USD", "MXN", new BigDecimal("18.00"));
 
         // when
@@ -32,7 +33,7 @@ class InMemoryFxRateProviderTest {
     @Test
     void getQuote_shouldReturnOneForSameCurrency() {
         InMemoryFxRateProvider provider =
-                new InMemoryFxRateProvider(new BigDecimal("0.01"));
+                new InMemoryFxRateProvider(new BigDecimal("0.01"), new SimpleMeterRegistry());
 
         FxQuote quote = provider.getQuote("USD", "USD");
 
@@ -44,10 +45,27 @@ class InMemoryFxRateProviderTest {
     @Test
     void getQuote_shouldThrowWhenPairNotConfigured() {
         InMemoryFxRateProvider provider =
-                new InMemoryFxRateProvider(BigDecimal.ZERO);
+                new InMemoryFxRateProvider(BigDecimal.ZERO, new SimpleMeterRegistry());
 
         assertThatThrownBy(() -> provider.getQuote("EUR", "JPY"))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("FX rate not configured");
     }
+
+    @Test
+    void getQuote_shouldTimeQuotesByOutcome() {
+        // given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        InMemoryFxRateProvider provider = new InMemoryFxRateProvider(BigDecimal.ZERO, meterRegistry);
+
+        // when
+        provider.getQuote("USD", "COP");
+        assertThatThrownBy(() -> provider.getQuote("EUR", "JPY")).isInstanceOf(IllegalArgumentException.class);
+
+        // then
+        assertThat(meterRegistry.get("fx.quotes")
+                .tags("provider", "in-memory", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("fx.quotes")
+                .tags("provider", "in-memory", "outcome", "error").timer().count()).isEqualTo(1);
+    }
 }
@@ -0,0 +1,138 @@
+package com.kira.payment.paymentlinkbe.infraestructure.fx;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.FxRateProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisFxQuoteTierTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private FxRateProvider origin;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private RedisFxQuoteTier tier;
+
+    @BeforeEach
+    void setUp() {
+        tier = new RedisFxQuoteTier(
+                redisTemplate, objectMapper, origin, new SimpleMeterRegistry(), 30, 2000, 100, "fx:quotes"
+        );
+    }
+
+    @Test
+    void getQuote_shouldReturnSharedQuoteWithoutCallingOrigin() throws Exception {
+        // given
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("fx:quote:USD:MXN"))
+                .thenReturn(objectMapper.writeValueAsString(quote("17.20")));
+
+        // when
+        FxQuote quote = tier.getQuote("usd", "mxn");
+
+        // then
+        assertThat(quote.effectiveRate()).isEqualByComparingTo("17.20");
+        verifyNoInteractions(origin);
+    }
+
+    @Test
+    void getQuote_shouldLoadFromOriginUnderLockAndPublish() {
+        // given
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("fx:quote:USD:MXN")).thenReturn(null);
+        when(valueOperations.setIfAbsent(eq("fx:lock:USD:MXN"), anyString(), any(Duration.class)))
+                .thenReturn(true);
+        when(origin.getQuote("USD", "MXN")).thenReturn(quote("17.30"));
+
+        // when
+        FxQuote quote = tier.getQuote("USD", "MXN");
+
+        // then
+        assertThat(quote.effectiveRate()).isEqualByComparingTo("17.30");
+        verify(valueOperations).set(eq("fx:quote:USD:MXN"), anyString(), eq(Duration.ofSeconds(30)));
+        verify(redisTemplate).convertAndSend(eq("fx:quotes"), anyString());
+        verify(redisTemplate).execute(any(), eq(List.of("fx:lock:USD:MXN")), any());
+    }
+
+    @Test
+    void getQuote_shouldWaitForQuoteLoadedByAnotherNode() throws Exception {
+        // given
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("fx:quote:USD:MXN"))
+                .thenReturn(null)
+                .thenReturn(objectMapper.writeValueAsString(quote("17.25")));
+        when(valueOperations.setIfAbsent(eq("fx:lock:USD:MXN"), anyString(), any(Duration.class)))
+                .thenReturn(false);
+
+        // when
+        FxQuote quote = tier.getQuote("USD", "MXN");
+
+        // then
+        assertThat(quote.effectiveRate()).isEqualByComparingTo("17.25");
+        verifyNoInteractions(origin);
+    }
+
+    @Test
+    void getQuote_shouldFallBackToOriginWhenRedisIsDown() {
+        // given
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+        when(origin.getQuote("USD", "MXN")).thenReturn(quote("17.10"));
+
+        // when
+        FxQuote quote = tier.getQuote("USD", "MXN");
+
+        // then
+        assertThat(quote.effectiveRate()).isEqualByComparingTo("17.10");
+        verify(redisTemplate, never()).execute(any(), anyList(), any());
+    }
+
+    @Test
+    void onMessage_shouldNotifyListenersWithPublishedQuote() throws Exception {
+        // given
+        List<FxQuote> received = new ArrayList<>();
+        tier.onQuotePublished(received::add);
+
+        // when
+        tier.onMessage(objectMapper.writeValueAsString(quote("17.40")));
+        tier.onMessage("not json");
+
+        // then
+        assertThat(received).singleElement()
+                .satisfies(quote -> assertThat(quote.effectiveRate()).isEqualByComparingTo("17.40"));
+    }
+
+    private static FxQuote quote(String rate) {
+        BigDecimal value = new BigDecimal(rate);
+        return new FxQuote("USD", "MXN", value, BigDecimal.ZERO, value, Instant.now());
+    }
+}
@@ -0,0 +1,177 @@
+package com.kira.payment.paymentlinkbe.infraestructure.fx;
+
+import com.kira.payment.paymentlinkbe.domain.fx.FxQuote;
+import com.kira.payment.paymentlinkbe.domain.fx.FxRateProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class RefreshAheadFxRateProviderTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+
+    private final FxRateProvider upstream = mock(FxRateProvider.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+
+    private RefreshAheadFxRateProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        provider = new RefreshAheadFxRateProvider(
+                upstream,
+                meterRegistry,
+                Duration.ofSeconds(30),
+                Duration.ofSeconds(10),
+                Duration.ofSeconds(120),
+                Duration.ofSeconds(600),
+                clock::get,
+                Clock.fixed(NOW, ZoneOffset.UTC)
+        );
+    }
+
+    @Test
+    void getQuote_shouldServeCachedQuoteWithinFreshnessWindow() {
+        // given
+        when(upstream.getQuote("USD", "MXN")).thenReturn(quote("17.20"));
+
+        // when
+        provider.getQuote("usd", "mxn");
+        advance(Duration.ofSeconds(29));
+        FxQuote cached = provider.getQuote("USD", "MXN");
+
+        // then
+        assertThat(cached.effectiveRate()).isEqualByComparingTo("17.20");
+        verify(upstream, times(1)).getQuote("USD", "MXN");
+        assertThat(meterRegistry.get("fx.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("fx.cache.age.seconds").tag("pair", "USD/MXN").gauge().value()).isEqualTo(29);
+    }
+
+    @Test
+    void refreshDue_shouldRefetchBeforeQuoteExpires() {
+        // given
+        when(upstream.getQuote("USD", "MXN")).thenReturn(quote("17.20"), quote("17.40"));
+        provider.getQuote("USD", "MXN");
+
+        // when
+        advance(Duration.ofSeconds(19));
+        provider.refreshDue();
+        advance(Duration.ofSeconds(1));
+        provider.refreshDue();
+
+        // then
+        verify(upstream, times(2)).getQuote("USD", "MXN");
+        assertThat(provider.getQuote("USD", "MXN").effectiveRate()).isEqualByComparingTo("17.40");
+    }
+
+    @Test
+    void getQuote_shouldServeStaleQuoteWhileUpstreamFailsUntilMaxStale() {
+        // given
+        when(upstream.getQuote("USD", "MXN"))
+                .thenReturn(quote("17.20"))
+                .thenThrow(new IllegalStateException("upstream down"));
+        provider.getQuote("USD", "MXN");
+
+        // when
+        advance(Duration.ofSeconds(60));
+        provider.refreshDue();
+        FxQuote stale = provider.getQuote("USD", "MXN");
+
+        // then
+        assertThat(stale.effectiveRate()).isEqualByComparingTo("17.20");
+        assertThat(meterRegistry.get("fx.cache.refresh.failures").counter().count()).isEqualTo(1);
+
+        advance(Duration.ofSeconds(60));
+        assertThatThrownBy(() -> provider.getQuote("USD", "MXN"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("upstream down");
+    }
+
+    @Test
+    void refreshDue_shouldStopRefreshingIdlePairs() {
+        // given
+        when(upstream.getQuote("USD", "MXN")).thenReturn(quote("17.20"));
+        provider.getQuote("USD", "MXN");
+
+        // when
+        advance(Duration.ofSeconds(600));
+        provider.refreshDue();
+
+        // then
+        verify(upstream, times(1)).getQuote("USD", "MXN");
+        assertThat(provider.ageSeconds(RefreshAheadFxRateProvider.Pair.of("USD", "MXN"))).isNaN();
+    }
+
+    @Test
+    void acceptPublished_shouldReplaceQuoteOfServedPairOnly() {
+        // given
+        when(upstream.getQuote("USD", "MXN")).thenReturn(quote("17.20"));
+        provider.getQuote("USD", "MXN");
+
+        // when
+        provider.acceptPublished(quote("17.35"));
+        provider.acceptPublished(new FxQuote("EUR", "MXN", BigDecimal.TEN, BigDecimal.ZERO, BigDecimal.TEN, NOW));
+
+        // then
+        assertThat(provider.getQuote("USD", "MXN").effectiveRate()).isEqualByComparingTo("17.35");
+        assertThat(provider.ageSeconds(RefreshAheadFxRateProvider.Pair.of("EUR", "MXN"))).isNaN();
+        verify(upstream, times(1)).getQuote("USD", "MXN");
+    }
+
+    @Test
+    void getQuote_shouldAgeQuotesFromWhenTheyWereQuoted() {
+        // given
+        when(upstream.getQuote("USD", "MXN"))
+                .thenReturn(quote("17.20", NOW.minusSeconds(25)))
+                .thenThrow(new IllegalStateException("upstream down"));
+        provider.getQuote("USD", "MXN");
+
+        // when
+        advance(Duration.ofSeconds(6));
+        FxQuote served = provider.getQuote("USD", "MXN");
+
+        // then
+        assertThat(served.effectiveRate()).isEqualByComparingTo("17.20");
+        assertThat(meterRegistry.get("fx.cache.requests").tag("result", "stale").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("fx.cache.age.seconds").tag("pair", "USD/MXN").gauge().value()).isEqualTo(31);
+    }
+
+    @Test
+    void refreshDue_shouldRefetchSharedQuoteNearingExpiryRightAway() {
+        // given
+        when(upstream.getQuote("USD", "MXN"))
+                .thenReturn(quote("17.20", NOW.minusSeconds(25)), quote("17.40"));
+        provider.getQuote("USD", "MXN");
+
+        // when
+        provider.refreshDue();
+
+        // then
+        verify(upstream, times(2)).getQuote("USD", "MXN");
+        assertThat(provider.getQuote("USD", "MXN").effectiveRate()).isEqualByComparingTo("17.40");
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+
+    private static FxQuote quote(String rate) {
+        return quote(rate, NOW);
+    }
+
+    private static FxQuote quote(String rate, Instant quotedAt) {
+        BigDecimal value = new BigDecimal(rate);
+        return new FxQuote("USD", "MXN", value, BigDecimal.ZERO, value, quotedAt);
+    }
+}
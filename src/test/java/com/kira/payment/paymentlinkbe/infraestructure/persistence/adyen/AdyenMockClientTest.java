@@ -1,12 +1,16 @@
 package com.kira.payment.paymentlinkbe.infraestructure.persistence.adyen;
 
 import com.kira.payment.paymentlinkbe.domain.psp.*;
+import com.kira.payment.paymentlinkbe.infraestructure.psp.PspMockStores;
+import com.kira.payment.paymentlinkbe.infraestructure.psp.simulation.PspSimulation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.kira.payment.paymentlinkbe.infraestructure.psp.adyen.AdyenPspClientMock;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
@@ -22,6 +26,12 @@ class AdyenMockClientTest {
     @Mock
     private PspWebhookPublisher webhookPublisher;
 
+    @Spy
+    private PspSimulation simulation = new PspSimulation("", "");
+
+    @Spy
+    private PspMockStores stores = new PspMockStores(new SimpleMeterRegistry(), 1_000, 900, 1_000, 86_400);
+
     @InjectMocks
     private AdyenPspClientMock adyenMockClient;
 
@@ -0,0 +1,84 @@
+package com.kira.payment.paymentlinkbe.infraestructure.persistence.fx;
+
+import com.kira.payment.paymentlinkbe.domain.fx.FxConversion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class FxRateSnapshotWriterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void flush_shouldWriteQueuedSnapshotsAsMultiRowInserts() {
+        // given
+        FxRateSnapshotWriter writer = new FxRateSnapshotWriter(jdbcTemplate, meterRegistry, 100, 2, 3);
+        writer.enqueue(1L, conversion("17.20"));
+        writer.enqueue(2L, conversion("17.25"));
+        writer.enqueue(3L, conversion("17.30"));
+
+        // when
+        writer.flush();
+
+        // then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(2)).update(sql.capture(), args.capture());
+        assertThat(sql.getAllValues().get(0))
+                .contains("values (?,?,?,?,?,?),(?,?,?,?,?,?) on conflict (payment_id) do nothing");
+        assertThat(args.getAllValues().get(0)).hasSize(12).startsWith(1L, "USD", "MXN");
+        assertThat(args.getAllValues().get(1)).hasSize(6).startsWith(3L);
+        assertThat(meterRegistry.get("fx.snapshot.written").counter().count()).isEqualTo(3);
+        assertThat(writer.depth()).isZero();
+    }
+
+    @Test
+    void flush_shouldRetryFailedBatchAndDropItAfterMaxAttempts() {
+        // given
+        FxRateSnapshotWriter writer = new FxRateSnapshotWriter(jdbcTemplate, meterRegistry, 100, 10, 2);
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+        writer.enqueue(1L, conversion("17.20"));
+
+        // when
+        writer.flush();
+        int depthAfterFirstFailure = writer.depth();
+        writer.flush();
+
+        // then
+        assertThat(depthAfterFirstFailure).isEqualTo(1);
+        assertThat(writer.depth()).isZero();
+        assertThat(meterRegistry.get("fx.snapshot.dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void enqueue_shouldDropWhenQueueIsFull() {
+        // given
+        FxRateSnapshotWriter writer = new FxRateSnapshotWriter(jdbcTemplate, meterRegistry, 1, 10, 3);
+
+        // when
+        writer.enqueue(1L, conversion("17.20"));
+        writer.enqueue(2L, conversion("17.20"));
+
+        // then
+        assertThat(writer.depth()).isEqualTo(1);
+        assertThat(meterRegistry.get("fx.snapshot.dropped").counter().count()).isEqualTo(1);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private static FxConversion conversion(String rate) {
+        BigDecimal value = new BigDecimal(rate);
+        return new FxConversion("USD", "MXN", value, BigDecimal.ZERO, value, new BigDecimal("100.00"), Instant.now());
+    }
+}
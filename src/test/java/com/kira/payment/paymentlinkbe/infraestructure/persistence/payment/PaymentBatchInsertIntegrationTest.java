@@ -0,0 +1,110 @@
+package com.kira.payment.paymentlinkbe.infraestructure.persistence.payment;
+
+import com.kira.payment.paymentlinkbe.domain.payment.PaymentFeeType;
+import com.kira.payment.paymentlinkbe.domain.payment.PaymentStatus;
+import com.kira.payment.paymentlinkbe.domain.paymentlink.PaymentLinkStatus;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.Merchant;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.merchant.MerchantRepository;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLink;
+import com.kira.payment.paymentlinkbe.infraestructure.persistence.paymentlink.PaymentLinkRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        properties = {
+                "payment-link.public-base-url=http://localhost/checkout",
+                "spring.jpa.properties.hibernate.generate_statistics=true"
+        }
+)
+class PaymentBatchInsertIntegrationTest {
+
+    @Autowired
+    private MerchantRepository merchantRepository;
+
+    @Autowired
+    private PaymentLinkRepository paymentLinkRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private PaymentLink paymentLink;
+
+    @BeforeEach
+    void setUp() {
+        Merchant merchant = merchantRepository.save(Merchant.builder()
+                .externalId("m_batch_" + UUID.randomUUID())
+                .name("Batch Merchant")
+                .email("batch@example.com")
+                .defaultCurrency("USD")
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        paymentLink = paymentLinkRepository.save(PaymentLink.builder()
+                .publicId(UUID.randomUUID().toString())
+                .slug("batch-" + UUID.randomUUID().toString().substring(0, 8))
+                .merchant(merchant)
+                .amount(new BigDecimal("100.00"))
+                .currency("USD")
+                .status(PaymentLinkStatus.CREATED)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    @Test
+    void paymentWithFees_shouldBeInsertedWithOneStatementPerTable() {
+        // given: the first payment fetches the id blocks of both sequences
+        transactionTemplate.executeWithoutResult(status -> paymentRepository.save(paymentWithFees()));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> paymentRepository.save(paymentWithFees()));
+
+        // then
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(4);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    private Payment paymentWithFees() {
+        LocalDateTime now = LocalDateTime.now();
+        Payment payment = Payment.builder()
+                .paymentLink(paymentLink)
+                .merchant(paymentLink.getMerchant())
+                .status(PaymentStatus.CAPTURED)
+                .amount(new BigDecimal("100.00"))
+                .feeTotal(new BigDecimal("4.00"))
+                .netAmount(new BigDecimal("96.00"))
+                .currency("USD")
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        for (PaymentFeeType type : PaymentFeeType.values()) {
+            payment.getFees().add(PaymentFee.builder()
+                    .payment(payment)
+                    .type(type)
+                    .amount(BigDecimal.ONE)
+                    .currency("USD")
+                    .build());
+        }
+        return payment;
+    }
+}
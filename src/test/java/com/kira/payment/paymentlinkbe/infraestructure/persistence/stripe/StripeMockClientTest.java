@@ -1,12 +1,16 @@
 package com.kira.payment.paymentlinkbe.infraestructure.persistence.stripe;
 
 import com.kira.payment.paymentlinkbe.domain.psp.*;
+import com.kira.payment.paymentlinkbe.infraestructure.psp.PspMockStores;
+import com.kira.payment.paymentlinkbe.infraestructure.psp.simulation.PspSimulation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.kira.payment.paymentlinkbe.infraestructure.psp.stripe.StripePspClientMock;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
@@ -14,13 +18,21 @@ import java.math.BigDecimal;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class StripeMockClientTest {
     @Mock
     private PspWebhookPublisher webhookPublisher;
 
+    @Spy
+    private PspSimulation simulation = new PspSimulation("", "");
+
+    @Spy
+    private PspMockStores stores = new PspMockStores(new SimpleMeterRegistry(), 1_000, 900, 1_000, 86_400);
+
     @InjectMocks
     private StripePspClientMock stripeMockClient;
 
@@ -119,4 +131,58 @@ class StripeMockClientTest {
         assertThat(failureCodeCaptor.getValue()).isEqualTo("INVALID_TOKEN");
         assertThat(failureMessageCaptor.getValue()).contains("Card token not found");
     }
+
+    @Test
+    void charge_shouldReturnSameChargeForRepeatedIdempotencyKey_andAllowVoid() {
+        // given
+        CardToken token = stripeMockClient.tokenizeCard(new PspTokenizationRequest(
+                "4111111111111111",
+                12,
+                2030,
+                "123"
+        ));
+        PspChargeRequest chargeRequest = new PspChargeRequest(
+                token.token(),
+                new BigDecimal("100.00"),
+                "USD",
+                "pl-payment-1-stripe"
+        );
+
+        // when
+        PspChargeResult first = stripeMockClient.charge(chargeRequest);
+        PspChargeResult retry = stripeMockClient.charge(chargeRequest);
+        PspChargeResult voided = stripeMockClient.voidCharge(first.pspChargeId());
+
+        // then
+        assertThat(retry).isEqualTo(first);
+        verify(webhookPublisher, times(1)).publishChargeSucceeded(eq(PspCode.STRIPE), anyString(), anyString());
+        assertThat(voided.status()).isEqualTo(ChargeStatus.VOIDED);
+        assertThat(stripeMockClient.voidCharge("ch_unknown").status()).isEqualTo(ChargeStatus.FAILED);
+    }
+
+    @Test
+    void charge_shouldBeDeclinedWithoutWebhook_whenSimulationDeclines() {
+        // given
+        StripePspClientMock declining = new StripePspClientMock(
+                webhookPublisher, new PspSimulation("decline-rate=1", ""), stores
+        );
+        CardToken token = declining.tokenizeCard(new PspTokenizationRequest(
+                "4111111111111111",
+                12,
+                2030,
+                "123"
+        ));
+
+        // when
+        PspChargeResult result = declining.charge(new PspChargeRequest(
+                token.token(),
+                new BigDecimal("100.00"),
+                "USD"
+        ));
+
+        // then
+        assertThat(result.status()).isEqualTo(ChargeStatus.FAILED);
+        assertThat(result.failureCode()).isEqualTo("SIM_STRIPE_DECLINED");
+        verifyNoInteractions(webhookPublisher);
+    }
 }
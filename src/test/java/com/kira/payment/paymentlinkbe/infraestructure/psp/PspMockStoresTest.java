@@ -0,0 +1,113 @@
+package com.kira.payment.paymentlinkbe.infraestructure.psp;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.kira.payment.paymentlinkbe.domain.psp.CardToken;
+import com.kira.payment.paymentlinkbe.domain.psp.ChargeStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.PspChargeRequest;
+import com.kira.payment.paymentlinkbe.domain.psp.PspChargeResult;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import com.kira.payment.paymentlinkbe.domain.psp.PspTokenizationRequest;
+import com.kira.payment.paymentlinkbe.domain.psp.PspWebhookPublisher;
+import com.kira.payment.paymentlinkbe.infraestructure.psp.simulation.PspSimulation;
+import com.kira.payment.paymentlinkbe.infraestructure.psp.stripe.StripePspClientMock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class PspMockStoresTest {
+
+    @Mock
+    private PspWebhookPublisher webhookPublisher;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void charge_shouldRejectToken_onceItHasExpired() {
+        // given
+        PspMockStores stores = new PspMockStores(meterRegistry, 100, 900, 100, 86_400, nanos::get);
+        StripePspClientMock client = new StripePspClientMock(webhookPublisher, new PspSimulation("", ""), stores);
+        CardToken token = client.tokenizeCard(new PspTokenizationRequest("4111111111111111", 12, 2030, "123"));
+
+        // when
+        nanos.addAndGet(Duration.ofSeconds(901).toNanos());
+        PspChargeResult result = client.charge(new PspChargeRequest(token.token(), new BigDecimal("10.00"), "USD"));
+
+        // then
+        assertThat(result.status()).isEqualTo(ChargeStatus.FAILED);
+        assertThat(result.failureCode()).isEqualTo("INVALID_TOKEN");
+    }
+
+    @Test
+    void findCharge_shouldReportVoidedCharge_onceItIsVoided() {
+        // given
+        PspMockStores stores = new PspMockStores(meterRegistry, 100, 900, 100, 86_400, nanos::get);
+        StripePspClientMock client = new StripePspClientMock(webhookPublisher, new PspSimulation("", ""), stores);
+        CardToken token = client.tokenizeCard(new PspTokenizationRequest("4111111111111111", 12, 2030, "123"));
+        PspChargeResult charged = client.charge(
+                new PspChargeRequest(token.token(), new BigDecimal("10.00"), "USD", "pl-payment-1-stripe"));
+
+        // when
+        client.voidCharge(charged.pspChargeId());
+
+        // then
+        assertThat(client.findCharge("pl-payment-1-stripe"))
+                .hasValueSatisfying(found -> assertThat(found.status()).isEqualTo(ChargeStatus.VOIDED));
+        assertThat(client.charge(
+                new PspChargeRequest(token.token(), new BigDecimal("10.00"), "USD", "pl-payment-1-stripe")
+        ).status()).isEqualTo(ChargeStatus.VOIDED);
+    }
+
+    @Test
+    void charge_shouldReplayStoredResult_whenSimulationFailsTheRetry() {
+        // given
+        PspMockStores stores = new PspMockStores(meterRegistry, 100, 900, 100, 86_400, nanos::get);
+        PspSimulation simulation = new PspSimulation("", "");
+        StripePspClientMock client = new StripePspClientMock(webhookPublisher, simulation, stores);
+        CardToken token = client.tokenizeCard(new PspTokenizationRequest("4111111111111111", 12, 2030, "123"));
+        PspChargeRequest request =
+                new PspChargeRequest(token.token(), new BigDecimal("10.00"), "USD", "pl-payment-2-stripe");
+        PspChargeResult charged = client.charge(request);
+
+        // when
+        simulation.update(PspCode.STRIPE, "error-rate=1");
+        PspChargeResult retried = client.charge(request);
+
+        // then
+        assertThat(retried).isEqualTo(charged);
+        assertThat(retried.status()).isEqualTo(ChargeStatus.SUCCEEDED);
+    }
+
+    @Test
+    void stores_shouldStayWithinMaxSize_andExportSizeAndEvictionMetrics() {
+        // given
+        PspMockStores stores = new PspMockStores(meterRegistry, 100, 900, 100, 86_400, nanos::get);
+        Cache<String, ChargeStatus> charges = stores.charges(PspCode.ADYEN);
+
+        // when
+        for (int i = 0; i < 1_000; i++) {
+            charges.put("ch_" + i, ChargeStatus.SUCCEEDED);
+        }
+        charges.cleanUp();
+
+        // then
+        assertThat(charges.estimatedSize()).isLessThanOrEqualTo(100);
+        assertThat(meterRegistry.get("cache.size")
+                .tag("cache", PspMockStores.CHARGES_CACHE)
+                .tag("psp", "ADYEN")
+                .gauge().value()).isLessThanOrEqualTo(100);
+        assertThat(meterRegistry.get("cache.evictions")
+                .tag("cache", PspMockStores.CHARGES_CACHE)
+                .tag("psp", "ADYEN")
+                .functionCounter().count()).isGreaterThanOrEqualTo(900);
+    }
+}
@@ -0,0 +1,155 @@
+package com.kira.payment.paymentlinkbe.infraestructure.psp.simulation;
+
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PspSimulationTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    @Test
+    void parse_shouldApplyDefaults_andRejectUnknownKeysAndInvalidRates() {
+        // when
+        PspSimulationProfile profile = PspSimulationProfile.parse(" median-latency-ms=120 , error-rate=0.05");
+
+        // then
+        assertThat(profile.medianLatencyMs()).isEqualTo(120);
+        assertThat(profile.errorRate()).isEqualTo(0.05);
+        assertThat(profile.timeoutMs()).isEqualTo(30_000);
+        assertThat(profile.brownoutLatencyFactor()).isEqualTo(1.0);
+        assertThat(PspSimulationProfile.parse("")).isEqualTo(PspSimulationProfile.NONE);
+        assertThatThrownBy(() -> PspSimulationProfile.parse("latency=5"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PspSimulationProfile.parse("error-rate=1.5"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void beforeCharge_shouldDecline_orThrowForErrorsAndTimeouts() {
+        // given
+        PspSimulation simulation = simulation("decline-rate=1", "error-rate=1");
+
+        // when / then
+        assertThat(simulation.beforeCharge(PspCode.STRIPE)).isTrue();
+        assertThatThrownBy(() -> simulation.beforeCharge(PspCode.ADYEN))
+                .isInstanceOf(PspSimulatedFailureException.class)
+                .hasMessageContaining("error");
+
+        simulation.update(PspCode.ADYEN, "timeout-rate=1,timeout-ms=0");
+        assertThatThrownBy(() -> simulation.beforeCharge(PspCode.ADYEN))
+                .isInstanceOf(PspSimulatedFailureException.class)
+                .hasMessageContaining("timeout");
+    }
+
+    @Test
+    void planCharge_shouldFailWholeErrorBurst_onceItStarts() {
+        // given: the second draw starts a burst, every other draw is above all rates
+        Iterator<Double> draws = List.of(0.9, 0.1).iterator();
+        PspSimulator simulator = new PspSimulator(
+                PspSimulationProfile.parse("error-burst-rate=0.5,error-burst-length=3"),
+                clock::get,
+                () -> draws.hasNext() ? draws.next() : 0.9
+        );
+
+        // when
+        List<PspSimulator.Outcome> outcomes = List.of(
+                simulator.planCharge().outcome(),
+                simulator.planCharge().outcome(),
+                simulator.planCharge().outcome(),
+                simulator.planCharge().outcome()
+        );
+
+        // then
+        assertThat(outcomes).containsExactly(
+                PspSimulator.Outcome.ERROR,
+                PspSimulator.Outcome.ERROR,
+                PspSimulator.Outcome.ERROR,
+                PspSimulator.Outcome.PROCEED
+        );
+    }
+
+    @Test
+    void planCharge_shouldRejectOverThroughputCap_untilTheNextSecond() {
+        // given
+        PspSimulator simulator = new PspSimulator(PspSimulationProfile.parse("max-rps=2"), clock::get);
+
+        // when / then
+        assertThat(simulator.planCharge().outcome()).isEqualTo(PspSimulator.Outcome.PROCEED);
+        assertThat(simulator.planCharge().outcome()).isEqualTo(PspSimulator.Outcome.PROCEED);
+        assertThat(simulator.planCharge().outcome()).isEqualTo(PspSimulator.Outcome.RATE_LIMITED);
+
+        clock.addAndGet(1_000);
+        assertThat(simulator.planCharge().outcome()).isEqualTo(PspSimulator.Outcome.PROCEED);
+    }
+
+    @Test
+    void planLatency_shouldRespectFloor_andMultiplyDuringBrownout() {
+        // given
+        PspSimulator simulator = new PspSimulator(PspSimulationProfile.parse(
+                "min-latency-ms=20,median-latency-ms=100,p99-latency-ms=100,"
+                        + "brownout-every-s=60,brownout-for-s=10,brownout-latency-factor=5"
+        ), clock::get);
+
+        // when
+        long duringBrownout = simulator.planLatency();
+        clock.addAndGet(15_000);
+        long afterBrownout = simulator.planLatency();
+
+        // then
+        assertThat(duringBrownout).isEqualTo(500);
+        assertThat(afterBrownout).isEqualTo(100);
+        simulator.update(PspSimulationProfile.parse("min-latency-ms=20"));
+        assertThat(simulator.planLatency()).isEqualTo(20);
+    }
+
+    @Test
+    void planLatency_shouldFollowConfiguredMedianAndTail() {
+        // given
+        PspSimulator simulator = new PspSimulator(
+                PspSimulationProfile.parse("median-latency-ms=100,p99-latency-ms=1000"), clock::get);
+        int samples = 20_000;
+        int belowMedian = 0;
+        int belowP99 = 0;
+
+        // when
+        for (int i = 0; i < samples; i++) {
+            long latency = simulator.planLatency();
+            if (latency <= 100) belowMedian++;
+            if (latency <= 1000) belowP99++;
+        }
+
+        // then
+        assertThat(belowMedian / (double) samples).isBetween(0.47, 0.53);
+        assertThat(belowP99 / (double) samples).isBetween(0.985, 0.995);
+    }
+
+    @Test
+    void reset_shouldRestoreConfiguredProfile() {
+        // given
+        PspSimulation simulation = simulation("median-latency-ms=50", "");
+        simulation.update(PspCode.STRIPE, "error-rate=1");
+
+        // when
+        PspSimulationProfile restored = simulation.reset(PspCode.STRIPE);
+
+        // then
+        assertThat(restored.medianLatencyMs()).isEqualTo(50);
+        assertThat(restored.errorRate()).isZero();
+        assertThat(simulation.profiles()).containsEntry(PspCode.ADYEN, PspSimulationProfile.NONE);
+    }
+
+    private PspSimulation simulation(String stripe, String adyen) {
+        return new PspSimulation(Map.of(
+                PspCode.STRIPE, PspSimulationProfile.parse(stripe),
+                PspCode.ADYEN, PspSimulationProfile.parse(adyen)
+        ), clock::get);
+    }
+}
@@ -0,0 +1,50 @@
+package com.kira.payment.paymentlinkbe.infraestructure.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kira.payment.paymentlinkbe.application.webhook.PspChargeEvent;
+import com.kira.payment.paymentlinkbe.domain.psp.ChargeStatus;
+import com.kira.payment.paymentlinkbe.domain.psp.PspCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileWebhookJournalTest {
+
+    @TempDir
+    Path journalDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void open_shouldCutTornLastEntrySoNextAppendStartsOnItsOwnLine() throws Exception {
+        // given
+        FileWebhookJournal first = new FileWebhookJournal(objectMapper, journalDir);
+        first.append(List.of(event(1, "ch_1")));
+        first.close();
+        Files.writeString(journalDir.resolve("events.log"), "{\"eventId\":\"torn",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        // when
+        FileWebhookJournal reopened = new FileWebhookJournal(objectMapper, journalDir);
+        reopened.append(List.of(event(2, "ch_2")));
+
+        // then
+        assertThat(reopened.readAfter(0))
+                .extracting(PspChargeEvent::pspChargeId)
+                .containsExactly("ch_1", "ch_2");
+        assertThat(reopened.lastSequence()).isEqualTo(2);
+        reopened.close();
+    }
+
+    private static PspChargeEvent event(long sequence, String pspChargeId) {
+        return PspChargeEvent.received(PspCode.STRIPE, ChargeStatus.SUCCEEDED, pspChargeId, "pay_" + pspChargeId,
+                null, null).withSequence(sequence);
+    }
+}